@@ -5,4 +5,9 @@ public enum Metric {
     REPORTING_ANM_REPORTS_INSERT_TIME,
     REPORTING_SERVICE_PROVIDED_CACHE_TIME,
     REPORTING_SERVICE_PROVIDED_INSERT_TIME,
+    REPORTING_AGGREGATOR_EXPORT_LAG,
+    REPORTING_AGGREGATOR_EXPORT_THROUGHPUT,
+    SCHEDULER_ALERT_SINK_BACKLOG,
+    SCHEDULER_ALERT_SINK_FLUSH_TIME,
+    ZIGGY_ENGINE_POOL_WAIT_TIME,
 }
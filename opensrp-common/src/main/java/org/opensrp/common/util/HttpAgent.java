@@ -14,6 +14,7 @@ import org.apache.http.conn.scheme.SchemeRegistry;
 import org.apache.http.conn.scheme.SocketFactory;
 import org.apache.http.conn.ssl.SSLSocketFactory;
 import org.apache.http.conn.ssl.X509HostnameVerifier;
+import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
@@ -25,18 +26,25 @@ import org.apache.http.protocol.HTTP;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.springframework.stereotype.Component;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.security.KeyStore;
 import java.security.Security;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 @Component
 public class HttpAgent {
 
     private final DefaultHttpClient httpClient;
 
+    public interface ResponseBodyHandler {
+        void handle(InputStream body) throws IOException;
+    }
+
     public HttpAgent() {
         BasicHttpParams basicHttpParams = new BasicHttpParams();
         HttpConnectionParams.setConnectionTimeout(basicHttpParams, 30000);
@@ -58,7 +66,8 @@ public class HttpAgent {
             entity.setContentEncoding(contentType);
             request.setEntity(entity);
             org.apache.http.HttpResponse response = httpClient.execute(request);
-            return new HttpResponse(response.getStatusLine().getStatusCode() == HttpStatus.SC_OK, IOUtils.toString(response.getEntity().getContent()));
+            int statusCode = response.getStatusLine().getStatusCode();
+            return new HttpResponse(statusCode == HttpStatus.SC_OK, IOUtils.toString(response.getEntity().getContent()), statusCode);
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -67,11 +76,30 @@ public class HttpAgent {
     public HttpResponse put(String url, Map<String, String> formParams) {
         HttpPut request = new HttpPut(url);
         try {
-            List<NameValuePair> urlParameters = new ArrayList<>();
-            for (String param : formParams.keySet()) {
-                urlParameters.add(new BasicNameValuePair(param, formParams.get(param)));
+            request.setEntity(new UrlEncodedFormEntity(nameValuePairs(formParams)));
+            org.apache.http.HttpResponse response = httpClient.execute(request);
+            return new HttpResponse(response.getStatusLine().getStatusCode() == HttpStatus.SC_OK,
+                    IOUtils.toString(response.getEntity().getContent()));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Same as put, but the form is sent gzip compressed with a gzip content encoding.
+     */
+    public HttpResponse putCompressed(String url, Map<String, String> formParams) {
+        HttpPut request = new HttpPut(url);
+        try {
+            UrlEncodedFormEntity form = new UrlEncodedFormEntity(nameValuePairs(formParams));
+            ByteArrayOutputStream compressedForm = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressedForm)) {
+                form.writeTo(gzip);
             }
-            request.setEntity(new UrlEncodedFormEntity(urlParameters));
+            ByteArrayEntity entity = new ByteArrayEntity(compressedForm.toByteArray());
+            entity.setContentType(form.getContentType());
+            entity.setContentEncoding("gzip");
+            request.setEntity(entity);
             org.apache.http.HttpResponse response = httpClient.execute(request);
             return new HttpResponse(response.getStatusLine().getStatusCode() == HttpStatus.SC_OK,
                     IOUtils.toString(response.getEntity().getContent()));
@@ -80,6 +108,14 @@ public class HttpAgent {
         }
     }
 
+    private List<NameValuePair> nameValuePairs(Map<String, String> formParams) {
+        List<NameValuePair> nameValuePairs = new ArrayList<>();
+        for (String param : formParams.keySet()) {
+            nameValuePairs.add(new BasicNameValuePair(param, formParams.get(param)));
+        }
+        return nameValuePairs;
+    }
+
     public HttpResponse get(String url) {
         HttpGet request = new HttpGet(url);
         try {
@@ -101,6 +137,28 @@ public class HttpAgent {
         }
     }
 
+    /**
+     * Same as getWithSocketTimeout, but a successful response body is handed to the handler as it arrives instead of
+     * being read into memory. The body of the returned response is only filled in when the request fails.
+     */
+    public HttpResponse getWithSocketTimeout(String url, ResponseBodyHandler handler) {
+        HttpGet request = new HttpGet(url);
+        try {
+            httpClient.getParams().setParameter(CoreConnectionPNames.SO_TIMEOUT, 0);
+            org.apache.http.HttpResponse response = httpClient.execute(request);
+            try (InputStream body = response.getEntity().getContent()) {
+                if (response.getStatusLine().getStatusCode() != HttpStatus.SC_OK) {
+                    return new HttpResponse(false, IOUtils.toString(body));
+                }
+                handler.handle(body);
+                return new HttpResponse(true, null);
+            }
+        } catch (Exception e) {
+            request.abort();
+            throw new RuntimeException(e);
+        }
+    }
+
     private SocketFactory sslSocketFactoryWithDrishtiCertificate() {
         try {
             Security.addProvider(new BouncyCastleProvider());
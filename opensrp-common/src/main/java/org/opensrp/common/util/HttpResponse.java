@@ -3,10 +3,16 @@ package org.opensrp.common.util;
 public class HttpResponse {
     private final boolean isSuccess;
     private final String body;
+    private final int statusCode;
 
     public HttpResponse(boolean isSuccess, String body) {
+        this(isSuccess, body, 0);
+    }
+
+    public HttpResponse(boolean isSuccess, String body, int statusCode) {
         this.isSuccess = isSuccess;
         this.body = body;
+        this.statusCode = statusCode;
     }
 
     public boolean isSuccess() {
@@ -16,4 +22,11 @@ public class HttpResponse {
     public String body() {
         return body;
     }
+
+    /**
+     * Whether the request was refused as it was sent, so that sending it again as it is will not help.
+     */
+    public boolean isClientError() {
+        return statusCode >= 400 && statusCode < 500;
+    }
 }
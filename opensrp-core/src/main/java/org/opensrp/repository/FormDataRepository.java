@@ -3,4 +3,23 @@ package org.opensrp.repository;
 public abstract class FormDataRepository {
 	//public abstract String saveFormSubmission(String params, String data, String formDataDefinitionVersion);
 	public abstract String saveEntity(String entityType, String fields);
+
+	/**
+	 * Starts collecting the entities saved by the current thread, so that they are written together on flush
+	 * instead of one at a time. Without a batch every entity is written as soon as it is saved.
+	 */
+	public void startBatch() {
+	}
+
+	/**
+	 * Writes the entities saved by the current thread since the last flush.
+	 */
+	public void flush() {
+	}
+
+	/**
+	 * Flushes and ends the batch of the current thread.
+	 */
+	public void endBatch() {
+	}
 }
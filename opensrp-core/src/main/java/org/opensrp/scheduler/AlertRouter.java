@@ -1,7 +1,9 @@
 package org.opensrp.scheduler;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.motechproject.scheduler.domain.MotechEvent;
 import org.motechproject.scheduletracking.api.events.constants.EventSubjects;
@@ -12,11 +14,14 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 /**
- * The class that maintains the actions against alerts by {@link ScheduleTrackingService}
+ * The class that maintains the actions against alerts by {@link ScheduleTrackingService}. Routes are compiled into
+ * a {@link RoutingTable} when the first alert arrives after a route is added, and the table is replaced as a whole.
  */
 @Component
 public class AlertRouter {
     private List<Route> routes;
+    private volatile RoutingTable routingTable;
+    private AtomicLong unroutedEventCount = new AtomicLong();
     private static Logger logger = LoggerFactory.getLogger(AlertRouter.class.toString());
 
 
@@ -25,28 +30,46 @@ public class AlertRouter {
     }
 
     public Route addRoute(Matcher scheduleMatcher, Matcher milestoneMatcher, Matcher windowMatcher, HookedEvent action) {
-        Route route = new Route(scheduleMatcher, milestoneMatcher, windowMatcher, action);
-        routes.add(route);
-        return route;
+        return addRoute(new Route(scheduleMatcher, milestoneMatcher, windowMatcher, action));
     }
 
-    public Route addRoute(Route route) {
+    public synchronized Route addRoute(Route route) {
         routes.add(route);
+        routingTable = null;
         return route;
     }
-    
+
+    public synchronized List<Route> routes() {
+        return Collections.unmodifiableList(new ArrayList<>(routes));
+    }
+
+    public long unroutedEventCount() {
+        return unroutedEventCount.get();
+    }
+
     @MotechListener(subjects = {EventSubjects.MILESTONE_ALERT})
     public void handle(MotechEvent realEvent) {
         logger.info("Handling motech event : " + realEvent);
         MilestoneEvent event = new MilestoneEvent(realEvent);
 
-        for (Route route : routes) {
-            if (route.isSatisfiedBy(event.scheduleName(), event.milestoneName(), event.windowName())) {
-                route.invokeAction(event);
-                return;
-            }
+        Route route = routingTable().routeFor(event.scheduleName(), event.milestoneName(), event.windowName());
+        if (route == null) {
+            unroutedEventCount.incrementAndGet();
+            throw new NoRoutesMatchException(event);
         }
+        route.invokeAction(event);
+    }
 
-        throw new NoRoutesMatchException(event);
+    private RoutingTable routingTable() {
+        RoutingTable table = routingTable;
+        if (table != null) {
+            return table;
+        }
+        synchronized (this) {
+            if (routingTable == null) {
+                routingTable = new RoutingTable(routes);
+            }
+            return routingTable;
+        }
     }
 }
@@ -1,11 +1,22 @@
 package org.opensrp.scheduler;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public abstract class Matcher {
     public abstract boolean matches(String actualValue);
 
+    /**
+     * The values this matcher matches, or null when it matches values that cannot be listed, so that routes can be
+     * looked up by value instead of trying every matcher.
+     */
+    public Set<String> exactValues() {
+        return null;
+    }
+
     public static Matcher eq(String value) {
         return new EqMatcher(value);
     }
@@ -36,6 +47,11 @@ public abstract class Matcher {
         public boolean matches(String actualValue) {
             return expectedValue.equals(actualValue);
         }
+
+        @Override
+        public Set<String> exactValues() {
+            return Collections.singleton(expectedValue);
+        }
     }
 
     private static class AnyOfMatcher extends Matcher {
@@ -49,5 +65,10 @@ public abstract class Matcher {
         public boolean matches(String actualValue) {
             return expectedValues.contains(actualValue);
         }
+
+        @Override
+        public Set<String> exactValues() {
+            return new HashSet<>(expectedValues);
+        }
     }
 }
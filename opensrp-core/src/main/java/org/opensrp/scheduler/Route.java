@@ -2,6 +2,7 @@ package org.opensrp.scheduler;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class Route {
     private final Matcher scheduleMatcher;
@@ -9,6 +10,7 @@ public class Route {
     private final Matcher windowMatcher;
     private final HookedEvent action;
     private Map<String, String> extraData;
+    private final AtomicLong dispatchCount = new AtomicLong();
 
     public Route(Matcher scheduleMatcher, Matcher milestoneMatcher, Matcher windowMatcher, HookedEvent action) {
         this(scheduleMatcher, milestoneMatcher, windowMatcher, action, new HashMap<String, String>());
@@ -30,9 +32,26 @@ public class Route {
     }
 
     public void invokeAction(MilestoneEvent event) {
+        dispatchCount.incrementAndGet();
         action.invoke(event, extraData);
     }
 
+    public long dispatchCount() {
+        return dispatchCount.get();
+    }
+
+    Matcher scheduleMatcher() {
+        return scheduleMatcher;
+    }
+
+    Matcher milestoneMatcher() {
+        return milestoneMatcher;
+    }
+
+    Matcher windowMatcher() {
+        return windowMatcher;
+    }
+
     public Route addExtraData(String key, String value) {
         this.extraData.put(key, value);
         return this;
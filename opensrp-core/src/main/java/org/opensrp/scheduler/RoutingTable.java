@@ -0,0 +1,70 @@
+package org.opensrp.scheduler;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable index of routes by the schedule, milestone and window names they match. The routes that may match an
+ * event are found with a few set intersections, and only those are checked in the order they were added, so the
+ * first matching route wins as before.
+ */
+class RoutingTable {
+    private final Route[] routes;
+    private final Dimension schedules = new Dimension();
+    private final Dimension milestones = new Dimension();
+    private final Dimension windows = new Dimension();
+
+    RoutingTable(List<Route> routes) {
+        this.routes = routes.toArray(new Route[routes.size()]);
+        for (int i = 0; i < this.routes.length; i++) {
+            schedules.add(i, this.routes[i].scheduleMatcher());
+            milestones.add(i, this.routes[i].milestoneMatcher());
+            windows.add(i, this.routes[i].windowMatcher());
+        }
+    }
+
+    Route routeFor(String scheduleName, String milestoneName, String windowName) {
+        BitSet candidates = schedules.candidatesFor(scheduleName);
+        candidates.and(milestones.candidatesFor(milestoneName));
+        candidates.and(windows.candidatesFor(windowName));
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            if (routes[i].isSatisfiedBy(scheduleName, milestoneName, windowName)) {
+                return routes[i];
+            }
+        }
+        return null;
+    }
+
+    private static class Dimension {
+        private final Map<String, BitSet> routesByValue = new HashMap<>();
+        private final BitSet routesMatchingAnyValue = new BitSet();
+
+        private void add(int routeIndex, Matcher matcher) {
+            Set<String> values = matcher.exactValues();
+            if (values == null) {
+                routesMatchingAnyValue.set(routeIndex);
+                return;
+            }
+            for (String value : values) {
+                BitSet routesOfValue = routesByValue.get(value);
+                if (routesOfValue == null) {
+                    routesOfValue = new BitSet();
+                    routesByValue.put(value, routesOfValue);
+                }
+                routesOfValue.set(routeIndex);
+            }
+        }
+
+        private BitSet candidatesFor(String value) {
+            BitSet candidates = (BitSet) routesMatchingAnyValue.clone();
+            BitSet routesOfValue = routesByValue.get(value);
+            if (routesOfValue != null) {
+                candidates.or(routesOfValue);
+            }
+            return candidates;
+        }
+    }
+}
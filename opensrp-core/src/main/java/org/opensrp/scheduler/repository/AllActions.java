@@ -1,12 +1,25 @@
 package org.opensrp.scheduler.repository;
 
+import java.nio.charset.StandardCharsets;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 
+import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.ektorp.BulkDeleteDocument;
 import org.ektorp.ComplexKey;
 import org.ektorp.CouchDbConnector;
+import org.ektorp.DocumentNotFoundException;
+import org.ektorp.DocumentOperationResult;
+import org.ektorp.UpdateConflictException;
+import org.ektorp.ViewResult;
 import org.ektorp.support.GenerateView;
 import org.ektorp.support.View;
 import org.motechproject.dao.MotechBaseRepository;
@@ -21,6 +34,9 @@ import org.springframework.stereotype.Repository;
 @Repository
 public class AllActions extends MotechBaseRepository<Action> {
     private static Logger logger = LoggerFactory.getLogger(AllActions.class.toString());
+    private static final int MAXIMUM_ALERT_WRITE_ATTEMPTS = 5;
+    private static final int ALERT_MIGRATION_PAGE_SIZE = 1000;
+    private static final String ALERT_MIGRATION_MARKER_ID = "migration-alerts-to-derived-ids";
 
     @Autowired
     protected AllActions(@Qualifier(AllConstants.OPENSRP_DATABASE_CONNECTOR) CouchDbConnector db) {
@@ -34,6 +50,31 @@ public class AllActions extends MotechBaseRepository<Action> {
         return db.queryView(createQuery("action_by_anm_and_time").startKey(startKey).endKey(endKey).includeDocs(true), Action.class);
     }
 
+    /**
+     * Returns at most batchSize actions newer than the timestamp, oldest first. A page never ends in the middle of
+     * actions sharing a timestamp, so the timestamp of its last action is a safe place to continue from. Should more
+     * than batchSize actions share the oldest timestamp, all of them are returned.
+     */
+    public List<Action> findByANMIDAndTimeStamp(String anmIdentifier, long timeStamp, int batchSize) {
+        ComplexKey startKey = ComplexKey.of(anmIdentifier, timeStamp + 1);
+        ComplexKey endKey = ComplexKey.of(anmIdentifier, Long.MAX_VALUE);
+        List<Action> actions = db.queryView(createQuery("action_by_anm_and_time").startKey(startKey).endKey(endKey)
+                .limit(batchSize + 1).includeDocs(true), Action.class);
+        if (actions.size() <= batchSize) {
+            return actions;
+        }
+        long firstTimeStampOfNextPage = actions.get(batchSize).timestamp();
+        List<Action> page = new ArrayList<>(actions.subList(0, batchSize));
+        while (!page.isEmpty() && page.get(page.size() - 1).timestamp() == firstTimeStampOfNextPage) {
+            page.remove(page.size() - 1);
+        }
+        if (page.isEmpty()) {
+            ComplexKey key = ComplexKey.of(anmIdentifier, firstTimeStampOfNextPage);
+            return db.queryView(createQuery("action_by_anm_and_time").key(key).includeDocs(true), Action.class);
+        }
+        return page;
+    }
+
     @View(name = "action_by_anm_entityId_scheduleName",
             map = "function(doc) { " +
                     "if(doc.type === 'Action' && doc.actionTarget === 'alert' && doc.anmIdentifier && doc.caseID && doc.data && doc.data.scheduleName) {" +
@@ -44,8 +85,50 @@ public class AllActions extends MotechBaseRepository<Action> {
         return db.queryView(createQuery("action_by_anm_entityId_scheduleName").key(key).includeDocs(true), Action.class);
     }
 
-    public void deleteAllByTarget(String target) {
-        deleteAll(findByActionTarget(target));
+    @View(name = "report_action_by_anm", map = "function(doc) { if (doc.type === 'Action' && doc.actionTarget === 'report') { emit(doc.anmIdentifier, null); } }")
+    public List<Action> findReportActionsByANM(String anmIdentifier) {
+        return db.queryView(createQuery("report_action_by_anm").key(anmIdentifier).includeDocs(true), Action.class);
+    }
+
+    public Set<String> findANMsWithReportActions() {
+        Set<String> anmIdentifiers = new HashSet<>();
+        for (ViewResult.Row row : db.queryView(createQuery("report_action_by_anm")).getRows()) {
+            anmIdentifiers.add(row.getKey());
+        }
+        return anmIdentifiers;
+    }
+
+    /**
+     * Makes the report actions of an ANM match the given ones, one per indicator, with a single bulk request. Actions
+     * that have not changed are left alone so that devices do not download them again, changed ones are updated in
+     * place and actions of indicators that are no longer reported are deleted. Returns the number of documents written.
+     */
+    public int refreshReportActions(String anmIdentifier, List<Action> reportActions) {
+        List<Object> changes = new ArrayList<>();
+        Map<String, Action> existingActions = new HashMap<>();
+        for (Action existingAction : findReportActionsByANM(anmIdentifier)) {
+            Action duplicate = existingActions.put(existingAction.actionType(), existingAction);
+            if (duplicate != null) {
+                changes.add(BulkDeleteDocument.of(duplicate));
+            }
+        }
+        for (Action reportAction : reportActions) {
+            Action existingAction = existingActions.remove(reportAction.actionType());
+            if (existingAction == null) {
+                changes.add(reportAction);
+            } else if (!hasSameContent(existingAction, reportAction)) {
+                reportAction.setId(existingAction.getId());
+                reportAction.setRevision(existingAction.getRevision());
+                changes.add(reportAction);
+            }
+        }
+        for (Action staleAction : existingActions.values()) {
+            changes.add(BulkDeleteDocument.of(staleAction));
+        }
+        if (!changes.isEmpty()) {
+            db.executeBulk(changes);
+        }
+        return changes.size();
     }
 
     public void markAllAsInActiveFor(String caseId) {
@@ -56,34 +139,191 @@ public class AllActions extends MotechBaseRepository<Action> {
         db.executeBulk(actions);
     }
 
-    @GenerateView
-    private List<Action> findByActionTarget(String target) {
-        return queryView("by_actionTarget", target);
-    }
-
     @GenerateView
     private List<Action> findByCaseID(String caseId) {
         return queryView("by_caseID", caseId);
     }
 
-    private void deleteAll(List<Action> actions) {
-        ArrayList<BulkDeleteDocument> deleteDocuments = new ArrayList<>();
-        for (Action action : actions) {
-            deleteDocuments.add(BulkDeleteDocument.of(action));
-        }
-        db.executeBulk(deleteDocuments);
+    private boolean hasSameContent(Action action, Action anotherAction) {
+        return new EqualsBuilder()
+                .append(action.caseId(), anotherAction.caseId())
+                .append(action.data(), anotherAction.data())
+                .append(action.details(), anotherAction.details())
+                .append(action.getIsActionActive(), anotherAction.getIsActionActive())
+                .isEquals();
     }
 
+    /**
+     * Adds an alert or replaces the alert of the same ANM, case and schedule. Such alerts share a document id derived
+     * from the three, so adding one is a single write. The revision is fetched only when that write conflicts with an
+     * existing alert, and the write is then retried on it, which also resolves concurrent writes for the same alert.
+     */
     public void addOrUpdateAlert(Action alertAction) {
-        List<Action> existingAlerts = findAlertByANMIdEntityIdScheduleName(alertAction.anmIdentifier(), alertAction.caseId(), alertAction.data().get("scheduleName"));
-        if (existingAlerts.size() > 1) {
-            logger.warn(MessageFormat.format("Found more than one alert for the combination of anmId: {0}, entityId: {1} and scheduleName : {2}. Alerts : {3}",
-                    alertAction.anmIdentifier(), alertAction.caseId(), alertAction.data().get("scheduleName"), existingAlerts));
+        String scheduleName = alertAction.data().get("scheduleName");
+        String id = alertIdFor(alertAction.anmIdentifier(), alertAction.caseId(), scheduleName);
+        alertAction.setId(id);
+        String revision = null;
+        for (int attempt = 1; ; attempt++) {
+            alertAction.setRevision(revision);
+            try {
+                db.update(alertAction);
+                return;
+            } catch (UpdateConflictException e) {
+                if (attempt == MAXIMUM_ALERT_WRITE_ATTEMPTS) {
+                    throw e;
+                }
+                if (attempt > 1) {
+                    logger.info(MessageFormat.format("Alert for anmId: {0}, entityId: {1} and scheduleName: {2} was updated concurrently. Retrying.",
+                            alertAction.anmIdentifier(), alertAction.caseId(), scheduleName));
+                }
+                revision = currentRevisionOf(id);
+            }
+        }
+    }
+
+    /**
+     * Adds or replaces many alerts with one view query and one bulk request. When several alerts share an ANM, case
+     * and schedule, the last one is kept. Alerts whose write conflicts with a concurrent one are written again one at
+     * a time.
+     */
+    public void addOrUpdateAlerts(List<Action> alertActions) {
+        Map<String, Action> alertsById = new LinkedHashMap<>();
+        Set<ComplexKey> keys = new LinkedHashSet<>();
+        for (Action alertAction : alertActions) {
+            String scheduleName = alertAction.data().get("scheduleName");
+            String id = alertIdFor(alertAction.anmIdentifier(), alertAction.caseId(), scheduleName);
+            alertAction.setId(id);
+            alertAction.setRevision(null);
+            alertsById.put(id, alertAction);
+            keys.add(ComplexKey.of(alertAction.anmIdentifier(), alertAction.caseId(), scheduleName));
         }
+        if (alertsById.isEmpty()) {
+            return;
+        }
+
+        List<Action> existingAlerts = db.queryView(createQuery("action_by_anm_entityId_scheduleName")
+                .keys(new ArrayList<>(keys)).includeDocs(true), Action.class);
         for (Action existingAlert : existingAlerts) {
-            safeRemove(existingAlert);
+            Action alertAction = alertsById.get(existingAlert.getId());
+            if (alertAction != null) {
+                alertAction.setRevision(existingAlert.getRevision());
+            }
+        }
+
+        for (DocumentOperationResult result : db.executeBulk(new ArrayList<>(alertsById.values()))) {
+            Action alertAction = alertsById.get(result.getId());
+            if (alertAction != null && "conflict".equals(result.getError())) {
+                addOrUpdateAlert(alertAction);
+            } else {
+                logger.warn(MessageFormat.format("Could not write alert document {0}. Error: {1}, reason: {2}",
+                        result.getId(), result.getError(), result.getReason()));
+            }
+        }
+    }
+
+    /**
+     * Moves alerts saved before ids were derived from ANM, case and schedule onto the derived id, keeping the newest
+     * of them unless an alert with the derived id already exists, and deletes the rest. Reads and writes one page of
+     * the alert view at a time. Returns the number of documents written, or throws once every page has been handled
+     * if any of them could not be written, so that the migration is run again.
+     */
+    public int migrateAlertsToDerivedIds() {
+        int written = 0;
+        int failed = 0;
+        List<Action> alertsOfOneId = new ArrayList<>();
+        List<Action> page = db.queryView(createQuery("action_by_anm_entityId_scheduleName")
+                .limit(ALERT_MIGRATION_PAGE_SIZE).includeDocs(true), Action.class);
+        while (true) {
+            List<Object> documents = new ArrayList<>();
+            for (Action alert : page) {
+                if (!alertsOfOneId.isEmpty() && !derivedIdOf(alertsOfOneId.get(0)).equals(derivedIdOf(alert))) {
+                    documents.addAll(migrationOf(alertsOfOneId));
+                    alertsOfOneId.clear();
+                }
+                alertsOfOneId.add(alert);
+            }
+            boolean isLastPage = page.size() < ALERT_MIGRATION_PAGE_SIZE;
+            if (isLastPage) {
+                documents.addAll(migrationOf(alertsOfOneId));
+            }
+            if (!documents.isEmpty()) {
+                for (DocumentOperationResult result : db.executeBulk(documents)) {
+                    failed++;
+                    logger.warn(MessageFormat.format("Could not migrate alert document {0}. Error: {1}, reason: {2}",
+                            result.getId(), result.getError(), result.getReason()));
+                }
+                written += documents.size();
+            }
+            if (isLastPage) {
+                break;
+            }
+            Action last = page.get(page.size() - 1);
+            page = db.queryView(createQuery("action_by_anm_entityId_scheduleName")
+                    .startKey(ComplexKey.of(last.anmIdentifier(), last.caseId(), last.data().get("scheduleName")))
+                    .startDocId(last.getId()).skip(1).limit(ALERT_MIGRATION_PAGE_SIZE).includeDocs(true), Action.class);
+        }
+        if (failed > 0) {
+            throw new IllegalStateException(MessageFormat.format("Could not migrate {0} of {1} alert documents.", failed, written));
+        }
+        return written;
+    }
+
+    public boolean hasMigratedAlertsToDerivedIds() {
+        return currentRevisionOf(ALERT_MIGRATION_MARKER_ID) != null;
+    }
+
+    public void markAlertsAsMigratedToDerivedIds() {
+        Map<String, Object> marker = new HashMap<>();
+        marker.put("type", "Migration");
+        marker.put("migratedOn", System.currentTimeMillis());
+        try {
+            db.create(ALERT_MIGRATION_MARKER_ID, marker);
+        } catch (UpdateConflictException e) {
+            logger.info("Alerts were marked as migrated to derived ids by another server.");
+        }
+    }
+
+    private List<Object> migrationOf(List<Action> alertsOfOneId) {
+        List<Object> documents = new ArrayList<>();
+        if (alertsOfOneId.isEmpty()) {
+            return documents;
+        }
+        String id = derivedIdOf(alertsOfOneId.get(0));
+        boolean hasAlertWithDerivedId = false;
+        Action newest = null;
+        for (Action alert : alertsOfOneId) {
+            if (id.equals(alert.getId())) {
+                hasAlertWithDerivedId = true;
+            } else {
+                documents.add(BulkDeleteDocument.of(alert));
+                if (newest == null || alert.timestamp() > newest.timestamp()) {
+                    newest = alert;
+                }
+            }
+        }
+        if (newest != null && !hasAlertWithDerivedId) {
+            newest.setId(id);
+            newest.setRevision(null);
+            documents.add(newest);
+        }
+        return documents;
+    }
+
+    private static String derivedIdOf(Action alert) {
+        return alertIdFor(alert.anmIdentifier(), alert.caseId(), alert.data().get("scheduleName"));
+    }
+
+    static String alertIdFor(String anmIdentifier, String caseId, String scheduleName) {
+        String key = anmIdentifier + "\n" + caseId + "\n" + scheduleName;
+        return "alert-" + UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String currentRevisionOf(String id) {
+        try {
+            return db.getCurrentRevision(id);
+        } catch (DocumentNotFoundException e) {
+            return null;
         }
-        add(alertAction);
     }
 
     public void markAlertAsInactiveFor(String anmIdentifier, String caseId, String scheduleName) {
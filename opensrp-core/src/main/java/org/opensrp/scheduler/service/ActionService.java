@@ -1,10 +1,16 @@
 package org.opensrp.scheduler.service;
 
+import static java.util.Arrays.asList;
 import static org.opensrp.dto.BeneficiaryType.child;
 import static org.opensrp.dto.BeneficiaryType.ec;
 import static org.opensrp.dto.BeneficiaryType.mother;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.joda.time.DateTime;
 import org.opensrp.dto.ActionData;
@@ -18,32 +24,85 @@ import org.springframework.stereotype.Service;
 @Service
 public class ActionService {
     private AllActions allActions;
+    private AlertSink alertSink;
 
     @Autowired
-    public ActionService(AllActions allActions) {
+    public ActionService(AllActions allActions, AlertSink alertSink) {
         this.allActions = allActions;
+        this.alertSink = alertSink;
     }
 
     public List<Action> getNewAlertsForANM(String anmIdentifier, long timeStamp) {
         return allActions.findByANMIDAndTimeStamp(anmIdentifier, timeStamp);
     }
 
+    /**
+     * Returns a page of at most batchSize actions newer than the timestamp, in which an alert superseded by a later
+     * alert for the same case and schedule is left out. The last action of the page is never left out, so its timestamp
+     * is where the next page starts.
+     */
+    public List<Action> getNewAlertsForANM(String anmIdentifier, long timeStamp, int batchSize) {
+        return withoutSupersededAlerts(allActions.findByANMIDAndTimeStamp(anmIdentifier, timeStamp, batchSize));
+    }
+
+    private List<Action> withoutSupersededAlerts(List<Action> actions) {
+        Map<List<String>, Integer> latestAlertPositions = new HashMap<>();
+        for (int position = 0; position < actions.size(); position++) {
+            List<String> schedule = scheduleOf(actions.get(position));
+            if (schedule != null) {
+                latestAlertPositions.put(schedule, position);
+            }
+        }
+        List<Action> latestActions = new ArrayList<>();
+        for (int position = 0; position < actions.size(); position++) {
+            List<String> schedule = scheduleOf(actions.get(position));
+            if (schedule == null || latestAlertPositions.get(schedule) == position) {
+                latestActions.add(actions.get(position));
+            }
+        }
+        return latestActions;
+    }
+
+    private List<String> scheduleOf(Action action) {
+        if (!"alert".equals(action.target()) || action.data() == null || action.data().get("scheduleName") == null) {
+            return null;
+        }
+        return asList(action.caseId(), action.data().get("scheduleName"));
+    }
+
     public void alertForBeneficiary(BeneficiaryType beneficiaryType, String caseID, String anmIdentifier, String scheduleName, String visitCode, AlertStatus alertStatus, DateTime startDate, DateTime expiryDate) {
+        Action alertAction = createAlert(beneficiaryType, caseID, anmIdentifier, scheduleName, visitCode, alertStatus, startDate, expiryDate);
+        alertSink.flush();
+    	allActions.addOrUpdateAlert(alertAction);
+    }
+
+    /**
+     * Like alertForBeneficiary, but the alert is written with others in bulk a little later. Other changes to alerts
+     * made through this service write the pending ones first, so they are not overwritten by them.
+     */
+    public void queueAlertForBeneficiary(BeneficiaryType beneficiaryType, String caseID, String anmIdentifier, String scheduleName, String visitCode, AlertStatus alertStatus, DateTime startDate, DateTime expiryDate) {
+        alertSink.add(createAlert(beneficiaryType, caseID, anmIdentifier, scheduleName, visitCode, alertStatus, startDate, expiryDate));
+    }
+
+    private Action createAlert(BeneficiaryType beneficiaryType, String caseID, String anmIdentifier, String scheduleName, String visitCode, AlertStatus alertStatus, DateTime startDate, DateTime expiryDate) {
     	if (!(mother.equals(beneficiaryType)||child.equals(beneficiaryType)||ec.equals(beneficiaryType))) {
             throw new IllegalArgumentException("Beneficiary Type : " + beneficiaryType + " is of unknown type");
         }
-    	allActions.addOrUpdateAlert(new Action(caseID, anmIdentifier, ActionData.createAlert(beneficiaryType, scheduleName, visitCode, alertStatus, startDate, expiryDate)));
+        return new Action(caseID, anmIdentifier, ActionData.createAlert(beneficiaryType, scheduleName, visitCode, alertStatus, startDate, expiryDate));
     }
 
     public void markAllAlertsAsInactive(String entityId) {
+        alertSink.flush();
         allActions.markAllAsInActiveFor(entityId);
     }
 
     public void markAlertAsInactive(String anmId, String entityId, String scheduleName) {
+        alertSink.flush();
         allActions.markAlertAsInactiveFor(anmId, entityId, scheduleName);
     }
 
     public void markAlertAsClosed(String caseId, String anmIdentifier, String visitCode, String completionDate) {
+        alertSink.flush();
         allActions.add(new Action(caseId, anmIdentifier, ActionData.markAlertAsClosed(visitCode, completionDate)));
     }
     
@@ -55,7 +114,21 @@ public class ActionService {
         allActions.add(new Action("", anmIdentifier, actionData));
     }
 
-    public void deleteReportActions() {
-        allActions.deleteAllByTarget("report");
+    public int refreshReportActions(String anmIdentifier, List<ActionData> reports) {
+        List<Action> reportActions = new ArrayList<>();
+        for (ActionData report : reports) {
+            reportActions.add(new Action("", anmIdentifier, report));
+        }
+        return allActions.refreshReportActions(anmIdentifier, reportActions);
+    }
+
+    public int deleteReportActionsOfANMsOtherThan(Set<String> anmIdentifiers) {
+        int numberOfDeletes = 0;
+        for (String anmIdentifier : allActions.findANMsWithReportActions()) {
+            if (!anmIdentifiers.contains(anmIdentifier)) {
+                numberOfDeletes += allActions.refreshReportActions(anmIdentifier, Collections.<Action>emptyList());
+            }
+        }
+        return numberOfDeletes;
     }
 }
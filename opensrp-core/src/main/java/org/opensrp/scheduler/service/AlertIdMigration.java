@@ -0,0 +1,67 @@
+package org.opensrp.scheduler.service;
+
+import static java.text.MessageFormat.format;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.PreDestroy;
+
+import org.opensrp.scheduler.repository.AllActions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves alerts onto ids derived from ANM, case and schedule in the background, once. The migration is marked as done
+ * in the database only when every alert could be migrated, so that a failed one is run again on the next start.
+ */
+@Component
+public class AlertIdMigration {
+    private static Logger logger = LoggerFactory.getLogger(AlertIdMigration.class.toString());
+
+    private AllActions allActions;
+    private ExecutorService migrator;
+
+    @Autowired
+    public AlertIdMigration(AllActions allActions) {
+        this.allActions = allActions;
+    }
+
+    public synchronized void start() {
+        if (migrator != null) {
+            return;
+        }
+        migrator = Executors.newSingleThreadExecutor();
+        migrator.execute(new Runnable() {
+            @Override
+            public void run() {
+                migrate();
+            }
+        });
+        migrator.shutdown();
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (migrator != null) {
+            migrator.shutdownNow();
+            migrator = null;
+        }
+    }
+
+    void migrate() {
+        try {
+            if (allActions.hasMigratedAlertsToDerivedIds()) {
+                return;
+            }
+            logger.info("Moving alerts onto ids derived from ANM, case and schedule.");
+            int written = allActions.migrateAlertsToDerivedIds();
+            allActions.markAlertsAsMigratedToDerivedIds();
+            logger.info(format("Moved alerts onto derived ids. Documents written: {0}", written));
+        } catch (RuntimeException e) {
+            logger.error(format("Moving alerts onto derived ids failed, will run again on the next start. Error: {0}", e.getMessage()), e);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package org.opensrp.scheduler.service;
+
+import static java.text.MessageFormat.format;
+import static org.opensrp.common.monitor.Metric.SCHEDULER_ALERT_SINK_BACKLOG;
+import static org.opensrp.common.monitor.Metric.SCHEDULER_ALERT_SINK_FLUSH_TIME;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.PreDestroy;
+
+import org.opensrp.common.monitor.Monitor;
+import org.opensrp.common.monitor.Probe;
+import org.opensrp.scheduler.Action;
+import org.opensrp.scheduler.repository.AllActions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Collects alerts and writes them in bulk, once the window holds the configured number of alerts or the window time
+ * has passed, whichever comes first. A window that fails to be written is kept and written with the next one, by the
+ * flusher only, until a write succeeds again. Adding an alert waits while the backlog is at its maximum. Pending
+ * alerts are written when the application shuts down.
+ */
+@Component
+public class AlertSink {
+    private static Logger logger = LoggerFactory.getLogger(AlertSink.class.toString());
+
+    private final List<Action> window = new ArrayList<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private AllActions allActions;
+    private Monitor monitor;
+    private int windowSize;
+    private int maximumBacklog;
+    private int writing;
+    private boolean awaitingRetry;
+    private boolean stopped;
+    private ScheduledExecutorService flusher;
+
+    @Autowired
+    public AlertSink(AllActions allActions, Monitor monitor,
+                     @Value("#{opensrp['alert.sink.window.size']}") int windowSize,
+                     @Value("#{opensrp['alert.sink.window.in.millis']}") long windowInMillis,
+                     @Value("#{opensrp['alert.sink.maximum.backlog']}") int maximumBacklog) {
+        this.allActions = allActions;
+        this.monitor = monitor;
+        this.windowSize = windowSize;
+        this.maximumBacklog = maximumBacklog;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "alert-sink-flusher");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.flusher.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    flush();
+                } catch (Exception e) {
+                    logger.error(format("Could not write {0} alerts. Will retry with the next window. Message: {1}", backlog(), e.getMessage()));
+                }
+            }
+        }, windowInMillis, windowInMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void add(Action alertAction) {
+        boolean shouldFlush;
+        synchronized (window) {
+            while (window.size() + writing >= maximumBacklog && !stopped) {
+                try {
+                    window.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for the alert backlog to be written.", e);
+                }
+            }
+            window.add(alertAction);
+            shouldFlush = window.size() >= windowSize && !awaitingRetry;
+        }
+        if (shouldFlush) {
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                logger.error(format("Could not write {0} alerts. Will retry with the next window. Message: {1}", backlog(), e.getMessage()));
+            }
+        }
+    }
+
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<Action> alerts;
+            synchronized (window) {
+                if (window.isEmpty()) {
+                    return;
+                }
+                alerts = new ArrayList<>(window);
+                window.clear();
+                writing = alerts.size();
+            }
+            Probe probe = monitor.start(SCHEDULER_ALERT_SINK_FLUSH_TIME);
+            try {
+                allActions.addOrUpdateAlerts(alerts);
+            } catch (RuntimeException e) {
+                synchronized (window) {
+                    window.addAll(0, alerts);
+                    writing = 0;
+                    awaitingRetry = true;
+                }
+                throw e;
+            }
+            monitor.end(probe);
+            synchronized (window) {
+                writing = 0;
+                awaitingRetry = false;
+                window.notifyAll();
+            }
+            logger.info(format("Wrote {0} alerts.", alerts.size()));
+        } finally {
+            monitor.addObservationFor(SCHEDULER_ALERT_SINK_BACKLOG, backlog());
+            flushLock.unlock();
+        }
+    }
+
+    public int backlog() {
+        synchronized (window) {
+            return window.size() + writing;
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        flusher.shutdownNow();
+        synchronized (window) {
+            stopped = true;
+            window.notifyAll();
+        }
+        try {
+            flush();
+        } catch (Exception e) {
+            logger.error(format("Could not write {0} alerts while shutting down. Message: {1}", backlog(), e.getMessage()));
+        }
+    }
+}
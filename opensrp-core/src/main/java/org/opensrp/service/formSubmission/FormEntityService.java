@@ -7,10 +7,24 @@ import org.opensrp.repository.AllFormExportTokens;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static java.lang.String.valueOf;
 import static java.text.MessageFormat.format;
@@ -18,27 +32,143 @@ import static java.util.Collections.sort;
 import static org.opensrp.common.AllConstants.Form.*;
 import static org.opensrp.common.util.EasyMap.create;
 
+/**
+ * Processes submissions in server version order. With more than one worker, submissions of different entity
+ * families are processed in parallel while the submissions of a family keep their order. A submission whose family
+ * cannot be resolved yet, like a registration, is a barrier: it runs alone after everything before it has finished.
+ */
 @Service
 public class FormEntityService {
     private static Logger logger = LoggerFactory.getLogger(FormEntityService.class.toString());
     private ZiggyService ziggyService;
     private AllFormExportTokens allFormExportTokens;
+    private IEntityFamilyResolver entityFamilyResolver;
+    private FormSubmissionHandoff handoff;
+    private ExecutorService workers;
 
     @Autowired
-    public FormEntityService(ZiggyService ziggyService, AllFormExportTokens allFormExportTokens) {
+    public FormEntityService(ZiggyService ziggyService, AllFormExportTokens allFormExportTokens, IEntityFamilyResolver entityFamilyResolver,
+                             FormSubmissionHandoff handoff, @Value("#{opensrp['form.processing.workers']}") int numberOfWorkers) {
         this.ziggyService = ziggyService;
         this.allFormExportTokens = allFormExportTokens;
+        this.entityFamilyResolver = entityFamilyResolver;
+        this.handoff = handoff;
+        if (numberOfWorkers > 1) {
+            workers = Executors.newFixedThreadPool(numberOfWorkers);
+        }
     }
 
-    public void process(List<FormSubmission> formSubmissions) {
+    public void process(List<FormSubmission> formSubmissions) throws Exception {
         sort(formSubmissions, serverVersionComparator());
         FormExportToken exportToken = allFormExportTokens.getAll().get(0);
-        for (FormSubmission submission : formSubmissions) {
-            String params = getParams(submission);
-            logger.info(format("Invoking save for form with instance Id: {0} and for entity Id: {1}",
-                    submission.instanceId(), submission.entityId()));
-            ziggyService.saveForm(params, new Gson().toJson(submission.instance()));
+        if (workers == null) {
+            ziggyService.startEntityBatch();
+            try {
+                for (FormSubmission submission : formSubmissions) {
+                    save(submission);
+                    allFormExportTokens.update(exportToken.withVersion(submission.serverVersion()));
+                }
+            } finally {
+                ziggyService.endEntityBatch();
+            }
+            return;
+        }
+
+        Map<String, String> families = new HashMap<>(entityFamilyResolver.familiesOf(formSubmissions));
+        Map<String, List<FormSubmission>> partitions = new LinkedHashMap<>();
+        for (int index = 0; index < formSubmissions.size(); index++) {
+            FormSubmission submission = formSubmissions.get(index);
+            String family = families.get(submission.entityId());
+            if (family != null) {
+                if (!partitions.containsKey(family)) {
+                    partitions.put(family, new ArrayList<FormSubmission>());
+                }
+                partitions.get(family).add(submission);
+                continue;
+            }
+            processInParallel(partitions, exportToken);
+            partitions.clear();
+            ziggyService.startEntityBatch();
+            try {
+                save(submission);
+            } finally {
+                ziggyService.endEntityBatch();
+            }
             allFormExportTokens.update(exportToken.withVersion(submission.serverVersion()));
+            families.putAll(entityFamilyResolver.familiesOf(unresolved(formSubmissions.subList(index + 1, formSubmissions.size()), families)));
+        }
+        processInParallel(partitions, exportToken);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+
+    private void processInParallel(Map<String, List<FormSubmission>> partitions, FormExportToken exportToken) throws Exception {
+        if (partitions.isEmpty()) {
+            return;
+        }
+        List<FormSubmission> segment = new ArrayList<>();
+        for (List<FormSubmission> partition : partitions.values()) {
+            segment.addAll(partition);
+        }
+        sort(segment, serverVersionComparator());
+        final CompletedPrefix completedPrefix = new CompletedPrefix(segment, exportToken);
+        List<Future<Void>> results = new ArrayList<>();
+        for (final List<FormSubmission> partition : partitions.values()) {
+            results.add(workers.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    ziggyService.startEntityBatch();
+                    try {
+                        for (FormSubmission submission : partition) {
+                            save(submission);
+                            completedPrefix.complete(submission);
+                        }
+                    } finally {
+                        ziggyService.endEntityBatch();
+                    }
+                    return null;
+                }
+            }));
+        }
+        Exception failure = null;
+        for (Future<Void> result : results) {
+            try {
+                result.get();
+            } catch (ExecutionException e) {
+                failure = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        logger.info(format("Processed {0} forms of {1} entity families in parallel. Submission handoff hits: {2}, misses: {3}",
+                segment.size(), partitions.size(), handoff.hits(), handoff.misses()));
+    }
+
+    private List<FormSubmission> unresolved(List<FormSubmission> submissions, Map<String, String> families) {
+        List<FormSubmission> unresolved = new ArrayList<>();
+        for (FormSubmission submission : submissions) {
+            if (!families.containsKey(submission.entityId())) {
+                unresolved.add(submission);
+            }
+        }
+        return unresolved;
+    }
+
+    private void save(FormSubmission submission) {
+        String params = getParams(submission);
+        logger.info(format("Invoking save for form with instance Id: {0} and for entity Id: {1}",
+                submission.instanceId(), submission.entityId()));
+        handoff.handOver(submission);
+        try {
+            ziggyService.saveForm(params, new Gson().toJson(submission.instance()));
+        } finally {
+            handoff.release(submission);
         }
     }
 
@@ -61,4 +191,35 @@ public class FormEntityService {
             }
         };
     }
+
+    // Moves the export token over the submissions of a segment, in server version order, only as far as all of them
+    // have been saved. A crash then re-runs only submissions that had not finished.
+    private class CompletedPrefix {
+        private final List<FormSubmission> submissions;
+        private final FormExportToken exportToken;
+        private final Set<FormSubmission> completed = Collections.newSetFromMap(new IdentityHashMap<FormSubmission, Boolean>());
+        private int next;
+
+        CompletedPrefix(List<FormSubmission> submissions, FormExportToken exportToken) {
+            this.submissions = submissions;
+            this.exportToken = exportToken;
+        }
+
+        synchronized void complete(FormSubmission submission) {
+            completed.add(submission);
+            int end = next;
+            while (end < submissions.size() && completed.contains(submissions.get(end))) {
+                end++;
+            }
+            // The token cannot stop in the middle of submissions sharing a server version.
+            while (end > next && end < submissions.size()
+                    && submissions.get(end - 1).serverVersion() == submissions.get(end).serverVersion()) {
+                end--;
+            }
+            if (end > next) {
+                next = end;
+                allFormExportTokens.update(exportToken.withVersion(submissions.get(end - 1).serverVersion()));
+            }
+        }
+    }
 }
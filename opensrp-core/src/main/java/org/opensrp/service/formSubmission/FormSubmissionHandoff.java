@@ -0,0 +1,48 @@
+package org.opensrp.service.formSubmission;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.opensrp.form.domain.FormSubmission;
+import org.springframework.stereotype.Component;
+
+/**
+ * Holds the submissions that are being saved through Ziggy, so that routing can use the document already in
+ * memory instead of reading it back from CouchDB. A submission is only held between handOver and release.
+ */
+@Component
+public class FormSubmissionHandoff {
+    private ConcurrentMap<String, FormSubmission> submissionsInProcess = new ConcurrentHashMap<>();
+    private AtomicLong hits = new AtomicLong();
+    private AtomicLong misses = new AtomicLong();
+
+    public void handOver(FormSubmission submission) {
+        submissionsInProcess.put(submission.instanceId(), submission);
+    }
+
+    public void release(FormSubmission submission) {
+        submissionsInProcess.remove(submission.instanceId(), submission);
+    }
+
+    /**
+     * Returns the submission being processed with the given instance id, or null when it is not held here.
+     */
+    public FormSubmission find(String instanceId) {
+        FormSubmission submission = submissionsInProcess.get(instanceId);
+        if (submission == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return submission;
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+}
@@ -38,6 +38,7 @@ import org.opensrp.common.util.EasyMap;
  */
 import org.opensrp.service.formSubmission.handler.FormSubmissionHandler;
 import org.opensrp.service.reporting.FormSubmissionReportService;
+import org.opensrp.repository.FormDataRepository;
 import org.opensrp.service.reporting.IMCTSReportService;
 
 import org.slf4j.Logger;
@@ -59,22 +60,30 @@ public class FormSubmissionRouter {
 	private FormSubmissionReportService formSubmissionReportService;
 	private IMCTSReportService mctsReportService;
 	private IHandlerMapper handlerMapper;
+	private FormSubmissionHandoff handoff;
+	private FormDataRepository formDataRepository;
 
 	@Autowired
 	public FormSubmissionRouter(AllFormSubmissions formSubmissionsRepository,
 			FormSubmissionReportService formSubmissionReportService,IMCTSReportService mctsReportService,
-			IHandlerMapper handlerMapper) {
+			IHandlerMapper handlerMapper, FormSubmissionHandoff handoff, FormDataRepository formDataRepository) {
 
 		this.formSubmissionsRepository = formSubmissionsRepository;
 		this.formSubmissionReportService = formSubmissionReportService;
 		this.mctsReportService = mctsReportService;
 		this.handlerMapper = handlerMapper;
+		this.handoff = handoff;
+		this.formDataRepository = formDataRepository;
 
 	}
 
 	public void route(String instanceId) throws Exception {
-		FormSubmission submission = formSubmissionsRepository
-				.findByInstanceId(instanceId);
+		// handlers read the entities saved by this form, so pending entity writes go out first
+		formDataRepository.flush();
+		FormSubmission submission = handoff.find(instanceId);
+		if (submission == null) {
+			submission = formSubmissionsRepository.findByInstanceId(instanceId);
+		}
 		FormSubmissionHandler handler = handlerMapper.handlerMapper().get(
 				submission.formName());// handlerMap.get(submission.formName());
 		if (handler == null) {
@@ -0,0 +1,14 @@
+package org.opensrp.service.formSubmission;
+
+import java.util.List;
+import java.util.Map;
+
+import org.opensrp.form.domain.FormSubmission;
+
+public interface IEntityFamilyResolver {
+    /**
+     * Returns the id of the family (eligible couple, mother and children) owning the entity of each submission, by
+     * entity id. Entities that are not known yet are left out.
+     */
+    public Map<String, String> familiesOf(List<FormSubmission> submissions);
+}
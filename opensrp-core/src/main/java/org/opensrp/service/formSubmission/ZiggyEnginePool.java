@@ -0,0 +1,90 @@
+package org.opensrp.service.formSubmission;
+
+import static java.text.MessageFormat.format;
+import static javax.script.ScriptContext.ENGINE_SCOPE;
+import static org.opensrp.common.monitor.Metric.ZIGGY_ENGINE_POOL_WAIT_TIME;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+import javax.script.SimpleScriptContext;
+
+import org.opensrp.common.monitor.Monitor;
+import org.opensrp.common.monitor.Probe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded pool of initialized Ziggy script contexts. The Ziggy scripts are compiled once and evaluated into every
+ * context, each with its own bindings, so forms can be saved concurrently without re-interpreting script source.
+ * Time spent waiting for a free context is recorded with the monitor.
+ */
+public class ZiggyEnginePool {
+    private static Logger logger = LoggerFactory.getLogger(ZiggyEnginePool.class.toString());
+    private static final String JAVA_SCRIPT = "JavaScript";
+    private static final String PARAMS = "ziggyParams";
+    private static final String FORM_INSTANCE = "ziggyFormInstance";
+    private static final String SAVE_SCRIPT = "controller.createOrUpdateEntity(" + PARAMS + ", " + FORM_INSTANCE + ");";
+
+    private CompiledScript saveScript;
+    private BlockingQueue<ScriptContext> contexts;
+    private Monitor monitor;
+
+    public ZiggyEnginePool(String ziggyScript, Map<String, Object> globals, int size, Monitor monitor) throws ScriptException {
+        this.monitor = monitor;
+        ScriptEngine engine = new ScriptEngineManager().getEngineByName(JAVA_SCRIPT);
+        Compilable compiler = (Compilable) engine;
+        CompiledScript compiledZiggy = compiler.compile(ziggyScript);
+        saveScript = compiler.compile(SAVE_SCRIPT);
+
+        contexts = new ArrayBlockingQueue<>(size);
+        for (int i = 0; i < size; i++) {
+            ScriptContext context = new SimpleScriptContext();
+            Bindings bindings = engine.createBindings();
+            bindings.putAll(globals);
+            context.setBindings(bindings, ENGINE_SCOPE);
+            compiledZiggy.eval(context);
+            contexts.add(context);
+        }
+        logger.info(format("Initialized {0} Ziggy script contexts", size));
+    }
+
+    public void save(String params, String formInstance) throws InterruptedException, ScriptException {
+        ScriptContext context = checkout();
+        Bindings bindings = context.getBindings(ENGINE_SCOPE);
+        try {
+            bindings.put(PARAMS, params);
+            bindings.put(FORM_INSTANCE, formInstance);
+            saveScript.eval(context);
+        } finally {
+            bindings.remove(PARAMS);
+            bindings.remove(FORM_INSTANCE);
+            contexts.add(context);
+        }
+    }
+
+    public int available() {
+        return contexts.size();
+    }
+
+    private ScriptContext checkout() throws InterruptedException {
+        ScriptContext context = contexts.poll();
+        if (context != null) {
+            return context;
+        }
+        Probe probe = monitor.start(ZIGGY_ENGINE_POOL_WAIT_TIME);
+        try {
+            return contexts.take();
+        } finally {
+            monitor.end(probe);
+        }
+    }
+}
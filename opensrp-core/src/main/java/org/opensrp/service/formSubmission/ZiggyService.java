@@ -1,24 +1,21 @@
 package org.opensrp.service.formSubmission;
 
+import org.opensrp.common.monitor.Monitor;
 import org.opensrp.repository.FormDataRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import javax.script.Bindings;
-import javax.script.Invocable;
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
+import java.util.HashMap;
+import java.util.Map;
 
 import static java.text.MessageFormat.format;
-import static javax.script.ScriptContext.ENGINE_SCOPE;
 
 @Service
 public class ZiggyService {
-    public static final String JAVA_SCRIPT = "JavaScript";
     private static Logger logger = LoggerFactory.getLogger(ZiggyService.class.toString());
-    private static final String SAVE_METHOD_NAME = "createOrUpdateEntity";
     private static final String JS_INIT_SCRIPT = "require([\"ziggy/FormDataController\"], function (FormDataController) {\n" +
             "    controller = FormDataController;\n" +
             "});";
@@ -26,23 +23,23 @@ public class ZiggyService {
     private static final String REPOSITORY = "formDataRepositoryContext";
     private static final String FORM_SUBMISSION_ROUTER = "formSubmissionRouter";
 
-    private ZiggyFileLoader ziggyFileLoader;
     private FormDataRepository dataRepository;
-    private FormSubmissionRouter formSubmissionRouter;
-    private Object ziggyFormController;
-    private Invocable invocable;
+    private ZiggyEnginePool enginePool;
 
     @Autowired
-    public ZiggyService(ZiggyFileLoader ziggyFileLoader,FormDataRepository dataRepository,FormSubmissionRouter formSubmissionRouter) throws Exception {
-        this.ziggyFileLoader = ziggyFileLoader;
+    public ZiggyService(ZiggyFileLoader ziggyFileLoader, FormDataRepository dataRepository, FormSubmissionRouter formSubmissionRouter,
+                        Monitor monitor, @Value("#{opensrp['ziggy.engine.pool.size']}") int enginePoolSize) throws Exception {
         this.dataRepository = dataRepository;
-        this.formSubmissionRouter = formSubmissionRouter;
-        initRhino();
+        Map<String, Object> globals = new HashMap<>();
+        globals.put(ZIGGY_FILE_LOADER, ziggyFileLoader);
+        globals.put(REPOSITORY, dataRepository);
+        globals.put(FORM_SUBMISSION_ROUTER, formSubmissionRouter);
+        enginePool = new ZiggyEnginePool(ziggyFileLoader.getJSFiles() + "\n" + JS_INIT_SCRIPT, globals, enginePoolSize, monitor);
     }
 
     public void saveForm(String params, String formInstance) {
         try {
-            invocable.invokeMethod(ziggyFormController, SAVE_METHOD_NAME, params, formInstance);
+            enginePool.save(params, formInstance);
             logger.info(format("Saving form successful, with params: {0}.", params));
             logger.debug(format("Saving form successful, with params: {0}, with instance {1}.", params, formInstance));
         } catch (Exception e) {
@@ -50,27 +47,15 @@ public class ZiggyService {
         }
     }
 
-    private void initRhino() throws Exception {
-        ScriptEngineManager manager = new ScriptEngineManager();
-        ScriptEngine engine = manager.getEngineByName(JAVA_SCRIPT);
-
-        Bindings bindings = getBindings(engine);
-        engine.setBindings(bindings, ENGINE_SCOPE);
-
-        String jsFiles = ziggyFileLoader.getJSFiles();
-
-        engine.eval(jsFiles);
-        engine.eval(JS_INIT_SCRIPT);
-
-        ziggyFormController = engine.get("controller");
-        invocable = (Invocable) engine;
+    /**
+     * Entities saved by the forms of the current thread are merged in memory until endEntityBatch, and flushed
+     * before each form is routed to its handler.
+     */
+    public void startEntityBatch() {
+        dataRepository.startBatch();
     }
 
-    private Bindings getBindings(ScriptEngine engine) {
-        Bindings bindings = engine.createBindings();
-        bindings.put(ZIGGY_FILE_LOADER, ziggyFileLoader);
-        bindings.put(REPOSITORY, dataRepository);
-        bindings.put(FORM_SUBMISSION_ROUTER, formSubmissionRouter);
-        return bindings;
+    public void endEntityBatch() {
+        dataRepository.endBatch();
     }
 }
@@ -3,15 +3,16 @@ package org.opensrp.service.reporting;
 import org.opensrp.common.AllConstants;
 import org.opensrp.common.domain.Location;
 import org.opensrp.form.domain.FormSubmission;
+import org.opensrp.service.reporting.ReportDefinitionRegistry.LoadedReportDefinition;
 import org.opensrp.util.SafeMap;
 import org.opensrp.service.reporting.rules.IReferenceDataRepository;
-import org.opensrp.service.reporting.rules.IRule;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.text.MessageFormat;
+import java.util.Collection;
 import java.util.List;
 
 import static org.apache.commons.lang.exception.ExceptionUtils.getFullStackTrace;
@@ -22,33 +23,27 @@ import static org.opensrp.common.AllConstants.CommonFormFields.*;
 public class FormSubmissionReportService {
     private static Logger logger = LoggerFactory.getLogger(FormSubmissionReportService.class);
 
-    private IRulesFactory rulesFactory;
     private ILocationLoader locationLoader;
     private IReporterFactory reporterFactory;
     private IReferenceDataRepository referenceDataRepository;
-    private IReportDefinitionLoader reportDefinitionLoader;
-    private ReportDefinition reportDefinition;
+    private ReportDefinitionRegistry reportDefinitionRegistry;
 
     @Autowired
-    public FormSubmissionReportService(ILocationLoader locationLoader, IRulesFactory rulesFactory, IReporterFactory reporterFactory, IReferenceDataRepository referenceDataRepository, IReportDefinitionLoader reportDefinitionLoader) {
+    public FormSubmissionReportService(ILocationLoader locationLoader, IReporterFactory reporterFactory, IReferenceDataRepository referenceDataRepository, ReportDefinitionRegistry reportDefinitionRegistry) {
         this.locationLoader = locationLoader;
-        this.rulesFactory = rulesFactory;
         this.reporterFactory = reporterFactory;
         this.referenceDataRepository = referenceDataRepository;
-        this.reportDefinitionLoader = reportDefinitionLoader;
+        this.reportDefinitionRegistry = reportDefinitionRegistry;
     }
 
     public void reportFor(FormSubmission submission) throws Exception {
-        if (reportDefinition == null) {
-            logger.info("Loading report definition.");
-            reportDefinition = reportDefinitionLoader.load();
-        }
+        LoadedReportDefinition reportDefinition = reportDefinitionRegistry.current();
 
-        List<ReportIndicator> reportIndicators = reportDefinition.getIndicatorsByFormName(submission.formName());
+        List<ReportIndicator> reportIndicators = reportDefinition.indicatorsFor(submission.formName());
 
         for (ReportIndicator reportIndicator : reportIndicators) {
             SafeMap reportFields = createReportFields(submission, reportIndicator);
-            boolean didAllRulesSucceed = processRules(reportIndicator.reportingRules(), reportFields, reportIndicator.indicator());
+            boolean didAllRulesSucceed = processRules(reportDefinition.ruleChainFor(reportIndicator), reportFields, reportIndicator.indicator());
             if (didAllRulesSucceed) {
                 String entityId = reportIndicator.reportEntityIdField() == null
                         ? submission.entityId()
@@ -60,21 +55,19 @@ public class FormSubmissionReportService {
         }
     }
 
-    private boolean processRules(List<String> rules, SafeMap reportFields, String indicator) {
+    public Collection<RuleTimer> ruleTimers() {
+        return reportDefinitionRegistry.ruleTimers();
+    }
+
+    private boolean processRules(RuleChain ruleChain, SafeMap reportFields, String indicator) {
         try {
-            for (String ruleName : rules) {
-                IRule rule = rulesFactory.ruleByName(ruleName);
-                if (!rule.apply(reportFields)) {
-                    return false;
-                }
-            }
+            return ruleChain.apply(reportFields);
         } catch (Exception e) {
             logger.error(MessageFormat.format("Exception while applying rules. Indicator: {0}. Message: {1}",
                     indicator, e.getMessage()));
             logger.error(getFullStackTrace(e));
             return false;
         }
-        return true;
     }
 
     private SafeMap createReportFields(FormSubmission submission, ReportIndicator reportIndicator) {
@@ -2,5 +2,9 @@ package org.opensrp.service.reporting;
 
 public interface IReportDefinitionLoader {
     public ReportDefinition load() throws Exception;
-}
 
+    /**
+     * Returns when the definition was last changed, or 0 when that cannot be told.
+     */
+    public long lastModified();
+}
@@ -8,7 +8,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static ch.lambdaj.Lambda.*;
 import static org.hamcrest.Matchers.equalTo;
@@ -17,12 +21,20 @@ public class ReportDefinition {
     private static Logger logger = LoggerFactory.getLogger(ReportDefinition.class.toString());
 
     private List<FormIndicator> formIndicators;
+    private transient volatile Map<String, List<ReportIndicator>> indicatorsByFormName;
+    private transient volatile Set<String> duplicateForms;
+    private transient volatile Map<String, List<ReportIndicator>> indicatorsByCode;
 
     public ReportDefinition(List<FormIndicator> formIndicators) {
         this.formIndicators = formIndicators;
     }
 
     public List<ReportIndicator> getIndicatorsByFormName(String formName) {
+        index();
+        if (!duplicateForms.contains(formName)) {
+            List<ReportIndicator> indicators = indicatorsByFormName.get(formName);
+            return indicators == null ? new ArrayList<ReportIndicator>() : indicators;
+        }
         try {
             FormIndicator formIndicator = selectUnique(formIndicators,
                     having(on(FormIndicator.class).form(), equalTo(formName)));
@@ -33,6 +45,47 @@ public class ReportDefinition {
         }
     }
 
+    public List<ReportIndicator> getIndicatorsByCode(String indicator) {
+        index();
+        List<ReportIndicator> indicators = indicatorsByCode.get(indicator);
+        return indicators == null ? new ArrayList<ReportIndicator>() : indicators;
+    }
+
+    public List<FormIndicator> formIndicators() {
+        return formIndicators;
+    }
+
+    /**
+     * Indexes the indicators by form name and by indicator code. Forms defined more than once are left out of the
+     * form name index and only they are looked up in the definitions, so that looking them up still fails the way it
+     * did before.
+     */
+    private void index() {
+        if (indicatorsByCode != null) {
+            return;
+        }
+        Map<String, List<ReportIndicator>> byFormName = new HashMap<>();
+        Map<String, List<ReportIndicator>> byCode = new HashMap<>();
+        Set<String> duplicateForms = new HashSet<>();
+        for (FormIndicator formIndicator : formIndicators) {
+            if (byFormName.containsKey(formIndicator.form()) || duplicateForms.contains(formIndicator.form())) {
+                byFormName.remove(formIndicator.form());
+                duplicateForms.add(formIndicator.form());
+            } else {
+                byFormName.put(formIndicator.form(), formIndicator.indicators());
+            }
+            for (ReportIndicator reportIndicator : formIndicator.indicators()) {
+                if (!byCode.containsKey(reportIndicator.indicator())) {
+                    byCode.put(reportIndicator.indicator(), new ArrayList<ReportIndicator>());
+                }
+                byCode.get(reportIndicator.indicator()).add(reportIndicator);
+            }
+        }
+        indicatorsByFormName = byFormName;
+        this.duplicateForms = duplicateForms;
+        indicatorsByCode = byCode;
+    }
+
     @Override
     public boolean equals(Object o) {
         return EqualsBuilder.reflectionEquals(this, o);
@@ -8,6 +8,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.io.File;
+import java.net.URISyntaxException;
+import java.net.URL;
 import java.text.MessageFormat;
 
 import static org.apache.commons.lang.exception.ExceptionUtils.getFullStackTrace;
@@ -34,4 +37,18 @@ public class ReportDefinitionLoader implements IReportDefinitionLoader {
             throw e;
         }
     }
+
+    @Override
+    public long lastModified() {
+        URL resource = getClass().getResource(reportDefinitionFileName);
+        if (resource == null || !"file".equals(resource.getProtocol())) {
+            return 0;
+        }
+        try {
+            return new File(resource.toURI()).lastModified();
+        } catch (URISyntaxException e) {
+            logger.warn(MessageFormat.format("Could not check report definition for changes. Message: {0}", e.getMessage()));
+            return 0;
+        }
+    }
 }
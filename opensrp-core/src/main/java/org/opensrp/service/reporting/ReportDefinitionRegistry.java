@@ -0,0 +1,128 @@
+package org.opensrp.service.reporting;
+
+import org.opensrp.common.util.DateUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.text.MessageFormat.format;
+import static org.apache.commons.lang.exception.ExceptionUtils.getFullStackTrace;
+
+/**
+ * Holds the report definition in use together with the compiled rule chains of its indicators. The definition is
+ * checked for changes at most once per reload interval, and a changed definition is loaded by one caller and swapped
+ * in as a whole while the others keep using the previous one. A definition that fails to load leaves the previous
+ * one in use.
+ */
+@Component
+public class ReportDefinitionRegistry {
+    private static Logger logger = LoggerFactory.getLogger(ReportDefinitionRegistry.class.toString());
+
+    private IReportDefinitionLoader reportDefinitionLoader;
+    private RuleChainCompiler ruleChainCompiler;
+    private long reloadIntervalInMillis;
+    private volatile LoadedReportDefinition current;
+    private AtomicLong nextCheckTime = new AtomicLong();
+    private ReentrantLock loadLock = new ReentrantLock();
+
+    @Autowired
+    public ReportDefinitionRegistry(IReportDefinitionLoader reportDefinitionLoader, IRulesFactory rulesFactory,
+                                    @Value("#{opensrp['report.definition.reload.interval.in.seconds']}") int reloadIntervalInSeconds) {
+        this.reportDefinitionLoader = reportDefinitionLoader;
+        this.ruleChainCompiler = new RuleChainCompiler(rulesFactory);
+        this.reloadIntervalInMillis = reloadIntervalInSeconds * 1000L;
+    }
+
+    public LoadedReportDefinition current() throws Exception {
+        LoadedReportDefinition loaded = current;
+        if (loaded == null) {
+            loadLock.lock();
+            try {
+                if (current == null) {
+                    logger.info("Loading report definition.");
+                    current = load();
+                }
+                return current;
+            } finally {
+                loadLock.unlock();
+            }
+        }
+        if (isTimeToCheckForChanges() && loadLock.tryLock()) {
+            try {
+                reloadIfChanged();
+            } finally {
+                loadLock.unlock();
+            }
+        }
+        return current;
+    }
+
+    public Collection<RuleTimer> ruleTimers() {
+        return ruleChainCompiler.timers();
+    }
+
+    private boolean isTimeToCheckForChanges() {
+        if (reloadIntervalInMillis <= 0) {
+            return false;
+        }
+        long now = DateUtil.millis();
+        long checkTime = nextCheckTime.get();
+        return now >= checkTime && nextCheckTime.compareAndSet(checkTime, now + reloadIntervalInMillis);
+    }
+
+    private void reloadIfChanged() {
+        long lastModified = reportDefinitionLoader.lastModified();
+        if (lastModified <= current.lastModified) {
+            return;
+        }
+        try {
+            logger.info("Report definition has changed. Reloading it.");
+            current = load();
+        } catch (Exception e) {
+            logger.error(format("Could not reload report definition, continuing with the previous one. Message: {0}", e.getMessage()));
+            logger.error(getFullStackTrace(e));
+        }
+    }
+
+    private LoadedReportDefinition load() throws Exception {
+        long lastModified = reportDefinitionLoader.lastModified();
+        ReportDefinition reportDefinition = reportDefinitionLoader.load();
+        return new LoadedReportDefinition(reportDefinition, ruleChainCompiler.compile(reportDefinition), lastModified);
+    }
+
+    public static class LoadedReportDefinition {
+        private final ReportDefinition reportDefinition;
+        private final Map<ReportIndicator, RuleChain> ruleChains;
+        private final long lastModified;
+
+        private LoadedReportDefinition(ReportDefinition reportDefinition, Map<ReportIndicator, RuleChain> ruleChains, long lastModified) {
+            this.reportDefinition = reportDefinition;
+            this.ruleChains = ruleChains;
+            this.lastModified = lastModified;
+        }
+
+        public List<ReportIndicator> indicatorsFor(String formName) {
+            return reportDefinition.getIndicatorsByFormName(formName);
+        }
+
+        public List<ReportIndicator> indicatorsByCode(String indicator) {
+            return reportDefinition.getIndicatorsByCode(indicator);
+        }
+
+        public RuleChain ruleChainFor(ReportIndicator reportIndicator) {
+            return ruleChains.get(reportIndicator);
+        }
+
+        public ReportDefinition reportDefinition() {
+            return reportDefinition;
+        }
+    }
+}
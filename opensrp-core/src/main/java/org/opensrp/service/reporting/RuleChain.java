@@ -0,0 +1,40 @@
+package org.opensrp.service.reporting;
+
+import org.opensrp.service.reporting.rules.IRule;
+import org.opensrp.util.SafeMap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The resolved rules of one report indicator. A chain passes when all of its rules pass, in the order in which they
+ * are defined. A chain with a rule that could not be resolved never passes,
+ * the missing rule is reported once when the chain is compiled.
+ */
+public class RuleChain {
+    private final List<IRule> rules;
+    private final List<RuleTimer> timers;
+    private final String unresolvedRule;
+
+    RuleChain(List<IRule> rules, List<RuleTimer> timers, String unresolvedRule) {
+        this.rules = Collections.unmodifiableList(new ArrayList<>(rules));
+        this.timers = Collections.unmodifiableList(new ArrayList<>(timers));
+        this.unresolvedRule = unresolvedRule;
+    }
+
+    public boolean apply(SafeMap reportFields) {
+        if (unresolvedRule != null) {
+            return false;
+        }
+        for (int i = 0; i < rules.size(); i++) {
+            long start = System.nanoTime();
+            boolean passed = rules.get(i).apply(reportFields);
+            timers.get(i).record(passed, System.nanoTime() - start);
+            if (!passed) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,82 @@
+package org.opensrp.service.reporting;
+
+import org.opensrp.service.reporting.rules.IRule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.text.MessageFormat.format;
+
+/**
+ * Resolves the reporting rules of every indicator of a report definition once, so that evaluating an indicator
+ * does not look its rules up again. Each rule name is resolved through the rules factory only once.
+ */
+public class RuleChainCompiler {
+    private static Logger logger = LoggerFactory.getLogger(RuleChainCompiler.class.toString());
+
+    private IRulesFactory rulesFactory;
+    private Map<String, RuleTimer> timers = new ConcurrentHashMap<>();
+
+    public RuleChainCompiler(IRulesFactory rulesFactory) {
+        this.rulesFactory = rulesFactory;
+    }
+
+    public Map<ReportIndicator, RuleChain> compile(ReportDefinition reportDefinition) {
+        Map<String, IRule> resolvedRules = new HashMap<>();
+        Map<ReportIndicator, RuleChain> ruleChains = new IdentityHashMap<>();
+        for (FormIndicator formIndicator : reportDefinition.formIndicators()) {
+            for (ReportIndicator reportIndicator : formIndicator.indicators()) {
+                ruleChains.put(reportIndicator, compile(formIndicator.form(), reportIndicator, resolvedRules));
+            }
+        }
+        logger.info(format("Compiled rule chains of {0} indicators using {1} rules.", ruleChains.size(), resolvedRules.size()));
+        return ruleChains;
+    }
+
+    public Collection<RuleTimer> timers() {
+        return Collections.unmodifiableCollection(timers.values());
+    }
+
+    private RuleChain compile(String form, ReportIndicator reportIndicator, Map<String, IRule> resolvedRules) {
+        List<IRule> rules = new ArrayList<>();
+        List<RuleTimer> ruleTimers = new ArrayList<>();
+        List<String> ruleNames = reportIndicator.reportingRules() == null ? new ArrayList<String>() : reportIndicator.reportingRules();
+        for (String ruleName : ruleNames) {
+            IRule rule = resolve(ruleName, resolvedRules);
+            if (rule == null) {
+                logger.error(format("Indicator {0} of form {1} will never be reported, its rule {2} could not be found.",
+                        reportIndicator.indicator(), form, ruleName));
+                return new RuleChain(rules, ruleTimers, ruleName);
+            }
+            rules.add(rule);
+            ruleTimers.add(timerFor(ruleName));
+        }
+        return new RuleChain(rules, ruleTimers, null);
+    }
+
+    private IRule resolve(String ruleName, Map<String, IRule> resolvedRules) {
+        if (!resolvedRules.containsKey(ruleName)) {
+            try {
+                resolvedRules.put(ruleName, rulesFactory.ruleByName(ruleName));
+            } catch (Exception e) {
+                resolvedRules.put(ruleName, null);
+            }
+        }
+        return resolvedRules.get(ruleName);
+    }
+
+    private RuleTimer timerFor(String ruleName) {
+        if (!timers.containsKey(ruleName)) {
+            timers.put(ruleName, new RuleTimer(ruleName));
+        }
+        return timers.get(ruleName);
+    }
+}
@@ -0,0 +1,41 @@
+package org.opensrp.service.reporting;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts how often a reporting rule is applied, how often it passes and how long it takes in total.
+ */
+public class RuleTimer {
+    private final String ruleName;
+    private final AtomicLong invocations = new AtomicLong();
+    private final AtomicLong passes = new AtomicLong();
+    private final AtomicLong totalTimeInNanos = new AtomicLong();
+
+    public RuleTimer(String ruleName) {
+        this.ruleName = ruleName;
+    }
+
+    void record(boolean passed, long timeInNanos) {
+        invocations.incrementAndGet();
+        if (passed) {
+            passes.incrementAndGet();
+        }
+        totalTimeInNanos.addAndGet(timeInNanos);
+    }
+
+    public String ruleName() {
+        return ruleName;
+    }
+
+    public long invocations() {
+        return invocations.get();
+    }
+
+    public long passes() {
+        return passes.get();
+    }
+
+    public long totalTimeInNanos() {
+        return totalTimeInNanos.get();
+    }
+}
@@ -7,7 +7,11 @@ import static junit.framework.Assert.assertTrue;
 import static org.opensrp.dto.AlertStatus.normal;
 import static org.opensrp.dto.BeneficiaryType.mother;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 import org.joda.time.DateTime;
 import org.junit.Before;
@@ -108,13 +112,69 @@ public class AllActionsIntegrationTest {
     }
 
     @Test
-    public void shouldNotDoAnythingIfNoActionsAreFoundForATarget() {
-        Action alertAction = new Action("Case X", "ANM 1", alert());
-        allActions.add(alertAction);
+    public void shouldFetchAlertsNewerThanTimestampInPagesOfBatchSize() throws Exception {
+        Action firstAction = new Action("Case X", "ANM 1", alert());
+        Thread.sleep(10);
+        Action secondAction = new Action("Case Y", "ANM 1", alert());
+        Thread.sleep(10);
+        Action thirdAction = new Action("Case Z", "ANM 1", alert());
+        allActions.add(firstAction);
+        allActions.add(secondAction);
+        allActions.add(thirdAction);
+
+        assertEquals(asList(firstAction, secondAction), allActions.findByANMIDAndTimeStamp("ANM 1", 0, 2));
+        assertEquals(asList(thirdAction), allActions.findByANMIDAndTimeStamp("ANM 1", secondAction.timestamp(), 2));
+        assertEquals(0, allActions.findByANMIDAndTimeStamp("ANM 1", thirdAction.timestamp(), 2).size());
+    }
+
+    @Test
+    public void shouldWriteOnlyChangedReportActionsWhenRefreshingThem() throws Exception {
+        Action unchangedReport = new Action("", "ANM 1", ActionData.reportForIndicator("ANC", "30", "[]"));
+        Action changedReport = new Action("", "ANM 1", ActionData.reportForIndicator("IUD", "40", "[]"));
+        Action staleReport = new Action("", "ANM 1", ActionData.reportForIndicator("OCP", "10", "[]"));
+        Action otherANMReport = new Action("", "ANM 2", ActionData.reportForIndicator("ANC", "30", "[]"));
+        allActions.add(unchangedReport);
+        allActions.add(changedReport);
+        allActions.add(staleReport);
+        allActions.add(otherANMReport);
+
+        int numberOfWrites = allActions.refreshReportActions("ANM 1", asList(
+                new Action("", "ANM 1", ActionData.reportForIndicator("ANC", "30", "[]")),
+                new Action("", "ANM 1", ActionData.reportForIndicator("IUD", "45", "[]")),
+                new Action("", "ANM 1", ActionData.reportForIndicator("DMPA", "20", "[]"))));
+
+        assertEquals(3, numberOfWrites);
+        Map<String, Action> reportActions = new HashMap<>();
+        for (Action reportAction : allActions.findReportActionsByANM("ANM 1")) {
+            reportActions.put(reportAction.actionType(), reportAction);
+        }
+        assertEquals(new HashSet<>(asList("ANC", "IUD", "DMPA")), reportActions.keySet());
+        assertEquals(unchangedReport.getRevision(), reportActions.get("ANC").getRevision());
+        assertEquals(changedReport.getId(), reportActions.get("IUD").getId());
+        assertEquals("45", reportActions.get("IUD").data().get("annualTarget"));
+        assertEquals("20", reportActions.get("DMPA").data().get("annualTarget"));
+        assertEquals(asList(otherANMReport), allActions.findReportActionsByANM("ANM 2"));
+    }
+
+    @Test
+    public void shouldNotWriteAnythingWhenReportActionsHaveNotChanged() throws Exception {
+        Action report = new Action("", "ANM 1", ActionData.reportForIndicator("ANC", "30", "[]"));
+        allActions.add(report);
 
-        allActions.deleteAllByTarget("report");
+        int numberOfWrites = allActions.refreshReportActions("ANM 1", asList(new Action("", "ANM 1", ActionData.reportForIndicator("ANC", "30", "[]"))));
 
-        assertEquals(asList(alertAction), allActions.findByANMIDAndTimeStamp("ANM 1", 0));
+        assertEquals(0, numberOfWrites);
+        assertEquals(asList(report), allActions.findReportActionsByANM("ANM 1"));
+    }
+
+    @Test
+    public void shouldFindANMsWithReportActions() throws Exception {
+        allActions.add(new Action("", "ANM 1", ActionData.reportForIndicator("ANC", "30", "[]")));
+        allActions.add(new Action("", "ANM 1", ActionData.reportForIndicator("IUD", "40", "[]")));
+        allActions.add(new Action("", "ANM 2", ActionData.reportForIndicator("ANC", "30", "[]")));
+        allActions.add(new Action("Case X", "ANM 3", alert()));
+
+        assertEquals(new HashSet<>(asList("ANM 1", "ANM 2")), allActions.findANMsWithReportActions());
     }
 
     @Test
@@ -141,6 +201,7 @@ public class AllActionsIntegrationTest {
         allActions.add(existingAlert);
         allActions.add(existingDifferentScheduleAlert);
 
+        allActions.migrateAlertsToDerivedIds();
         Action newAlert = new Action("entity id 1", "anm id 1", alert("schedule1", "milestone2"));
         allActions.addOrUpdateAlert(newAlert);
 
@@ -157,6 +218,64 @@ public class AllActionsIntegrationTest {
         assertTrue(allActions.contains(newAlert.getId()));
     }
 
+    @Test
+    public void shouldReplaceAlertOfSameANMCaseAndScheduleInPlace() throws Exception {
+        Action firstAlert = new Action("entity id 1", "anm id 1", alert("schedule1", "milestone1"));
+        allActions.addOrUpdateAlert(firstAlert);
+        Action secondAlert = new Action("entity id 1", "anm id 1", alert("schedule1", "milestone2"));
+        allActions.addOrUpdateAlert(secondAlert);
+
+        List<Action> alerts = allActions.findAlertByANMIdEntityIdScheduleName("anm id 1", "entity id 1", "schedule1");
+        assertEquals(1, alerts.size());
+        assertEquals(firstAlert.getId(), secondAlert.getId());
+        assertEquals("milestone2", alerts.get(0).data().get("visitCode"));
+    }
+
+    @Test
+    public void shouldKeepOneAlertWhenSameAlertIsUpdatedConcurrently() throws Exception {
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            final String milestone = "milestone" + i;
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    allActions.addOrUpdateAlert(new Action("entity id 1", "anm id 1", alert("schedule1", milestone)));
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(1, allActions.findAlertByANMIdEntityIdScheduleName("anm id 1", "entity id 1", "schedule1").size());
+    }
+
+    @Test
+    public void shouldMoveAlertsWithoutDerivedIdOntoDerivedIdKeepingTheNewest() throws Exception {
+        Action olderAlert = new Action("entity id 1", "anm id 1", alert("schedule1", "milestone1"));
+        allActions.add(olderAlert);
+        Thread.sleep(10);
+        Action newerAlert = new Action("entity id 1", "anm id 1", alert("schedule1", "milestone2"));
+        allActions.add(newerAlert);
+        Action migratedAlert = new Action("entity id 2", "anm id 1", alert("schedule1", "milestone1"));
+        allActions.addOrUpdateAlert(migratedAlert);
+        Action legacyOfMigratedAlert = new Action("entity id 2", "anm id 1", alert("schedule1", "milestone3"));
+        allActions.add(legacyOfMigratedAlert);
+
+        assertEquals(4, allActions.migrateAlertsToDerivedIds());
+
+        List<Action> alerts = allActions.findAlertByANMIdEntityIdScheduleName("anm id 1", "entity id 1", "schedule1");
+        assertEquals(1, alerts.size());
+        assertEquals("milestone2", alerts.get(0).data().get("visitCode"));
+        assertFalse(allActions.contains(olderAlert.getId()));
+        assertFalse(allActions.contains(newerAlert.getId()));
+        assertEquals(asList(migratedAlert), allActions.findAlertByANMIdEntityIdScheduleName("anm id 1", "entity id 2", "schedule1"));
+        assertEquals(0, allActions.migrateAlertsToDerivedIds());
+    }
+
     @Test
     public void shouldUpdateAlertAsAnInactive() {
         Action firstAction = new Action("Case X", "ANM 1", alert("schedule1", "milestone1"));
@@ -1,5 +1,7 @@
 package org.opensrp.scheduler.router;
 
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -11,6 +13,7 @@ import static org.motechproject.scheduletracking.api.events.constants.EventDataK
 import static org.motechproject.scheduletracking.api.events.constants.EventDataKeys.SCHEDULE_NAME;
 import static org.motechproject.scheduletracking.api.events.constants.EventDataKeys.WINDOW_NAME;
 import static org.opensrp.scheduler.Matcher.any;
+import static org.opensrp.scheduler.Matcher.anyOf;
 import static org.opensrp.scheduler.Matcher.eq;
 
 import java.util.HashMap;
@@ -23,8 +26,10 @@ import org.motechproject.scheduler.domain.MotechEvent;
 import org.motechproject.scheduletracking.api.domain.MilestoneAlert;
 import org.opensrp.scheduler.AlertRouter;
 import org.opensrp.scheduler.HookedEvent;
+import org.opensrp.scheduler.Matcher;
 import org.opensrp.scheduler.MilestoneEvent;
 import org.opensrp.scheduler.NoRoutesMatchException;
+import org.opensrp.scheduler.Route;
 
 public class AlertRouterTest {
     @Mock
@@ -120,6 +125,54 @@ public class AlertRouterTest {
         verifyZeroInteractions(secondAction);
     }
 
+    @Test
+    public void shouldRouteByAnyOfTheValuesOfAMatcher() {
+        router.addRoute(anyOf("Schedule X", "Schedule Y"), any(), anyOf("due", "late"), firstAction);
+        router.addRoute(any(), any(), any(), secondAction);
+
+        assertRouteMatches("Schedule Y", "someMilestone", "late", firstAction, new HashMap<String, String>());
+        assertRouteMatches("Schedule Y", "someMilestone", "max", secondAction, new HashMap<String, String>());
+    }
+
+    @Test
+    public void shouldRouteWithMatchersWhoseValuesCannotBeListed() {
+        router.addRoute(any(), new Matcher() {
+            @Override
+            public boolean matches(String actualValue) {
+                return actualValue.startsWith("Milestone");
+            }
+        }, any(), firstAction);
+
+        assertNoRoutesMatch("someSchedule", "someMilestone", "someWindow");
+        assertRouteMatches("someSchedule", "Milestone X", "someWindow", firstAction, new HashMap<String, String>());
+    }
+
+    @Test
+    public void shouldUseRoutesAddedAfterAlertsWereRouted() {
+        router.addRoute(eq("Schedule X"), any(), any(), firstAction);
+        assertNoRoutesMatch("Schedule Y", "someMilestone", "someWindow");
+
+        router.addRoute(eq("Schedule Y"), any(), any(), secondAction);
+
+        assertRouteMatches("Schedule Y", "someMilestone", "someWindow", secondAction, new HashMap<String, String>());
+    }
+
+    @Test
+    public void shouldCountDispatchesOfEachRouteAndEventsWithoutRoute() {
+        Route firstRoute = router.addRoute(eq("Schedule X"), any(), any(), firstAction);
+        Route secondRoute = router.addRoute(eq("Schedule Y"), any(), any(), secondAction);
+
+        handleEvent("Schedule X", "someMilestone", "someWindow");
+        handleEvent("Schedule X", "someOtherMilestone", "someWindow");
+        handleEvent("Schedule Y", "someMilestone", "someWindow");
+        assertNoRoutesMatch("Schedule Z", "someMilestone", "someWindow");
+
+        assertEquals(2, firstRoute.dispatchCount());
+        assertEquals(1, secondRoute.dispatchCount());
+        assertEquals(1, router.unroutedEventCount());
+        assertEquals(asList(firstRoute, secondRoute), router.routes());
+    }
+
     @Test(expected = NoRoutesMatchException.class)
     public void shouldFailIfNoRoutesMatch() {
         router.handle(event("scheduleName", "milestoneName", "windowName"));
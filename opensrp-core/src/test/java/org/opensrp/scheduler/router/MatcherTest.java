@@ -1,8 +1,13 @@
 package org.opensrp.scheduler.router;
 
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.HashSet;
+
 import org.junit.Test;
 import org.opensrp.scheduler.Matcher;
 
@@ -39,4 +44,11 @@ public class MatcherTest {
         assertFalse(matcher.matches("abcdef"));
         assertFalse(matcher.matches("xyz"));
     }
+
+    @Test
+    public void shouldListValuesMatchedExactly() {
+        assertEquals(new HashSet<>(asList("abc")), Matcher.eq("abc").exactValues());
+        assertEquals(new HashSet<>(asList("abc", "def")), Matcher.anyOf("abc", "def").exactValues());
+        assertNull(Matcher.any().exactValues());
+    }
 }
@@ -0,0 +1,50 @@
+package org.opensrp.scheduler.service;
+
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.opensrp.scheduler.repository.AllActions;
+
+public class AlertIdMigrationTest {
+    @Mock
+    private AllActions allActions;
+
+    private AlertIdMigration migration;
+
+    @Before
+    public void setUp() throws Exception {
+        initMocks(this);
+        migration = new AlertIdMigration(allActions);
+    }
+
+    @Test
+    public void shouldMarkAlertsAsMigratedOnceTheyHaveBeenMigrated() throws Exception {
+        migration.migrate();
+
+        verify(allActions).migrateAlertsToDerivedIds();
+        verify(allActions).markAlertsAsMigratedToDerivedIds();
+    }
+
+    @Test
+    public void shouldNotMigrateAlertsAgainOnceMarkedAsMigrated() throws Exception {
+        when(allActions.hasMigratedAlertsToDerivedIds()).thenReturn(true);
+
+        migration.migrate();
+
+        verify(allActions, never()).migrateAlertsToDerivedIds();
+    }
+
+    @Test
+    public void shouldNotMarkAlertsAsMigratedWhenMigrationFails() throws Exception {
+        when(allActions.migrateAlertsToDerivedIds()).thenThrow(new IllegalStateException("Could not migrate 1 of 2 alert documents."));
+
+        migration.migrate();
+
+        verify(allActions, never()).markAlertsAsMigratedToDerivedIds();
+    }
+}
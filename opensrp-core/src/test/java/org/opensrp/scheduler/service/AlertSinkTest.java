@@ -0,0 +1,153 @@
+package org.opensrp.scheduler.service;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static org.opensrp.common.monitor.Metric.SCHEDULER_ALERT_SINK_BACKLOG;
+import static org.opensrp.dto.AlertStatus.normal;
+import static org.opensrp.dto.BeneficiaryType.mother;
+
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.opensrp.common.monitor.Monitor;
+import org.opensrp.dto.ActionData;
+import org.opensrp.scheduler.Action;
+import org.opensrp.scheduler.repository.AllActions;
+
+public class AlertSinkTest {
+    @Mock
+    private AllActions allActions;
+    @Mock
+    private Monitor monitor;
+
+    private AlertSink alertSink;
+
+    @Before
+    public void setUp() throws Exception {
+        initMocks(this);
+        alertSink = new AlertSink(allActions, monitor, 3, 60000, 100);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        alertSink.stop();
+    }
+
+    @Test
+    public void shouldWriteAlertsInBulkWhenWindowIsFull() throws Exception {
+        Action first = alert("Case 1");
+        Action second = alert("Case 2");
+        Action third = alert("Case 3");
+
+        alertSink.add(first);
+        alertSink.add(second);
+        verify(allActions, never()).addOrUpdateAlerts(anyList());
+
+        alertSink.add(third);
+
+        verify(allActions).addOrUpdateAlerts(asList(first, second, third));
+        verify(monitor).addObservationFor(SCHEDULER_ALERT_SINK_BACKLOG, 0);
+        assertEquals(0, alertSink.backlog());
+    }
+
+    @Test
+    public void shouldWriteAlertsInBulkWhenWindowTimeHasPassed() throws Exception {
+        alertSink.stop();
+        alertSink = new AlertSink(allActions, monitor, 100, 50, 1000);
+        Action first = alert("Case 1");
+
+        alertSink.add(first);
+
+        verify(allActions, timeout(2000)).addOrUpdateAlerts(asList(first));
+    }
+
+    @Test
+    public void shouldWritePendingAlertsWhenStopped() throws Exception {
+        Action first = alert("Case 1");
+        alertSink.add(first);
+
+        alertSink.stop();
+
+        verify(allActions).addOrUpdateAlerts(asList(first));
+    }
+
+    @Test
+    public void shouldKeepAlertsOfAWindowThatCouldNotBeWritten() throws Exception {
+        Action first = alert("Case 1");
+        alertSink.add(first);
+        doThrow(new RuntimeException("CouchDB is down")).when(allActions).addOrUpdateAlerts(asList(first));
+
+        try {
+            alertSink.flush();
+            fail("Expected failure to write alerts to be reported.");
+        } catch (RuntimeException expected) {
+        }
+
+        assertEquals(1, alertSink.backlog());
+        verify(monitor).addObservationFor(SCHEDULER_ALERT_SINK_BACKLOG, 1);
+    }
+
+    @Test
+    public void shouldLeaveWritingToTheFlusherOnceAWindowCouldNotBeWritten() throws Exception {
+        alertSink.stop();
+        alertSink = new AlertSink(allActions, monitor, 1, 60000, 100);
+        Action first = alert("Case 1");
+        doThrow(new RuntimeException("CouchDB is down")).when(allActions).addOrUpdateAlerts(asList(first));
+
+        alertSink.add(first);
+        alertSink.add(alert("Case 2"));
+
+        verify(allActions, times(1)).addOrUpdateAlerts(anyList());
+        assertEquals(2, alertSink.backlog());
+    }
+
+    @Test
+    public void shouldWaitToAddAlertsWhileTheBacklogIsAtItsMaximum() throws Exception {
+        alertSink.stop();
+        alertSink = new AlertSink(allActions, monitor, 1, 60000, 2);
+        Action first = alert("Case 1");
+        doThrow(new RuntimeException("CouchDB is down")).when(allActions).addOrUpdateAlerts(asList(first));
+        alertSink.add(first);
+        alertSink.add(alert("Case 2"));
+        final Action third = alert("Case 3");
+
+        Thread adder = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                alertSink.add(third);
+            }
+        });
+        adder.start();
+        adder.join(200);
+        assertTrue(adder.isAlive());
+
+        alertSink.flush();
+        adder.join(2000);
+
+        assertFalse(adder.isAlive());
+        verify(allActions).addOrUpdateAlerts(asList(third));
+    }
+
+    @Test
+    public void shouldNotWriteAnythingWhenThereAreNoAlerts() throws Exception {
+        alertSink.flush();
+
+        verify(allActions, never()).addOrUpdateAlerts(anyList());
+    }
+
+    private Action alert(String caseId) {
+        return new Action(caseId, "ANM 1", ActionData.createAlert(mother, "Ante Natal Care - Normal", "ANC 1", normal, DateTime.now(), DateTime.now().plusDays(3)));
+    }
+}
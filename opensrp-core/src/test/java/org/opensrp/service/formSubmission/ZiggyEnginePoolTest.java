@@ -0,0 +1,75 @@
+package org.opensrp.service.formSubmission;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static org.opensrp.common.monitor.Metric.ZIGGY_ENGINE_POOL_WAIT_TIME;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.opensrp.common.monitor.Metric;
+import org.opensrp.common.monitor.Monitor;
+import org.opensrp.common.monitor.Probe;
+
+public class ZiggyEnginePoolTest {
+    private static final String ZIGGY_SCRIPT = "var controller = { createOrUpdateEntity: function (params, formInstance) {" +
+            " java.lang.Thread.sleep(5); savedForms.put(params, ziggyFormInstance); } };";
+
+    @Mock
+    private Monitor monitor;
+
+    private Map<String, String> savedForms;
+    private Map<String, Object> globals;
+
+    @Before
+    public void setUp() throws Exception {
+        initMocks(this);
+        when(monitor.start(any(Metric.class))).thenReturn(new Probe(ZIGGY_ENGINE_POOL_WAIT_TIME));
+        savedForms = new ConcurrentHashMap<>();
+        globals = new HashMap<>();
+        globals.put("savedForms", savedForms);
+    }
+
+    @Test
+    public void shouldKeepTheFormOfEachSaveIsolatedWhenSavingConcurrently() throws Exception {
+        final ZiggyEnginePool pool = new ZiggyEnginePool(ZIGGY_SCRIPT, globals, 2, monitor);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Void>> saves = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            final String id = String.valueOf(i);
+            saves.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    pool.save("params " + id, "form " + id);
+                    return null;
+                }
+            }));
+        }
+        for (Future<Void> save : saves) {
+            save.get();
+        }
+        executor.shutdown();
+
+        assertEquals(40, savedForms.size());
+        for (int i = 0; i < 40; i++) {
+            assertEquals("form " + i, savedForms.get("params " + i));
+        }
+        assertEquals(2, pool.available());
+        verify(monitor, atLeastOnce()).start(ZIGGY_ENGINE_POOL_WAIT_TIME);
+        verify(monitor, atLeastOnce()).end(any(Probe.class));
+    }
+}
@@ -0,0 +1,78 @@
+package org.opensrp.service.reporting;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.opensrp.service.reporting.ReportDefinitionRegistry.LoadedReportDefinition;
+import org.opensrp.util.SafeMap;
+
+import java.util.Collections;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class ReportDefinitionRegistryTest {
+    @Mock
+    private IReportDefinitionLoader reportDefinitionLoader;
+    @Mock
+    private IRulesFactory rulesFactory;
+
+    @Before
+    public void setUp() throws Exception {
+        initMocks(this);
+    }
+
+    @Test
+    public void shouldSwapInChangedReportDefinition() throws Exception {
+        ReportDefinition oldDefinition = definitionWithIndicator("form 1", "OLD_INDICATOR");
+        ReportDefinition newDefinition = definitionWithIndicator("form 1", "NEW_INDICATOR");
+        when(reportDefinitionLoader.lastModified()).thenReturn(1L, 2L);
+        when(reportDefinitionLoader.load()).thenReturn(oldDefinition, newDefinition);
+        ReportDefinitionRegistry registry = new ReportDefinitionRegistry(reportDefinitionLoader, rulesFactory, 60);
+
+        LoadedReportDefinition loaded = registry.current();
+        assertEquals("OLD_INDICATOR", loaded.indicatorsFor("form 1").get(0).indicator());
+
+        LoadedReportDefinition reloaded = registry.current();
+        assertEquals("NEW_INDICATOR", reloaded.indicatorsFor("form 1").get(0).indicator());
+        assertEquals(1, reloaded.indicatorsByCode("NEW_INDICATOR").size());
+        assertTrue(reloaded.ruleChainFor(reloaded.indicatorsFor("form 1").get(0)).apply(new SafeMap()));
+    }
+
+    @Test
+    public void shouldKeepPreviousReportDefinitionWhenReloadFails() throws Exception {
+        ReportDefinition definition = definitionWithIndicator("form 1", "INDICATOR");
+        when(reportDefinitionLoader.lastModified()).thenReturn(1L, 2L);
+        when(reportDefinitionLoader.load()).thenReturn(definition).thenThrow(new IllegalStateException("broken definition"));
+        ReportDefinitionRegistry registry = new ReportDefinitionRegistry(reportDefinitionLoader, rulesFactory, 60);
+
+        LoadedReportDefinition loaded = registry.current();
+
+        assertSame(loaded, registry.current());
+        verify(reportDefinitionLoader, times(2)).load();
+    }
+
+    @Test
+    public void shouldNotCheckForChangesWhenReloadIsDisabled() throws Exception {
+        when(reportDefinitionLoader.lastModified()).thenReturn(1L, 2L);
+        when(reportDefinitionLoader.load()).thenReturn(definitionWithIndicator("form 1", "INDICATOR"));
+        ReportDefinitionRegistry registry = new ReportDefinitionRegistry(reportDefinitionLoader, rulesFactory, 0);
+
+        registry.current();
+        registry.current();
+
+        verify(reportDefinitionLoader, times(1)).load();
+    }
+
+    private ReportDefinition definitionWithIndicator(String form, String indicator) {
+        return new ReportDefinition(asList(new FormIndicator(form, asList(
+                new ReportIndicator(indicator, "child", null, null, Collections.<String>emptyList(), null,
+                        Collections.<String>emptyList(), null, null)))));
+    }
+}
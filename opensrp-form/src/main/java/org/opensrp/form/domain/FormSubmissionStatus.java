@@ -0,0 +1,71 @@
+package org.opensrp.form.domain;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.codehaus.jackson.annotate.JsonProperty;
+
+public class FormSubmissionStatus {
+    public enum Outcome {
+        SAVED, DUPLICATE, FAILED
+    }
+
+    @JsonProperty
+    private String instanceId;
+    @JsonProperty
+    private Outcome outcome;
+    @JsonProperty
+    private String reason;
+
+    public FormSubmissionStatus() {
+    }
+
+    public FormSubmissionStatus(String instanceId, Outcome outcome, String reason) {
+        this.instanceId = instanceId;
+        this.outcome = outcome;
+        this.reason = reason;
+    }
+
+    public static FormSubmissionStatus saved(String instanceId) {
+        return new FormSubmissionStatus(instanceId, Outcome.SAVED, null);
+    }
+
+    public static FormSubmissionStatus duplicate(String instanceId) {
+        return new FormSubmissionStatus(instanceId, Outcome.DUPLICATE, null);
+    }
+
+    public static FormSubmissionStatus failed(String instanceId, String reason) {
+        return new FormSubmissionStatus(instanceId, Outcome.FAILED, reason);
+    }
+
+    public String instanceId() {
+        return instanceId;
+    }
+
+    public Outcome outcome() {
+        return outcome;
+    }
+
+    public String reason() {
+        return reason;
+    }
+
+    public boolean isFailed() {
+        return Outcome.FAILED.equals(outcome);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return EqualsBuilder.reflectionEquals(this, o);
+    }
+
+    @Override
+    public int hashCode() {
+        return HashCodeBuilder.reflectionHashCode(this);
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
@@ -0,0 +1,52 @@
+package org.opensrp.form.domain;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.codehaus.jackson.annotate.JsonProperty;
+import org.ektorp.support.TypeDiscriminator;
+import org.motechproject.model.MotechBaseDataObject;
+
+@TypeDiscriminator("doc.type === 'ServerVersionSequence'")
+public class ServerVersionSequence extends MotechBaseDataObject {
+    @JsonProperty
+    private String name;
+    @JsonProperty
+    private long nextVersion;
+
+    protected ServerVersionSequence() {
+    }
+
+    public ServerVersionSequence(String name, long nextVersion) {
+        this.name = name;
+        this.nextVersion = nextVersion;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public long nextVersion() {
+        return nextVersion;
+    }
+
+    public ServerVersionSequence withNextVersion(long nextVersion) {
+        this.nextVersion = nextVersion;
+        return this;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return EqualsBuilder.reflectionEquals(this, o);
+    }
+
+    @Override
+    public int hashCode() {
+        return HashCodeBuilder.reflectionHashCode(this, "id");
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
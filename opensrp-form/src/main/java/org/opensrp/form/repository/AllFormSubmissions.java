@@ -2,6 +2,7 @@ package org.opensrp.form.repository;
 
 import org.ektorp.ComplexKey;
 import org.ektorp.CouchDbConnector;
+import org.ektorp.DocumentOperationResult;
 import org.ektorp.ViewQuery;
 import org.ektorp.support.GenerateView;
 import org.ektorp.support.View;
@@ -12,6 +13,7 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Repository;
 import org.opensrp.common.AllConstants;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Repository
@@ -34,6 +36,17 @@ public class AllFormSubmissions extends MotechBaseRepository<FormSubmission> {
         return submissions.get(0);
     }
 
+    public List<FormSubmission> findByInstanceIds(List<String> instanceIds) {
+        if (instanceIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return db.queryView(createQuery("by_instanceId").keys(instanceIds).includeDocs(true), FormSubmission.class);
+    }
+
+    public List<DocumentOperationResult> addAll(List<FormSubmission> submissions) {
+        return db.executeBulk(submissions);
+    }
+
     @View(name = "formSubmission_by_server_version", map = "function(doc) { if (doc.type === 'FormSubmission') { emit([doc.serverVersion], null); } }")
     public List<FormSubmission> findByServerVersion(long serverVersion) {
         ComplexKey startKey = ComplexKey.of(serverVersion + 1);
@@ -42,8 +55,15 @@ public class AllFormSubmissions extends MotechBaseRepository<FormSubmission> {
     }
 
     public List<FormSubmission> allFormSubmissions(long serverVersion, Integer batchSize) {
+        return allFormSubmissions(serverVersion, Long.MAX_VALUE, batchSize);
+    }
+
+    /**
+     * Submissions with server versions after serverVersion and below upToVersion, in order of server version.
+     */
+    public List<FormSubmission> allFormSubmissions(long serverVersion, long upToVersion, Integer batchSize) {
         ComplexKey startKey = ComplexKey.of(serverVersion + 1);
-        ComplexKey endKey = ComplexKey.of(Long.MAX_VALUE);
+        ComplexKey endKey = ComplexKey.of(upToVersion - 1);
         ViewQuery query = createQuery("formSubmission_by_server_version")
                 .startKey(startKey)
                 .endKey(endKey)
@@ -55,12 +75,24 @@ public class AllFormSubmissions extends MotechBaseRepository<FormSubmission> {
         return db.queryView(query, FormSubmission.class);
     }
 
+    public List<FormSubmission> findAllWithServerVersion(long serverVersion) {
+        return db.queryView(createQuery("formSubmission_by_server_version").key(ComplexKey.of(serverVersion)).includeDocs(true),
+                FormSubmission.class);
+    }
+
     @View(
             name = "formSubmission_by_anm_and_server_version",
             map = "function(doc) { if (doc.type === 'FormSubmission') { emit([doc.anmId, doc.serverVersion], null); } }")
     public List<FormSubmission> findByANMIDAndServerVersion(String anmId, long version, Integer batchSize) {
+        return findByANMIDAndServerVersion(anmId, version, Long.MAX_VALUE, batchSize);
+    }
+
+    /**
+     * Submissions of the ANM with server versions after version and below upToVersion, in order of server version.
+     */
+    public List<FormSubmission> findByANMIDAndServerVersion(String anmId, long version, long upToVersion, Integer batchSize) {
         ComplexKey startKey = ComplexKey.of(anmId, version + 1);
-        ComplexKey endKey = ComplexKey.of(anmId, Long.MAX_VALUE);
+        ComplexKey endKey = ComplexKey.of(anmId, upToVersion - 1);
         ViewQuery query = createQuery("formSubmission_by_anm_and_server_version")
                 .startKey(startKey)
                 .endKey(endKey)
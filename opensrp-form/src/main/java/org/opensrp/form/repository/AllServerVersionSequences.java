@@ -0,0 +1,73 @@
+package org.opensrp.form.repository;
+
+import org.ektorp.CouchDbConnector;
+import org.ektorp.DocumentNotFoundException;
+import org.ektorp.UpdateConflictException;
+import org.motechproject.dao.MotechBaseRepository;
+import org.opensrp.common.AllConstants;
+import org.opensrp.common.util.DateUtil;
+import org.opensrp.form.domain.ServerVersionSequence;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Repository;
+
+import static java.text.MessageFormat.format;
+
+@Repository
+public class AllServerVersionSequences extends MotechBaseRepository<ServerVersionSequence> {
+    private static Logger logger = LoggerFactory.getLogger(AllServerVersionSequences.class.toString());
+    private static final String SEQUENCE_ID_PREFIX = "server-version-sequence-";
+    private static final int MAX_RESERVATION_ATTEMPTS = 20;
+
+    @Autowired
+    protected AllServerVersionSequences(@Qualifier(AllConstants.OPENSRP_FORM_DATABASE_CONNECTOR) CouchDbConnector db) {
+        super(ServerVersionSequence.class, db);
+    }
+
+    /**
+     * Reserves the versions [start, start + size) of the named sequence and returns start. A block never starts before
+     * the current time in millis, so reserved versions stay greater than the millis based versions stamped earlier.
+     */
+    public long reserveBlock(String name, int size) {
+        for (int attempt = 1; attempt <= MAX_RESERVATION_ATTEMPTS; attempt++) {
+            ServerVersionSequence sequence = findOrCreate(name);
+            long start = Math.max(sequence.nextVersion(), DateUtil.millis());
+            try {
+                update(sequence.withNextVersion(start + size));
+                return start;
+            } catch (UpdateConflictException e) {
+                logger.debug(format("Sequence {0} was updated concurrently. Retrying block reservation, attempt: {1}", name, attempt));
+            }
+        }
+        throw new IllegalStateException(format("Could not reserve a block of {0} versions from sequence {1}", size, name));
+    }
+
+    /**
+     * Returns the next version the named sequence would hand out, which is above every version reserved so far.
+     */
+    public long currentVersion(String name) {
+        try {
+            return db.get(ServerVersionSequence.class, SEQUENCE_ID_PREFIX + name).nextVersion();
+        } catch (DocumentNotFoundException e) {
+            return 0L;
+        }
+    }
+
+    private ServerVersionSequence findOrCreate(String name) {
+        String id = SEQUENCE_ID_PREFIX + name;
+        try {
+            return db.get(ServerVersionSequence.class, id);
+        } catch (DocumentNotFoundException e) {
+            ServerVersionSequence sequence = new ServerVersionSequence(name, 0L);
+            sequence.setId(id);
+            try {
+                db.create(sequence);
+                return sequence;
+            } catch (UpdateConflictException conflict) {
+                return db.get(ServerVersionSequence.class, id);
+            }
+        }
+    }
+}
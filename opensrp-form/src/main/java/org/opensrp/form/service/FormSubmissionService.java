@@ -3,17 +3,24 @@ package org.opensrp.form.service;
 import ch.lambdaj.function.convert.Converter;
 
 
-import org.opensrp.common.util.DateUtil;
+import org.ektorp.DocumentOperationResult;
 import org.opensrp.dto.form.FormSubmissionDTO;
 import org.opensrp.form.domain.FormSubmission;
+import org.opensrp.form.domain.FormSubmissionStatus;
 import org.opensrp.form.repository.AllFormSubmissions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 
 import static ch.lambdaj.collection.LambdaCollections.with;
 import static java.text.MessageFormat.format;
@@ -23,10 +30,12 @@ import static java.util.Collections.sort;
 public class FormSubmissionService {
     private static Logger logger = LoggerFactory.getLogger(FormSubmissionService.class.toString());
     private AllFormSubmissions allFormSubmissions;
+    private ServerVersionSequenceService serverVersionSequence;
 
     @Autowired
-    public FormSubmissionService(AllFormSubmissions allFormSubmissions) {
+    public FormSubmissionService(AllFormSubmissions allFormSubmissions, ServerVersionSequenceService serverVersionSequence) {
         this.allFormSubmissions = allFormSubmissions;
+        this.serverVersionSequence = serverVersionSequence;
     }
 
     public List<FormSubmissionDTO> fetch(long formFetchToken) {
@@ -39,22 +48,19 @@ public class FormSubmissionService {
     }
 
     public List<FormSubmission> getNewSubmissionsForANM(String anmIdentifier, Long version, Integer batchSize) {
-        return allFormSubmissions.findByANMIDAndServerVersion(anmIdentifier, version, batchSize);
+        return allFormSubmissions.findByANMIDAndServerVersion(anmIdentifier, version, serverVersionSequence.settledVersion(), batchSize);
     }
 
     public List<FormSubmission> getAllSubmissions(Long version, Integer batchSize) {
-        return allFormSubmissions.allFormSubmissions(version, batchSize);
+        return allFormSubmissions.allFormSubmissions(version, serverVersionSequence.settledVersion(), batchSize);
     }
 
-    public void submit(List<FormSubmissionDTO> formSubmissionsDTO) {
-        List<FormSubmission> formSubmissions = with(formSubmissionsDTO).convert(new Converter<FormSubmissionDTO, FormSubmission>() {
-            @Override
-            public FormSubmission convert(FormSubmissionDTO submission) {
-                return FormSubmissionConverter.toFormSubmission(submission);
-            }
-        });
+    public List<FormSubmission> getAllSubmissionsWithVersion(long version) {
+        return allFormSubmissions.findAllWithServerVersion(version);
+    }
 
-        sort(formSubmissions, timeStampComparator());
+    public void submit(List<FormSubmissionDTO> formSubmissionsDTO) {
+        List<FormSubmission> formSubmissions = toSortedFormSubmissions(formSubmissionsDTO);
         for (FormSubmission submission : formSubmissions) {
             if (allFormSubmissions.exists(submission.instanceId())) {
                 logger.warn(format("Received form submission that already exists. Skipping. Submission: {0}", submission));
@@ -62,11 +68,81 @@ public class FormSubmissionService {
             }
             logger.info(format("Saving form {0} with instance Id: {1} and for entity Id: {2}",
                     submission.formName(), submission.instanceId(), submission.entityId()));
-            submission.setServerVersion(DateUtil.millis());
+            submission.setServerVersion(serverVersionSequence.next());
             allFormSubmissions.add(submission);
         }
     }
 
+    /**
+     * Saves a batch of submissions with one keyed lookup for the existing instance ids and one bulk write for the new
+     * ones. Returns the outcome of every submission in the batch, duplicates first.
+     */
+    public List<FormSubmissionStatus> submitInBulk(List<FormSubmissionDTO> formSubmissionsDTO) {
+        List<FormSubmission> formSubmissions = toSortedFormSubmissions(formSubmissionsDTO);
+        Set<String> knownInstanceIds = existingInstanceIds(formSubmissions);
+
+        List<FormSubmissionStatus> statuses = new ArrayList<>();
+        List<FormSubmission> newSubmissions = new ArrayList<>();
+        Map<String, String> instanceIdsByDocumentId = new HashMap<>();
+        for (FormSubmission submission : formSubmissions) {
+            if (!knownInstanceIds.add(submission.instanceId())) {
+                logger.warn(format("Received form submission that already exists. Skipping. Submission: {0}", submission));
+                statuses.add(FormSubmissionStatus.duplicate(submission.instanceId()));
+                continue;
+            }
+            submission.setId(UUID.randomUUID().toString());
+            newSubmissions.add(submission);
+            instanceIdsByDocumentId.put(submission.getId(), submission.instanceId());
+        }
+        if (newSubmissions.isEmpty()) {
+            return statuses;
+        }
+
+        long serverVersion = serverVersionSequence.reserve(newSubmissions.size());
+        for (FormSubmission submission : newSubmissions) {
+            submission.setServerVersion(serverVersion++);
+        }
+
+        logger.info(format("Saving {0} new form submissions in bulk. Duplicates skipped: {1}", newSubmissions.size(), statuses.size()));
+        Map<String, String> failures = new HashMap<>();
+        for (DocumentOperationResult result : allFormSubmissions.addAll(newSubmissions)) {
+            String instanceId = instanceIdsByDocumentId.get(result.getId());
+            logger.error(format("Saving form submission with instance Id: {0} failed with error: {1}, reason: {2}",
+                    instanceId, result.getError(), result.getReason()));
+            failures.put(instanceId, result.getError() + ": " + result.getReason());
+        }
+        for (FormSubmission submission : newSubmissions) {
+            String failure = failures.get(submission.instanceId());
+            statuses.add(failure == null
+                    ? FormSubmissionStatus.saved(submission.instanceId())
+                    : FormSubmissionStatus.failed(submission.instanceId(), failure));
+        }
+        return statuses;
+    }
+
+    private Set<String> existingInstanceIds(List<FormSubmission> formSubmissions) {
+        List<String> instanceIds = new ArrayList<>();
+        for (FormSubmission submission : formSubmissions) {
+            instanceIds.add(submission.instanceId());
+        }
+        Set<String> existingInstanceIds = new HashSet<>();
+        for (FormSubmission existingSubmission : allFormSubmissions.findByInstanceIds(instanceIds)) {
+            existingInstanceIds.add(existingSubmission.instanceId());
+        }
+        return existingInstanceIds;
+    }
+
+    private List<FormSubmission> toSortedFormSubmissions(List<FormSubmissionDTO> formSubmissionsDTO) {
+        List<FormSubmission> formSubmissions = with(formSubmissionsDTO).convert(new Converter<FormSubmissionDTO, FormSubmission>() {
+            @Override
+            public FormSubmission convert(FormSubmissionDTO submission) {
+                return FormSubmissionConverter.toFormSubmission(submission);
+            }
+        });
+        sort(formSubmissions, timeStampComparator());
+        return formSubmissions;
+    }
+
     private Comparator<FormSubmission> timeStampComparator() {
         return new Comparator<FormSubmission>() {
             public int compare(FormSubmission firstSubmission, FormSubmission secondSubmission) {
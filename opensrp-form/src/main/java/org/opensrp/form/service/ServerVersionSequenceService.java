@@ -0,0 +1,92 @@
+package org.opensrp.form.service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.opensrp.common.util.DateUtil;
+import org.opensrp.form.repository.AllServerVersionSequences;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import static java.text.MessageFormat.format;
+
+/**
+ * Hands out strictly increasing server versions from blocks reserved in CouchDB, so that every web node can stamp
+ * submissions without a round trip per document. Unused versions of a block are abandoned, which leaves gaps.
+ * <p>
+ * Versions do not become visible in order: a node keeps handing out versions of its block while another node writes
+ * higher versions from a later block, and a write can land after a later one. Readers that resume from the highest
+ * version they have seen must only read below {@link #settledVersion()}.
+ */
+@Service
+public class ServerVersionSequenceService {
+    public static final String FORM_SUBMISSION_SEQUENCE = "FormSubmission";
+    private static Logger logger = LoggerFactory.getLogger(ServerVersionSequenceService.class.toString());
+    private static final int DEFAULT_BLOCK_SIZE = 100;
+    // Blocks are short lived so that versions handed out by different nodes stay close to each other in time.
+    private static final long BLOCK_LIFETIME_IN_MILLIS = 1000;
+    // Time allowed for a submission to be written after its version is handed out.
+    private static final long WRITE_ALLOWANCE_IN_MILLIS = 10000;
+    private static final long VISIBILITY_LAG_IN_MILLIS = BLOCK_LIFETIME_IN_MILLIS + WRITE_ALLOWANCE_IN_MILLIS;
+
+    private AllServerVersionSequences allServerVersionSequences;
+    private int blockSize;
+    private long nextVersion;
+    private long blockEnd;
+    private long blockReservedAt;
+    private final Deque<long[]> sequenceObservations = new ArrayDeque<>();
+    private long settledSequenceVersion;
+
+    @Autowired
+    public ServerVersionSequenceService(AllServerVersionSequences allServerVersionSequences) {
+        this(allServerVersionSequences, DEFAULT_BLOCK_SIZE);
+    }
+
+    public ServerVersionSequenceService(AllServerVersionSequences allServerVersionSequences, int blockSize) {
+        this.allServerVersionSequences = allServerVersionSequences;
+        this.blockSize = blockSize;
+    }
+
+    public synchronized long next() {
+        return reserve(1);
+    }
+
+    /**
+     * Reserves count consecutive versions and returns the first one.
+     */
+    public synchronized long reserve(int count) {
+        long now = DateUtil.millis();
+        if (nextVersion + count > blockEnd || now - blockReservedAt > BLOCK_LIFETIME_IN_MILLIS) {
+            int size = Math.max(blockSize, count);
+            nextVersion = allServerVersionSequences.reserveBlock(FORM_SUBMISSION_SEQUENCE, size);
+            blockEnd = nextVersion + size;
+            blockReservedAt = now;
+            logger.debug(format("Reserved server versions {0} to {1}", nextVersion, blockEnd - 1));
+        }
+        long first = nextVersion;
+        nextVersion += count;
+        return first;
+    }
+
+    /**
+     * Returns the version below which every version handed out by any node has been written, unless its write took
+     * longer than the allowance. A version is settled once it was reserved more than the visibility lag ago, which holds
+     * for versions below the current time less the lag, because a block never starts below the time it is reserved
+     * at, and for versions below a value of the sequence read more than the lag ago. The first bound assumes node
+     * clocks agree to within the allowance, the second keeps readers going when the sequence runs ahead of the clock.
+     */
+    public long settledVersion() {
+        long now = DateUtil.millis();
+        synchronized (sequenceObservations) {
+            if (sequenceObservations.isEmpty() || now - sequenceObservations.peekLast()[0] >= BLOCK_LIFETIME_IN_MILLIS) {
+                sequenceObservations.addLast(new long[]{now, allServerVersionSequences.currentVersion(FORM_SUBMISSION_SEQUENCE)});
+            }
+            while (!sequenceObservations.isEmpty() && now - sequenceObservations.peekFirst()[0] >= VISIBILITY_LAG_IN_MILLIS) {
+                settledSequenceVersion = Math.max(settledSequenceVersion, sequenceObservations.pollFirst()[1]);
+            }
+            return Math.max(now - VISIBILITY_LAG_IN_MILLIS, settledSequenceVersion);
+        }
+    }
+}
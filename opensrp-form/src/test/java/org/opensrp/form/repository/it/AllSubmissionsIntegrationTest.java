@@ -69,9 +69,24 @@ public class AllSubmissionsIntegrationTest {
         assertEquals(asList(firstFormSubmission, secondFormSubmission), formSubmissions.allFormSubmissions(0, 2));
         assertEquals(asList(firstFormSubmission, secondFormSubmission, thirdFormSubmission), formSubmissions.allFormSubmissions(0, 3));
         assertEquals(asList(secondFormSubmission, thirdFormSubmission), formSubmissions.allFormSubmissions(firstFormSubmission.serverVersion(), 3));
+        assertEquals(asList(firstFormSubmission, secondFormSubmission), formSubmissions.allFormSubmissions(0, thirdFormSubmission.serverVersion(), 3));
 
     }
 
+    @Test
+    public void shouldFetchAllFormSubmissionsWithAServerVersion() throws Exception {
+        long baseTimeStamp = DateUtil.now().getMillis();
+        FormSubmission firstFormSubmission = new FormSubmission("anm id 1", "instance id 1", "form name 1", "entity id 1", 0L, "1", null, baseTimeStamp);
+        FormSubmission secondFormSubmission = new FormSubmission("anm id 2", "instance id 2", "form name 1", "entity id 2", 1L, "1", null, baseTimeStamp);
+        FormSubmission thirdFormSubmission = new FormSubmission("anm id 3", "instance id 3", "form name 1", "entity id 3", 2L, "1", null, baseTimeStamp + 1);
+        formSubmissions.add(firstFormSubmission);
+        formSubmissions.add(secondFormSubmission);
+        formSubmissions.add(thirdFormSubmission);
+
+        assertEquals(2, formSubmissions.findAllWithServerVersion(baseTimeStamp).size());
+        assertEquals(asList(thirdFormSubmission), formSubmissions.findAllWithServerVersion(baseTimeStamp + 1));
+    }
+
     @Test
     public void shouldFetchFormSubmissionsBasedOnANMIDTimeStampAndBatchSize() throws Exception {
         long baseTimeStamp = DateUtil.now().getMillis();
@@ -3,19 +3,27 @@ package org.opensrp.form.service;
 import org.joda.time.LocalDate;
 import org.junit.Before;
 import org.junit.Test;
+import org.ektorp.DocumentOperationResult;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InOrder;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.motechproject.util.DateUtil;
 import org.opensrp.dto.form.FormSubmissionDTO;
 import org.opensrp.form.domain.FormSubmission;
+import org.opensrp.form.domain.FormSubmissionStatus;
 import org.opensrp.form.repository.AllFormSubmissions;
 import org.opensrp.form.service.FormSubmissionService;
 
+import java.util.Collections;
 import java.util.List;
 
 import static java.lang.String.valueOf;
 import static java.util.Arrays.asList;
 import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyList;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.*;
 import static org.mockito.MockitoAnnotations.initMocks;
@@ -23,6 +31,8 @@ import static org.mockito.MockitoAnnotations.initMocks;
 public class FormSubmissionServiceTest {
     @Mock
     private AllFormSubmissions allFormSubmissions;
+    @Mock
+    private ServerVersionSequenceService serverVersionSequence;
 
     private FormSubmissionService formSubmissionService;
     private long serverVersion;
@@ -30,10 +40,13 @@ public class FormSubmissionServiceTest {
     @Before
     public void setUp() throws Exception {
         initMocks(this);
-        formSubmissionService = new FormSubmissionService(allFormSubmissions);
+        formSubmissionService = new FormSubmissionService(allFormSubmissions, serverVersionSequence);
         LocalDate fakeDate = new LocalDate("2012-01-01");
         org.opensrp.common.util.DateUtil.fakeIt(fakeDate);
         serverVersion = fakeDate.toDateTimeAtStartOfDay().getMillis();
+        when(serverVersionSequence.next()).thenReturn(serverVersion);
+        when(serverVersionSequence.reserve(anyInt())).thenReturn(serverVersion);
+        when(serverVersionSequence.settledVersion()).thenReturn(Long.MAX_VALUE);
     }
 
     @Test
@@ -99,10 +112,68 @@ public class FormSubmissionServiceTest {
         long baseTimeStamp = DateUtil.now().getMillis();
         FormSubmission firstFormSubmission = new FormSubmission("anm id 1", "instance id 1", "form name 1", "entity id 1", baseTimeStamp, "1", null, 0L);
         FormSubmission secondFormSubmission = new FormSubmission("anm id 2", "instance id 2", "form name 1", "entity id 2", baseTimeStamp + 1, "1", null, 1L);
-        when(allFormSubmissions.allFormSubmissions(0, 2)).thenReturn(asList(firstFormSubmission, secondFormSubmission));
+        when(allFormSubmissions.allFormSubmissions(0, Long.MAX_VALUE, 2)).thenReturn(asList(firstFormSubmission, secondFormSubmission));
 
         List<FormSubmission> formSubmissions = formSubmissionService.getAllSubmissions(0L, 2);
 
         assertEquals(asList(firstFormSubmission, secondFormSubmission), formSubmissions);
     }
+
+    @Test
+    public void shouldFetchOnlyFormSubmissionsBelowTheSettledVersion() throws Exception {
+        when(serverVersionSequence.settledVersion()).thenReturn(5L);
+
+        formSubmissionService.getAllSubmissions(0L, 2);
+        formSubmissionService.getNewSubmissionsForANM("anm id 1", 0L, 2);
+
+        verify(allFormSubmissions).allFormSubmissions(0L, 5L, 2);
+        verify(allFormSubmissions).findByANMIDAndServerVersion("anm id 1", 0L, 5L, 2);
+    }
+
+    @Test
+    public void shouldCheckExistenceOfWholeBatchOnceAndSaveNewSubmissionsInBulk() throws Exception {
+        long baseTimeStamp = DateUtil.now().getMillis();
+        FormSubmissionDTO existingFormSubmissionDTO = new FormSubmissionDTO("anm id 1", "instance id 1", "entity id 1", "form name 1", null, valueOf(baseTimeStamp), "1");
+        FormSubmissionDTO laterFormSubmissionDTO = new FormSubmissionDTO("anm id 1", "instance id 3", "entity id 3", "form name 1", null, valueOf(baseTimeStamp + 2), "1");
+        FormSubmissionDTO newFormSubmissionDTO = new FormSubmissionDTO("anm id 1", "instance id 2", "entity id 2", "form name 1", null, valueOf(baseTimeStamp + 1), "1");
+        FormSubmission existingFormSubmission = new FormSubmission("anm id 1", "instance id 1", "form name 1", "entity id 1", baseTimeStamp, "1", null, serverVersion);
+        when(allFormSubmissions.findByInstanceIds(asList("instance id 1", "instance id 2", "instance id 3"))).thenReturn(asList(existingFormSubmission));
+
+        List<FormSubmissionStatus> statuses = formSubmissionService.submitInBulk(asList(laterFormSubmissionDTO, existingFormSubmissionDTO, newFormSubmissionDTO));
+
+        ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        verify(allFormSubmissions).findByInstanceIds(asList("instance id 1", "instance id 2", "instance id 3"));
+        verify(allFormSubmissions).addAll(captor.capture());
+        verifyNoMoreInteractions(allFormSubmissions);
+        List<FormSubmission> savedSubmissions = captor.getValue();
+        assertEquals(2, savedSubmissions.size());
+        assertEquals("instance id 2", savedSubmissions.get(0).instanceId());
+        assertEquals("instance id 3", savedSubmissions.get(1).instanceId());
+        assertEquals(serverVersion, savedSubmissions.get(0).serverVersion());
+        assertEquals(serverVersion + 1, savedSubmissions.get(1).serverVersion());
+        verify(serverVersionSequence).reserve(2);
+        assertEquals(asList(FormSubmissionStatus.duplicate("instance id 1"), FormSubmissionStatus.saved("instance id 2"),
+                FormSubmissionStatus.saved("instance id 3")), statuses);
+    }
+
+    @Test
+    public void shouldReportFailedDocumentsOfBulkSave() throws Exception {
+        long baseTimeStamp = DateUtil.now().getMillis();
+        FormSubmissionDTO firstFormSubmissionDTO = new FormSubmissionDTO("anm id 1", "instance id 1", "entity id 1", "form name 1", null, valueOf(baseTimeStamp), "1");
+        FormSubmissionDTO secondFormSubmissionDTO = new FormSubmissionDTO("anm id 1", "instance id 2", "entity id 2", "form name 1", null, valueOf(baseTimeStamp + 1), "1");
+        when(allFormSubmissions.findByInstanceIds(anyList())).thenReturn(Collections.<FormSubmission>emptyList());
+        final ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        when(allFormSubmissions.addAll(captor.capture())).thenAnswer(new Answer<List<DocumentOperationResult>>() {
+            @Override
+            public List<DocumentOperationResult> answer(InvocationOnMock invocation) throws Throwable {
+                FormSubmission failedSubmission = (FormSubmission) captor.getValue().get(1);
+                return asList(DocumentOperationResult.newInstance(failedSubmission.getId(), "forbidden", "invalid document"));
+            }
+        });
+
+        List<FormSubmissionStatus> statuses = formSubmissionService.submitInBulk(asList(firstFormSubmissionDTO, secondFormSubmissionDTO, secondFormSubmissionDTO));
+
+        assertEquals(asList(FormSubmissionStatus.duplicate("instance id 2"), FormSubmissionStatus.saved("instance id 1"),
+                FormSubmissionStatus.failed("instance id 2", "forbidden: invalid document")), statuses);
+    }
 }
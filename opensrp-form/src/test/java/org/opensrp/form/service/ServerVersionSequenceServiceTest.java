@@ -0,0 +1,70 @@
+package org.opensrp.form.service;
+
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.opensrp.common.util.DateUtil;
+import org.opensrp.form.repository.AllServerVersionSequences;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static org.opensrp.form.service.ServerVersionSequenceService.FORM_SUBMISSION_SEQUENCE;
+
+public class ServerVersionSequenceServiceTest {
+    @Mock
+    private AllServerVersionSequences allServerVersionSequences;
+
+    private ServerVersionSequenceService sequenceService;
+
+    @Before
+    public void setUp() throws Exception {
+        initMocks(this);
+        DateUtil.fakeIt(new LocalDate("2012-01-01"));
+        sequenceService = new ServerVersionSequenceService(allServerVersionSequences, 3);
+    }
+
+    @Test
+    public void shouldHandOutVersionsFromReservedBlockUntilItIsExhausted() throws Exception {
+        when(allServerVersionSequences.reserveBlock(FORM_SUBMISSION_SEQUENCE, 3)).thenReturn(100L, 200L);
+
+        assertEquals(100L, sequenceService.next());
+        assertEquals(101L, sequenceService.next());
+        assertEquals(102L, sequenceService.next());
+        assertEquals(200L, sequenceService.next());
+
+        verify(allServerVersionSequences, times(2)).reserveBlock(FORM_SUBMISSION_SEQUENCE, 3);
+    }
+
+    @Test
+    public void shouldReserveALargerBlockWhenBatchDoesNotFitInRemainingVersions() throws Exception {
+        when(allServerVersionSequences.reserveBlock(FORM_SUBMISSION_SEQUENCE, 3)).thenReturn(100L, 300L);
+        when(allServerVersionSequences.reserveBlock(FORM_SUBMISSION_SEQUENCE, 5)).thenReturn(200L);
+
+        assertEquals(100L, sequenceService.next());
+        assertEquals(200L, sequenceService.reserve(5));
+        assertEquals(300L, sequenceService.next());
+    }
+
+    @Test
+    public void shouldSettleVersionsReservedMoreThanTheVisibilityLagAgo() throws Exception {
+        long now = new LocalDate("2012-01-01").toDateTimeAtStartOfDay().getMillis();
+        when(allServerVersionSequences.currentVersion(FORM_SUBMISSION_SEQUENCE)).thenReturn(now - 20000);
+
+        assertEquals(now - 11000, sequenceService.settledVersion());
+    }
+
+    @Test
+    public void shouldSettleVersionsBelowASequenceValueReadMoreThanTheVisibilityLagAgo() throws Exception {
+        long aheadOfTheClock = new LocalDate("2012-01-03").toDateTimeAtStartOfDay().getMillis();
+        when(allServerVersionSequences.currentVersion(FORM_SUBMISSION_SEQUENCE)).thenReturn(aheadOfTheClock, aheadOfTheClock + 100);
+        long firstRead = sequenceService.settledVersion();
+
+        DateUtil.fakeIt(new LocalDate("2012-01-02"));
+        long secondRead = sequenceService.settledVersion();
+
+        assertEquals(new LocalDate("2012-01-01").toDateTimeAtStartOfDay().getMillis() - 11000, firstRead);
+        assertEquals(aheadOfTheClock, secondRead);
+    }
+}
@@ -1,54 +1,43 @@
 package org.opensrp.register.listener;
 
-import static ch.lambdaj.collection.LambdaCollections.with;
 import static java.text.MessageFormat.format;
 import static org.apache.commons.lang.exception.ExceptionUtils.getFullStackTrace;
 
 import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.motechproject.scheduler.domain.MotechEvent;
 import org.motechproject.server.event.annotations.MotechListener;
 import org.opensrp.domain.FormExportToken;
-import org.opensrp.dto.form.FormSubmissionDTO;
 import org.opensrp.form.domain.FormSubmission;
-import org.opensrp.form.service.FormSubmissionConverter;
 import org.opensrp.form.service.FormSubmissionService;
 import org.opensrp.register.DrishtiScheduleConstants;
-import org.opensrp.register.DrishtiScheduleConstants.OpenSRPEvent;
 import org.opensrp.repository.AllFormExportTokens;
 import org.opensrp.service.formSubmission.FormEntityService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import ch.lambdaj.function.convert.Converter;
-
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
-
 @Component
 public class FormEventListener {
     private static Logger logger = LoggerFactory.getLogger(FormEventListener.class.toString());
     private FormSubmissionService formSubmissionService;
     private FormEntityService formEntityService;
     private AllFormExportTokens allFormExportTokens;
+    private int pageSize;
     private static final ReentrantLock lock = new ReentrantLock();
 
     @Autowired
-    public FormEventListener(FormSubmissionService formSubmissionService, FormEntityService formEntityService, AllFormExportTokens allFormExportTokens) {
+    public FormEventListener(FormSubmissionService formSubmissionService, FormEntityService formEntityService, AllFormExportTokens allFormExportTokens,
+                             @Value("#{opensrp['form.processing.page.size']}") int pageSize) {
         this.formSubmissionService = formSubmissionService;
         this.formEntityService = formEntityService;
         this.allFormExportTokens = allFormExportTokens;
-    }
-
-    @MotechListener(subjects = OpenSRPEvent.FORM_SUBMISSION)
-    public void submitForms(MotechEvent event) {
-        List<FormSubmissionDTO> formSubmissions = new Gson().fromJson((String) event.getParameters().get("data"), new TypeToken<List<FormSubmissionDTO>>() {
-        }.getType());
-        formSubmissionService.submit(formSubmissions);
+        this.pageSize = pageSize;
     }
 
     @MotechListener(subjects = DrishtiScheduleConstants.FORM_SCHEDULE_SUBJECT)
@@ -60,22 +49,20 @@ public class FormEventListener {
         try {
             logger.info("Fetching Forms");
             long version = getVersion();
-
-            List<FormSubmissionDTO> formSubmissionDTOs = formSubmissionService.fetch(version);
-            if (formSubmissionDTOs.isEmpty()) {
+            int processedForms = 0;
+            while (true) {
+                List<FormSubmission> page = nextPage(version);
+                if (page.isEmpty()) {
+                    break;
+                }
+                formEntityService.process(page);
+                processedForms += page.size();
+                version = page.get(page.size() - 1).serverVersion();
+                logger.info(format("Processed {0} forms in this run. Export token: {1}", processedForms, version));
+            }
+            if (processedForms == 0) {
                 logger.info("No new forms found. Export token: " + version);
-                return;
             }
-
-            logger.info(format("Fetched {0} new forms found. Export token: {1}", formSubmissionDTOs.size(), version));
-            List<FormSubmission> formSubmissions = with(formSubmissionDTOs)
-                    .convert(new Converter<FormSubmissionDTO, FormSubmission>() {
-                        @Override
-                        public FormSubmission convert(FormSubmissionDTO submission) {
-                            return FormSubmissionConverter.toFormSubmissionWithVersion(submission);
-                        }
-                    });
-            formEntityService.process(formSubmissions);
         } catch (Exception e) {
             logger.error(MessageFormat.format("{0} occurred while trying to fetch forms. Message: {1} with stack trace {2}",
                     e.toString(), e.getMessage(), getFullStackTrace(e)));
@@ -84,6 +71,26 @@ public class FormEventListener {
         }
     }
 
+    // One submission more than the page size is fetched to see whether the run of submissions sharing the last server
+    // version of the page goes on past it. Such a run is left for the next page, which starts after the export token
+    // and would otherwise never see the rest of it. A run longer than a page is fetched on its own.
+    private List<FormSubmission> nextPage(long version) {
+        List<FormSubmission> submissions = formSubmissionService.getAllSubmissions(version, pageSize + 1);
+        if (submissions.size() <= pageSize) {
+            return submissions;
+        }
+        long versionAfterPage = submissions.get(pageSize).serverVersion();
+        int end = pageSize;
+        while (end > 0 && submissions.get(end - 1).serverVersion() == versionAfterPage) {
+            end--;
+        }
+        if (end == 0) {
+            logger.warn(format("More than {0} forms share server version {1}. Processing all of them in one page.", pageSize, versionAfterPage));
+            return formSubmissionService.getAllSubmissionsWithVersion(versionAfterPage);
+        }
+        return new ArrayList<>(submissions.subList(0, end));
+    }
+
     private long getVersion() {
         List<FormExportToken> exportTokens = allFormExportTokens.getAll();
         if (exportTokens.isEmpty()) {
@@ -1,6 +1,10 @@
 package org.opensrp.register.listener;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 import org.motechproject.scheduler.domain.MotechEvent;
 import org.motechproject.server.event.annotations.MotechListener;
@@ -12,60 +16,48 @@ import org.opensrp.event.ReportEvent;
 import org.opensrp.event.ReportUpdateEvent;
 import org.opensrp.register.DrishtiScheduleConstants;
 import org.opensrp.register.service.reporting.ANMReportingService;
+import org.opensrp.register.service.reporting.ReportDataBatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 
 import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import com.google.gson.JsonIOException;
+import com.google.gson.stream.JsonReader;
 
 @Component
 public class ReportingEventListener {
     public static final String FETCH_REPORTS_FOR_ALL_ANMS_ACTION = "fetchForAllANMs";
-    public static final String SUBMIT_REPORT_ACTION = "submit";
-    public static final String UPDATE_REPORT_ACTION = "update";
-    public static final String DELETE_REPORT_ACTION = "delete";
     private ANMReportingService anmReportService;
     private HttpAgent httpAgent;
+    private ReportDataBatcher reportDataBatcher;
     private String url;
     private static Logger logger = LoggerFactory.getLogger(ReportingEventListener.class);
 
     @Autowired
-    public ReportingEventListener(ANMReportingService anmReportService, HttpAgent httpAgent,
+    public ReportingEventListener(ANMReportingService anmReportService, HttpAgent httpAgent, ReportDataBatcher reportDataBatcher,
                                   @Value("#{opensrp['opensrp.reporting.url']}") String url) {
         this.anmReportService = anmReportService;
         this.httpAgent = httpAgent;
+        this.reportDataBatcher = reportDataBatcher;
         this.url = url;
     }
 
     @MotechListener(subjects = ReportEvent.SUBJECT)
     public void submitReportingData(MotechEvent event) {
-        String data = new Gson().toJson(event.getParameters().get("data"));
-        HttpResponse response = httpAgent.post(url + "/" + SUBMIT_REPORT_ACTION, data, MediaType.APPLICATION_JSON_VALUE);
-        if (!response.isSuccess()) {
-            logger.error("Reporting data post failed. URL: " + url + "/" + SUBMIT_REPORT_ACTION + ". Data: " + data + ". Response: " + response.body());
-        }
+        reportDataBatcher.add(event.getParameters().get("data"));
     }
 
     @MotechListener(subjects = ReportUpdateEvent.SUBJECT)
     public void updateReportingData(MotechEvent event) {
-        String data = new Gson().toJson(event.getParameters().get("data"));
-        HttpResponse response = httpAgent.post(url + "/" + UPDATE_REPORT_ACTION, data, MediaType.APPLICATION_JSON_VALUE);
-        if (!response.isSuccess()) {
-            logger.error("Reporting data post failed. URL: " + url + "/" + UPDATE_REPORT_ACTION + ". Data: " + data + ". Response: " + response.body());
-        }
+        reportDataBatcher.update(event.getParameters().get("data"));
     }
 
     @MotechListener(subjects = ReportDeleteEvent.SUBJECT)
     public void deleteReportingData(MotechEvent event) {
-        String data = new Gson().toJson(event.getParameters().get("data"));
-        HttpResponse response = httpAgent.post(url + "/" + DELETE_REPORT_ACTION, data, MediaType.APPLICATION_JSON_VALUE);
-        if (!response.isSuccess()) {
-            logger.error("Reporting data post failed. URL: " + url + "/" + DELETE_REPORT_ACTION + ". Data: " + data + ". Response: " + response.body());
-        }
+        reportDataBatcher.delete(event.getParameters().get("data"));
     }
 
     @MotechListener(subjects = DrishtiScheduleConstants.ANM_REPORT_SCHEDULE_SUBJECT)
@@ -73,19 +65,57 @@ public class ReportingEventListener {
         logger.info("Fetching ANM reports...");
 
         anmReportService.reportFromEntityData();
-        HttpResponse response = httpAgent.getWithSocketTimeout(url + "/" + FETCH_REPORTS_FOR_ALL_ANMS_ACTION);
+        HttpResponse response = httpAgent.getWithSocketTimeout(url + "/" + FETCH_REPORTS_FOR_ALL_ANMS_ACTION, new HttpAgent.ResponseBodyHandler() {
+            @Override
+            public void handle(InputStream body) throws IOException {
+                JsonReader reader = new JsonReader(new InputStreamReader(body, "UTF-8"));
+                reader.beginArray();
+                if (!reader.hasNext()) {
+                    logger.info("No ANM Reports fetched");
+                    return;
+                }
+                anmReportService.processReports(new ANMReportIterator(reader));
+            }
+        });
         if (!response.isSuccess()) {
             logger.error("ANM Reports fetch failed. URL: " + url + "/" + FETCH_REPORTS_FOR_ALL_ANMS_ACTION + ". Response body: " + response.body());
             return;
         }
-        List<ANMReport> anmReports = new Gson().fromJson(response.body(), new TypeToken<List<ANMReport>>() {
-        }.getType());
-        if (anmReports.isEmpty()) {
-            logger.info("No ANM Reports fetched");
-            return;
-        }
-        anmReportService.processReports(anmReports);
 
         logger.info("Done fetching ANM reports.");
     }
+
+    /**
+     * Reads the ANM reports of a JSON array one at a time, as they are asked for.
+     */
+    private static class ANMReportIterator implements Iterator<ANMReport> {
+        private final Gson gson = new Gson();
+        private final JsonReader reader;
+
+        private ANMReportIterator(JsonReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                return reader.hasNext();
+            } catch (IOException e) {
+                throw new JsonIOException(e);
+            }
+        }
+
+        @Override
+        public ANMReport next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return gson.fromJson(reader, ANMReport.class);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
 }
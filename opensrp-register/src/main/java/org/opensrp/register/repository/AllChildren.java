@@ -32,6 +32,10 @@ public class AllChildren extends MotechBaseRepository<Child> {
         return children.get(0);
     }
 
+    public List<Child> findAll(List<String> caseIds) {
+        return db.queryView(createQuery("by_caseId").keys(caseIds).includeDocs(true), Child.class);
+    }
+
     @View(name = "children_by_mother_id", map = "function(doc) { if (doc.type === 'Child') { emit(doc.motherCaseId); } }")
     public List<Child> findByMotherId(String entityId) {
         return db.queryView(createQuery("children_by_mother_id").key(entityId).includeDocs(true), Child.class);
@@ -16,11 +16,13 @@ import org.springframework.stereotype.Repository;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 @Repository
 public class AllEligibleCouples extends MotechBaseRepository<EligibleCouple> {
     private static Logger logger = LoggerFactory.getLogger(AllEligibleCouples.class);
     private final AllMothers allMothers;
+    private final List<CaseWriteListener> writeListeners = new CopyOnWriteArrayList<>();
 
     @Autowired
     public AllEligibleCouples(@Qualifier(AllConstants.OPENSRP_DATABASE_CONNECTOR) CouchDbConnector db, AllMothers allMothers) {
@@ -28,6 +30,28 @@ public class AllEligibleCouples extends MotechBaseRepository<EligibleCouple> {
         this.allMothers = allMothers;
     }
 
+    public void addWriteListener(CaseWriteListener writeListener) {
+        writeListeners.add(writeListener);
+    }
+
+    @Override
+    public void add(EligibleCouple couple) {
+        super.add(couple);
+        written(couple.caseId());
+    }
+
+    @Override
+    public void update(EligibleCouple couple) {
+        super.update(couple);
+        written(couple.caseId());
+    }
+
+    @Override
+    public void remove(EligibleCouple couple) {
+        super.remove(couple);
+        written(couple.caseId());
+    }
+
     @GenerateView
     public EligibleCouple findByCaseId(String caseId) {
         List<EligibleCouple> couples = queryView("by_caseId", caseId);
@@ -124,4 +148,9 @@ public class AllEligibleCouples extends MotechBaseRepository<EligibleCouple> {
                 .includeDocs(true), EligibleCouple.class);
     }
 
+    private void written(String caseId) {
+        for (CaseWriteListener writeListener : writeListeners) {
+            writeListener.written(caseId);
+        }
+    }
 }
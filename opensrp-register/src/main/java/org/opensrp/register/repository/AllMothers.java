@@ -14,14 +14,39 @@ import org.springframework.stereotype.Repository;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 @Repository
 public class AllMothers extends MotechBaseRepository<Mother> {
+    private final List<CaseWriteListener> writeListeners = new CopyOnWriteArrayList<>();
+
     @Autowired
     public AllMothers(@Qualifier(AllConstants.OPENSRP_DATABASE_CONNECTOR) CouchDbConnector db) {
         super(Mother.class, db);
     }
 
+    public void addWriteListener(CaseWriteListener writeListener) {
+        writeListeners.add(writeListener);
+    }
+
+    @Override
+    public void add(Mother mother) {
+        super.add(mother);
+        written(mother.caseId());
+    }
+
+    @Override
+    public void update(Mother mother) {
+        super.update(mother);
+        written(mother.caseId());
+    }
+
+    @Override
+    public void remove(Mother mother) {
+        super.remove(mother);
+        written(mother.caseId());
+    }
+
     @GenerateView
     public Mother findByCaseId(String caseId) {
         List<Mother> mothers = queryView("by_caseId", caseId);
@@ -148,4 +173,9 @@ public class AllMothers extends MotechBaseRepository<Mother> {
                 .includeDocs(true), Mother.class);
     }
 
+    private void written(String caseId) {
+        for (CaseWriteListener writeListener : writeListeners) {
+            writeListener.written(caseId);
+        }
+    }
 }
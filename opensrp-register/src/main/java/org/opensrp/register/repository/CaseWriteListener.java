@@ -0,0 +1,8 @@
+package org.opensrp.register.repository;
+
+/**
+ * Told about every case a repository writes, so that what was derived from the case can be dropped.
+ */
+public interface CaseWriteListener {
+    void written(String caseId);
+}
@@ -0,0 +1,193 @@
+package org.opensrp.register.repository;
+
+import org.opensrp.common.domain.Location;
+import org.opensrp.register.domain.Child;
+import org.opensrp.register.domain.EligibleCouple;
+import org.opensrp.register.domain.Mother;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers which eligible couple a mother or child belongs to and where each eligible couple lives, so that
+ * reporting does not walk from child to mother to eligible couple in CouchDB every time it needs a location.
+ * Entries of an entity are dropped when form processing, or the mother and eligible couple repositories, write that
+ * entity. Each map keeps at most maximum size entries, evicting the least recently used.
+ */
+@Component
+public class EntityLocationCache {
+    private AllEligibleCouples allEligibleCouples;
+    private AllMothers allMothers;
+    private AllChildren allChildren;
+    private Map<String, String> ecCaseIdsByEntityId;
+    private Map<String, CoupleLocation> coupleLocationsByECCaseId;
+    private AtomicLong hits = new AtomicLong();
+    private AtomicLong misses = new AtomicLong();
+
+    @Autowired
+    public EntityLocationCache(AllEligibleCouples allEligibleCouples, AllMothers allMothers, AllChildren allChildren,
+                               @Value("#{opensrp['entity.location.cache.maximum.size']}") int maximumSize) {
+        this.allEligibleCouples = allEligibleCouples;
+        this.allMothers = allMothers;
+        this.allChildren = allChildren;
+        ecCaseIdsByEntityId = leastRecentlyUsedMap(maximumSize);
+        coupleLocationsByECCaseId = leastRecentlyUsedMap(maximumSize);
+        CaseWriteListener invalidator = new CaseWriteListener() {
+            @Override
+            public void written(String caseId) {
+                invalidate(caseId);
+            }
+        };
+        allEligibleCouples.addWriteListener(invalidator);
+        allMothers.addWriteListener(invalidator);
+    }
+
+    public CoupleLocation ofEligibleCouple(String ecCaseId) {
+        CoupleLocation coupleLocation = coupleLocationsByECCaseId.get(ecCaseId);
+        if (coupleLocation != null) {
+            hits.incrementAndGet();
+            return coupleLocation;
+        }
+        misses.incrementAndGet();
+        return remember(ecCaseId, allEligibleCouples.findByCaseId(ecCaseId));
+    }
+
+    public CoupleLocation ofMother(String motherCaseId) {
+        String ecCaseId = ecCaseIdsByEntityId.get(motherCaseId);
+        if (ecCaseId == null) {
+            Mother mother = allMothers.findByCaseId(motherCaseId);
+            ecCaseId = mother.ecCaseId();
+            ecCaseIdsByEntityId.put(motherCaseId, ecCaseId);
+        }
+        return ofEligibleCouple(ecCaseId);
+    }
+
+    public CoupleLocation ofChild(String childCaseId) {
+        String ecCaseId = ecCaseIdsByEntityId.get(childCaseId);
+        if (ecCaseId != null) {
+            return ofEligibleCouple(ecCaseId);
+        }
+        return ofChild(childCaseId, allChildren.findByCaseId(childCaseId));
+    }
+
+    public CoupleLocation ofChild(Child child) {
+        return ofChild(child.caseId(), child);
+    }
+
+    /**
+     * Resolves the eligible couples of all the given children with at most one bulk lookup of mothers and one of
+     * eligible couples. Children whose mother or eligible couple cannot be found are left out.
+     */
+    public Map<String, CoupleLocation> ofChildren(List<Child> children) {
+        Set<String> unknownMotherIds = new HashSet<>();
+        for (Child child : children) {
+            if (!ecCaseIdsByEntityId.containsKey(child.motherCaseId())) {
+                unknownMotherIds.add(child.motherCaseId());
+            }
+        }
+        if (!unknownMotherIds.isEmpty()) {
+            for (Mother mother : allMothers.findAll(new ArrayList<>(unknownMotherIds))) {
+                ecCaseIdsByEntityId.put(mother.caseId(), mother.ecCaseId());
+            }
+        }
+
+        Set<String> unknownECIds = new HashSet<>();
+        for (Child child : children) {
+            String ecCaseId = ecCaseIdsByEntityId.get(child.motherCaseId());
+            if (ecCaseId == null) {
+                continue;
+            }
+            if (coupleLocationsByECCaseId.containsKey(ecCaseId)) {
+                hits.incrementAndGet();
+            } else {
+                unknownECIds.add(ecCaseId);
+            }
+        }
+        if (!unknownECIds.isEmpty()) {
+            misses.addAndGet(unknownECIds.size());
+            for (EligibleCouple couple : allEligibleCouples.findAll(new ArrayList<>(unknownECIds))) {
+                remember(couple.caseId(), couple);
+            }
+        }
+
+        Map<String, CoupleLocation> coupleLocations = new HashMap<>();
+        for (Child child : children) {
+            String ecCaseId = ecCaseIdsByEntityId.get(child.motherCaseId());
+            CoupleLocation coupleLocation = ecCaseId == null ? null : coupleLocationsByECCaseId.get(ecCaseId);
+            if (coupleLocation != null) {
+                ecCaseIdsByEntityId.put(child.caseId(), ecCaseId);
+                coupleLocations.put(child.caseId(), coupleLocation);
+            }
+        }
+        return coupleLocations;
+    }
+
+    public void invalidate(String entityId) {
+        ecCaseIdsByEntityId.remove(entityId);
+        coupleLocationsByECCaseId.remove(entityId);
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    private CoupleLocation ofChild(String childCaseId, Child child) {
+        CoupleLocation coupleLocation = ofMother(child.motherCaseId());
+        ecCaseIdsByEntityId.put(childCaseId, coupleLocation.ecCaseId());
+        return coupleLocation;
+    }
+
+    private static <K, V> Map<K, V> leastRecentlyUsedMap(final int maximumSize) {
+        return Collections.synchronizedMap(new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maximumSize;
+            }
+        });
+    }
+
+    private CoupleLocation remember(String ecCaseId, EligibleCouple couple) {
+        CoupleLocation coupleLocation = new CoupleLocation(ecCaseId, couple.ecNumber(),
+                new Location(couple.locationId(), couple.locationId(), couple.locationId()));
+        coupleLocationsByECCaseId.put(ecCaseId, coupleLocation);
+        return coupleLocation;
+    }
+
+    public static class CoupleLocation {
+        private final String ecCaseId;
+        private final String ecNumber;
+        private final Location location;
+
+        public CoupleLocation(String ecCaseId, String ecNumber, Location location) {
+            this.ecCaseId = ecCaseId;
+            this.ecNumber = ecNumber;
+            this.location = location;
+        }
+
+        public String ecCaseId() {
+            return ecCaseId;
+        }
+
+        public String ecNumber() {
+            return ecNumber;
+        }
+
+        public Location location() {
+            return location;
+        }
+    }
+}
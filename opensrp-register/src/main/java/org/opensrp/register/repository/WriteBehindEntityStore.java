@@ -0,0 +1,151 @@
+package org.opensrp.register.repository;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.node.JsonNodeFactory;
+import org.codehaus.jackson.node.ObjectNode;
+import org.ektorp.CouchDbConnector;
+import org.ektorp.DocumentOperationResult;
+import org.ektorp.ViewQuery;
+import org.ektorp.ViewResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.text.MessageFormat.format;
+import static java.util.UUID.randomUUID;
+
+/**
+ * Keeps the entity documents touched by one thread during a batch. Each entity is loaded once, changes to it are
+ * merged in memory and all pending changes are written with one bulk update on flush. A document that was updated
+ * by someone else in the meantime is reloaded and its pending changes are applied again before retrying.
+ */
+public class WriteBehindEntityStore {
+    private static Logger logger = LoggerFactory.getLogger(WriteBehindEntityStore.class.toString());
+    private static final String ID = "id";
+    private static final String DETAILS = "details";
+    private static final String DOCUMENT_TYPE = "type";
+    private static final String ID_FIELD_ON_ENTITY = "caseId";
+    private static final String CASE_ID_VIEW_NAME = "by_caseId";
+    private static final String CONFLICT = "conflict";
+    private static final int MAX_FLUSH_ATTEMPTS = 5;
+
+    private CouchDbConnector db;
+    private Map<String, String> designDocMap;
+    private Map<String, Set<String>> fieldSetMap;
+    private Map<String, CachedEntity> entities = new HashMap<>();
+    private Map<String, CachedEntity> pendingEntities = new LinkedHashMap<>();
+
+    public WriteBehindEntityStore(CouchDbConnector db, Map<String, String> designDocMap, Map<String, Set<String>> fieldSetMap) {
+        this.db = db;
+        this.designDocMap = designDocMap;
+        this.fieldSetMap = fieldSetMap;
+    }
+
+    public void save(String entityType, Map<String, String> updatedFieldsMap) {
+        String docEntityType = designDocMap.get(entityType);
+        String entityId = updatedFieldsMap.get(ID);
+        String key = docEntityType + "/" + entityId;
+
+        CachedEntity entity = entities.get(key);
+        if (entity == null) {
+            entity = new CachedEntity(entityType, docEntityType, entityId, load(docEntityType, entityId));
+            entities.put(key, entity);
+        }
+        entity.pendingChanges.putAll(updatedFieldsMap);
+        apply(entity, updatedFieldsMap);
+        pendingEntities.put(key, entity);
+    }
+
+    /**
+     * Writes all pending changes and returns the ids of the entities that were written.
+     */
+    public List<String> flush() {
+        List<String> writtenEntityIds = new ArrayList<>();
+        for (int attempt = 1; !pendingEntities.isEmpty(); attempt++) {
+            Map<String, CachedEntity> entitiesById = new HashMap<>();
+            List<ObjectNode> documents = new ArrayList<>();
+            for (CachedEntity entity : pendingEntities.values()) {
+                entitiesById.put(entity.document.get("_id").getTextValue(), entity);
+                documents.add(entity.document);
+            }
+
+            List<DocumentOperationResult> failures = db.executeBulk(documents);
+            Map<String, CachedEntity> conflicted = new LinkedHashMap<>();
+            for (DocumentOperationResult failure : failures) {
+                CachedEntity entity = entitiesById.get(failure.getId());
+                if (!CONFLICT.equals(failure.getError()) || attempt == MAX_FLUSH_ATTEMPTS) {
+                    throw new IllegalStateException(format("Could not save {0} entity {1}. Error: {2}, reason: {3}",
+                            entity.docEntityType, entity.entityId, failure.getError(), failure.getReason()));
+                }
+                conflicted.put(entity.docEntityType + "/" + entity.entityId, entity);
+            }
+            for (CachedEntity entity : pendingEntities.values()) {
+                if (!conflicted.containsValue(entity)) {
+                    entity.pendingChanges.clear();
+                    writtenEntityIds.add(entity.entityId);
+                }
+            }
+            for (CachedEntity entity : conflicted.values()) {
+                logger.debug(format("{0} entity {1} was updated concurrently. Reloading it, attempt: {2}",
+                        entity.docEntityType, entity.entityId, attempt));
+                entity.document = load(entity.docEntityType, entity.entityId);
+                apply(entity, entity.pendingChanges);
+            }
+            pendingEntities = conflicted;
+        }
+        return writtenEntityIds;
+    }
+
+    private void apply(CachedEntity entity, Map<String, String> updatedFieldsMap) {
+        ObjectNode document = entity.document;
+        ObjectNode details = document.get(DETAILS) instanceof ObjectNode
+                ? (ObjectNode) document.get(DETAILS)
+                : new ObjectNode(JsonNodeFactory.instance);
+
+        Set<String> fieldSet = fieldSetMap.get(entity.entityType);
+        for (String fieldName : updatedFieldsMap.keySet()) {
+            if (fieldSet.contains(fieldName)) {
+                document.put(fieldName, updatedFieldsMap.get(fieldName));
+            } else if (fieldName.equals(ID)) {
+                document.put(ID_FIELD_ON_ENTITY, updatedFieldsMap.get(fieldName));
+            } else {
+                details.put(fieldName, updatedFieldsMap.get(fieldName));
+            }
+        }
+        document.put(DETAILS, details);
+    }
+
+    private ObjectNode load(String docEntityType, String entityId) {
+        List<ViewResult.Row> rows = db.queryView(new ViewQuery().viewName(CASE_ID_VIEW_NAME).designDocId("_design/" + docEntityType)
+                .key(entityId).queryParam(ID_FIELD_ON_ENTITY, entityId).includeDocs(true)).getRows();
+        if (rows.size() != 0) {
+            JsonNode document = rows.get(0).getDocAsNode();
+            return (ObjectNode) document;
+        }
+        ObjectNode document = new ObjectNode(JsonNodeFactory.instance);
+        document.put("_id", randomUUID().toString());
+        document.put(DOCUMENT_TYPE, docEntityType);
+        return document;
+    }
+
+    private static class CachedEntity {
+        private String entityType;
+        private String docEntityType;
+        private String entityId;
+        private ObjectNode document;
+        private Map<String, String> pendingChanges = new HashMap<>();
+
+        private CachedEntity(String entityType, String docEntityType, String entityId, ObjectNode document) {
+            this.entityType = entityType;
+            this.docEntityType = docEntityType;
+            this.entityId = entityId;
+            this.document = document;
+        }
+    }
+}
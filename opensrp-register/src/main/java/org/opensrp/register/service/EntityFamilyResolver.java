@@ -0,0 +1,83 @@
+package org.opensrp.register.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.opensrp.form.domain.FormSubmission;
+import org.opensrp.register.domain.Child;
+import org.opensrp.register.domain.EligibleCouple;
+import org.opensrp.register.domain.Mother;
+import org.opensrp.register.repository.AllChildren;
+import org.opensrp.register.repository.AllEligibleCouples;
+import org.opensrp.register.repository.AllMothers;
+import org.opensrp.service.formSubmission.IEntityFamilyResolver;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Resolves the families of a page of submissions with one keyed lookup each for eligible couples, mothers, children
+ * and the mothers of those children.
+ */
+@Component
+public class EntityFamilyResolver implements IEntityFamilyResolver {
+    private AllEligibleCouples allEligibleCouples;
+    private AllMothers allMothers;
+    private AllChildren allChildren;
+
+    @Autowired
+    public EntityFamilyResolver(AllEligibleCouples allEligibleCouples, AllMothers allMothers, AllChildren allChildren) {
+        this.allEligibleCouples = allEligibleCouples;
+        this.allMothers = allMothers;
+        this.allChildren = allChildren;
+    }
+
+    @Override
+    public Map<String, String> familiesOf(List<FormSubmission> submissions) {
+        Map<String, String> families = new HashMap<>();
+        Set<String> unresolved = new LinkedHashSet<>();
+        for (FormSubmission submission : submissions) {
+            unresolved.add(submission.entityId());
+        }
+        if (unresolved.isEmpty()) {
+            return families;
+        }
+
+        for (EligibleCouple eligibleCouple : allEligibleCouples.findAll(new ArrayList<>(unresolved))) {
+            families.put(eligibleCouple.caseId(), eligibleCouple.caseId());
+        }
+        unresolved.removeAll(families.keySet());
+        if (unresolved.isEmpty()) {
+            return families;
+        }
+
+        for (Mother mother : allMothers.findAll(new ArrayList<>(unresolved))) {
+            families.put(mother.caseId(), mother.ecCaseId());
+        }
+        unresolved.removeAll(families.keySet());
+        if (unresolved.isEmpty()) {
+            return families;
+        }
+
+        List<Child> children = allChildren.findAll(new ArrayList<>(unresolved));
+        if (children.isEmpty()) {
+            return families;
+        }
+        Set<String> motherCaseIds = new LinkedHashSet<>();
+        for (Child child : children) {
+            motherCaseIds.add(child.motherCaseId());
+        }
+        Map<String, String> familiesOfMothers = new HashMap<>();
+        for (Mother mother : allMothers.findAll(new ArrayList<>(motherCaseIds))) {
+            familiesOfMothers.put(mother.caseId(), mother.ecCaseId());
+        }
+        for (Child child : children) {
+            String family = familiesOfMothers.get(child.motherCaseId());
+            families.put(child.caseId(), family == null ? child.motherCaseId() : family);
+        }
+        return families;
+    }
+}
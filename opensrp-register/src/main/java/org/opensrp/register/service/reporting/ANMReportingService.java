@@ -1,8 +1,13 @@
 package org.opensrp.register.service.reporting;
 
 import static ch.lambdaj.collection.LambdaCollections.with;
+import static java.text.MessageFormat.format;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 import org.opensrp.common.domain.ANMIndicatorSummary;
 import org.opensrp.common.domain.ANMReport;
@@ -11,6 +16,8 @@ import org.opensrp.dto.ActionData;
 import org.opensrp.dto.MonthSummaryDatum;
 import org.opensrp.scheduler.service.ActionService;
 import org.opensrp.service.reporting.IProviderReporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -21,6 +28,7 @@ import com.google.gson.Gson;
 
 @Service
 public class ANMReportingService implements IProviderReporter{
+    private static Logger logger = LoggerFactory.getLogger(ANMReportingService.class.toString());
     private ActionService actionService;
     private ChildReportingService childReportingService;
 
@@ -31,8 +39,20 @@ public class ANMReportingService implements IProviderReporter{
     }
 
     public void processReports(List<ANMReport> reports) {
-        actionService.deleteReportActions();
-        for (ANMReport report : reports) {
+        processReports(reports.iterator());
+    }
+
+    /**
+     * Processes reports one at a time as the iterator yields them, so that they need not all be held in memory. Only
+     * report actions that differ from the reports are written, and report actions of ANMs without a report are
+     * deleted once all reports are processed.
+     */
+    public void processReports(Iterator<ANMReport> reports) {
+        Set<String> reportedANMs = new HashSet<>();
+        int numberOfWrites = 0;
+        while (reports.hasNext()) {
+            ANMReport report = reports.next();
+            List<ActionData> reportActions = new ArrayList<>();
             for (ANMIndicatorSummary summary : report.summaries()) {
                 LambdaList<Object> monthSummaryData = with(summary.monthlySummaries()).convert(new Converter<MonthSummary, Object>() {
                     @Override
@@ -40,10 +60,13 @@ public class ANMReportingService implements IProviderReporter{
                         return convertToMonthSummaryDatum(monthSummary);
                     }
                 });
-                actionService.reportForIndicator(report.anmIdentifier(),
-                        ActionData.reportForIndicator(summary.indicator(), summary.annualTarget(), new Gson().toJson(monthSummaryData)));
+                reportActions.add(ActionData.reportForIndicator(summary.indicator(), summary.annualTarget(), new Gson().toJson(monthSummaryData)));
             }
+            numberOfWrites += actionService.refreshReportActions(report.anmIdentifier(), reportActions);
+            reportedANMs.add(report.anmIdentifier());
         }
+        numberOfWrites += actionService.deleteReportActionsOfANMsOtherThan(reportedANMs);
+        logger.info(format("Refreshed report actions of {0} ANMs with {1} writes.", reportedANMs.size(), numberOfWrites));
     }
 
     private MonthSummaryDatum convertToMonthSummaryDatum(MonthSummary monthSummary) {
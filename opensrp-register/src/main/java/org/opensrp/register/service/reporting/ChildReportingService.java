@@ -17,6 +17,8 @@ import org.opensrp.register.repository.AllChildren;
 import org.opensrp.register.repository.AllEligibleCouples;
 import org.opensrp.repository.AllInfantBalanceOnHandReportTokens;
 import org.opensrp.register.repository.AllMothers;
+import org.opensrp.register.repository.EntityLocationCache;
+import org.opensrp.register.repository.EntityLocationCache.CoupleLocation;
 import org.opensrp.service.reporting.ReportingService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -64,12 +66,14 @@ public class ChildReportingService {
     private final AllInfantBalanceOnHandReportTokens allInfantBalanceOnHandReportTokens;
     private final ReportMonth reportMonth;
     private MCTSReporter mctsReporter;
+    private EntityLocationCache entityLocationCache;
     private Map<String, List<Indicator>> immunizationToIndicator;
 
     @Autowired
     public ChildReportingService(ReportingService reportingService, AllChildren allChildren, AllMothers allMothers,
                                  AllEligibleCouples allEligibleCouples,
-                                 AllInfantBalanceOnHandReportTokens allInfantBalanceOnHandReportTokens, ReportMonth reportMonth, MCTSReporter mctsReporter) {
+                                 AllInfantBalanceOnHandReportTokens allInfantBalanceOnHandReportTokens, ReportMonth reportMonth, MCTSReporter mctsReporter,
+                                 EntityLocationCache entityLocationCache) {
         this.reportingService = reportingService;
         this.allChildren = allChildren;
         this.allMothers = allMothers;
@@ -77,6 +81,7 @@ public class ChildReportingService {
         this.allInfantBalanceOnHandReportTokens = allInfantBalanceOnHandReportTokens;
         this.reportMonth = reportMonth;
         this.mctsReporter = mctsReporter;
+        this.entityLocationCache = entityLocationCache;
 
         immunizationToIndicator = new HashMap<>();
 
@@ -316,8 +321,12 @@ public class ChildReportingService {
     }
 
     private Location loadLocationOfChild(Child child) {
-        EligibleCouple couple = getEligibleCouple(child);
-        return new Location(couple.locationId(), couple.locationId(), couple.locationId());
+        return entityLocationCache.ofChild(child).location();
+    }
+
+    private CoupleLocation coupleLocationOf(Child child, Map<String, CoupleLocation> resolvedCoupleLocations) {
+        CoupleLocation coupleLocation = resolvedCoupleLocations.get(child.caseId());
+        return coupleLocation == null ? entityLocationCache.ofChild(child) : coupleLocation;
     }
 
     private void reportBirthWeight(Child child, String submissionDate, Location location) {
@@ -385,10 +394,8 @@ public class ChildReportingService {
     private void report(Child child, Indicator indicator, String serviceProvidedDate, Location location) {
         String externalId = child.thayiCardNumber();
 
-        //#TODO: Refactor to avoid DB calls
         if (isBlank(externalId)) {
-            EligibleCouple ec = getEligibleCouple(child);
-            externalId = ec.ecNumber();
+            externalId = entityLocationCache.ofChild(child).ecNumber();
         }
         ReportingData serviceProvidedData = serviceProvidedData(child.anmIdentifier(), externalId, indicator, serviceProvidedDate, location, child.caseId());
         reportingService.sendReportData(serviceProvidedData);
@@ -420,10 +427,11 @@ public class ChildReportingService {
                 startOfCurrentReportMonth);
         logger.info(MessageFormat.format("Found {0} children for reporting Infant Balance (On Hand) and Infant Balance (Total) ",
                 childrenLessThanOneYearOld.size()));
+        Map<String, CoupleLocation> coupleLocations = entityLocationCache.ofChildren(childrenLessThanOneYearOld);
         for (Child child : childrenLessThanOneYearOld) {
             logger.info(MessageFormat.format("Reporting Infant Balance (On Hand) and Infant Balance (Total) on date: {0} for child: {1}.",
                     startOfCurrentReportMonth.toString(), child));
-            Location location = loadLocationOfChild(child);
+            Location location = coupleLocationOf(child, coupleLocations).location();
             reportToBoth(child, Indicator.INFANT_BALANCE_ON_HAND,
                     startOfCurrentReportMonth.toString(), location);
             reportToBoth(child, Indicator.INFANT_BALANCE_TOTAL,
@@ -501,12 +509,11 @@ public class ChildReportingService {
     private void updateInfantBalanceIndicator(Indicator indicator, List<Child> children, String date) {
         List<ReportingData> serviceProvidedData = new ArrayList<>();
         List<ReportingData> anmReportData = new ArrayList<>();
+        Map<String, CoupleLocation> coupleLocations = entityLocationCache.ofChildren(children);
         for (Child child : children) {
-
-            //#TODO: Refactor to remove the DB calls
-            EligibleCouple couple = getEligibleCouple(child);
-            String externalId = getExternalId(child, couple);
-            Location location = new Location(couple.locationId(), couple.locationId(), couple.locationId());
+            CoupleLocation coupleLocation = coupleLocationOf(child, coupleLocations);
+            String externalId = getExternalId(child, coupleLocation.ecNumber());
+            Location location = coupleLocation.location();
             ReportingData serviceProvidedDataForChild = serviceProvidedData(child.anmIdentifier(), externalId, indicator, date, location, child.caseId());
             ReportingData anmReportDataForChild = anmReportData(child.anmIdentifier(), child.caseId(), indicator, date);
             serviceProvidedData.add(serviceProvidedDataForChild);
@@ -517,11 +524,6 @@ public class ChildReportingService {
         updateBothReports(indicator, date, serviceProvidedData, anmReportData);
     }
 
-    private EligibleCouple getEligibleCouple(Child child) {
-        Mother mother = allMothers.findByCaseId(child.motherCaseId());
-        return allEligibleCouples.findByCaseId(mother.ecCaseId());
-    }
-
     private void updateInfantBalanceOAChildren(List<Child> children, List<Mother> mothers, List<EligibleCouple> ecs, Indicator indicator, String date) {
         List<ReportingData> serviceProvidedData = new ArrayList<>();
         List<ReportingData> anmReportData = new ArrayList<>();
@@ -529,7 +531,7 @@ public class ChildReportingService {
             Mother mother = selectFirst(mothers, having(on(Mother.class).caseId(), equalTo(child.motherCaseId())));
             EligibleCouple ec = selectFirst(ecs, having(on(EligibleCouple.class).caseId(), equalTo(mother.ecCaseId())));
             Location location = null;//ec.locationId();
-            String externalId = getExternalId(child, ec);
+            String externalId = getExternalId(child, ec.ecNumber());
             ReportingData serviceProvidedDataForChild = serviceProvidedData(child.anmIdentifier(), externalId, indicator, date, location, child.caseId());
             ReportingData anmReportDataForChild = anmReportData(child.anmIdentifier(), child.caseId(), indicator, date);
             serviceProvidedData.add(serviceProvidedDataForChild);
@@ -540,10 +542,10 @@ public class ChildReportingService {
         updateBothReports(indicator, date, serviceProvidedData, anmReportData);
     }
 
-    private String getExternalId(Child child, EligibleCouple ec) {
+    private String getExternalId(Child child, String ecNumber) {
         String externalId = child.thayiCardNumber();
         if (isBlank(externalId)) {
-            externalId = ec.ecNumber();
+            externalId = ecNumber;
         }
         return externalId;
     }
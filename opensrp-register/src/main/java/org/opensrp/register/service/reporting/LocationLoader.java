@@ -1,12 +1,7 @@
 package org.opensrp.register.service.reporting;
 
-import org.opensrp.register.domain.Child;
-import org.opensrp.register.domain.EligibleCouple;
 import org.opensrp.common.domain.Location;
-import org.opensrp.register.domain.Mother;
-import org.opensrp.register.repository.AllChildren;
-import org.opensrp.register.repository.AllEligibleCouples;
-import org.opensrp.register.repository.AllMothers;
+import org.opensrp.register.repository.EntityLocationCache;
 import org.opensrp.service.reporting.ILocationLoader;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -16,15 +11,11 @@ import static org.opensrp.common.AllConstants.FormEntityTypes.*;
 @Component
 public class LocationLoader implements ILocationLoader {
 
-    private AllChildren allChildren;
-    private AllEligibleCouples allEligibleCouples;
-    private AllMothers allMothers;
+    private EntityLocationCache entityLocationCache;
 
     @Autowired
-    public LocationLoader(AllEligibleCouples allEligibleCouples, AllMothers allMothers, AllChildren allChildren) {
-        this.allChildren = allChildren;
-        this.allEligibleCouples = allEligibleCouples;
-        this.allMothers = allMothers;
+    public LocationLoader(EntityLocationCache entityLocationCache) {
+        this.entityLocationCache = entityLocationCache;
     }
 
     @Override
@@ -39,18 +30,14 @@ public class LocationLoader implements ILocationLoader {
     }
 
     private Location loadLocationForEC(String caseId) {
-        EligibleCouple couple = allEligibleCouples.findByCaseId(caseId);
-        //return couple.location();
-        return new Location(couple.locationId(), couple.locationId(), couple.locationId());
+        return entityLocationCache.ofEligibleCouple(caseId).location();
     }
 
     private Location loadLocationForMother(String caseId) {
-        Mother mother = allMothers.findByCaseId(caseId);
-        return loadLocationForEC(mother.ecCaseId());
+        return entityLocationCache.ofMother(caseId).location();
     }
 
     private Location loadLocationForChild(String caseId) {
-        Child child = allChildren.findByCaseId(caseId);
-        return loadLocationForMother(child.motherCaseId());
+        return entityLocationCache.ofChild(caseId).location();
     }
 }
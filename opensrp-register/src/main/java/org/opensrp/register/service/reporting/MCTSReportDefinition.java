@@ -8,7 +8,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static ch.lambdaj.Lambda.*;
 import static org.hamcrest.Matchers.equalTo;
@@ -17,12 +21,19 @@ public class MCTSReportDefinition {
     private static Logger logger = LoggerFactory.getLogger(MCTSReportDefinition.class.toString());
 
     private List<MCTSFormIndicator> formIndicators;
+    private transient volatile Map<String, List<MCTSReportIndicator>> indicatorsByFormName;
+    private transient volatile Set<String> duplicateForms;
 
     public MCTSReportDefinition(List<MCTSFormIndicator> formIndicators) {
         this.formIndicators = formIndicators;
     }
 
     public List<MCTSReportIndicator> getIndicatorsByFormName(String formName) {
+        Map<String, List<MCTSReportIndicator>> byFormName = indicatorsByFormName();
+        if (!duplicateForms.contains(formName)) {
+            List<MCTSReportIndicator> indicators = byFormName.get(formName);
+            return indicators == null ? new ArrayList<MCTSReportIndicator>() : indicators;
+        }
         try {
             MCTSFormIndicator formIndicator = selectUnique(formIndicators,
                     having(on(MCTSFormIndicator.class).form(), equalTo(formName)));
@@ -33,6 +44,28 @@ public class MCTSReportDefinition {
         }
     }
 
+    /**
+     * Forms defined more than once are left out of the index and only they are looked up in the definitions, so that
+     * looking them up still fails the way it did before.
+     */
+    private Map<String, List<MCTSReportIndicator>> indicatorsByFormName() {
+        if (indicatorsByFormName == null) {
+            Map<String, List<MCTSReportIndicator>> byFormName = new HashMap<>();
+            Set<String> duplicateForms = new HashSet<>();
+            for (MCTSFormIndicator formIndicator : formIndicators) {
+                if (byFormName.containsKey(formIndicator.form()) || duplicateForms.contains(formIndicator.form())) {
+                    byFormName.remove(formIndicator.form());
+                    duplicateForms.add(formIndicator.form());
+                } else {
+                    byFormName.put(formIndicator.form(), formIndicator.indicators());
+                }
+            }
+            this.duplicateForms = duplicateForms;
+            indicatorsByFormName = byFormName;
+        }
+        return indicatorsByFormName;
+    }
+
     @Override
     public boolean equals(Object o) {
         return EqualsBuilder.reflectionEquals(this, o);
@@ -0,0 +1,369 @@
+package org.opensrp.register.service.reporting;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.opensrp.common.util.HttpAgent;
+import org.opensrp.common.util.HttpResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import static java.text.MessageFormat.format;
+
+/**
+ * Collects report data and posts it to the reporting application in batches. A batch is sent as soon as it holds
+ * batch size reports, or when the oldest report in it has waited for the batch window. Reports are spooled to a file
+ * per batch until the batch has been posted, so batches whose post fails, or that were pending when the server
+ * stopped, are posted again, oldest first, before any later batch. The reporting application answers a post with the
+ * reports it could not save, and only those are kept in the file to be posted again. Updates and deletes of reports
+ * are spooled to a file of their own in the same queue, so that they are applied after every report added before them.
+ * What the reporting application refuses as it is sent, such as a batch with a truncated report, is moved to the
+ * failed directory of the spool so that it does not hold back the rest. Once a post has failed, only the timer posts
+ * again, so that adding report data does not wait on a reporting application that is down.
+ */
+@Component
+public class ReportDataBatcher {
+    public static final String SUBMIT_BATCH_REPORT_ACTION = "submit-batch";
+    public static final String UPDATE_REPORT_ACTION = "update";
+    public static final String DELETE_REPORT_ACTION = "delete";
+    private static Logger logger = LoggerFactory.getLogger(ReportDataBatcher.class.toString());
+    private static final String BATCH_EXTENSION = ".reports";
+    private static final String UPDATE_EXTENSION = ".update";
+    private static final String DELETE_EXTENSION = ".delete";
+    private static final String FAILED_DIRECTORY = "failed";
+    private static final String ENCODING = "UTF-8";
+
+    private enum Outcome {POSTED, FAILED, REFUSED}
+
+    private HttpAgent httpAgent;
+    private String url;
+    private int batchSize;
+    private long batchWindowInMillis;
+    private File spoolDirectory;
+    private long lastBatchId;
+    private File pendingBatch;
+    private Writer pendingBatchWriter;
+    private int pendingCount;
+    private boolean awaitingRetry;
+    private ScheduledFuture<?> scheduledFlush;
+    private final LinkedList<File> unsentBatches = new LinkedList<>();
+    private final Object sendLock = new Object();
+    private ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "report-data-batcher");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    @Autowired
+    public ReportDataBatcher(HttpAgent httpAgent, @Value("#{opensrp['opensrp.reporting.url']}") String url,
+                             @Value("#{opensrp['reporting.batch.size']}") int batchSize,
+                             @Value("#{opensrp['reporting.batch.window.in.millis']}") int batchWindowInMillis,
+                             @Value("#{opensrp['reporting.batch.spool.directory']}") String spoolDirectoryName) throws IOException {
+        this.httpAgent = httpAgent;
+        this.url = url;
+        this.batchSize = batchSize;
+        this.batchWindowInMillis = batchWindowInMillis;
+        this.spoolDirectory = new File(spoolDirectoryName);
+        if (!spoolDirectory.isDirectory() && !spoolDirectory.mkdirs()) {
+            throw new IOException(format("Could not create report data spool directory: {0}", spoolDirectory.getAbsolutePath()));
+        }
+        recover();
+    }
+
+    public void add(Object reportingData) {
+        boolean shouldFlush = false;
+        synchronized (this) {
+            try {
+                if (pendingBatchWriter == null) {
+                    pendingBatch = new File(spoolDirectory, ++lastBatchId + BATCH_EXTENSION);
+                    pendingBatchWriter = new OutputStreamWriter(new FileOutputStream(pendingBatch), ENCODING);
+                }
+                pendingBatchWriter.write(new Gson().toJson(reportingData));
+                pendingBatchWriter.write('\n');
+                pendingBatchWriter.flush();
+            } catch (IOException e) {
+                throw new IllegalStateException(format("Could not spool report data: {0}", reportingData), e);
+            }
+            pendingCount++;
+            if (pendingCount < batchSize) {
+                scheduleFlush();
+            } else if (awaitingRetry) {
+                queuePendingBatch();
+            } else {
+                shouldFlush = true;
+            }
+        }
+        if (shouldFlush) {
+            flush();
+        }
+    }
+
+    public void update(Object updateRequest) {
+        spool(updateRequest, UPDATE_EXTENSION);
+    }
+
+    public void delete(Object deleteRequest) {
+        spool(deleteRequest, DELETE_EXTENSION);
+    }
+
+    /**
+     * Sends whatever is pending, after anything whose post failed earlier. Returns once everything added before the
+     * call has been posted, or once a post fails, in which case what is left is retried after the batch window.
+     */
+    public void flush() {
+        synchronized (sendLock) {
+            while (true) {
+                File unsent;
+                synchronized (this) {
+                    queuePendingBatch();
+                    unsent = unsentBatches.peekFirst();
+                    if (unsent == null) {
+                        awaitingRetry = false;
+                        return;
+                    }
+                }
+                Outcome outcome = send(unsent);
+                if (outcome == Outcome.FAILED) {
+                    synchronized (this) {
+                        awaitingRetry = true;
+                        scheduleFlush();
+                    }
+                    return;
+                }
+                if (outcome == Outcome.REFUSED) {
+                    setAside(unsent);
+                } else if (!unsent.delete()) {
+                    logger.error(format("Could not delete posted report data: {0}", unsent.getAbsolutePath()));
+                }
+                synchronized (this) {
+                    unsentBatches.removeFirst();
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        timer.shutdownNow();
+        flush();
+    }
+
+    private void spool(Object request, String extension) {
+        synchronized (this) {
+            queuePendingBatch();
+            File requestFile = new File(spoolDirectory, ++lastBatchId + extension);
+            try {
+                FileUtils.writeStringToFile(requestFile, new Gson().toJson(request), ENCODING);
+            } catch (IOException e) {
+                throw new IllegalStateException(format("Could not spool report data request: {0}", request), e);
+            }
+            unsentBatches.add(requestFile);
+            if (awaitingRetry) {
+                return;
+            }
+        }
+        flush();
+    }
+
+    private void queuePendingBatch() {
+        if (pendingBatchWriter != null) {
+            closePendingBatch();
+            unsentBatches.add(pendingBatch);
+            pendingBatch = null;
+            pendingBatchWriter = null;
+            pendingCount = 0;
+        }
+    }
+
+    private Outcome send(File unsent) {
+        if (unsent.getName().endsWith(BATCH_EXTENSION)) {
+            return sendBatch(unsent);
+        }
+        return sendRequest(unsent, unsent.getName().endsWith(UPDATE_EXTENSION) ? UPDATE_REPORT_ACTION : DELETE_REPORT_ACTION);
+    }
+
+    private Outcome sendRequest(File request, String action) {
+        String data;
+        try {
+            data = FileUtils.readFileToString(request, ENCODING);
+        } catch (IOException e) {
+            logger.error(format("Could not read report data request: {0}. Error: {1}", request.getAbsolutePath(), e.getMessage()));
+            return Outcome.FAILED;
+        }
+        String requestUrl = url + "/" + action;
+        HttpResponse response;
+        try {
+            response = httpAgent.post(requestUrl, data, MediaType.APPLICATION_JSON_VALUE);
+        } catch (RuntimeException e) {
+            logger.error(format("Reporting data post failed, will retry. URL: {0}. Data: {1}. Error: {2}", requestUrl, data, e.getMessage()));
+            return Outcome.FAILED;
+        }
+        if (response.isClientError()) {
+            logger.error(format("Reporting data post refused. URL: {0}. Data: {1}. Response: {2}", requestUrl, data, response.body()));
+            return Outcome.REFUSED;
+        }
+        if (!response.isSuccess()) {
+            logger.error(format("Reporting data post failed, will retry. URL: {0}. Data: {1}. Response: {2}", requestUrl, data, response.body()));
+            return Outcome.FAILED;
+        }
+        return Outcome.POSTED;
+    }
+
+    private Outcome sendBatch(File batch) {
+        List<String> reports = new ArrayList<>();
+        try {
+            for (String line : FileUtils.readLines(batch, ENCODING)) {
+                if (!line.isEmpty()) {
+                    reports.add(line);
+                }
+            }
+        } catch (IOException e) {
+            logger.error(format("Could not read report data batch: {0}. Error: {1}", batch.getAbsolutePath(), e.getMessage()));
+            return Outcome.FAILED;
+        }
+        String batchUrl = url + "/" + SUBMIT_BATCH_REPORT_ACTION;
+        HttpResponse response;
+        try {
+            response = httpAgent.post(batchUrl, "[" + StringUtils.join(reports, ",") + "]", MediaType.APPLICATION_JSON_VALUE);
+        } catch (RuntimeException e) {
+            logger.error(format("Reporting data batch post failed, will retry. URL: {0}. Batch: {1}. Error: {2}",
+                    batchUrl, batch.getAbsolutePath(), e.getMessage()));
+            return Outcome.FAILED;
+        }
+        if (response.isClientError()) {
+            logger.error(format("Reporting data batch post refused. URL: {0}. Batch: {1}. Response: {2}",
+                    batchUrl, batch.getAbsolutePath(), response.body()));
+            return Outcome.REFUSED;
+        }
+        if (!response.isSuccess()) {
+            logger.error(format("Reporting data batch post failed, will retry. URL: {0}. Batch: {1}. Response: {2}",
+                    batchUrl, batch.getAbsolutePath(), response.body()));
+            return Outcome.FAILED;
+        }
+        int[] unsavedPositions = unsavedPositionsIn(response.body(), batch);
+        if (unsavedPositions.length == 0) {
+            return Outcome.POSTED;
+        }
+        List<String> unsavedReports = new ArrayList<>();
+        for (int position : unsavedPositions) {
+            unsavedReports.add(reports.get(position));
+        }
+        logger.error(format("Reporting application could not save {0} of {1} reports in batch, will retry them. Batch: {2}",
+                unsavedReports.size(), reports.size(), batch.getAbsolutePath()));
+        keepOnly(batch, unsavedReports);
+        return Outcome.FAILED;
+    }
+
+    private int[] unsavedPositionsIn(String responseBody, File batch) {
+        try {
+            int[] unsavedPositions = new Gson().fromJson(responseBody, int[].class);
+            return unsavedPositions == null ? new int[0] : unsavedPositions;
+        } catch (JsonSyntaxException e) {
+            logger.warn(format("Could not read the unsaved reports of batch: {0}. Response: {1}", batch.getAbsolutePath(), responseBody));
+            return new int[0];
+        }
+    }
+
+    private void keepOnly(File batch, List<String> reports) {
+        File rewrittenBatch = new File(spoolDirectory, batch.getName() + ".tmp");
+        try {
+            FileUtils.writeLines(rewrittenBatch, ENCODING, reports, "\n");
+            if (!rewrittenBatch.renameTo(batch)) {
+                throw new IOException("Could not replace batch with " + rewrittenBatch.getAbsolutePath());
+            }
+        } catch (IOException e) {
+            logger.error(format("Could not drop the saved reports from batch: {0}, the whole batch will be posted again. Error: {1}",
+                    batch.getAbsolutePath(), e.getMessage()));
+        }
+    }
+
+    private void closePendingBatch() {
+        try {
+            pendingBatchWriter.close();
+        } catch (IOException e) {
+            logger.error(format("Could not close report data batch: {0}. Error: {1}", pendingBatch.getAbsolutePath(), e.getMessage()));
+        }
+    }
+
+    private void setAside(File refused) {
+        File failedDirectory = new File(spoolDirectory, FAILED_DIRECTORY);
+        if ((!failedDirectory.isDirectory() && !failedDirectory.mkdirs()) || !refused.renameTo(new File(failedDirectory, refused.getName()))) {
+            logger.error(format("Could not move refused report data to {0}, dropping it: {1}", failedDirectory.getAbsolutePath(), refused.getAbsolutePath()));
+            if (!refused.delete()) {
+                logger.error(format("Could not delete refused report data: {0}", refused.getAbsolutePath()));
+            }
+        }
+    }
+
+    private synchronized void scheduleFlush() {
+        if (scheduledFlush != null || timer.isShutdown()) {
+            return;
+        }
+        scheduledFlush = timer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (ReportDataBatcher.this) {
+                    scheduledFlush = null;
+                }
+                flush();
+            }
+        }, batchWindowInMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void recover() {
+        File[] files = spoolDirectory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                String name = file.getName();
+                return name.endsWith(BATCH_EXTENSION) || name.endsWith(UPDATE_EXTENSION) || name.endsWith(DELETE_EXTENSION);
+            }
+        });
+        List<File> batches = new ArrayList<>();
+        Collections.addAll(batches, files);
+        Collections.sort(batches, new Comparator<File>() {
+            @Override
+            public int compare(File file, File anotherFile) {
+                long id = idOf(file);
+                long anotherId = idOf(anotherFile);
+                return id == anotherId ? 0 : id < anotherId ? -1 : 1;
+            }
+        });
+        unsentBatches.addAll(batches);
+        if (!batches.isEmpty()) {
+            lastBatchId = idOf(batches.get(batches.size() - 1));
+            logger.info(format("Recovered {0} unsent report data files from: {1}", batches.size(), spoolDirectory.getAbsolutePath()));
+            scheduleFlush();
+        }
+    }
+
+    private static long idOf(File batch) {
+        String name = batch.getName();
+        return Long.parseLong(name.substring(0, name.lastIndexOf('.')));
+    }
+}
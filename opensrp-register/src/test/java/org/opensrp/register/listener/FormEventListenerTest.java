@@ -1,30 +1,28 @@
 package org.opensrp.register.listener;
 
 import static java.util.Arrays.asList;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
-import static org.opensrp.common.util.EasyMap.mapOf;
 
 import java.util.Collections;
 import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.motechproject.scheduler.domain.MotechEvent;
 import org.opensrp.domain.FormExportToken;
-import org.opensrp.dto.form.FormSubmissionDTO;
 import org.opensrp.form.domain.FormSubmission;
 import org.opensrp.form.service.FormSubmissionService;
-import org.opensrp.register.DrishtiScheduleConstants.OpenSRPEvent;
 import org.opensrp.register.listener.FormEventListener;
 import org.opensrp.repository.AllFormExportTokens;
 import org.opensrp.service.formSubmission.FormEntityService;
 
-import com.google.gson.Gson;
-
 public class FormEventListenerTest {
     @Mock
     private FormSubmissionService formSubmissionService;
@@ -38,38 +36,80 @@ public class FormEventListenerTest {
     @Before
     public void setUp() throws Exception {
         initMocks(this);
-        listener = new FormEventListener(formSubmissionService, formEntityService, formExportTokens);
+        listener = new FormEventListener(formSubmissionService, formEntityService, formExportTokens, 3);
     }
 
     @Test
-    public void shouldDelegateFormSubmissionToSubmissionService() throws Exception {
-        List<FormSubmissionDTO> formSubmissions = asList(new FormSubmissionDTO("anm id 1", "instance id 1", "entity id 1", "form name", null, "0", "1"),
-                new FormSubmissionDTO("anm id 2", "instance id 2", "entity id 2", "form name", null, "0", "1"));
+    public void shouldFetchFormSubmissionsFromSubmissionService() throws Exception {
+        List<FormSubmission> formSubmissions = asList(new FormSubmission("anm id 1", "instance id 1", "form name", "entity id 1", 0L, "1", null, 2L),
+                new FormSubmission("anm id 2", "instance id 2", "form name", "entity id 2", 0L, "1", null, 3L));
+        when(formExportTokens.getAll()).thenReturn(asList(new FormExportToken(1L)));
+        when(formSubmissionService.getAllSubmissions(1L, 4)).thenReturn(formSubmissions);
 
-        listener.submitForms(new MotechEvent(OpenSRPEvent.FORM_SUBMISSION, mapOf("data", (Object) new Gson().toJson(formSubmissions))));
+        listener.fetchForms(new MotechEvent("SUBJECT", null));
 
-        verify(formSubmissionService).submit(formSubmissions);
+        verify(formEntityService).process(formSubmissions);
     }
 
     @Test
-    public void shouldFetchFormSubmissionsFromSubmissionService() throws Exception {
-        List<FormSubmissionDTO> formSubmissions = asList(new FormSubmissionDTO("anm id 1", "instance id 1", "entity id 1", "form name", null, "0", "1").withServerVersion("0"),
-                new FormSubmissionDTO("anm id 2", "instance id 2", "entity id 2", "form name", null, "0", "1").withServerVersion("0"));
+    public void shouldProcessSubmissionsPageByPageStartingAfterTheLastProcessedVersion() throws Exception {
+        FormSubmission first = new FormSubmission("anm id 1", "instance id 1", "form name", "entity id 1", 0L, "1", null, 2L);
+        FormSubmission second = new FormSubmission("anm id 1", "instance id 2", "form name", "entity id 2", 0L, "1", null, 3L);
+        FormSubmission third = new FormSubmission("anm id 1", "instance id 3", "form name", "entity id 3", 0L, "1", null, 4L);
+        FormSubmission fourth = new FormSubmission("anm id 1", "instance id 4", "form name", "entity id 4", 0L, "1", null, 5L);
+        when(formExportTokens.getAll()).thenReturn(asList(new FormExportToken(1L)));
+        when(formSubmissionService.getAllSubmissions(1L, 4)).thenReturn(asList(first, second, third));
+        when(formSubmissionService.getAllSubmissions(4L, 4)).thenReturn(asList(fourth));
+        when(formSubmissionService.getAllSubmissions(5L, 4)).thenReturn(Collections.<FormSubmission>emptyList());
+
+        listener.fetchForms(new MotechEvent("SUBJECT", null));
+
+        InOrder inOrder = inOrder(formEntityService);
+        inOrder.verify(formEntityService).process(asList(first, second, third));
+        inOrder.verify(formEntityService).process(asList(fourth));
+        verifyNoMoreInteractions(formEntityService);
+    }
+
+    @Test
+    public void shouldLeaveSubmissionsSharingTheLastVersionOfAFullPageForTheNextPage() throws Exception {
+        FormSubmission first = new FormSubmission("anm id 1", "instance id 1", "form name", "entity id 1", 0L, "1", null, 2L);
+        FormSubmission second = new FormSubmission("anm id 1", "instance id 2", "form name", "entity id 2", 0L, "1", null, 3L);
+        FormSubmission third = new FormSubmission("anm id 1", "instance id 3", "form name", "entity id 3", 0L, "1", null, 4L);
+        FormSubmission fourth = new FormSubmission("anm id 1", "instance id 4", "form name", "entity id 4", 0L, "1", null, 4L);
+        when(formExportTokens.getAll()).thenReturn(asList(new FormExportToken(1L)));
+        when(formSubmissionService.getAllSubmissions(1L, 4)).thenReturn(asList(first, second, third, fourth));
+        when(formSubmissionService.getAllSubmissions(3L, 4)).thenReturn(asList(third, fourth));
+        when(formSubmissionService.getAllSubmissions(4L, 4)).thenReturn(Collections.<FormSubmission>emptyList());
+
+        listener.fetchForms(new MotechEvent("SUBJECT", null));
+
+        InOrder inOrder = inOrder(formEntityService);
+        inOrder.verify(formEntityService).process(asList(first, second));
+        inOrder.verify(formEntityService).process(asList(third, fourth));
+        verifyNoMoreInteractions(formEntityService);
+    }
+
+    @Test
+    public void shouldProcessARunOfSubmissionsSharingAVersionLongerThanAPageAsAWhole() throws Exception {
+        FormSubmission first = new FormSubmission("anm id 1", "instance id 1", "form name", "entity id 1", 0L, "1", null, 2L);
+        FormSubmission second = new FormSubmission("anm id 1", "instance id 2", "form name", "entity id 2", 0L, "1", null, 2L);
+        FormSubmission third = new FormSubmission("anm id 1", "instance id 3", "form name", "entity id 3", 0L, "1", null, 2L);
+        FormSubmission fourth = new FormSubmission("anm id 1", "instance id 4", "form name", "entity id 4", 0L, "1", null, 2L);
+        FormSubmission fifth = new FormSubmission("anm id 1", "instance id 5", "form name", "entity id 5", 0L, "1", null, 2L);
         when(formExportTokens.getAll()).thenReturn(asList(new FormExportToken(1L)));
-        when(formSubmissionService.fetch(1L)).thenReturn(formSubmissions);
+        when(formSubmissionService.getAllSubmissions(1L, 4)).thenReturn(asList(first, second, third, fourth));
+        when(formSubmissionService.getAllSubmissionsWithVersion(2L)).thenReturn(asList(first, second, third, fourth, fifth));
+        when(formSubmissionService.getAllSubmissions(2L, 4)).thenReturn(Collections.<FormSubmission>emptyList());
 
         listener.fetchForms(new MotechEvent("SUBJECT", null));
 
-        verify(formEntityService).process(asList(new FormSubmission("anm id 1", "instance id 1", "form name", "entity id 1", 0L, "1", null, 0L),
-                new FormSubmission("anm id 2", "instance id 2", "form name", "entity id 2", 0L, "1", null, 0L)));
+        verify(formEntityService).process(asList(first, second, third, fourth, fifth));
+        verifyNoMoreInteractions(formEntityService);
     }
 
     @Test
     public void shouldCreateFormExportTokenIfItDoesNotExists() throws Exception {
-        List<FormSubmissionDTO> formSubmissions = asList(new FormSubmissionDTO("anm id 1", "instance id 1", "entity id 1", "form name", null, "0", "1").withServerVersion("0"),
-                new FormSubmissionDTO("anm id 2", "instance id 2", "entity id 2", "form name", null, "0", "1").withServerVersion("0"));
         when(formExportTokens.getAll()).thenReturn(Collections.EMPTY_LIST);
-        when(formSubmissionService.fetch(1L)).thenReturn(formSubmissions);
 
         listener.fetchForms(new MotechEvent("SUBJECT", null));
 
@@ -79,7 +119,7 @@ public class FormEventListenerTest {
     @Test
     public void shouldNotDoAnythingIfFetchFromSubmissionServiceReturnsEmptyList() throws Exception {
         when(formExportTokens.getAll()).thenReturn(asList(new FormExportToken(1L)));
-        when(formSubmissionService.fetch(1L)).thenReturn(Collections.EMPTY_LIST);
+        when(formSubmissionService.getAllSubmissions(1L, 4)).thenReturn(Collections.<FormSubmission>emptyList());
 
         listener.fetchForms(new MotechEvent("SUBJECT", null));
 
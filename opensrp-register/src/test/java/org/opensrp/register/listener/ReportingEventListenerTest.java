@@ -2,22 +2,28 @@ package org.opensrp.register.listener;
 
 import static java.util.Arrays.asList;
 import static org.mockito.Matchers.any;
-import static org.mockito.Matchers.anyList;
 import static org.mockito.Matchers.eq;
+import static junit.framework.Assert.assertEquals;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 import static org.opensrp.common.util.ANMIndicatorSummaryFactory.createSummaryForIUD;
 
+import java.io.ByteArrayInputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.motechproject.scheduler.domain.MotechEvent;
 import org.opensrp.common.domain.ANMReport;
 import org.opensrp.common.domain.ReportDataDeleteRequest;
@@ -26,6 +32,7 @@ import org.opensrp.common.domain.ReportingData;
 import org.opensrp.common.util.HttpAgent;
 import org.opensrp.common.util.HttpResponse;
 import org.opensrp.register.service.reporting.ANMReportingService;
+import org.opensrp.register.service.reporting.ReportDataBatcher;
 
 import com.google.gson.Gson;
 
@@ -34,28 +41,31 @@ public class ReportingEventListenerTest {
     private HttpAgent agent;
     @Mock
     private ANMReportingService anmReportingService;
+    @Mock
+    private ReportDataBatcher reportDataBatcher;
 
     private ReportingEventListener listener;
 
     @Before
     public void setUp() throws Exception {
         initMocks(this);
-        listener = new ReportingEventListener(anmReportingService, agent, "http://drishti");
+        listener = new ReportingEventListener(anmReportingService, agent, reportDataBatcher, "http://drishti");
     }
 
     @Test
-    public void shouldSubmitReportingData() throws Exception {
+    public void shouldHandReportingDataToBatcher() throws Exception {
         Map<String, Object> data = new HashMap<>();
-        data.put("data", new ReportingData("Boo").with("abc", "def"));
-        when(agent.post(eq("http://drishti/submit"), any(String.class), eq("application/json"))).thenReturn(new HttpResponse(true, null));
+        ReportingData reportingData = new ReportingData("Boo").with("abc", "def");
+        data.put("data", reportingData);
 
         listener.submitReportingData(new MotechEvent("SUBJECT", data));
 
-        verify(agent).post("http://drishti/submit", "{\"type\":\"Boo\",\"data\":{\"abc\":\"def\"}}", "application/json");
+        verify(reportDataBatcher).add(reportingData);
+        verifyZeroInteractions(agent);
     }
 
     @Test
-    public void shouldUpdateReportingData() throws Exception {
+    public void shouldHandReportingDataUpdateToBatcher() throws Exception {
         Map<String, Object> data = new HashMap<>();
         ReportingData reportingData = new ReportingData("Boo").with("abc", "def");
         ReportDataUpdateRequest dataRequest = new ReportDataUpdateRequest().withType("Boo")
@@ -63,13 +73,11 @@ public class ReportingEventListenerTest {
                 .withStartDate("2013-01-26")
                 .withEndDate("2013-02-25");
         data.put("data", dataRequest);
-        when(agent.post(eq("http://drishti/update"), any(String.class), eq("application/json"))).thenReturn(new HttpResponse(true, null));
 
         listener.updateReportingData(new MotechEvent("SUBJECT", data));
 
-        verify(agent).post("http://drishti/update",
-                "{\"startDate\":\"2013-01-26\",\"endDate\":\"2013-02-25\",\"type\":\"Boo\",\"reportingData\":[{\"type\":\"Boo\",\"data\":{\"abc\":\"def\"}}]}",
-                "application/json");
+        verify(reportDataBatcher).update(dataRequest);
+        verifyZeroInteractions(agent);
     }
 
     @Test
@@ -77,18 +85,30 @@ public class ReportingEventListenerTest {
         Map<String, Object> data = new HashMap<>();
         List<ANMReport> anmReports = new ArrayList<>();
         anmReports.add(new ANMReport("ANM X", asList(createSummaryForIUD())));
-        when(agent.getWithSocketTimeout(eq("http://drishti/fetchForAllANMs"))).thenReturn(new HttpResponse(true, new Gson().toJson(anmReports)));
+        anmReports.add(new ANMReport("ANM Y", asList(createSummaryForIUD())));
+        respondToFetchWith(new HttpResponse(true, null), new Gson().toJson(anmReports));
+        final List<ANMReport> processedReports = new ArrayList<>();
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                Iterator<ANMReport> reports = (Iterator<ANMReport>) invocation.getArguments()[0];
+                while (reports.hasNext()) {
+                    processedReports.add(reports.next());
+                }
+                return null;
+            }
+        }).when(anmReportingService).processReports(any(Iterator.class));
 
         listener.fetchANMReports(new MotechEvent("SUBJECT", data));
 
-        verify(agent).getWithSocketTimeout("http://drishti/fetchForAllANMs");
-        verify(anmReportingService).processReports(anmReports);
+        verify(agent).getWithSocketTimeout(eq("http://drishti/fetchForAllANMs"), any(HttpAgent.ResponseBodyHandler.class));
+        assertEquals(anmReports, processedReports);
     }
 
     @Test
     public void shouldAddANMReportsThatAreGeneratedFromEntities() throws Exception {
         Map<String, Object> data = new HashMap<>();
-        when(agent.getWithSocketTimeout(eq("http://drishti/fetchForAllANMs"))).thenReturn(new HttpResponse(true, new Gson().toJson(new ArrayList<ANMReport>())));
+        respondToFetchWith(new HttpResponse(true, null), new Gson().toJson(new ArrayList<ANMReport>()));
 
         listener.fetchANMReports(new MotechEvent("SUBJECT", data));
 
@@ -98,36 +118,49 @@ public class ReportingEventListenerTest {
     @Test
     public void shouldNotPassDataToANMReportServiceIfRequestFailed() throws Exception {
         Map<String, Object> data = new HashMap<>();
-        when(agent.getWithSocketTimeout(eq("http://drishti/fetchForAllANMs"))).thenReturn(new HttpResponse(false, null));
+        when(agent.getWithSocketTimeout(eq("http://drishti/fetchForAllANMs"), any(HttpAgent.ResponseBodyHandler.class)))
+                .thenReturn(new HttpResponse(false, null));
 
         listener.fetchANMReports(new MotechEvent("SUBJECT", data));
 
-        verify(agent).getWithSocketTimeout("http://drishti/fetchForAllANMs");
-        verify(anmReportingService, times(0)).processReports(anyList());
+        verify(agent).getWithSocketTimeout(eq("http://drishti/fetchForAllANMs"), any(HttpAgent.ResponseBodyHandler.class));
+        verify(anmReportingService, times(0)).processReports(any(Iterator.class));
     }
 
 
     @Test
     public void shouldNotPassDataToANMReportServiceIfNoReportIsFetched() throws Exception {
         Map<String, Object> data = new HashMap<>();
-        when(agent.getWithSocketTimeout(eq("http://drishti/fetchForAllANMs"))).thenReturn(new HttpResponse(true, new Gson().toJson(new ArrayList<ANMReport>())));
+        respondToFetchWith(new HttpResponse(true, null), new Gson().toJson(new ArrayList<ANMReport>()));
 
         listener.fetchANMReports(new MotechEvent("SUBJECT", data));
 
-        verify(agent).getWithSocketTimeout("http://drishti/fetchForAllANMs");
-        verify(anmReportingService, times(0)).processReports(anyList());
+        verify(agent).getWithSocketTimeout(eq("http://drishti/fetchForAllANMs"), any(HttpAgent.ResponseBodyHandler.class));
+        verify(anmReportingService, times(0)).processReports(any(Iterator.class));
     }
 
     @Test
-    public void shouldDeleteReportingData() throws Exception {
+    public void shouldHandReportingDataDeleteToBatcher() throws Exception {
         Map<String, Object> data = new HashMap<>();
         ReportDataDeleteRequest dataRequest = new ReportDataDeleteRequest().withType("Boo")
                 .withDristhiEntityId("entity id 1");
         data.put("data", dataRequest);
-        when(agent.post(eq("http://drishti/delete"), any(String.class), eq("application/json"))).thenReturn(new HttpResponse(true, null));
 
         listener.deleteReportingData(new MotechEvent("SUBJECT", data));
 
-        verify(agent).post("http://drishti/delete", "{\"type\":\"Boo\",\"dristhiEntityId\":\"entity id 1\"}", "application/json");
+        verify(reportDataBatcher).delete(dataRequest);
+        verifyZeroInteractions(agent);
+    }
+
+    private void respondToFetchWith(final HttpResponse response, final String body) {
+        when(agent.getWithSocketTimeout(eq("http://drishti/fetchForAllANMs"), any(HttpAgent.ResponseBodyHandler.class)))
+                .thenAnswer(new Answer<HttpResponse>() {
+                    @Override
+                    public HttpResponse answer(InvocationOnMock invocation) throws Throwable {
+                        HttpAgent.ResponseBodyHandler handler = (HttpAgent.ResponseBodyHandler) invocation.getArguments()[1];
+                        handler.handle(new ByteArrayInputStream(body.getBytes("UTF-8")));
+                        return response;
+                    }
+                });
     }
 }
@@ -2,6 +2,11 @@ package org.opensrp.register.repository.it;
 
 import static java.util.Arrays.asList;
 import static junit.framework.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
@@ -12,11 +17,14 @@ import static org.opensrp.dto.BeneficiaryType.ec;
 import static org.opensrp.dto.BeneficiaryType.mother;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 
 import org.joda.time.DateTime;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.opensrp.dto.ActionData;
 import org.opensrp.dto.MonthSummaryDatum;
@@ -29,6 +37,7 @@ import org.opensrp.register.repository.AllMothers;
 import org.opensrp.scheduler.Action;
 import org.opensrp.scheduler.repository.AllActions;
 import org.opensrp.scheduler.service.ActionService;
+import org.opensrp.scheduler.service.AlertSink;
 
 import com.google.gson.Gson;
 
@@ -41,13 +50,15 @@ public class ActionServiceTest {
     private AllChildren allChildren;
     @Mock
     private AllEligibleCouples allEligibleCouples;
+    @Mock
+    private AlertSink alertSink;
 
     private ActionService service;
 
     @Before
     public void setUp() throws Exception {
         initMocks(this);
-        service = new ActionService(allActions);
+        service = new ActionService(allActions, alertSink);
     }
 
     @Test
@@ -140,6 +151,20 @@ public class ActionServiceTest {
         assertEquals(alertActions, alerts);
     }
 
+    @Test
+    public void shouldLeaveOutAlertsSupersededByALaterAlertForTheSameCaseAndSchedule() throws Exception {
+        Action ancOneAlert = new Action("Case X", "ANM 1", ActionData.createAlert(mother, "ANC", "ANC 1", normal, DateTime.now(), DateTime.now().plusDays(3)));
+        Action tt1Alert = new Action("Case X", "ANM 1", ActionData.createAlert(mother, "TT", "TT 1", normal, DateTime.now(), DateTime.now().plusDays(3)));
+        Action closeAlert = new Action("Case X", "ANM 1", ActionData.markAlertAsClosed("ANC 1", "2013-01-01"));
+        Action ancTwoAlert = new Action("Case X", "ANM 1", ActionData.createAlert(mother, "ANC", "ANC 2", urgent, DateTime.now(), DateTime.now().plusDays(3)));
+        Action otherCaseAlert = new Action("Case Y", "ANM 1", ActionData.createAlert(mother, "ANC", "ANC 1", normal, DateTime.now(), DateTime.now().plusDays(3)));
+        when(allActions.findByANMIDAndTimeStamp("ANM 1", 0, 10)).thenReturn(asList(ancOneAlert, tt1Alert, closeAlert, ancTwoAlert, otherCaseAlert));
+
+        List<Action> alerts = service.getNewAlertsForANM("ANM 1", 0, 10);
+
+        assertEquals(asList(tt1Alert, closeAlert, ancTwoAlert, otherCaseAlert), alerts);
+    }
+
     @Test
     public void shouldReportForIndicator() {
         ActionData summaryActionData = ActionData.reportForIndicator("ANC", "30", new Gson().toJson(asList(new MonthSummaryDatum("3", "2012", "2", "2", asList("CASE 5", "CASE 6")))));
@@ -150,9 +175,44 @@ public class ActionServiceTest {
     }
 
     @Test
-    public void shouldDeleteAllActionsWithTargetReport() {
-        service.deleteReportActions();
+    public void shouldQueueAlertActionToBeWrittenInBulk() throws Exception {
+        DateTime dueDate = DateTime.now().minusDays(1);
+        DateTime expiryDate = dueDate.plusWeeks(2);
+
+        service.queueAlertForBeneficiary(mother, "Case X", "ANM ID M", "Ante Natal Care - Normal", "ANC 1", normal, dueDate, expiryDate);
+
+        verify(alertSink).add(new Action("Case X", "ANM ID M", ActionData.createAlert(mother, "Ante Natal Care - Normal", "ANC 1", normal, dueDate, expiryDate)));
+        verify(allActions, never()).addOrUpdateAlert(any(Action.class));
+    }
+
+    @Test
+    public void shouldWriteQueuedAlertsBeforeMarkingAlertAsInactive() throws Exception {
+        service.markAlertAsInactive("ANM X", "Case X", "Ante Natal Care - Normal");
+
+        InOrder inOrder = inOrder(alertSink, allActions);
+        inOrder.verify(alertSink).flush();
+        inOrder.verify(allActions).markAlertAsInactiveFor("ANM X", "Case X", "Ante Natal Care - Normal");
+    }
+
+    @Test
+    public void shouldRefreshReportActionsOfAnANM() {
+        ActionData ancReport = ActionData.reportForIndicator("ANC", "30", "[]");
+        ActionData iudReport = ActionData.reportForIndicator("IUD", "40", "[]");
+
+        service.refreshReportActions("ANM X", asList(ancReport, iudReport));
+
+        verify(allActions).refreshReportActions("ANM X", asList(new Action("", "ANM X", ancReport), new Action("", "ANM X", iudReport)));
+    }
+
+    @Test
+    public void shouldDeleteReportActionsOfANMsWithoutReports() {
+        when(allActions.findANMsWithReportActions()).thenReturn(new HashSet<>(asList("ANM X", "ANM Y")));
+        when(allActions.refreshReportActions("ANM Y", Collections.<Action>emptyList())).thenReturn(2);
+
+        int numberOfDeletes = service.deleteReportActionsOfANMsOtherThan(new HashSet<>(asList("ANM X")));
 
-        verify(allActions).deleteAllByTarget("report");
+        assertEquals(2, numberOfDeletes);
+        verify(allActions).refreshReportActions("ANM Y", Collections.<Action>emptyList());
+        verify(allActions, never()).refreshReportActions(eq("ANM X"), anyList());
     }
 }
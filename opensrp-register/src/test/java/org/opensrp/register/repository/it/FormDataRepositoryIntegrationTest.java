@@ -152,4 +152,44 @@ public class FormDataRepositoryIntegrationTest {
         Mother expectedMother = new Mother("entity id 1", "ec 123", "thayi1").withDetails(expectedDetails);
         assertEquals(expectedMother, savedMother);
     }
+
+    @Test
+    public void shouldMergeChangesToAnEntityWithinABatchAndWriteThemOnFlush() throws Exception {
+        mothers.add(new Mother("entity id 1", "ec 123", "thayi1").withDetails(mapOf("bloodGroup", "o-ve")));
+
+        repository.startBatch();
+        try {
+            repository.saveEntity("mother", new Gson().toJson(create("id", "entity id 1").put("isHighPriority", "no").map()));
+            repository.saveEntity("mother", new Gson().toJson(create("id", "entity id 1").put("thayiCardNumber", "thayi2").map()));
+
+            assertEquals(new Mother("entity id 1", "ec 123", "thayi1").withDetails(mapOf("bloodGroup", "o-ve")),
+                    mothers.findByCaseId("entity id 1"));
+
+            repository.flush();
+        } finally {
+            repository.endBatch();
+        }
+
+        Map<String, String> expectedDetails = create("bloodGroup", "o-ve").put("isHighPriority", "no").map();
+        assertEquals(new Mother("entity id 1", "ec 123", "thayi2").withDetails(expectedDetails), mothers.findByCaseId("entity id 1"));
+    }
+
+    @Test
+    public void shouldReapplyBatchedChangesWhenEntityIsUpdatedConcurrently() throws Exception {
+        mothers.add(new Mother("entity id 1", "ec 123", "thayi1"));
+
+        repository.startBatch();
+        try {
+            repository.saveEntity("mother", new Gson().toJson(create("id", "entity id 1").put("isHighPriority", "no").map()));
+            repository.flush();
+            Mother updatedElsewhere = mothers.findByCaseId("entity id 1");
+            mothers.update(updatedElsewhere.withAnm("anm id 1"));
+            repository.saveEntity("mother", new Gson().toJson(create("id", "entity id 1").put("isHighPriority", "yes").map()));
+        } finally {
+            repository.endBatch();
+        }
+
+        assertEquals(new Mother("entity id 1", "ec 123", "thayi1").withAnm("anm id 1").withDetails(mapOf("isHighPriority", "yes")),
+                mothers.findByCaseId("entity id 1"));
+    }
 }
@@ -1,7 +1,10 @@
 package org.opensrp.register.service;
 
 import static java.util.Arrays.asList;
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.MockitoAnnotations.initMocks;
 import static org.opensrp.common.util.ANMIndicatorSummaryFactory.createSummaryForANC;
@@ -9,6 +12,7 @@ import static org.opensrp.common.util.ANMIndicatorSummaryFactory.createSummaryFo
 import static org.opensrp.dto.ActionData.reportForIndicator;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 
 import org.junit.Before;
@@ -49,12 +53,20 @@ public class ANMReportingServiceTest {
         anmReportingService.processReports(anmReports);
 
         InOrder inOrder = inOrder(actionService);
-        inOrder.verify(actionService).deleteReportActions();
-        inOrder.verify(actionService).reportForIndicator("ANM X",
-                reportForIndicator("IUD", "40", new Gson().toJson(asList(new MonthSummaryDatum("4", "2012", "2", "2", asList("CASE 1", "CASE 2")),
-                        new MonthSummaryDatum("5", "2012", "2", "4", asList("CASE 3", "CASE 4"))))));
-        inOrder.verify(actionService).reportForIndicator("ANM Y",
-                reportForIndicator("ANC", "30", new Gson().toJson(asList(new MonthSummaryDatum("6", "2012", "2", "2", asList("CASE 5", "CASE 6"))))));
+        inOrder.verify(actionService).refreshReportActions("ANM X",
+                asList(reportForIndicator("IUD", "40", new Gson().toJson(asList(new MonthSummaryDatum("4", "2012", "2", "2", asList("CASE 1", "CASE 2")),
+                        new MonthSummaryDatum("5", "2012", "2", "4", asList("CASE 3", "CASE 4")))))));
+        inOrder.verify(actionService).refreshReportActions("ANM Y",
+                asList(reportForIndicator("ANC", "30", new Gson().toJson(asList(new MonthSummaryDatum("6", "2012", "2", "2", asList("CASE 5", "CASE 6")))))));
+        inOrder.verify(actionService).deleteReportActionsOfANMsOtherThan(new HashSet<>(asList("ANM X", "ANM Y")));
+    }
+
+    @Test
+    public void shouldDeleteReportActionsOfAllANMsWhenThereAreNoReports() throws Exception {
+        anmReportingService.processReports(new ArrayList<ANMReport>());
+
+        verify(actionService).deleteReportActionsOfANMsOtherThan(new HashSet<String>());
+        verify(actionService, never()).refreshReportActions(anyString(), anyList());
     }
 
     @Test
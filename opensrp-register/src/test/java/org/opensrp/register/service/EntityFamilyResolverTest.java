@@ -0,0 +1,65 @@
+package org.opensrp.register.service;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static org.opensrp.common.util.EasyMap.create;
+
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.opensrp.form.domain.FormSubmission;
+import org.opensrp.register.domain.Child;
+import org.opensrp.register.domain.EligibleCouple;
+import org.opensrp.register.domain.Mother;
+import org.opensrp.register.repository.AllChildren;
+import org.opensrp.register.repository.AllEligibleCouples;
+import org.opensrp.register.repository.AllMothers;
+import org.opensrp.register.util.FormSubmissionBuilder;
+
+public class EntityFamilyResolverTest {
+    @Mock
+    private AllEligibleCouples allEligibleCouples;
+    @Mock
+    private AllMothers allMothers;
+    @Mock
+    private AllChildren allChildren;
+
+    private EntityFamilyResolver resolver;
+
+    @Before
+    public void setUp() throws Exception {
+        initMocks(this);
+        resolver = new EntityFamilyResolver(allEligibleCouples, allMothers, allChildren);
+    }
+
+    @Test
+    public void shouldResolveFamiliesOfAllSubmissionsWithOneLookupPerKindOfEntity() throws Exception {
+        FormSubmission ofEC = FormSubmissionBuilder.create().withInstanceId("instance id 1").withEntityId("ec 1").build();
+        FormSubmission ofMother = FormSubmissionBuilder.create().withInstanceId("instance id 2").withEntityId("mother 2").build();
+        FormSubmission ofChild = FormSubmissionBuilder.create().withInstanceId("instance id 3").withEntityId("child 3").build();
+        FormSubmission ofOrphanChild = FormSubmissionBuilder.create().withInstanceId("instance id 4").withEntityId("child 4").build();
+        FormSubmission ofNewEntity = FormSubmissionBuilder.create().withInstanceId("instance id 5").withEntityId("new entity").build();
+        when(allEligibleCouples.findAll(asList("ec 1", "mother 2", "child 3", "child 4", "new entity")))
+                .thenReturn(asList(new EligibleCouple("ec 1", "1")));
+        when(allMothers.findAll(asList("mother 2", "child 3", "child 4", "new entity")))
+                .thenReturn(asList(new Mother("mother 2", "ec 2", "thayi 2")));
+        when(allChildren.findAll(asList("child 3", "child 4", "new entity")))
+                .thenReturn(asList(new Child("child 3", "mother 3", null, null, "female"), new Child("child 4", "mother 4", null, null, "male")));
+        when(allMothers.findAll(asList("mother 3", "mother 4"))).thenReturn(asList(new Mother("mother 3", "ec 3", "thayi 3")));
+
+        assertEquals(create("ec 1", "ec 1").put("mother 2", "ec 2").put("child 3", "ec 3").put("child 4", "mother 4").map(),
+                resolver.familiesOf(asList(ofEC, ofMother, ofChild, ofOrphanChild, ofNewEntity)));
+    }
+
+    @Test
+    public void shouldNotLookUpAnythingWhenThereAreNoSubmissions() throws Exception {
+        assertEquals(Collections.emptyMap(), resolver.familiesOf(Collections.<FormSubmission>emptyList()));
+
+        verifyZeroInteractions(allEligibleCouples, allMothers, allChildren);
+    }
+}
@@ -1,7 +1,13 @@
 package org.opensrp.register.service.formSubmission;
 
 import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
@@ -25,7 +31,9 @@ import org.opensrp.form.domain.FormSubmission;
 import org.opensrp.register.util.FormSubmissionBuilder;
 import org.opensrp.repository.AllFormExportTokens;
 import org.opensrp.service.formSubmission.FormEntityService;
+import org.opensrp.service.formSubmission.FormSubmissionHandoff;
 import org.opensrp.service.formSubmission.FormSubmissionRouter;
+import org.opensrp.service.formSubmission.IEntityFamilyResolver;
 import org.opensrp.service.formSubmission.ZiggyService;
 
 import com.google.gson.Gson;
@@ -38,13 +46,15 @@ public class FormEntityServiceTest {
     private FormSubmissionRouter formSubmissionRouter;
     @Mock
     private AllFormExportTokens allFormExportTokens;
+    @Mock
+    private IEntityFamilyResolver entityFamilyResolver;
 
     private FormEntityService submissionService;
 
     @Before
     public void setUp() throws Exception {
         initMocks(this);
-        submissionService = new FormEntityService(ziggyService, allFormExportTokens);
+        submissionService = new FormEntityService(ziggyService, allFormExportTokens, entityFamilyResolver, new FormSubmissionHandoff(), 1);
     }
 
     @Test
@@ -71,4 +81,63 @@ public class FormEntityServiceTest {
         inOrder.verify(allFormExportTokens).update(formExportToken.withVersion(3L));
         verifyNoMoreInteractions(ziggyService);
     }
+
+    @Test
+    public void shouldKeepOrderWithinAFamilyAndRunUnknownFamiliesAfterEverythingBeforeThem() throws Exception {
+        FormSubmission firstOfFamilyA = FormSubmissionBuilder.create().withInstanceId("instance id 1").withEntityId("mother 1").withServerVersion(1L).build();
+        FormSubmission firstOfFamilyB = FormSubmissionBuilder.create().withInstanceId("instance id 2").withEntityId("ec 2").withServerVersion(2L).build();
+        FormSubmission secondOfFamilyA = FormSubmissionBuilder.create().withInstanceId("instance id 3").withEntityId("child 1").withServerVersion(3L).build();
+        FormSubmission registration = FormSubmissionBuilder.create().withInstanceId("instance id 4").withEntityId("ec 3").withServerVersion(4L).build();
+        FormSubmission afterRegistration = FormSubmissionBuilder.create().withInstanceId("instance id 5").withEntityId("mother 3").withServerVersion(5L).build();
+        when(entityFamilyResolver.familiesOf(asList(firstOfFamilyA, firstOfFamilyB, secondOfFamilyA, registration, afterRegistration)))
+                .thenReturn(create("mother 1", "ec 1").put("child 1", "ec 1").put("ec 2", "ec 2").map());
+        when(entityFamilyResolver.familiesOf(asList(afterRegistration))).thenReturn(create("mother 3", "ec 3").map());
+        FormExportToken formExportToken = new FormExportToken(0L);
+        when(allFormExportTokens.getAll()).thenReturn(asList(formExportToken));
+        FormEntityService parallelService = new FormEntityService(ziggyService, allFormExportTokens, entityFamilyResolver, new FormSubmissionHandoff(), 2);
+
+        parallelService.process(asList(afterRegistration, registration, secondOfFamilyA, firstOfFamilyB, firstOfFamilyA));
+        parallelService.shutdown();
+
+        InOrder familyAOrder = inOrder(ziggyService);
+        familyAOrder.verify(ziggyService).saveForm(eq(paramsFor(firstOfFamilyA)), anyString());
+        familyAOrder.verify(ziggyService).saveForm(eq(paramsFor(secondOfFamilyA)), anyString());
+        familyAOrder.verify(ziggyService).saveForm(eq(paramsFor(registration)), anyString());
+        familyAOrder.verify(ziggyService).saveForm(eq(paramsFor(afterRegistration)), anyString());
+        InOrder familyBOrder = inOrder(ziggyService);
+        familyBOrder.verify(ziggyService).saveForm(eq(paramsFor(firstOfFamilyB)), anyString());
+        familyBOrder.verify(ziggyService).saveForm(eq(paramsFor(registration)), anyString());
+        verifyNoMoreInteractions(ziggyService);
+        verify(allFormExportTokens).update(formExportToken.withVersion(5L));
+    }
+
+    @Test
+    public void shouldMoveExportTokenOnlyOverSubmissionsSavedBeforeAFailure() throws Exception {
+        FormSubmission ofFamilyA = FormSubmissionBuilder.create().withInstanceId("instance id 1").withEntityId("ec 1").withServerVersion(1L).build();
+        FormSubmission failingOfFamilyB = FormSubmissionBuilder.create().withInstanceId("instance id 2").withEntityId("ec 2").withServerVersion(2L).build();
+        FormSubmission laterOfFamilyA = FormSubmissionBuilder.create().withInstanceId("instance id 3").withEntityId("ec 1").withServerVersion(3L).build();
+        when(entityFamilyResolver.familiesOf(asList(ofFamilyA, failingOfFamilyB, laterOfFamilyA)))
+                .thenReturn(create("ec 1", "ec 1").put("ec 2", "ec 2").map());
+        doThrow(new RuntimeException("ziggy failed")).when(ziggyService).saveForm(eq(paramsFor(failingOfFamilyB)), anyString());
+        FormExportToken formExportToken = new FormExportToken(0L);
+        when(allFormExportTokens.getAll()).thenReturn(asList(formExportToken));
+        FormEntityService parallelService = new FormEntityService(ziggyService, allFormExportTokens, entityFamilyResolver, new FormSubmissionHandoff(), 2);
+
+        try {
+            parallelService.process(asList(ofFamilyA, failingOfFamilyB, laterOfFamilyA));
+            fail("Expected the failure of family B to be rethrown");
+        } catch (RuntimeException expected) {
+        } finally {
+            parallelService.shutdown();
+        }
+
+        verify(ziggyService).saveForm(eq(paramsFor(laterOfFamilyA)), anyString());
+        assertEquals(1L, formExportToken.getVersion());
+    }
+
+    private String paramsFor(FormSubmission submission) {
+        return new Gson().toJson(create(ANM_ID, submission.anmId()).put(INSTANCE_ID, submission.instanceId()).put(ENTITY_ID, submission.entityId())
+                .put(FORM_NAME, submission.formName()).put(CLIENT_VERSION, String.valueOf(submission.clientVersion()))
+                .put(SERVER_VERSION, String.valueOf(submission.serverVersion())).map());
+    }
 }
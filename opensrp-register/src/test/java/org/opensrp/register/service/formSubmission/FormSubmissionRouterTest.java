@@ -7,7 +7,9 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
@@ -42,6 +44,8 @@ import org.opensrp.register.service.handler.RenewFPProductHandler;
 import org.opensrp.register.service.handler.TTHandler;
 import org.opensrp.register.service.handler.VitaminAHandler;
 import org.opensrp.register.service.reporting.MCTSReportService;
+import org.opensrp.repository.FormDataRepository;
+import org.opensrp.service.formSubmission.FormSubmissionHandoff;
 import org.opensrp.service.formSubmission.FormSubmissionRouter;
 import org.opensrp.service.formSubmission.handler.FormSubmissionHandler;
 import org.opensrp.service.formSubmission.handler.IHandlerMapper;
@@ -122,6 +126,8 @@ public class FormSubmissionRouterTest {
     @Mock
     private MCTSReportService mReportService;
     @Mock
+    private FormDataRepository formDataRepository;
+    @Mock
     private FormSubmissionRouter router;
 	@Mock
 	private HandlerMapper handlerMapper;
@@ -171,7 +177,9 @@ public class FormSubmissionRouterTest {
 	        		formSubmissionsRepository,
 	        		formSubmissionReportService,
 	        		mctsReportService,
-	        		handlerMapper
+	        		handlerMapper,
+	        		new FormSubmissionHandoff(),
+	        		formDataRepository
         		);
     }
 
@@ -583,4 +591,19 @@ public class FormSubmissionRouterTest {
         verify(ancInvestigationsHandler).handle(formSubmission);
         verify(formSubmissionReportService).reportFor(formSubmission);
     }
+
+    @Test
+    public void shouldRouteSubmissionHandedOverInProcessWithoutReadingItFromRepository() throws Exception {
+        FormSubmission formSubmission = new FormSubmission("anm id 1", "instance id 1", "ec_registration", "entity id 1", 0L, "1", null, 0L);
+        FormSubmissionHandoff handoff = new FormSubmissionHandoff();
+        router = new FormSubmissionRouter(formSubmissionsRepository, formSubmissionReportService, mctsReportService, handlerMapper, handoff, formDataRepository);
+        handoff.handOver(formSubmission);
+
+        router.route("instance id 1");
+
+        verifyZeroInteractions(formSubmissionsRepository);
+        verify(ecRegistrationHandler).handle(formSubmission);
+        verify(formSubmissionReportService).reportFor(formSubmission);
+        assertEquals(1, handoff.hits());
+    }
 }
@@ -40,7 +40,9 @@ import org.opensrp.register.service.handler.TTHandler;
 import org.opensrp.register.service.handler.VitaminAHandler;
 import org.opensrp.register.service.reporting.MCTSReportService;
 import org.opensrp.register.util.FormSubmissionBuilder;
+import org.opensrp.common.monitor.Monitor;
 import org.opensrp.repository.FormDataRepository;
+import org.opensrp.service.formSubmission.FormSubmissionHandoff;
 import org.opensrp.service.formSubmission.FormSubmissionRouter;
 import org.opensrp.service.formSubmission.ZiggyFileLoader;
 import org.opensrp.service.formSubmission.ZiggyService;
@@ -155,7 +157,10 @@ public class ZiggyServiceIntegrationTest {
                 new FormSubmissionRouter(formSubmissionsRepository,
     	        		formSubmissionReportService,
     	        		mctsReportService,
-    	        		handlerMapper)
+    	        		handlerMapper,
+    	        		new FormSubmissionHandoff(),
+    	        		formDataRepository),
+                new Monitor(), 1
         );
 
         service.saveForm(params, formInstance);
@@ -1,6 +1,7 @@
 package org.opensrp.register.service.reporting;
 
 import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -28,8 +29,10 @@ import org.opensrp.service.reporting.IReporterFactory;
 import org.opensrp.service.reporting.IRulesFactory;
 import org.opensrp.service.reporting.ReferenceData;
 import org.opensrp.service.reporting.ReportDefinition;
+import org.opensrp.service.reporting.ReportDefinitionRegistry;
 import org.opensrp.service.reporting.ReportIndicator;
 import org.opensrp.service.reporting.ReportingService;
+import org.opensrp.service.reporting.RuleTimer;
 import org.opensrp.service.reporting.rules.IReferenceDataRepository;
 import org.opensrp.service.reporting.rules.IRule;
 import org.opensrp.util.SafeMap;
@@ -64,7 +67,8 @@ public class FormSubmissionReportServiceTest {
     @Before
     public void setUp() throws Exception {
         initMocks(this);
-        service = new FormSubmissionReportService(locationLoader, rulesFactory, reporterFactory, referenceDataRepository, reportDefinitionLoader);
+        service = new FormSubmissionReportService(locationLoader, reporterFactory, referenceDataRepository,
+                new ReportDefinitionRegistry(reportDefinitionLoader, rulesFactory, 0));
     }
 
     @Test
@@ -116,6 +120,35 @@ public class FormSubmissionReportServiceTest {
         verify(reporter).report(submission.entityId(), "INFANT_LEFT", location, "2012-03-01", reportData);
     }
 
+    @Test
+    public void shouldResolveRulesOnlyOnceWhenReportDefinitionIsLoaded() throws Exception {
+        FormSubmission submission = create()
+                .withFormName("child_close")
+                .withANMId("anm id 1")
+                .withEntityId("child id 1")
+                .addFormField("submissionDate", "2012-03-01")
+                .addFormField("closeReason", "permanent_relocation")
+                .build();
+        when(rulesFactory.ruleByName(any(String.class))).thenReturn(rule);
+        when(reportDefinitionLoader.load()).thenReturn(reportDefinition());
+        when(referenceDataRepository.getReferenceData(any(FormSubmission.class), any(ReferenceData.class))).thenReturn(new SafeMap());
+        when(reporterFactory.reporterFor("child")).thenReturn(reporter);
+        when(rule.apply(any(SafeMap.class))).thenReturn(true, false);
+
+        service.reportFor(submission);
+        service.reportFor(submission);
+
+        verify(rulesFactory, times(1)).ruleByName("IsChildLessThanOneYearOldRule");
+        verify(rulesFactory, times(1)).ruleByName("RelocationIsPermanentRule");
+        verify(rule, times(3)).apply(any(SafeMap.class));
+        verify(reporter, times(0)).report(any(String.class), any(String.class), any(Location.class), any(String.class), any(SafeMap.class));
+        long invocations = 0;
+        for (RuleTimer timer : service.ruleTimers()) {
+            invocations += timer.invocations();
+        }
+        assertEquals(3, invocations);
+    }
+
     @Test
     public void shouldReportWithSpecifiedEntityIdWhenFieldIsSpecified() throws Exception {
         FormSubmission submission = create()
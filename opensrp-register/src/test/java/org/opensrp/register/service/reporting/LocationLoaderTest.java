@@ -1,11 +1,17 @@
 package org.opensrp.register.service.reporting;
 
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
+import java.util.Map;
+
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.opensrp.register.domain.Child;
 import org.opensrp.register.domain.EligibleCouple;
@@ -13,6 +19,9 @@ import org.opensrp.register.domain.Mother;
 import org.opensrp.register.repository.AllChildren;
 import org.opensrp.register.repository.AllEligibleCouples;
 import org.opensrp.register.repository.AllMothers;
+import org.opensrp.register.repository.CaseWriteListener;
+import org.opensrp.register.repository.EntityLocationCache;
+import org.opensrp.register.repository.EntityLocationCache.CoupleLocation;
 import org.opensrp.service.reporting.ILocationLoader;
 
 public class LocationLoaderTest {
@@ -34,7 +43,7 @@ public class LocationLoaderTest {
     @Before
     public void setUp() throws Exception {
         initMocks(this);
-        locationLoader = new LocationLoader(allEligibleCouples, allMothers, allChildren);
+        locationLoader = new LocationLoader(new EntityLocationCache(allEligibleCouples, allMothers, allChildren, 1000));
         when(allChildren.findByCaseId("child id 1")).thenReturn(child);
         when(allMothers.findByCaseId("mother id 1")).thenReturn(mother);
         when(allEligibleCouples.findByCaseId("ec id 1")).thenReturn(eligibleCouple);
@@ -71,4 +80,71 @@ public class LocationLoaderTest {
 
       //  verify(eligibleCouple).locationId();
     }
+
+    @Test
+    public void shouldResolveLocationOfAnEntityFromCouchDBOnlyOnce() {
+        locationLoader.loadLocationFor("child", "child id 1");
+        locationLoader.loadLocationFor("child", "child id 1");
+        locationLoader.loadLocationFor("mother", "mother id 1");
+
+        verify(allChildren, times(1)).findByCaseId("child id 1");
+        verify(allMothers, times(1)).findByCaseId("mother id 1");
+        verify(allEligibleCouples, times(1)).findByCaseId("ec id 1");
+    }
+
+    @Test
+    public void shouldResolveLocationAgainWhenEntityIsInvalidated() {
+        EntityLocationCache entityLocationCache = new EntityLocationCache(allEligibleCouples, allMothers, allChildren, 1000);
+        locationLoader = new LocationLoader(entityLocationCache);
+        when(eligibleCouple.locationId()).thenReturn("old village", "new village");
+
+        assertEquals("old village", locationLoader.loadLocationFor("eligible_couple", "ec id 1").village());
+        entityLocationCache.invalidate("ec id 1");
+
+        assertEquals("new village", locationLoader.loadLocationFor("eligible_couple", "ec id 1").village());
+    }
+
+    @Test
+    public void shouldResolveLocationAgainWhenEligibleCoupleRepositoryWritesTheEntity() {
+        EntityLocationCache entityLocationCache = new EntityLocationCache(allEligibleCouples, allMothers, allChildren, 1000);
+        ArgumentCaptor<CaseWriteListener> writeListener = ArgumentCaptor.forClass(CaseWriteListener.class);
+        verify(allEligibleCouples).addWriteListener(writeListener.capture());
+        locationLoader = new LocationLoader(entityLocationCache);
+        when(eligibleCouple.locationId()).thenReturn("old village", "new village");
+
+        assertEquals("old village", locationLoader.loadLocationFor("eligible_couple", "ec id 1").village());
+        writeListener.getValue().written("ec id 1");
+
+        assertEquals("new village", locationLoader.loadLocationFor("eligible_couple", "ec id 1").village());
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedLocationsBeyondMaximumSize() {
+        EligibleCouple anotherCouple = new EligibleCouple("ec id 2", "EC 2");
+        when(allEligibleCouples.findByCaseId("ec id 2")).thenReturn(anotherCouple);
+        locationLoader = new LocationLoader(new EntityLocationCache(allEligibleCouples, allMothers, allChildren, 1));
+
+        locationLoader.loadLocationFor("eligible_couple", "ec id 1");
+        locationLoader.loadLocationFor("eligible_couple", "ec id 2");
+        locationLoader.loadLocationFor("eligible_couple", "ec id 1");
+
+        verify(allEligibleCouples, times(2)).findByCaseId("ec id 1");
+        verify(allEligibleCouples, times(1)).findByCaseId("ec id 2");
+    }
+
+    @Test
+    public void shouldResolveLocationsOfChildrenInBulk() {
+        EntityLocationCache entityLocationCache = new EntityLocationCache(allEligibleCouples, allMothers, allChildren, 1000);
+        Child firstChild = new Child("child id 1", "mother id 1", "bcg", "3", "female");
+        Child secondChild = new Child("child id 2", "mother id 1", "bcg", "3", "male");
+        when(allMothers.findAll(asList("mother id 1"))).thenReturn(asList(new Mother("mother id 1", "ec id 1", "thayi 1")));
+        when(allEligibleCouples.findAll(asList("ec id 1"))).thenReturn(asList(new EligibleCouple("ec id 1", "ec number 1")));
+
+        Map<String, CoupleLocation> coupleLocations = entityLocationCache.ofChildren(asList(firstChild, secondChild));
+
+        assertEquals("ec number 1", coupleLocations.get("child id 1").ecNumber());
+        assertEquals("ec id 1", coupleLocations.get("child id 2").ecCaseId());
+        verify(allMothers, times(0)).findByCaseId("mother id 1");
+        verify(allEligibleCouples, times(0)).findByCaseId("ec id 1");
+    }
 }
@@ -0,0 +1,186 @@
+package org.opensrp.register.service.reporting;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.opensrp.common.domain.ReportDataUpdateRequest;
+import org.opensrp.common.domain.ReportingData;
+import org.opensrp.common.util.HttpAgent;
+import org.opensrp.common.util.HttpResponse;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class ReportDataBatcherTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Mock
+    private HttpAgent agent;
+
+    private ReportDataBatcher batcher;
+    private String spoolDirectory;
+
+    @Before
+    public void setUp() throws Exception {
+        initMocks(this);
+        spoolDirectory = folder.getRoot().getAbsolutePath();
+        when(agent.post(anyString(), any(String.class), anyString())).thenReturn(new HttpResponse(true, null));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (batcher != null) {
+            batcher.stop();
+        }
+    }
+
+    @Test
+    public void shouldPostReportsInOneRequestWhenBatchIsFull() throws Exception {
+        batcher = new ReportDataBatcher(agent, "http://drishti", 2, 60000, spoolDirectory);
+
+        batcher.add(new ReportingData("Boo").with("abc", "def"));
+        verifyZeroInteractions(agent);
+        batcher.add(new ReportingData("Boo").with("abc", "ghi"));
+
+        verify(agent).post("http://drishti/submit-batch",
+                "[{\"type\":\"Boo\",\"data\":{\"abc\":\"def\"}},{\"type\":\"Boo\",\"data\":{\"abc\":\"ghi\"}}]", "application/json");
+    }
+
+    @Test
+    public void shouldPostPendingReportsWhenBatchWindowIsOver() throws Exception {
+        batcher = new ReportDataBatcher(agent, "http://drishti", 100, 10, spoolDirectory);
+
+        batcher.add(new ReportingData("Boo").with("abc", "def"));
+
+        verify(agent, timeout(5000)).post(eq("http://drishti/submit-batch"), eq("[{\"type\":\"Boo\",\"data\":{\"abc\":\"def\"}}]"), eq("application/json"));
+    }
+
+    @Test
+    public void shouldNotPostAnythingOnFlushWhenNothingIsPending() throws Exception {
+        batcher = new ReportDataBatcher(agent, "http://drishti", 100, 60000, spoolDirectory);
+
+        batcher.flush();
+
+        verifyZeroInteractions(agent);
+    }
+
+    @Test
+    public void shouldPostFailedBatchAgainBeforeLaterReports() throws Exception {
+        when(agent.post(anyString(), any(String.class), anyString())).thenReturn(new HttpResponse(false, null), new HttpResponse(true, null));
+        batcher = new ReportDataBatcher(agent, "http://drishti", 100, 60000, spoolDirectory);
+
+        batcher.add(new ReportingData("Boo").with("abc", "def"));
+        batcher.flush();
+        batcher.add(new ReportingData("Boo").with("abc", "ghi"));
+        batcher.flush();
+
+        InOrder inOrder = inOrder(agent);
+        inOrder.verify(agent, times(2)).post("http://drishti/submit-batch",
+                "[{\"type\":\"Boo\",\"data\":{\"abc\":\"def\"}}]", "application/json");
+        inOrder.verify(agent).post("http://drishti/submit-batch",
+                "[{\"type\":\"Boo\",\"data\":{\"abc\":\"ghi\"}}]", "application/json");
+    }
+
+    @Test
+    public void shouldPostBatchAgainWhenReportingApplicationCannotBeReached() throws Exception {
+        when(agent.post(anyString(), any(String.class), anyString())).thenThrow(new RuntimeException("Connection refused"))
+                .thenReturn(new HttpResponse(true, null));
+        batcher = new ReportDataBatcher(agent, "http://drishti", 1, 60000, spoolDirectory);
+
+        batcher.add(new ReportingData("Boo").with("abc", "def"));
+        batcher.flush();
+
+        verify(agent, times(2)).post("http://drishti/submit-batch", "[{\"type\":\"Boo\",\"data\":{\"abc\":\"def\"}}]", "application/json");
+    }
+
+    @Test
+    public void shouldPostOnlyTheReportsThatCouldNotBeSavedAgain() throws Exception {
+        when(agent.post(anyString(), any(String.class), anyString())).thenReturn(new HttpResponse(true, "[1]"), new HttpResponse(true, "[]"));
+        batcher = new ReportDataBatcher(agent, "http://drishti", 100, 60000, spoolDirectory);
+
+        batcher.add(new ReportingData("Boo").with("abc", "def"));
+        batcher.add(new ReportingData("Boo").with("abc", "ghi"));
+        batcher.flush();
+        batcher.flush();
+
+        InOrder inOrder = inOrder(agent);
+        inOrder.verify(agent).post("http://drishti/submit-batch",
+                "[{\"type\":\"Boo\",\"data\":{\"abc\":\"def\"}},{\"type\":\"Boo\",\"data\":{\"abc\":\"ghi\"}}]", "application/json");
+        inOrder.verify(agent).post("http://drishti/submit-batch",
+                "[{\"type\":\"Boo\",\"data\":{\"abc\":\"ghi\"}}]", "application/json");
+    }
+
+    @Test
+    public void shouldNotPostUpdateBeforeReportsAddedEarlierHaveBeenPosted() throws Exception {
+        when(agent.post(anyString(), any(String.class), anyString())).thenReturn(new HttpResponse(false, null), new HttpResponse(true, null));
+        batcher = new ReportDataBatcher(agent, "http://drishti", 100, 60000, spoolDirectory);
+
+        batcher.add(new ReportingData("Boo").with("abc", "def"));
+        batcher.update(new ReportDataUpdateRequest().withType("Boo").withStartDate("2013-01-26").withEndDate("2013-02-25"));
+        verify(agent, never()).post(eq("http://drishti/update"), any(String.class), anyString());
+        batcher.flush();
+
+        InOrder inOrder = inOrder(agent);
+        inOrder.verify(agent, times(2)).post("http://drishti/submit-batch",
+                "[{\"type\":\"Boo\",\"data\":{\"abc\":\"def\"}}]", "application/json");
+        inOrder.verify(agent).post("http://drishti/update",
+                "{\"startDate\":\"2013-01-26\",\"endDate\":\"2013-02-25\",\"type\":\"Boo\"}", "application/json");
+    }
+
+    @Test
+    public void shouldSetRefusedBatchAsideAndGoOnWithLaterReports() throws Exception {
+        when(agent.post(anyString(), any(String.class), anyString())).thenReturn(new HttpResponse(false, "Bad Request", 400), new HttpResponse(true, null));
+        batcher = new ReportDataBatcher(agent, "http://drishti", 1, 60000, spoolDirectory);
+
+        batcher.add(new ReportingData("Boo").with("abc", "def"));
+        batcher.add(new ReportingData("Boo").with("abc", "ghi"));
+
+        InOrder inOrder = inOrder(agent);
+        inOrder.verify(agent).post("http://drishti/submit-batch",
+                "[{\"type\":\"Boo\",\"data\":{\"abc\":\"def\"}}]", "application/json");
+        inOrder.verify(agent).post("http://drishti/submit-batch",
+                "[{\"type\":\"Boo\",\"data\":{\"abc\":\"ghi\"}}]", "application/json");
+        assertEquals(1, new File(spoolDirectory, "failed").list().length);
+    }
+
+    @Test
+    public void shouldLeavePostingToTheTimerOnceAPostHasFailed() throws Exception {
+        when(agent.post(anyString(), any(String.class), anyString())).thenReturn(new HttpResponse(false, null));
+        batcher = new ReportDataBatcher(agent, "http://drishti", 1, 60000, spoolDirectory);
+
+        batcher.add(new ReportingData("Boo").with("abc", "def"));
+        batcher.add(new ReportingData("Boo").with("abc", "ghi"));
+        batcher.delete(new ReportingData("Boo"));
+
+        verify(agent, times(1)).post(anyString(), any(String.class), anyString());
+    }
+
+    @Test
+    public void shouldPostReportsLeftPendingByAPreviousRun() throws Exception {
+        ReportDataBatcher previousRun = new ReportDataBatcher(agent, "http://drishti", 100, 60000, spoolDirectory);
+        previousRun.add(new ReportingData("Boo").with("abc", "def"));
+        verify(agent, never()).post(anyString(), any(String.class), anyString());
+
+        batcher = new ReportDataBatcher(agent, "http://drishti", 100, 60000, spoolDirectory);
+        batcher.flush();
+
+        verify(agent).post("http://drishti/submit-batch", "[{\"type\":\"Boo\",\"data\":{\"abc\":\"def\"}}]", "application/json");
+    }
+}
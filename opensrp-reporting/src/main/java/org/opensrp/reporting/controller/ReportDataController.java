@@ -1,5 +1,9 @@
 package org.opensrp.reporting.controller;
 
+import org.apache.commons.lang3.StringUtils;
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.map.ObjectMapper;
 import org.opensrp.common.domain.ANMReport;
 import org.opensrp.common.domain.ReportDataDeleteRequest;
 import org.opensrp.common.domain.ReportDataUpdateRequest;
@@ -8,17 +12,22 @@ import org.opensrp.reporting.DristhiEntityIdMissingException;
 import org.opensrp.reporting.ReportDataMissingException;
 import org.opensrp.reporting.repository.ANMReportsRepository;
 import org.opensrp.reporting.repository.ServicesProvidedRepository;
+import org.opensrp.reporting.service.ANMReportGenerator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.ResponseBody;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static org.apache.commons.lang3.StringUtils.isBlank;
@@ -28,13 +37,16 @@ import static org.opensrp.common.AllConstants.ReportDataParameters;
 public class ReportDataController {
     private ServicesProvidedRepository servicesProvidedRepository;
     private ANMReportsRepository anmReportsRepository;
+    private ANMReportGenerator anmReportGenerator;
+    private ObjectMapper objectMapper = new ObjectMapper();
     private static final Logger logger = LoggerFactory.getLogger(ReportDataController.class);
 
     @Autowired
     public ReportDataController(ServicesProvidedRepository servicesProvidedRepository,
-                                ANMReportsRepository anmReportsRepository) {
+                                ANMReportsRepository anmReportsRepository, ANMReportGenerator anmReportGenerator) {
         this.servicesProvidedRepository = servicesProvidedRepository;
         this.anmReportsRepository = anmReportsRepository;
+        this.anmReportGenerator = anmReportGenerator;
     }
 
     @RequestMapping(value = "/report/submit", method = RequestMethod.POST)
@@ -43,29 +55,106 @@ public class ReportDataController {
         logger.info("Reporting on: " + reportingData);
         if (ReportDataParameters.SERVICE_PROVIDED_DATA_TYPE.equals(reportingData.type())) {
             throwExceptionIfMandatoryDataIsNotPresentForServiceProvidedReport(reportingData);
-            servicesProvidedRepository.save(
-                    reportingData.get(ReportDataParameters.ANM_IDENTIFIER),
-                    reportingData.get(ReportDataParameters.SERVICE_PROVIDER_TYPE),
-                    reportingData.get(ReportDataParameters.EXTERNAL_ID),
-                    reportingData.get(ReportDataParameters.INDICATOR),
-                    reportingData.get(ReportDataParameters.SERVICE_PROVIDED_DATE),
-                    reportingData.get(ReportDataParameters.VILLAGE),
-                    reportingData.get(ReportDataParameters.SUB_CENTER),
-                    reportingData.get(ReportDataParameters.PHC),
-                    reportingData.get(ReportDataParameters.QUANTITY),
-                    reportingData.get(ReportDataParameters.DRISTHI_ENTITY_ID));
+            saveServiceProvided(reportingData);
         } else if (ReportDataParameters.ANM_REPORT_DATA_TYPE.equals(reportingData.type())) {
             throwExceptionIfMandatoryDataIsNotPresentForANMReport(reportingData);
-            anmReportsRepository.save(
-                    reportingData.get(ReportDataParameters.ANM_IDENTIFIER),
-                    reportingData.get(ReportDataParameters.EXTERNAL_ID),
-                    reportingData.get(ReportDataParameters.INDICATOR),
-                    reportingData.get(ReportDataParameters.SERVICE_PROVIDED_DATE),
-                    reportingData.get(ReportDataParameters.QUANTITY));
+            saveANMReport(reportingData);
         }
         return "Success.";
     }
 
+    /**
+     * Saves a batch of reports, one transaction per report type, and answers with the positions in the batch of the
+     * reports that could not be saved, as a JSON array, so that only those are posted again. Reports with missing
+     * data are logged and left out, as posting them again would not help. When the transaction of a type fails, its
+     * reports are saved one at a time.
+     */
+    @RequestMapping(value = "/report/submit-batch", method = RequestMethod.POST)
+    @ResponseBody
+    public String submitBatch(@RequestBody ReportingData[] reportingData) {
+        logger.info(MessageFormat.format("Reporting on a batch of {0} reports", reportingData.length));
+        List<ReportingData> servicesProvided = new ArrayList<>();
+        List<Integer> servicesProvidedPositions = new ArrayList<>();
+        List<ReportingData> anmReports = new ArrayList<>();
+        List<Integer> anmReportPositions = new ArrayList<>();
+        for (int position = 0; position < reportingData.length; position++) {
+            ReportingData data = reportingData[position];
+            try {
+                if (ReportDataParameters.SERVICE_PROVIDED_DATA_TYPE.equals(data.type())) {
+                    throwExceptionIfMandatoryDataIsNotPresentForServiceProvidedReport(data);
+                    servicesProvided.add(data);
+                    servicesProvidedPositions.add(position);
+                } else if (ReportDataParameters.ANM_REPORT_DATA_TYPE.equals(data.type())) {
+                    throwExceptionIfMandatoryDataIsNotPresentForANMReport(data);
+                    anmReports.add(data);
+                    anmReportPositions.add(position);
+                }
+            } catch (ReportDataMissingException e) {
+                logger.error("Skipping report in batch. " + e.getMessage());
+            }
+        }
+        List<Integer> unsavedPositions = new ArrayList<>();
+        if (!servicesProvided.isEmpty()) {
+            try {
+                servicesProvidedRepository.save(servicesProvided);
+            } catch (RuntimeException e) {
+                unsavedPositions.addAll(saveOneAtATime(servicesProvided, servicesProvidedPositions, e));
+            }
+        }
+        if (!anmReports.isEmpty()) {
+            try {
+                anmReportsRepository.save(anmReports);
+            } catch (RuntimeException e) {
+                unsavedPositions.addAll(saveOneAtATime(anmReports, anmReportPositions, e));
+            }
+        }
+        Collections.sort(unsavedPositions);
+        return "[" + StringUtils.join(unsavedPositions, ",") + "]";
+    }
+
+    private List<Integer> saveOneAtATime(List<ReportingData> reports, List<Integer> positions, RuntimeException batchFailure) {
+        logger.warn(MessageFormat.format("Saving {0} reports of a batch together failed, saving them one at a time. Error: {1}",
+                reports.size(), batchFailure.getMessage()));
+        List<Integer> unsavedPositions = new ArrayList<>();
+        for (int i = 0; i < reports.size(); i++) {
+            ReportingData data = reports.get(i);
+            try {
+                if (ReportDataParameters.SERVICE_PROVIDED_DATA_TYPE.equals(data.type())) {
+                    saveServiceProvided(data);
+                } else {
+                    saveANMReport(data);
+                }
+            } catch (RuntimeException e) {
+                unsavedPositions.add(positions.get(i));
+                logger.error(MessageFormat.format("Could not save report in batch: {0}. Error: {1}", data, e.getMessage()));
+            }
+        }
+        return unsavedPositions;
+    }
+
+    private void saveServiceProvided(ReportingData reportingData) {
+        servicesProvidedRepository.save(
+                reportingData.get(ReportDataParameters.ANM_IDENTIFIER),
+                reportingData.get(ReportDataParameters.SERVICE_PROVIDER_TYPE),
+                reportingData.get(ReportDataParameters.EXTERNAL_ID),
+                reportingData.get(ReportDataParameters.INDICATOR),
+                reportingData.get(ReportDataParameters.SERVICE_PROVIDED_DATE),
+                reportingData.get(ReportDataParameters.VILLAGE),
+                reportingData.get(ReportDataParameters.SUB_CENTER),
+                reportingData.get(ReportDataParameters.PHC),
+                reportingData.get(ReportDataParameters.QUANTITY),
+                reportingData.get(ReportDataParameters.DRISTHI_ENTITY_ID));
+    }
+
+    private void saveANMReport(ReportingData reportingData) {
+        anmReportsRepository.save(
+                reportingData.get(ReportDataParameters.ANM_IDENTIFIER),
+                reportingData.get(ReportDataParameters.EXTERNAL_ID),
+                reportingData.get(ReportDataParameters.INDICATOR),
+                reportingData.get(ReportDataParameters.SERVICE_PROVIDED_DATE),
+                reportingData.get(ReportDataParameters.QUANTITY));
+    }
+
     @RequestMapping(headers = {"Accept=application/json"}, value = "/report/update", method = RequestMethod.POST)
     @ResponseBody
     public String updateReports(@RequestBody ReportDataUpdateRequest request) throws ReportDataMissingException {
@@ -96,10 +185,24 @@ public class ReportDataController {
         return "Success.";
     }
 
-    @RequestMapping(value = "/report/fetchForAllANMs", method = RequestMethod.GET)
-    @ResponseBody
-    public List<ANMReport> getAllANMsIndicatorSummaries() {
-        return anmReportsRepository.fetchAllANMsReport();
+    /**
+     * Writes the reports of all ANMs as a JSON array, one report at a time as each is generated. The content type is
+     * set here because nothing converts the return value of a handler that writes the response itself.
+     */
+    @RequestMapping(value = "/report/fetchForAllANMs", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public void getAllANMsIndicatorSummaries(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE + ";charset=UTF-8");
+        final JsonGenerator generator = objectMapper.getJsonFactory().createJsonGenerator(response.getOutputStream(), JsonEncoding.UTF8);
+        generator.writeStartArray();
+        anmReportGenerator.generate(new ANMReportGenerator.ReportHandler() {
+            @Override
+            public void handle(ANMReport report) throws IOException {
+                objectMapper.writeValue(generator, report);
+                generator.flush();
+            }
+        });
+        generator.writeEndArray();
+        generator.close();
     }
 
     private void throwExceptionIfMandatoryDataIsNotPresentForANMReport(ReportingData reportingData) throws ReportDataMissingException {
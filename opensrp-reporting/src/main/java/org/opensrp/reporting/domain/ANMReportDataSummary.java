@@ -0,0 +1,69 @@
+package org.opensrp.reporting.domain;
+
+import org.apache.commons.lang.builder.EqualsBuilder;
+import org.apache.commons.lang.builder.HashCodeBuilder;
+import org.apache.commons.lang.builder.ToStringBuilder;
+
+/**
+ * Number of ANM reports of one indicator, report month and external id.
+ */
+public class ANMReportDataSummary {
+    private Integer indicatorId;
+    private String indicator;
+    private int year;
+    private int month;
+    private String externalId;
+    private int count;
+
+    public ANMReportDataSummary(Integer indicatorId, String indicator, int year, int month, String externalId, int count) {
+        this.indicatorId = indicatorId;
+        this.indicator = indicator;
+        this.year = year;
+        this.month = month;
+        this.externalId = externalId;
+        this.count = count;
+    }
+
+    public Indicator indicator() {
+        return new Indicator(indicatorId, indicator);
+    }
+
+    public String indicatorName() {
+        return indicator;
+    }
+
+    public int year() {
+        return year;
+    }
+
+    public int month() {
+        return month;
+    }
+
+    public String externalId() {
+        return externalId;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public boolean isOfSameMonthAndIndicatorAs(ANMReportDataSummary other) {
+        return other != null && indicator.equals(other.indicator) && year == other.year && month == other.month;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return EqualsBuilder.reflectionEquals(this, o);
+    }
+
+    @Override
+    public int hashCode() {
+        return HashCodeBuilder.reflectionHashCode(this);
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
@@ -0,0 +1,80 @@
+package org.opensrp.reporting.domain;
+
+import org.apache.commons.lang.builder.EqualsBuilder;
+import org.apache.commons.lang.builder.HashCodeBuilder;
+import org.apache.commons.lang.builder.ToStringBuilder;
+
+import javax.persistence.*;
+
+/**
+ * Number of ANM reports of one indicator and external id in a report month, kept up to date with every report saved
+ * or deleted. Summaries list the external ids behind each count, so they read one rollup per case and month, which
+ * saves repeated reports of a case but still grows with the number of cases.
+ */
+@Entity
+@Table(name = "anm_report_monthly_rollup")
+@NamedQueries({
+        @NamedQuery(name = ANMReportMonthlyRollup.FIND_BY_ANM_IDENTIFIER_FROM_REPORT_MONTH,
+                query = "select r from ANMReportMonthlyRollup r join fetch r.indicator i " +
+                        "where r.anm.anmIdentifier = ? and (r.year * 12 + r.month) >= ? " +
+                        "order by i.indicator, r.year, r.month, r.externalId")
+})
+public class ANMReportMonthlyRollup {
+    public static final String FIND_BY_ANM_IDENTIFIER_FROM_REPORT_MONTH = "find.rollup.by.anm.identifier.from.report.month";
+
+    @Id
+    @Column(name = "id")
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @ManyToOne
+    @JoinColumn(name = "anmIdentifier", insertable = true, updatable = true)
+    private ANM anm;
+
+    @ManyToOne
+    @JoinColumn(name = "indicator", insertable = true, updatable = true)
+    private Indicator indicator;
+
+    @Column(name = "externalId")
+    private String externalId;
+
+    @Column(name = "year_")
+    private int year;
+
+    @Column(name = "month_")
+    private int month;
+
+    @Column(name = "count_")
+    private int count;
+
+    private ANMReportMonthlyRollup() {
+    }
+
+    public ANMReportMonthlyRollup(ANM anm, Indicator indicator, String externalId, int year, int month, int count) {
+        this.anm = anm;
+        this.indicator = indicator;
+        this.externalId = externalId;
+        this.year = year;
+        this.month = month;
+        this.count = count;
+    }
+
+    public ANMReportDataSummary summary() {
+        return new ANMReportDataSummary(indicator.id(), indicator.indicator(), year, month, externalId, count);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return EqualsBuilder.reflectionEquals(this, o, new String[]{"id"});
+    }
+
+    @Override
+    public int hashCode() {
+        return HashCodeBuilder.reflectionHashCode(this, new String[]{"id"});
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
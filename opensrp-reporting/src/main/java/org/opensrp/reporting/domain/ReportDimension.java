@@ -0,0 +1,24 @@
+package org.opensrp.reporting.domain;
+
+/**
+ * Columns of the service provided report view that services provided can be aggregated by.
+ */
+public enum ReportDimension {
+    ANM("anmIdentifier"),
+    VILLAGE("village"),
+    SUB_CENTER("subCenter"),
+    PHC("phc"),
+    TALUKA("taluka"),
+    DISTRICT("district"),
+    STATE("state");
+
+    private final String property;
+
+    ReportDimension(String property) {
+        this.property = property;
+    }
+
+    public String property() {
+        return property;
+    }
+}
@@ -10,11 +10,16 @@ import java.util.Date;
 
 @Entity
 @Table(name = "service_provided_report_view")
-@NamedQuery(name = ServiceProvidedReport.FIND_NEW_SERVICE_PROVIDED,
-        query = "select r from ServiceProvidedReport r where r.id > ? order by r.id")
+@NamedQueries({
+        @NamedQuery(name = ServiceProvidedReport.FIND_NEW_SERVICE_PROVIDED,
+                query = "select r from ServiceProvidedReport r where r.id > ? order by r.id"),
+        @NamedQuery(name = ServiceProvidedReport.FIND_LATEST_SERVICE_PROVIDED_ID,
+                query = "select max(r.id) from ServiceProvidedReport r")
+})
 public class ServiceProvidedReport {
 
     public static final String FIND_NEW_SERVICE_PROVIDED = "find.new.service.provided";
+    public static final String FIND_LATEST_SERVICE_PROVIDED_ID = "find.latest.service.provided.id";
 
     @Id
     @Column(name = "id", insertable = false, updatable = false)
@@ -5,28 +5,28 @@ import org.opensrp.common.monitor.Monitor;
 import org.opensrp.common.monitor.Probe;
 import org.joda.time.LocalDate;
 import org.opensrp.reporting.domain.ANM;
-import org.opensrp.reporting.domain.ANMReportData;
+import org.opensrp.reporting.domain.ANMReportDataSummary;
 import org.opensrp.reporting.domain.AnnualTarget;
 import org.opensrp.reporting.domain.Indicator;
 import org.opensrp.reporting.repository.cache.ANMCacheableRepository;
 import org.opensrp.reporting.repository.cache.IndicatorCacheableRepository;
 import org.opensrp.reporting.repository.cache.ReadOnlyCachingRepository;
+import org.opensrp.reporting.repository.cache.ReferenceDataCacheSettings;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
-import static ch.lambdaj.Lambda.*;
 import static java.lang.String.valueOf;
 import static org.opensrp.common.AllConstants.ReportDataParameters.*;
 import static org.opensrp.common.monitor.Metric.REPORTING_ANM_REPORTS_CACHE_TIME;
 import static org.opensrp.common.monitor.Metric.REPORTING_ANM_REPORTS_INSERT_TIME;
 import static org.opensrp.common.util.DateUtil.today;
-import static org.hamcrest.Matchers.*;
 
 @Repository
 public class ANMReportsRepository {
@@ -45,13 +45,14 @@ public class ANMReportsRepository {
     public ANMReportsRepository(ANMCacheableRepository anmRepository,
                                 @Qualifier("anmReportsIndicatorRepository") IndicatorCacheableRepository indicatorRepository,
                                 AllANMReportDataRepository anmReportDataRepository,
-                                AllAnnualTargetsRepository annualTargetsRepository, Monitor monitor, ReportMonth reportMonth) {
+                                AllAnnualTargetsRepository annualTargetsRepository, Monitor monitor, ReportMonth reportMonth,
+                                ReferenceDataCacheSettings cacheSettings) {
         this.anmReportDataRepository = anmReportDataRepository;
         this.annualTargetsRepository = annualTargetsRepository;
         this.monitor = monitor;
         this.reportMonth = reportMonth;
-        cachedANMs = new ReadOnlyCachingRepository<>(anmRepository);
-        cachedIndicators = new ReadOnlyCachingRepository<>(indicatorRepository);
+        cachedANMs = new ReadOnlyCachingRepository<>(anmRepository, cacheSettings.anms());
+        cachedIndicators = new ReadOnlyCachingRepository<>(indicatorRepository, cacheSettings.indicators());
     }
 
     @Transactional("anm_report")
@@ -63,76 +64,78 @@ public class ANMReportsRepository {
 
         int count = getCount(quantity);
         Probe probeForInsert = monitor.start(REPORTING_ANM_REPORTS_INSERT_TIME);
-        for (int i = 0; i < count; i++) {
-            try {
-                anmReportDataRepository.save(anm, externalId, fetchedIndicator, LocalDate.parse(date).toDate());
-            } catch (Exception e) {
-                cachedANMs.clear(anm);
-                cachedIndicators.clear(fetchedIndicator);
-            }
+        try {
+            anmReportDataRepository.save(anm, externalId, fetchedIndicator, LocalDate.parse(date).toDate(), count);
+        } catch (RuntimeException e) {
+            cachedANMs.clear(anm);
+            cachedIndicators.clear(fetchedIndicator);
+            throw e;
+        } finally {
+            monitor.end(probeForInsert);
         }
-        monitor.end(probeForInsert);
     }
 
-    //Todo: Need to refactor
+    /**
+     * Saves a batch of ANM reports in one transaction.
+     */
     @Transactional("anm_report")
-    public List<ANMIndicatorSummary> fetchANMSummary(String anmIdentifier) {
-        List<ANMIndicatorSummary> anmIndicatorSummaries = new ArrayList<>();
-
-        List<ANMReportData> allReportData = anmReportDataRepository.fetchByANMIdAndDate(anmIdentifier, reportMonth.startDateOfReportingYear());
-
-        Collection<Indicator> indicators = getDistinctIndicators(allReportData);
-        for (Indicator indicator : indicators) {
-            List<ANMReportData> allReportDataForIndicator = filterReportsByIndicator(allReportData, indicator);
-            int aggregatedProgress = 0;
-            List<MonthSummary> monthSummaries = new ArrayList<>();
-
-            for (LocalDate indexDate = new LocalDate(reportMonth.startDateOfReportingYear()); indexDate.isBefore(reportMonth.startDateOfNextReportingMonth(today())); indexDate = indexDate.plusMonths(1)) {
-                LocalDate reportingMonthEndDate = new LocalDate(indexDate).plusMonths(1);
-                List<ANMReportData> allReportDataForAMonth = filterReportsByMonth(allReportDataForIndicator, indexDate, reportMonth.endDateOfReportingMonthGivenStartDate(indexDate));
-                if (allReportDataForAMonth.size() == 0) {
-                    continue;
-                }
+    public void save(List<ReportingData> reportingData) {
+        for (ReportingData data : reportingData) {
+            this.save(data.get(ANM_IDENTIFIER), data.get(EXTERNAL_ID), data.get(INDICATOR),
+                    data.get(SERVICE_PROVIDED_DATE), data.get(QUANTITY));
+        }
+    }
 
-                int currentProgress = allReportDataForAMonth.size();
-                aggregatedProgress += currentProgress;
-                List<String> externalIds = getAllExternalIds(allReportDataForAMonth);
+    @Transactional("anm_report")
+    public List<ANMIndicatorSummary> fetchANMSummary(String anmIdentifier) {
+        List<ANMReportDataSummary> reportDataSummaries = anmReportDataRepository.summarize(anmIdentifier, reportMonth.startDateOfReportingYear());
+        LocalDate lastReportMonth = reportMonth.startDateOfNextReportingMonth(today());
+
+        Map<Indicator, List<MonthSummary>> monthSummariesByIndicator = new LinkedHashMap<>();
+        int aggregatedProgress = 0;
+        for (int index = 0; index < reportDataSummaries.size(); ) {
+            ANMReportDataSummary first = reportDataSummaries.get(index);
+            Indicator indicator = first.indicator();
+            if (!monthSummariesByIndicator.containsKey(indicator)) {
+                monthSummariesByIndicator.put(indicator, new ArrayList<MonthSummary>());
+                aggregatedProgress = 0;
+            }
 
-                monthSummaries.add(new MonthSummary(valueOf(reportingMonthEndDate.getMonthOfYear()), valueOf(reportingMonthEndDate.getYear()),
-                        valueOf(currentProgress), valueOf(aggregatedProgress), externalIds));
+            int currentProgress = 0;
+            List<String> externalIds = new ArrayList<>();
+            for (; index < reportDataSummaries.size() && first.isOfSameMonthAndIndicatorAs(reportDataSummaries.get(index)); index++) {
+                currentProgress += reportDataSummaries.get(index).count();
+                externalIds.add(reportDataSummaries.get(index).externalId());
+            }
+            if (isAfter(first, lastReportMonth)) {
+                continue;
             }
-            AnnualTarget annualTarget = annualTargetsRepository.fetchFor(anmIdentifier, indicator, today().toDate());
+            aggregatedProgress += currentProgress;
+            monthSummariesByIndicator.get(indicator).add(new MonthSummary(valueOf(first.month()), valueOf(first.year()),
+                    valueOf(currentProgress), valueOf(aggregatedProgress), externalIds));
+        }
+
+        List<ANMIndicatorSummary> anmIndicatorSummaries = new ArrayList<>();
+        for (Map.Entry<Indicator, List<MonthSummary>> entry : monthSummariesByIndicator.entrySet()) {
+            AnnualTarget annualTarget = annualTargetsRepository.fetchFor(anmIdentifier, entry.getKey(), today().toDate());
             String target = annualTarget == null ? null : annualTarget.target();
-            anmIndicatorSummaries.add(new ANMIndicatorSummary(indicator.indicator(), target, monthSummaries));
+            anmIndicatorSummaries.add(new ANMIndicatorSummary(entry.getKey().indicator(), target, entry.getValue()));
         }
         return anmIndicatorSummaries;
     }
 
     @Transactional("anm_report")
-    public List<ANMReport> fetchAllANMsReport() {
-        List<ANM> allANMs = cachedANMs.fetchAll();
-        ArrayList<ANMReport> anmReports = new ArrayList<>();
-        for (ANM anm : allANMs) {
-            anmReports.add(new ANMReport(anm.anmIdentifier(), fetchANMSummary(anm.anmIdentifier())));
+    public List<String> fetchAllANMIdentifiers() {
+        List<String> anmIdentifiers = new ArrayList<>();
+        for (ANM anm : cachedANMs.fetchAll()) {
+            anmIdentifiers.add(anm.anmIdentifier());
         }
-        return anmReports;
-    }
-
-    private List<String> getAllExternalIds(List<ANMReportData> reportDataList) {
-        Collection<String> externalIds = selectDistinct(collect(reportDataList, on(ANMReportData.class).externalId()));
-        return new ArrayList<>(externalIds);
-    }
-
-    private Collection<Indicator> getDistinctIndicators(List<ANMReportData> reportDataList) {
-        return selectDistinct(collect(reportDataList, on(ANMReportData.class).indicator()));
-    }
-
-    private List<ANMReportData> filterReportsByMonth(List<ANMReportData> reportDataList, LocalDate startDate, LocalDate endDate) {
-        return filter(having(on(ANMReportData.class).date(), allOf(greaterThanOrEqualTo(startDate.toDate()), lessThanOrEqualTo(endDate.toDate()))), reportDataList);
+        return anmIdentifiers;
     }
 
-    private List<ANMReportData> filterReportsByIndicator(List<ANMReportData> reportDataList, Indicator indicator) {
-        return filter(having(on(ANMReportData.class).indicator(), equalTo(indicator)), reportDataList);
+    private boolean isAfter(ANMReportDataSummary summary, LocalDate lastReportMonth) {
+        return summary.year() > lastReportMonth.getYear()
+                || (summary.year() == lastReportMonth.getYear() && summary.month() > lastReportMonth.getMonthOfYear());
     }
 
     private int getCount(String quantity) {
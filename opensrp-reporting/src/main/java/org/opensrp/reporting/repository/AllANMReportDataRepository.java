@@ -1,32 +1,66 @@
 package org.opensrp.reporting.repository;
 
 import org.joda.time.LocalDate;
+import org.opensrp.common.domain.ReportMonth;
 import org.opensrp.reporting.domain.ANM;
 import org.opensrp.reporting.domain.ANMReportData;
+import org.opensrp.reporting.domain.ANMReportDataSummary;
+import org.opensrp.reporting.domain.ANMReportMonthlyRollup;
 import org.opensrp.reporting.domain.Indicator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
+import static org.opensrp.common.AllConstants.Report.REPORTING_MONTH_START_DAY;
 import static org.opensrp.reporting.domain.ANMReportData.*;
+import static org.opensrp.reporting.domain.ANMReportMonthlyRollup.FIND_BY_ANM_IDENTIFIER_FROM_REPORT_MONTH;
 
 @Repository
 public class AllANMReportDataRepository {
+    private static final String[] COLUMNS = {"anmIdentifier", "externalId", "indicator", "date_"};
+    private static final String DELETE_FOR_INDICATOR_FOR_MONTH = "delete from ANMReportData r where r.indicator.id in " +
+            "(select i.id from Indicator i where i.indicator = ?) and r.date >= ? and r.date < ?";
+    private static final String DELETE_FOR_EXTERNAL_ID = "delete from ANMReportData r where r.externalId = ?";
+    private static final String ADD_TO_ROLLUP = "update ANMReportMonthlyRollup r set r.count = r.count + ? " +
+            "where r.anm = ? and r.indicator = ? and r.externalId = ? and r.year = ? and r.month = ?";
+    private static final String DELETE_ROLLUP_FOR_INDICATOR_FOR_MONTHS = "delete from ANMReportMonthlyRollup r where r.indicator.id in " +
+            "(select i.id from Indicator i where i.indicator = ?) and (r.year * 12 + r.month) between ? and ?";
+    private static final String DELETE_ROLLUP_FOR_EXTERNAL_ID = "delete from ANMReportMonthlyRollup r where r.externalId = ?";
+    private static final String REPORT_MONTH_DATE = "(case when extract(day from r.date_) >= " + REPORTING_MONTH_START_DAY
+            + " then r.date_ + interval '1 month' else r.date_ end)";
+
     private DataAccessTemplate dataAccessTemplate;
+    private ReportMonth reportMonth;
 
     protected AllANMReportDataRepository() {
     }
 
     @Autowired
-    public AllANMReportDataRepository(@Qualifier("anmReportsDataAccessTemplate") DataAccessTemplate dataAccessTemplate) {
+    public AllANMReportDataRepository(@Qualifier("anmReportsDataAccessTemplate") DataAccessTemplate dataAccessTemplate,
+                                      ReportMonth reportMonth) {
         this.dataAccessTemplate = dataAccessTemplate;
+        this.reportMonth = reportMonth;
     }
 
     public void save(ANM anm, String externalId, Indicator indicator, Date date) {
         dataAccessTemplate.save(new ANMReportData(anm, externalId, indicator, date));
+        rollUp(anm, externalId, indicator, date, 1);
+    }
+
+    /**
+     * Saves quantity identical ANM reports with one batched insert.
+     */
+    public void save(ANM anm, String externalId, Indicator indicator, Date date, int quantity) {
+        List<Object[]> rows = new ArrayList<>(quantity);
+        for (int i = 0; i < quantity; i++) {
+            rows.add(new Object[]{anm.id(), externalId, indicator.id(), date});
+        }
+        dataAccessTemplate.batchInsert(ANMReportData.class, COLUMNS, rows);
+        rollUp(anm, externalId, indicator, date, quantity);
     }
 
     public List<ANMReportData> fetchByANMIdAndDate(String anmIdentifier, Date date) {
@@ -35,10 +69,43 @@ public class AllANMReportDataRepository {
 
     }
 
+    /**
+     * Counts the reports of an ANM in or after the report month of the given date by indicator, report month and
+     * external id, ordered by indicator and report month. A report month runs from the start day of the report month
+     * up to the day before it in the next month, and is named after the month it ends in.
+     */
+    public List<ANMReportDataSummary> summarize(String anmIdentifier, Date date) {
+        List<ANMReportMonthlyRollup> rollups = (List<ANMReportMonthlyRollup>) dataAccessTemplate.findByNamedQuery(
+                FIND_BY_ANM_IDENTIFIER_FROM_REPORT_MONTH, new Object[]{anmIdentifier, reportMonthIndex(new LocalDate(date))});
+        List<ANMReportDataSummary> summaries = new ArrayList<>();
+        for (ANMReportMonthlyRollup rollup : rollups) {
+            summaries.add(rollup.summary());
+        }
+        return summaries;
+    }
+
+    /**
+     * Deletes the reports of an indicator from the start date up to, but not including, the end date. The rollups of
+     * the report months around those dates are rebuilt from the reports that are left.
+     */
     public void delete(String indicator, String startDate, String endDate) {
-        List result = dataAccessTemplate.findByNamedQuery(FIND_BY_ANM_IDENTIFIER_WITH_INDICATOR_FOR_MONTH,
+        dataAccessTemplate.lockUntilEndOfTransaction(rollupLockFor(indicator));
+        dataAccessTemplate.bulkUpdate(DELETE_FOR_INDICATOR_FOR_MONTH,
                 new Object[]{indicator, LocalDate.parse(startDate).toDate(), LocalDate.parse(endDate).toDate()});
-        dataAccessTemplate.deleteAll(result);
+
+        LocalDate firstReportMonth = reportMonth.startOfCurrentReportMonth(LocalDate.parse(startDate));
+        LocalDate lastReportMonth = reportMonth.startOfCurrentReportMonth(LocalDate.parse(endDate).minusDays(1));
+        dataAccessTemplate.bulkUpdate(DELETE_ROLLUP_FOR_INDICATOR_FOR_MONTHS,
+                new Object[]{indicator, reportMonthIndex(firstReportMonth), reportMonthIndex(lastReportMonth)});
+        dataAccessTemplate.executeSQLUpdate("insert into " + dataAccessTemplate.tableNameOf(ANMReportMonthlyRollup.class)
+                        + " (anmIdentifier, indicator, externalId, year_, month_, count_)"
+                        + " select r.anmIdentifier, r.indicator, r.externalId, extract(year from " + REPORT_MONTH_DATE + "),"
+                        + " extract(month from " + REPORT_MONTH_DATE + "), count(*)"
+                        + " from " + dataAccessTemplate.tableNameOf(ANMReportData.class) + " r"
+                        + " join " + dataAccessTemplate.tableNameOf(Indicator.class) + " i on r.indicator = i.id"
+                        + " where i.indicator = ? and r.date_ >= ? and r.date_ < ?"
+                        + " group by 1, 2, 3, 4, 5",
+                indicator, firstReportMonth.toDate(), reportMonth.startDateOfNextReportingMonth(lastReportMonth).toDate());
     }
 
     public List getReportsFor(String anmId, String startDate, String endDate) {
@@ -51,6 +118,35 @@ public class AllANMReportDataRepository {
     }
 
     public void deleteReportsForExternalId(String externalId) {
-        dataAccessTemplate.deleteAll(getReportsForExternalId(externalId));
+        dataAccessTemplate.bulkUpdate(DELETE_FOR_EXTERNAL_ID, externalId);
+        dataAccessTemplate.bulkUpdate(DELETE_ROLLUP_FOR_EXTERNAL_ID, externalId);
+    }
+
+    // Saves of the same rollup row are serialized with a lock, else two of them can both miss the row and both insert
+    // it. Saves also share a lock on the indicator, which a delete takes exclusively while it rebuilds the rollups of
+    // that indicator. The row is inserted with SQL so that no stale rollup entity is left in the session after later
+    // bulk updates.
+    private void rollUp(ANM anm, String externalId, Indicator indicator, Date date, int quantity) {
+        LocalDate reportDate = new LocalDate(date);
+        int year = reportMonth.reportingYear(reportDate);
+        int month = reportMonth.reportingMonth(reportDate);
+        dataAccessTemplate.lockSharedUntilEndOfTransaction(rollupLockFor(indicator.indicator()));
+        dataAccessTemplate.lockUntilEndOfTransaction("anm_report_monthly_rollup/" + anm.id() + "/" + indicator.id() + "/"
+                + year + "/" + month + "/" + externalId);
+        int updatedRollups = dataAccessTemplate.bulkUpdate(ADD_TO_ROLLUP,
+                new Object[]{quantity, anm, indicator, externalId, year, month});
+        if (updatedRollups == 0) {
+            dataAccessTemplate.executeSQLUpdate("insert into " + dataAccessTemplate.tableNameOf(ANMReportMonthlyRollup.class)
+                            + " (anmIdentifier, indicator, externalId, year_, month_, count_) values (?, ?, ?, ?, ?, ?)",
+                    anm.id(), indicator.id(), externalId, year, month, quantity);
+        }
+    }
+
+    private String rollupLockFor(String indicator) {
+        return "anm_report_monthly_rollup/indicator/" + indicator;
+    }
+
+    private int reportMonthIndex(LocalDate date) {
+        return reportMonth.reportingYear(date) * 12 + reportMonth.reportingMonth(date);
     }
 }
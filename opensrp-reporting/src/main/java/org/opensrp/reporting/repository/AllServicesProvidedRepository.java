@@ -7,15 +7,24 @@ import org.opensrp.reporting.domain.Location;
 import org.opensrp.reporting.domain.ServiceProvided;
 import org.opensrp.reporting.domain.ServiceProvidedReport;
 import org.opensrp.reporting.domain.ServiceProvider;
+import org.opensrp.reporting.domain.ReportDimension;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Repository
 public class  AllServicesProvidedRepository {
+    private static final String[] COLUMNS = {"service_provider", "externalId", "indicator", "date_", "location", "dristhi_entity_id"};
+    private static final String DELETE_FOR_INDICATOR_FOR_MONTH = "delete from ServiceProvided r where r.indicator.id in " +
+            "(select i.id from Indicator i where i.indicator = ?) and r.date >= ? and r.date < ?";
+    private static final String DELETE_FOR_DRISTHI_ENTITY_ID = "delete from ServiceProvided r where r.dristhiEntityId = ?";
+
     private DataAccessTemplate dataAccessTemplate;
 
     protected AllServicesProvidedRepository() {
@@ -30,10 +39,23 @@ public class  AllServicesProvidedRepository {
         dataAccessTemplate.save(new ServiceProvided(serviceProvider, externalId, indicator, date, location, dristhiEntityId));
     }
 
+    /**
+     * Saves quantity identical services provided with one batched insert.
+     */
+    public void save(ServiceProvider serviceProvider, String externalId, Indicator indicator, Date date, Location location,
+                     String dristhiEntityId, int quantity) {
+        Integer serviceProviderId = serviceProvider == null ? null : serviceProvider.id();
+        Integer locationId = location == null ? null : location.id();
+        List<Object[]> rows = new ArrayList<>(quantity);
+        for (int i = 0; i < quantity; i++) {
+            rows.add(new Object[]{serviceProviderId, externalId, indicator.id(), date, locationId, dristhiEntityId});
+        }
+        dataAccessTemplate.batchInsert(ServiceProvided.class, COLUMNS, rows);
+    }
+
     public void delete(String indicator, String startDate, String endDate) {
-        List result = dataAccessTemplate.findByNamedQuery(ServiceProvided.FIND_BY_ANM_IDENTIFIER_WITH_INDICATOR_FOR_MONTH,
-                indicator, LocalDate.parse(startDate).toDate(), LocalDate.parse(endDate).toDate());
-        dataAccessTemplate.deleteAll(result);
+        dataAccessTemplate.bulkUpdate(DELETE_FOR_INDICATOR_FOR_MONTH,
+                new Object[]{indicator, LocalDate.parse(startDate).toDate(), LocalDate.parse(endDate).toDate()});
     }
 
     public List<ServiceProvidedReport> getNewReports(Integer token) {
@@ -54,7 +76,24 @@ public class  AllServicesProvidedRepository {
 
     }
 
+    public Map<String, Integer> countByIndicator(ReportDimension dimension, String value, Date startDate, Date endDate) {
+        List<Object[]> counts = dataAccessTemplate.find(String.format(
+                "select r.indicator, count(r.id) from ServiceProvidedReport r " +
+                        "where r.%s = ? and r.date >= ? and r.date <= ? group by r.indicator order by r.indicator",
+                dimension.property()), value, startDate, endDate);
+        Map<String, Integer> countByIndicator = new LinkedHashMap<>();
+        for (Object[] count : counts) {
+            countByIndicator.put((String) count[0], ((Number) count[1]).intValue());
+        }
+        return countByIndicator;
+    }
+
+    public Integer getLatestReportId() {
+        List<Integer> latestId = dataAccessTemplate.findByNamedQuery(ServiceProvidedReport.FIND_LATEST_SERVICE_PROVIDED_ID);
+        return latestId.isEmpty() || latestId.get(0) == null ? 0 : latestId.get(0);
+    }
+
     public void deleteReportsFor(String dristhiEntityId) {
-        dataAccessTemplate.deleteAll(getAllReportsForDristhiEntityID(dristhiEntityId));
+        dataAccessTemplate.bulkUpdate(DELETE_FOR_DRISTHI_ENTITY_ID, dristhiEntityId);
     }
 }
@@ -6,6 +6,7 @@ import org.opensrp.reporting.domain.Token;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public class AllTokensRepository {
@@ -13,12 +14,16 @@ public class AllTokensRepository {
     private static final String AGGREGATE_REPORTS_TOKEN_NAME = "aggregate-reports-token";
     private DataAccessTemplate dataAccessTemplate;
 
+    protected AllTokensRepository() {
+    }
+
     @Autowired
     public AllTokensRepository(@Qualifier("serviceProvidedDataAccessTemplate")
                                DataAccessTemplate dataAccessTemplate) {
         this.dataAccessTemplate = dataAccessTemplate;
     }
 
+    @Transactional("service_provided")
     public Integer getAggregateReportsToken() {
         Token token = (Token) dataAccessTemplate
                 .getUniqueResult(Token.FIND_TOKEN_BY_NAME,
@@ -27,6 +32,7 @@ public class AllTokensRepository {
         return token == null ? 0 : IntegerUtil.tryParse(token.value(), 0);
     }
 
+    @Transactional("service_provided")
     public void saveAggregateReportsToken(Integer newToken) {
         Token token = (Token) dataAccessTemplate
                 .getUniqueResult(Token.FIND_TOKEN_BY_NAME,
@@ -1,12 +1,28 @@
 package org.opensrp.reporting.repository;
 
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.SQLQuery;
 import org.hibernate.SessionFactory;
+import org.hibernate.jdbc.Work;
+import org.hibernate.persister.entity.AbstractEntityPersister;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Scope;
 import org.springframework.dao.support.DataAccessUtils;
+import org.springframework.orm.hibernate3.HibernateCallback;
 import org.springframework.orm.hibernate3.HibernateTemplate;
 import org.springframework.stereotype.Component;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Date;
+import java.util.List;
+
+import static org.apache.commons.lang3.StringUtils.join;
+import static org.apache.commons.lang3.StringUtils.repeat;
+
 @Component
 @Scope(value = "prototype")
 public class DataAccessTemplate extends HibernateTemplate {
@@ -19,4 +35,95 @@ public class DataAccessTemplate extends HibernateTemplate {
     public Object getUniqueResult(String namedQueryName, String[] parameterNames, Object[] parameterValues) {
         return DataAccessUtils.uniqueResult(findByNamedQueryAndNamedParam(namedQueryName, parameterNames, parameterValues));
     }
+
+    /**
+     * Inserts rows into the table of the given entity with one JDBC batch, on the connection of the current session.
+     * Entities with database generated ids are inserted one statement at a time by Hibernate, this does not.
+     */
+    public void batchInsert(Class<?> entityClass, String[] columns, final List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        final String sql = "insert into " + tableNameOf(entityClass) + " (" + join(columns, ", ") + ") values ("
+                + repeat("?", ", ", columns.length) + ")";
+        execute(new HibernateCallback<Void>() {
+            @Override
+            public Void doInHibernate(Session session) throws HibernateException {
+                session.flush();
+                session.doWork(new Work() {
+                    @Override
+                    public void execute(Connection connection) throws SQLException {
+                        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                            for (Object[] row : rows) {
+                                for (int i = 0; i < row.length; i++) {
+                                    if (row[i] == null) {
+                                        statement.setNull(i + 1, Types.NULL);
+                                    } else {
+                                        statement.setObject(i + 1, row[i] instanceof Date
+                                                ? new java.sql.Date(((Date) row[i]).getTime())
+                                                : row[i]);
+                                    }
+                                }
+                                statement.addBatch();
+                            }
+                            statement.executeBatch();
+                        }
+                    }
+                });
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Runs a native SQL statement with positional parameters after flushing pending changes, and returns the number of
+     * rows it changed.
+     */
+    public int executeSQLUpdate(final String sql, final Object... parameters) {
+        return execute(new HibernateCallback<Integer>() {
+            @Override
+            public Integer doInHibernate(Session session) throws HibernateException {
+                session.flush();
+                SQLQuery query = session.createSQLQuery(sql);
+                for (int i = 0; i < parameters.length; i++) {
+                    query.setParameter(i, parameters[i]);
+                }
+                return query.executeUpdate();
+            }
+        });
+    }
+
+    /**
+     * Takes a transaction level advisory lock on the key, so that transactions writing under the same key take turns.
+     */
+    public void lockUntilEndOfTransaction(String key) {
+        advisoryLock("pg_advisory_xact_lock", key);
+    }
+
+    /**
+     * Takes a shared transaction level advisory lock on the key, so that transactions holding it run alongside each
+     * other but not alongside one that holds the lock on the key exclusively.
+     */
+    public void lockSharedUntilEndOfTransaction(String key) {
+        advisoryLock("pg_advisory_xact_lock_shared", key);
+    }
+
+    private void advisoryLock(final String lockFunction, final String key) {
+        execute(new HibernateCallback<Void>() {
+            @Override
+            public Void doInHibernate(Session session) throws HibernateException {
+                session.createSQLQuery("select 1 from (select " + lockFunction + "(hashtext(?))) advisory_lock")
+                        .setParameter(0, key)
+                        .uniqueResult();
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Table of the given entity, qualified with the default schema of the session factory.
+     */
+    public String tableNameOf(Class<?> entityClass) {
+        return ((AbstractEntityPersister) getSessionFactory().getClassMetadata(entityClass)).getTableName();
+    }
 }
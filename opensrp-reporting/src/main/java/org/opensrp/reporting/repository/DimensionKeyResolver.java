@@ -0,0 +1,61 @@
+package org.opensrp.reporting.repository;
+
+import org.opensrp.reporting.domain.Location;
+import org.opensrp.reporting.domain.ServiceProvider;
+import org.opensrp.reporting.domain.ServiceProviderType;
+import org.opensrp.reporting.repository.cache.ReferenceDataCache;
+import org.opensrp.reporting.repository.cache.ReferenceDataCacheSettings;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+import static java.util.Arrays.asList;
+
+/**
+ * Resolves the location and service provider rows a service provided report refers to, remembering them once found
+ * so that report writes do not query these dimensions again. Rows that are not found are not remembered, so that
+ * they are picked up as soon as they are added.
+ */
+@Component
+public class DimensionKeyResolver {
+    private AllLocationsRepository locationRepository;
+    private AllServiceProvidersRepository serviceProvidersRepository;
+    private ReferenceDataCache<List<String>, Location> locations;
+    private ReferenceDataCache<List<String>, ServiceProvider> serviceProviders;
+
+    @Autowired
+    public DimensionKeyResolver(AllLocationsRepository locationRepository, AllServiceProvidersRepository serviceProvidersRepository,
+                                ReferenceDataCacheSettings cacheSettings) {
+        this.locationRepository = locationRepository;
+        this.serviceProvidersRepository = serviceProvidersRepository;
+        locations = new ReferenceDataCache<>("locations", cacheSettings.locations());
+        serviceProviders = new ReferenceDataCache<>("service providers", cacheSettings.serviceProviders());
+    }
+
+    public Location location(String village, String subCenter, String phcIdentifier) {
+        return locations.get(asList(village, subCenter, phcIdentifier), new ReferenceDataCache.Loader<List<String>, Location>() {
+            @Override
+            public Location load(List<String> key) {
+                return locationRepository.fetchBy(key.get(0), key.get(1), key.get(2));
+            }
+        });
+    }
+
+    public ServiceProvider serviceProvider(String serviceProviderIdentifier, final ServiceProviderType type) {
+        return serviceProviders.get(asList(serviceProviderIdentifier, type.type()), new ReferenceDataCache.Loader<List<String>, ServiceProvider>() {
+            @Override
+            public ServiceProvider load(List<String> key) {
+                return serviceProvidersRepository.fetchBy(key.get(0), type);
+            }
+        });
+    }
+
+    public void forgetLocation(String village, String subCenter, String phcIdentifier) {
+        locations.invalidate(asList(village, subCenter, phcIdentifier));
+    }
+
+    public void forgetServiceProvider(String serviceProviderIdentifier, ServiceProviderType type) {
+        serviceProviders.invalidate(asList(serviceProviderIdentifier, type.type()));
+    }
+}
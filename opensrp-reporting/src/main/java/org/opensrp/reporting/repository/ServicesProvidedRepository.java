@@ -9,11 +9,13 @@ import org.opensrp.common.monitor.Probe;
 import org.joda.time.LocalDate;
 import org.opensrp.reporting.domain.Indicator;
 import org.opensrp.reporting.domain.Location;
+import org.opensrp.reporting.domain.ReportDimension;
 import org.opensrp.reporting.domain.ServiceProvidedReport;
 import org.opensrp.reporting.domain.ServiceProvider;
 
 import org.opensrp.reporting.repository.cache.IndicatorCacheableRepository;
 import org.opensrp.reporting.repository.cache.ReadOnlyCachingRepository;
+import org.opensrp.reporting.repository.cache.ReferenceDataCacheSettings;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Repository;
@@ -21,32 +23,31 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import static org.opensrp.reporting.domain.ServiceProviderType.parse;
 import static org.opensrp.common.monitor.Metric.REPORTING_SERVICE_PROVIDED_CACHE_TIME;
 import static org.opensrp.common.monitor.Metric.REPORTING_SERVICE_PROVIDED_INSERT_TIME;
 
 @Repository
 public class ServicesProvidedRepository {
-    private AllServiceProvidersRepository serviceProvidersRepository;
+    private DimensionKeyResolver dimensionKeyResolver;
     private AllServicesProvidedRepository servicesProvidedRepository;
     private Monitor monitor;
 
     private ReadOnlyCachingRepository<Indicator> cachedIndicators;
-    private AllLocationsRepository locationRepository;
 
     protected ServicesProvidedRepository() {
     }
 
     @Autowired
     public ServicesProvidedRepository(@Qualifier("serviceProvidedIndicatorRepository") IndicatorCacheableRepository indicatorRepository,
-                                      AllLocationsRepository locationRepository,
-                                      AllServiceProvidersRepository serviceProvidersRepository,
-                                      AllServicesProvidedRepository servicesProvidedRepository, Monitor monitor) {
-        this.serviceProvidersRepository = serviceProvidersRepository;
+                                      DimensionKeyResolver dimensionKeyResolver,
+                                      AllServicesProvidedRepository servicesProvidedRepository, Monitor monitor,
+                                      ReferenceDataCacheSettings cacheSettings) {
+        this.dimensionKeyResolver = dimensionKeyResolver;
         this.servicesProvidedRepository = servicesProvidedRepository;
         this.monitor = monitor;
-        cachedIndicators = new ReadOnlyCachingRepository<>(indicatorRepository);
-        this.locationRepository = locationRepository;
+        cachedIndicators = new ReadOnlyCachingRepository<>(indicatorRepository, cacheSettings.indicators());
     }
 
     @Transactional("service_provided")
@@ -55,20 +56,42 @@ public class ServicesProvidedRepository {
         Probe probeForCache = monitor.start(REPORTING_SERVICE_PROVIDED_CACHE_TIME);
         Indicator fetchedIndicator = cachedIndicators.fetch(new Indicator(indicator));
         Date dates = LocalDate.parse(date).toDate();
-        Location location = locationRepository.fetchBy(village, subCenter, phcIdentifier);
-        ServiceProvider serviceProvider = serviceProvidersRepository.fetchBy(serviceProviderIdentifier, parse(serviceProviderType));
+        Location location = dimensionKeyResolver.location(village, subCenter, phcIdentifier);
+        ServiceProvider serviceProvider = dimensionKeyResolver.serviceProvider(serviceProviderIdentifier, parse(serviceProviderType));
         monitor.end(probeForCache);
 
         int count = getCount(quantity);
         Probe probeForInsert = monitor.start(REPORTING_SERVICE_PROVIDED_INSERT_TIME);
-        for (int i = 0; i < count; i++) {
-            try {
-                servicesProvidedRepository.save(serviceProvider, externalId, fetchedIndicator, dates, location, dristhiEntityId);
-            } catch (Exception e) {
-                cachedIndicators.clear(fetchedIndicator);
-            }
+        try {
+            servicesProvidedRepository.save(serviceProvider, externalId, fetchedIndicator, dates, location, dristhiEntityId, count);
+        } catch (RuntimeException e) {
+            cachedIndicators.clear(fetchedIndicator);
+            dimensionKeyResolver.forgetLocation(village, subCenter, phcIdentifier);
+            dimensionKeyResolver.forgetServiceProvider(serviceProviderIdentifier, parse(serviceProviderType));
+            throw e;
+        } finally {
+            monitor.end(probeForInsert);
+        }
+    }
+
+    /**
+     * Saves a batch of service provided reports in one transaction.
+     */
+    @Transactional("service_provided")
+    public void save(List<ReportingData> reportingData) {
+        for (ReportingData data : reportingData) {
+            this.save(data.get(AllConstants.ReportDataParameters.ANM_IDENTIFIER),
+                    data.get(AllConstants.ReportDataParameters.SERVICE_PROVIDER_TYPE),
+                    data.get(AllConstants.ReportDataParameters.EXTERNAL_ID),
+                    data.get(AllConstants.ReportDataParameters.INDICATOR),
+                    data.get(AllConstants.ReportDataParameters.SERVICE_PROVIDED_DATE),
+                    data.get(AllConstants.ReportDataParameters.VILLAGE),
+                    data.get(AllConstants.ReportDataParameters.SUB_CENTER),
+                    data.get(AllConstants.ReportDataParameters.PHC),
+                    data.get(AllConstants.ReportDataParameters.QUANTITY),
+                    data.get(AllConstants.ReportDataParameters.DRISTHI_ENTITY_ID)
+            );
         }
-        monitor.end(probeForInsert);
     }
 
     @Transactional("service_provided")
@@ -107,6 +130,16 @@ public class ServicesProvidedRepository {
        return servicesProvidedRepository.getNewReports(token, numberOfRowsToFetch);
     }
 
+    @Transactional("service_provided")
+    public Map<String, Integer> countByIndicator(ReportDimension dimension, String value, LocalDate startDate, LocalDate endDate) {
+        return servicesProvidedRepository.countByIndicator(dimension, value, startDate.toDate(), endDate.toDate());
+    }
+
+    @Transactional("service_provided")
+    public Integer getLatestReportId() {
+        return servicesProvidedRepository.getLatestReportId();
+    }
+
     @Transactional("service_provided")
     public void delete(ReportDataDeleteRequest request) {
         servicesProvidedRepository.deleteReportsFor(request.dristhiEntityId());
@@ -0,0 +1,33 @@
+package org.opensrp.reporting.repository.cache;
+
+/**
+ * Limits of one reference data cache. A time to live of zero keeps entries until they are evicted for size, and a
+ * refresh ahead of zero reloads entries only after they expire.
+ */
+public class CacheSettings {
+    private final int maximumSize;
+    private final long timeToLiveInMillis;
+    private final long refreshAheadInMillis;
+
+    public CacheSettings(int maximumSize, long timeToLiveInMillis, long refreshAheadInMillis) {
+        this.maximumSize = maximumSize;
+        this.timeToLiveInMillis = timeToLiveInMillis;
+        this.refreshAheadInMillis = Math.min(refreshAheadInMillis, timeToLiveInMillis);
+    }
+
+    public int maximumSize() {
+        return maximumSize;
+    }
+
+    public long timeToLiveInMillis() {
+        return timeToLiveInMillis;
+    }
+
+    public long refreshAheadInMillis() {
+        return refreshAheadInMillis;
+    }
+
+    public boolean expires() {
+        return timeToLiveInMillis > 0;
+    }
+}
@@ -0,0 +1,49 @@
+package org.opensrp.reporting.repository.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.text.MessageFormat.format;
+
+class CacheStatistics {
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+
+    void recordHit() {
+        hits.incrementAndGet();
+    }
+
+    void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+    void recordEviction() {
+        evictions.incrementAndGet();
+    }
+
+    void recordRefresh() {
+        refreshes.incrementAndGet();
+    }
+
+    long hits() {
+        return hits.get();
+    }
+
+    long misses() {
+        return misses.get();
+    }
+
+    long evictions() {
+        return evictions.get();
+    }
+
+    long refreshes() {
+        return refreshes.get();
+    }
+
+    @Override
+    public String toString() {
+        return format("hits: {0}, misses: {1}, evictions: {2}, refreshes: {3}", hits(), misses(), evictions(), refreshes());
+    }
+}
@@ -1,52 +1,33 @@
 package org.opensrp.reporting.repository.cache;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.locks.ReentrantLock;
 
 public class CachingRepository<T> {
     private CacheableRepository<T> cacheableRepository;
-    private Map<T, T> cache;
-    private static ReentrantLock lock = new ReentrantLock();
+    private ReferenceDataCache<T, T> cache;
 
-    public CachingRepository(CacheableRepository<T> cacheableRepository) {
+    public CachingRepository(CacheableRepository<T> cacheableRepository, CacheSettings settings) {
         this.cacheableRepository = cacheableRepository;
-        cache = new HashMap<>();
+        cache = new ReferenceDataCache<>(cacheableRepository.getClass().getSimpleName(), settings);
     }
 
     public T fetch(T object) {
-        if (cache.containsKey(object)) {
-            return cache.get(object);
-        }
-
-        saveToCache(object);
-        return cache.get(object);
+        return cache.get(object, new ReferenceDataCache.Loader<T, T>() {
+            @Override
+            public T load(T key) {
+                T objectInDB = cacheableRepository.fetch(key);
+                if (objectInDB == null) {
+                    cacheableRepository.save(key);
+                    cacheableRepository.flush();
+                    objectInDB = cacheableRepository.fetch(key);
+                }
+                return objectInDB;
+            }
+        });
     }
 
     public void clear(T object) {
-        if (cache.containsKey(object)) {
-            cache.remove(object);
-        }
-    }
-
-    private void saveToCache(T object) {
-        lock.lock();
-        try {
-            if (cache.containsKey(object)) {
-                return;
-            }
-
-            T objectInDB = cacheableRepository.fetch(object);
-            if (objectInDB == null) {
-                cacheableRepository.save(object);
-                cacheableRepository.flush();
-                objectInDB = cacheableRepository.fetch(object);
-            }
-            cache.put(object, objectInDB);
-        } finally {
-            lock.unlock();
-        }
+        cache.invalidate(object);
     }
 
     public List<T> fetchAll() {
@@ -1,50 +1,27 @@
 package org.opensrp.reporting.repository.cache;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.locks.ReentrantLock;
 
 public class ReadOnlyCachingRepository<T> {
     private ReadOnlyCacheableRepository<T> cacheableRepository;
-    private Map<T, T> cache;
-    private static ReentrantLock lock = new ReentrantLock();
+    private ReferenceDataCache<T, T> cache;
 
-    public ReadOnlyCachingRepository(ReadOnlyCacheableRepository<T> cacheableRepository) {
+    public ReadOnlyCachingRepository(ReadOnlyCacheableRepository<T> cacheableRepository, CacheSettings settings) {
         this.cacheableRepository = cacheableRepository;
-        cache = new HashMap<>();
+        cache = new ReferenceDataCache<>(cacheableRepository.getClass().getSimpleName(), settings);
     }
 
     public T fetch(T object) {
-        if (cache.containsKey(object)) {
-            return cache.get(object);
-        }
-
-        return writeToCache(object);
-    }
-
-    public void clear(T object){
-        if (cache.containsKey(object)) {
-            cache.remove(object);
-        }
-    }
-
-    private T writeToCache(T object) {
-        lock.lock();
-        try {
-            if (cache.containsKey(object)) {
-                return cache.get(object);
+        return cache.get(object, new ReferenceDataCache.Loader<T, T>() {
+            @Override
+            public T load(T key) {
+                return cacheableRepository.fetch(key);
             }
+        });
+    }
 
-            T objectInDB = cacheableRepository.fetch(object);
-            if (objectInDB == null) {
-                return null;
-            }
-            cache.put(object, objectInDB);
-        } finally {
-            lock.unlock();
-        }
-        return cache.get(object);
+    public void clear(T object) {
+        cache.invalidate(object);
     }
 
     public List<T> fetchAll() {
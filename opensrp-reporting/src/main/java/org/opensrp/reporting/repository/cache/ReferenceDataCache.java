@@ -0,0 +1,189 @@
+package org.opensrp.reporting.repository.cache;
+
+import org.opensrp.common.util.DateUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.text.MessageFormat.format;
+
+/**
+ * Concurrent cache of reference data rows, keyed by a partially filled row or by the values that identify one.
+ * Entries are kept in access ordered maps, one per stripe of keys, so a read locks only the map of its stripe and a
+ * miss is loaded under a separate stripe lock, once, while other keys are served. Entries expire after the time to
+ * live, and an entry read within the refresh ahead window before that is reloaded by the one reader that claims it,
+ * while other readers keep getting the current value. A stripe that grows past its share of the maximum size evicts
+ * its least recently read entry. Hits, misses, evictions and refreshes are logged every few minutes while the cache is
+ * read.
+ */
+public class ReferenceDataCache<K, V> {
+    private static Logger logger = LoggerFactory.getLogger(ReferenceDataCache.class.toString());
+    private static final int LOCK_STRIPES = 32;
+    private static final int MINIMUM_ENTRIES_PER_STRIPE = 64;
+    private static final long STATISTICS_LOG_INTERVAL_IN_MILLIS = 10 * 60 * 1000L;
+
+    public interface Loader<K, V> {
+        V load(K key);
+    }
+
+    private final String name;
+    private final CacheSettings settings;
+    private final Stripe<K, V>[] stripes;
+    private final Object[] loadLocks = new Object[LOCK_STRIPES];
+    private final CacheStatistics statistics = new CacheStatistics();
+    private final AtomicLong statisticsLoggedAt = new AtomicLong(DateUtil.millis());
+
+    @SuppressWarnings("unchecked")
+    public ReferenceDataCache(String name, CacheSettings settings) {
+        this.name = name;
+        this.settings = settings;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            loadLocks[i] = new Object();
+        }
+        int stripeCount = Math.max(1, Math.min(LOCK_STRIPES, settings.maximumSize() / MINIMUM_ENTRIES_PER_STRIPE));
+        int stripeMaximumSize = (settings.maximumSize() + stripeCount - 1) / stripeCount;
+        stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe<>(stripeMaximumSize, statistics);
+        }
+    }
+
+    public V get(K key, Loader<K, V> loader) {
+        long now = DateUtil.millis();
+        logStatisticsIfDue(now);
+        Stripe<K, V> stripe = stripeFor(key);
+        Entry<V> entry = stripe.read(key);
+        if (entry != null && !entry.isExpired(now)) {
+            statistics.recordHit();
+            if (entry.isDueForRefresh(now) && entry.refreshing.compareAndSet(false, true)) {
+                refresh(key, entry, loader, now);
+            }
+            return entry.value;
+        }
+
+        statistics.recordMiss();
+        synchronized (loadLockFor(key)) {
+            entry = stripe.read(key);
+            if (entry != null && !entry.isExpired(now)) {
+                return entry.value;
+            }
+            V value = loader.load(key);
+            if (value == null) {
+                stripe.remove(key);
+                return null;
+            }
+            stripe.write(key, new Entry<>(value, now, settings));
+            return value;
+        }
+    }
+
+    public void invalidate(K key) {
+        stripeFor(key).remove(key);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe<K, V> stripe : stripes) {
+            size += stripe.count();
+        }
+        return size;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    CacheStatistics statistics() {
+        return statistics;
+    }
+
+    private void logStatisticsIfDue(long now) {
+        long loggedAt = statisticsLoggedAt.get();
+        if (now - loggedAt >= STATISTICS_LOG_INTERVAL_IN_MILLIS && statisticsLoggedAt.compareAndSet(loggedAt, now)) {
+            logger.info(format("{0} cache size: {1}, {2}", name, size(), statistics));
+        }
+    }
+
+    private void refresh(K key, Entry<V> entry, Loader<K, V> loader, long now) {
+        try {
+            statistics.recordRefresh();
+            V value = loader.load(key);
+            if (value == null) {
+                stripeFor(key).remove(key);
+            } else {
+                stripeFor(key).write(key, new Entry<>(value, now, settings));
+            }
+        } catch (RuntimeException e) {
+            entry.refreshing.set(false);
+            logger.warn(format("Could not refresh {0} cache entry {1}, keeping the current one. Message: {2}", name, key, e.getMessage()));
+        }
+    }
+
+    private Stripe<K, V> stripeFor(K key) {
+        return stripes[(key.hashCode() & Integer.MAX_VALUE) % stripes.length];
+    }
+
+    private Object loadLockFor(K key) {
+        return loadLocks[(key.hashCode() & Integer.MAX_VALUE) % LOCK_STRIPES];
+    }
+
+    private static class Stripe<K, V> {
+        private final LinkedHashMap<K, Entry<V>> entries;
+
+        private Stripe(final int maximumSize, final CacheStatistics statistics) {
+            entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                    if (size() <= maximumSize) {
+                        return false;
+                    }
+                    statistics.recordEviction();
+                    return true;
+                }
+            };
+        }
+
+        private synchronized Entry<V> read(K key) {
+            return entries.get(key);
+        }
+
+        private synchronized void write(K key, Entry<V> entry) {
+            entries.put(key, entry);
+        }
+
+        private synchronized void remove(K key) {
+            entries.remove(key);
+        }
+
+        private synchronized int count() {
+            return entries.size();
+        }
+    }
+
+    private static class Entry<T> {
+        private final T value;
+        private final long expiryTime;
+        private final long refreshTime;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        private Entry(T value, long loadTime, CacheSettings settings) {
+            this.value = value;
+            this.expiryTime = settings.expires() ? loadTime + settings.timeToLiveInMillis() : Long.MAX_VALUE;
+            this.refreshTime = settings.expires() && settings.refreshAheadInMillis() > 0
+                    ? expiryTime - settings.refreshAheadInMillis()
+                    : Long.MAX_VALUE;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expiryTime;
+        }
+
+        private boolean isDueForRefresh(long now) {
+            return now >= refreshTime;
+        }
+    }
+}
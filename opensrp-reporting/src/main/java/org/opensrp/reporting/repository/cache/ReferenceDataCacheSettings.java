@@ -0,0 +1,46 @@
+package org.opensrp.reporting.repository.cache;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ReferenceDataCacheSettings {
+    private int indicatorsMaximumSize;
+    private int anmsMaximumSize;
+    private int locationsMaximumSize;
+    private int serviceProvidersMaximumSize;
+    private long timeToLiveInMillis;
+    private long refreshAheadInMillis;
+
+    @Autowired
+    public ReferenceDataCacheSettings(@Value("#{opensrp['reporting.cache.indicators.maximum.size']}") int indicatorsMaximumSize,
+                                      @Value("#{opensrp['reporting.cache.anms.maximum.size']}") int anmsMaximumSize,
+                                      @Value("#{opensrp['reporting.cache.locations.maximum.size']}") int locationsMaximumSize,
+                                      @Value("#{opensrp['reporting.cache.service.providers.maximum.size']}") int serviceProvidersMaximumSize,
+                                      @Value("#{opensrp['reporting.cache.time.to.live.in.seconds']}") int timeToLiveInSeconds,
+                                      @Value("#{opensrp['reporting.cache.refresh.ahead.in.seconds']}") int refreshAheadInSeconds) {
+        this.indicatorsMaximumSize = indicatorsMaximumSize;
+        this.anmsMaximumSize = anmsMaximumSize;
+        this.locationsMaximumSize = locationsMaximumSize;
+        this.serviceProvidersMaximumSize = serviceProvidersMaximumSize;
+        this.timeToLiveInMillis = timeToLiveInSeconds * 1000L;
+        this.refreshAheadInMillis = refreshAheadInSeconds * 1000L;
+    }
+
+    public CacheSettings indicators() {
+        return new CacheSettings(indicatorsMaximumSize, timeToLiveInMillis, refreshAheadInMillis);
+    }
+
+    public CacheSettings anms() {
+        return new CacheSettings(anmsMaximumSize, timeToLiveInMillis, refreshAheadInMillis);
+    }
+
+    public CacheSettings locations() {
+        return new CacheSettings(locationsMaximumSize, timeToLiveInMillis, refreshAheadInMillis);
+    }
+
+    public CacheSettings serviceProviders() {
+        return new CacheSettings(serviceProvidersMaximumSize, timeToLiveInMillis, refreshAheadInMillis);
+    }
+}
@@ -0,0 +1,106 @@
+package org.opensrp.reporting.service;
+
+import org.opensrp.common.domain.ANMReport;
+import org.opensrp.reporting.repository.ANMReportsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.text.MessageFormat.format;
+
+/**
+ * Generates the reports of all ANMs on a fixed pool of workers and hands each report over as soon as it is ready, in
+ * no particular order. No more than twice as many reports as there are workers are generated ahead of the handler,
+ * so memory does not grow with the number of ANMs.
+ */
+@Service
+public class ANMReportGenerator {
+    private static Logger logger = LoggerFactory.getLogger(ANMReportGenerator.class.toString());
+
+    public interface ReportHandler {
+        void handle(ANMReport report) throws IOException;
+    }
+
+    private ANMReportsRepository anmReportsRepository;
+    private int numberOfWorkers;
+    private ExecutorService workers;
+
+    @Autowired
+    public ANMReportGenerator(ANMReportsRepository anmReportsRepository,
+                              @Value("#{opensrp['reporting.anm.report.workers']}") int numberOfWorkers) {
+        this.anmReportsRepository = anmReportsRepository;
+        this.numberOfWorkers = numberOfWorkers;
+        this.workers = Executors.newFixedThreadPool(numberOfWorkers, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "anm-report-generator-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    public void generate(ReportHandler handler) throws IOException {
+        List<String> anmIdentifiers = anmReportsRepository.fetchAllANMIdentifiers();
+        logger.info(format("Generating reports of {0} ANMs with {1} workers.", anmIdentifiers.size(), numberOfWorkers));
+
+        CompletionService<ANMReport> completionService = new ExecutorCompletionService<>(workers);
+        List<Future<ANMReport>> inProgress = new ArrayList<>();
+        Iterator<String> pending = anmIdentifiers.iterator();
+        try {
+            while (inProgress.size() < 2 * numberOfWorkers && pending.hasNext()) {
+                inProgress.add(completionService.submit(reportFor(pending.next())));
+            }
+            while (!inProgress.isEmpty()) {
+                Future<ANMReport> completed = completionService.take();
+                inProgress.remove(completed);
+                if (pending.hasNext()) {
+                    inProgress.add(completionService.submit(reportFor(pending.next())));
+                }
+                handler.handle(completed.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while generating ANM reports.", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Could not generate ANM report.", e.getCause());
+        } finally {
+            for (Future<ANMReport> future : inProgress) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        workers.shutdownNow();
+    }
+
+    private Callable<ANMReport> reportFor(final String anmIdentifier) {
+        return new Callable<ANMReport>() {
+            @Override
+            public ANMReport call() throws Exception {
+                return new ANMReport(anmIdentifier, anmReportsRepository.fetchANMSummary(anmIdentifier));
+            }
+        };
+    }
+}
@@ -5,6 +5,7 @@ import com.google.gson.reflect.TypeToken;
 import org.apache.http.client.utils.URLEncodedUtils;
 import org.apache.http.message.BasicNameValuePair;
 import org.opensrp.common.domain.ReportMonth;
+import org.opensrp.common.monitor.Monitor;
 import org.opensrp.common.util.HttpAgent;
 import org.opensrp.common.util.HttpResponse;
 import org.joda.time.LocalDate;
@@ -18,16 +19,28 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PreDestroy;
 import java.text.MessageFormat;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantLock;
 
 import static java.text.MessageFormat.format;
 import static java.util.Arrays.asList;
 import static org.apache.commons.lang.exception.ExceptionUtils.getFullStackTrace;
+import static org.opensrp.common.monitor.Metric.REPORTING_AGGREGATOR_EXPORT_LAG;
+import static org.opensrp.common.monitor.Metric.REPORTING_AGGREGATOR_EXPORT_THROUGHPUT;
+import static org.opensrp.reporting.domain.ReportDimension.ANM;
 import static org.opensrp.common.util.EasyMap.mapOf;
 
 @Service
@@ -41,7 +54,14 @@ public class AggregateReportsService {
     private AllTokensRepository tokenRepository;
     private ServicesProvidedRepository servicesProvidedRepository;
     private ReportMonth reportMonth;
+    private Monitor monitor;
+    private LocalAggregator localAggregator;
     private int numberOfReportsSentInABatch;
+    private int numberOfBatchesInFlight;
+    private boolean compressPayload;
+    private boolean aggregateLocally;
+    private ExecutorService serializer;
+    private ExecutorService uploader;
 
     protected AggregateReportsService() {
     }
@@ -50,33 +70,40 @@ public class AggregateReportsService {
     public AggregateReportsService(@Value("#{opensrp['aggregator.dataset.url']}") String aggregatorDataSetUrl,
                                    @Value("#{opensrp['aggregated.dataset.url']}") String aggregatedDataSetUrl,
                                    @Value("#{opensrp['number.of.reports.sent.in.a.batch']}") int numberOfReportsSentInABatch,
+                                   @Value("#{opensrp['aggregator.number.of.batches.in.flight']}") int numberOfBatchesInFlight,
+                                   @Value("#{opensrp['aggregator.compress.payload']}") boolean compressPayload,
+                                   @Value("#{opensrp['aggregated.reports.computed.locally']}") boolean aggregateLocally,
                                    HttpAgent httpAgent, AllTokensRepository tokenRepository,
-                                   ServicesProvidedRepository servicesProvidedRepository, ReportMonth reportMonth) {
+                                   ServicesProvidedRepository servicesProvidedRepository, ReportMonth reportMonth,
+                                   Monitor monitor, LocalAggregator localAggregator) {
         this.aggregatorDataSetUrl = aggregatorDataSetUrl;
         this.aggregatedDataSetUrl = aggregatedDataSetUrl;
         this.numberOfReportsSentInABatch = numberOfReportsSentInABatch;
+        this.numberOfBatchesInFlight = numberOfBatchesInFlight;
+        this.compressPayload = compressPayload;
+        this.aggregateLocally = aggregateLocally;
         this.httpAgent = httpAgent;
         this.tokenRepository = tokenRepository;
         this.servicesProvidedRepository = servicesProvidedRepository;
         this.reportMonth = reportMonth;
+        this.monitor = monitor;
+        this.localAggregator = localAggregator;
+        this.serializer = Executors.newSingleThreadExecutor(daemonThreadsNamed("aggregator-export-serializer"));
+        this.uploader = Executors.newSingleThreadExecutor(daemonThreadsNamed("aggregator-export-uploader"));
     }
 
-    @Transactional("service_provided")
+    /**
+     * Sends new reports to the aggregator batch after batch until there are none left. While a batch is being
+     * uploaded, the following ones are fetched and serialized, up to the number of batches in flight. Batches are
+     * uploaded in order, and the token moves past a batch only once the aggregator has accepted it.
+     */
     public void sendReportsToAggregator() {
         if (!lock.tryLock()) {
             logger.warn("Not Aggregating reports. It is already in progress.");
             return;
         }
         try {
-            Integer token = tokenRepository.getAggregateReportsToken();
-            logger.info(format("Trying to aggregate reports. Report Token: {0}", token));
-            List<ServiceProvidedReport> reports = servicesProvidedRepository.getNewReports(token, this.numberOfReportsSentInABatch);
-            if (reports.isEmpty()) {
-                logger.info("No new reports to aggregate.");
-                return;
-            }
-            logger.info(format("Got reports to aggregate. Number of reports: {0}", reports.size()));
-            update(reports);
+            drain();
         } catch (Exception e) {
             logger.error(MessageFormat.format("{0} occurred while trying to aggregate reports. Message: {1} with stack trace {2}",
                     e.toString(), e.getMessage(), getFullStackTrace(e)));
@@ -86,17 +113,82 @@ public class AggregateReportsService {
         }
     }
 
-    private void update(List<ServiceProvidedReport> reports) {
-        String reportJson = new Gson().toJson(mapDomainToDTO(reports));
-        HttpResponse response = sendToAggregator(reportJson);
+    @PreDestroy
+    public void stop() {
+        serializer.shutdownNow();
+        uploader.shutdownNow();
+    }
+
+    private void drain() {
+        long startTime = System.currentTimeMillis();
+        Integer token = tokenRepository.getAggregateReportsToken();
+        logger.info(format("Trying to aggregate reports. Report Token: {0}", token));
 
-        if (!response.isSuccess()) {
-            throw new RuntimeException(format("Updating data to Aggregator with url {0} failed with error: {0}", aggregatorDataSetUrl, response.body()));
+        AtomicBoolean uploadFailed = new AtomicBoolean();
+        Deque<Batch> batchesInFlight = new ArrayDeque<>();
+        Integer lastFetchedId = token;
+        boolean caughtUp = false;
+        int numberOfReportsSent = 0;
+        try {
+            while (!caughtUp || !batchesInFlight.isEmpty()) {
+                if (!caughtUp && batchesInFlight.size() < numberOfBatchesInFlight) {
+                    List<ServiceProvidedReport> reports = servicesProvidedRepository.getNewReports(lastFetchedId, numberOfReportsSentInABatch);
+                    caughtUp = reports.size() < numberOfReportsSentInABatch;
+                    if (!reports.isEmpty()) {
+                        logger.info(format("Got reports to aggregate. Number of reports: {0}", reports.size()));
+                        lastFetchedId = reports.get(reports.size() - 1).id();
+                        batchesInFlight.add(send(reports, uploadFailed));
+                    }
+                    continue;
+                }
+                Batch batch = batchesInFlight.remove();
+                batch.awaitUpload();
+                tokenRepository.saveAggregateReportsToken(batch.lastId);
+                token = batch.lastId;
+                numberOfReportsSent += batch.size;
+                logger.info(format("Updated report token to: {0}", token));
+            }
+        } finally {
+            for (Batch batch : batchesInFlight) {
+                batch.cancel();
+            }
         }
 
-        Integer id = reports.get(reports.size() - 1).id();
-        tokenRepository.saveAggregateReportsToken(id);
-        logger.info(format("Updated report token to: {0}", id));
+        if (numberOfReportsSent == 0) {
+            logger.info("No new reports to aggregate.");
+        }
+        long timeTaken = Math.max(System.currentTimeMillis() - startTime, 1);
+        Integer latestId = servicesProvidedRepository.getLatestReportId();
+        monitor.addObservationFor(REPORTING_AGGREGATOR_EXPORT_LAG, latestId == null ? 0 : Math.max(latestId - token, 0));
+        monitor.addObservationFor(REPORTING_AGGREGATOR_EXPORT_THROUGHPUT, numberOfReportsSent * 1000L / timeTaken);
+    }
+
+    private Batch send(final List<ServiceProvidedReport> reports, final AtomicBoolean uploadFailed) {
+        final Future<String> reportJson = serializer.submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return new Gson().toJson(mapDomainToDTO(reports));
+            }
+        });
+        Future<HttpResponse> response = uploader.submit(new Callable<HttpResponse>() {
+            @Override
+            public HttpResponse call() throws Exception {
+                if (uploadFailed.get()) {
+                    return new HttpResponse(false, "Not sent as an earlier batch failed.");
+                }
+                try {
+                    HttpResponse response = sendToAggregator(reportJson.get());
+                    if (!response.isSuccess()) {
+                        uploadFailed.set(true);
+                    }
+                    return response;
+                } catch (Exception e) {
+                    uploadFailed.set(true);
+                    throw e;
+                }
+            }
+        });
+        return new Batch(reports.get(reports.size() - 1).id(), reports.size(), response);
     }
 
     private List<ServiceProvidedReportDTO> mapDomainToDTO(List<ServiceProvidedReport> reports) {
@@ -126,10 +218,15 @@ public class AggregateReportsService {
     private HttpResponse sendToAggregator(String reportJson) {
         logger.info(format("Sending report data to Aggregator. URL: {0}, data: {1}",
                 aggregatorDataSetUrl, "update=" + reportJson));
-        return httpAgent.put(aggregatorDataSetUrl, mapOf("update", reportJson));
+        return compressPayload
+                ? httpAgent.putCompressed(aggregatorDataSetUrl, mapOf("update", reportJson))
+                : httpAgent.put(aggregatorDataSetUrl, mapOf("update", reportJson));
     }
 
     public List<AggregatorResponseDTO> getAggregatedReports(String anmIdentifier, int month, int year) {
+        if (aggregateLocally) {
+            return localAggregator.aggregate(ANM, anmIdentifier, month, year);
+        }
         //http://bamboo.io/datasets/c67218ce415e4722a9f3b00882cd5a7b\?query\='{"anm_identifier": "demo1","nrhm_report_year":2013, "nrhm_report_month":10}'
         String queryParams = URLEncodedUtils.format(
                 asList(whereClauseParam(anmIdentifier, month, year))
@@ -147,4 +244,46 @@ public class AggregateReportsService {
                         anmIdentifier + "\",\"nrhm_report_year\":" + year + ", \"nrhm_report_month\":" + month +
                         "}");
     }
+
+    private static ThreadFactory daemonThreadsNamed(final String name) {
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    private class Batch {
+        private final Integer lastId;
+        private final int size;
+        private final Future<HttpResponse> response;
+
+        private Batch(Integer lastId, int size, Future<HttpResponse> response) {
+            this.lastId = lastId;
+            this.size = size;
+            this.response = response;
+        }
+
+        private void awaitUpload() {
+            HttpResponse uploadResponse;
+            try {
+                uploadResponse = response.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while sending reports to Aggregator.", e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException(format("Updating data to Aggregator with url {0} failed.", aggregatorDataSetUrl), e.getCause());
+            }
+            if (!uploadResponse.isSuccess()) {
+                throw new RuntimeException(format("Updating data to Aggregator with url {0} failed with error: {1}", aggregatorDataSetUrl, uploadResponse.body()));
+            }
+        }
+
+        private void cancel() {
+            response.cancel(true);
+        }
+    }
 }
@@ -0,0 +1,57 @@
+package org.opensrp.reporting.service;
+
+import org.joda.time.LocalDate;
+import org.opensrp.common.domain.ReportMonth;
+import org.opensrp.dto.aggregatorResponse.AggregatorResponseDTO;
+import org.opensrp.reporting.domain.ReportDimension;
+import org.opensrp.reporting.repository.ServicesProvidedRepository;
+import org.opensrp.reporting.repository.cache.CacheSettings;
+import org.opensrp.reporting.repository.cache.ReferenceDataCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static org.opensrp.common.AllConstants.Report.REPORTING_MONTH_END_DAY;
+
+/**
+ * Counts services provided of every indicator in a report month from the reporting database, for an ANM or a location
+ * at any level. Unlike the aggregator, which is only ever sent new rows, the counts leave out services provided that
+ * have since been deleted or rewritten, so the two can differ. Counts are cached for the configured time to live, so
+ * a report month may lag behind newly provided services by that long.
+ */
+@Service
+public class LocalAggregator {
+    private ServicesProvidedRepository servicesProvidedRepository;
+    private ReportMonth reportMonth;
+    private ReferenceDataCache<List<Object>, List<AggregatorResponseDTO>> aggregates;
+
+    @Autowired
+    public LocalAggregator(ServicesProvidedRepository servicesProvidedRepository, ReportMonth reportMonth,
+                           @Value("#{opensrp['aggregated.reports.cache.maximum.size']}") int cacheMaximumSize,
+                           @Value("#{opensrp['aggregated.reports.cache.time.to.live.in.seconds']}") int cacheTimeToLiveInSeconds) {
+        this.servicesProvidedRepository = servicesProvidedRepository;
+        this.reportMonth = reportMonth;
+        this.aggregates = new ReferenceDataCache<>("aggregated reports",
+                new CacheSettings(cacheMaximumSize, cacheTimeToLiveInSeconds * 1000L, 0));
+    }
+
+    public List<AggregatorResponseDTO> aggregate(final ReportDimension dimension, final String value, final int month, final int year) {
+        return aggregates.get(asList(dimension, value, month, year), new ReferenceDataCache.Loader<List<Object>, List<AggregatorResponseDTO>>() {
+            @Override
+            public List<AggregatorResponseDTO> load(List<Object> key) {
+                LocalDate endDate = new LocalDate(year, month, REPORTING_MONTH_END_DAY);
+                LocalDate startDate = reportMonth.startOfCurrentReportMonth(endDate);
+                List<AggregatorResponseDTO> counts = new ArrayList<>();
+                for (Map.Entry<String, Integer> count : servicesProvidedRepository.countByIndicator(dimension, value, startDate, endDate).entrySet()) {
+                    counts.add(new AggregatorResponseDTO(count.getKey(), count.getValue()));
+                }
+                return counts;
+            }
+        });
+    }
+}
@@ -0,0 +1,15 @@
+CREATE TABLE anm_report.anm_report_monthly_rollup (ID SERIAL, anmIdentifier INTEGER NOT NULL, indicator INTEGER NOT NULL, externalId VARCHAR NOT NULL, year_ INTEGER NOT NULL, month_ INTEGER NOT NULL, count_ INTEGER NOT NULL,
+  CONSTRAINT pk_anm_report_monthly_rollup PRIMARY KEY (ID),
+  CONSTRAINT FK_ARMR_DA_ID FOREIGN KEY (anmIdentifier) REFERENCES anm_report.dim_anm (ID),
+  CONSTRAINT FK_ARMR_DI_ID FOREIGN KEY (indicator) REFERENCES anm_report.dim_indicator (ID),
+  CONSTRAINT U_ARMR_AI_IN_YR_MN_EI UNIQUE (anmIdentifier, indicator, year_, month_, externalId));
+
+CREATE INDEX IDX_ARMR_EI ON anm_report.anm_report_monthly_rollup (externalId);
+
+INSERT INTO anm_report.anm_report_monthly_rollup (anmIdentifier, indicator, externalId, year_, month_, count_)
+  SELECT anmIdentifier, indicator, externalId, report_month_year, report_month, count(*)
+  FROM (SELECT anmIdentifier, indicator, externalId,
+          extract(year from (CASE WHEN extract(day from date_) >= 26 THEN date_ + interval '1 month' ELSE date_ END)) AS report_month_year,
+          extract(month from (CASE WHEN extract(day from date_) >= 26 THEN date_ + interval '1 month' ELSE date_ END)) AS report_month
+        FROM anm_report.anm_report_data) report_data
+  GROUP BY anmIdentifier, indicator, externalId, report_month_year, report_month;
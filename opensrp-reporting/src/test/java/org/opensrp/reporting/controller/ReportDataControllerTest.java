@@ -8,6 +8,8 @@ import org.opensrp.common.domain.Location;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import java.util.Date;
 import java.util.HashMap;
@@ -21,6 +23,9 @@ import static org.opensrp.common.domain.ReportingData.anmReportData;
 import static org.opensrp.common.domain.ReportingData.serviceProvidedData;
 import static org.opensrp.common.util.ANMIndicatorSummaryFactory.createSummaryForANC;
 import static org.opensrp.common.util.ANMIndicatorSummaryFactory.createSummaryForIUD;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
@@ -32,6 +37,11 @@ import org.opensrp.reporting.domain.ANMReportData;
 import org.opensrp.reporting.domain.ServiceProvided;
 import org.opensrp.reporting.repository.ANMReportsRepository;
 import org.opensrp.reporting.repository.ServicesProvidedRepository;
+import org.opensrp.reporting.service.ANMReportGenerator;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
 
 public class ReportDataControllerTest {
     @Mock
@@ -39,6 +49,8 @@ public class ReportDataControllerTest {
     @Mock
     private ANMReportsRepository anmReportsRepository;
     @Mock
+    private ANMReportGenerator anmReportGenerator;
+    @Mock
     private ServiceProvided serviceProvided;
     @Mock
     private ANMReportData anmReportData;
@@ -50,7 +62,7 @@ public class ReportDataControllerTest {
     @Before
     public void setUp() throws Exception {
         initMocks(this);
-        controller = new ReportDataController(servicesProvidedRepository, anmReportsRepository);
+        controller = new ReportDataController(servicesProvidedRepository, anmReportsRepository, anmReportGenerator);
     }
 
     @Test
@@ -72,6 +84,52 @@ public class ReportDataControllerTest {
         verify(anmReportsRepository).save("ANM X", "EC Number 1", "IUD", "2012-01-01", "40");
     }
 
+    @Test
+    public void shouldSaveBatchOfReportsWithOneRepositoryCallPerReportTypeAndSkipIncompleteReports() throws Exception {
+        ReportingData serviceProvided = serviceProvidedData("ANM X", "TC 1", BCG, "2012-01-01",
+                new Location("bherya", "Sub Center", "PHC X"), "entity id 1");
+        ReportingData anmReport = anmReportData("ANM X", "EC Number 1", FP_IUD, "2012-01-01");
+        ReportingData incompleteANMReport = anmReportData(null, null, FP_CONDOM, null);
+
+        String unsavedPositions = controller.submitBatch(new ReportingData[]{serviceProvided, anmReport, incompleteANMReport});
+
+        assertEquals("[]", unsavedPositions);
+        verify(servicesProvidedRepository).save(asList(serviceProvided));
+        verify(anmReportsRepository).save(asList(anmReport));
+    }
+
+    @Test
+    public void shouldSaveReportsOfAFailedBatchOneAtATimeAndAnswerWithThoseThatStillFail() throws Exception {
+        ReportingData serviceProvided = serviceProvidedData("ANM X", "TC 1", BCG, "2012-01-01",
+                new Location("bherya", "Sub Center", "PHC X"), "entity id 1");
+        ReportingData badReport = anmReportData("ANM X", "EC Number 1", FP_IUD, "2012-01-01").withQuantity("1");
+        ReportingData goodReport = anmReportData("ANM X", "EC Number 2", FP_CONDOM, "2012-01-01").withQuantity("1");
+        doThrow(new RuntimeException("bad row")).when(anmReportsRepository).save(asList(badReport, goodReport));
+        doThrow(new RuntimeException("bad row")).when(anmReportsRepository).save("ANM X", "EC Number 1", "IUD", "2012-01-01", "1");
+
+        String unsavedPositions = controller.submitBatch(new ReportingData[]{badReport, serviceProvided, goodReport});
+
+        assertEquals("[0]", unsavedPositions);
+        verify(servicesProvidedRepository).save(asList(serviceProvided));
+        verify(anmReportsRepository).save("ANM X", "EC Number 2", "CONDOM", "2012-01-01", "1");
+    }
+
+    @Test
+    public void shouldAnswerWithEveryReportOfAFailedTransactionWhenNoneCanBeSaved() throws Exception {
+        ReportingData serviceProvided = serviceProvidedData("ANM X", "TC 1", BCG, "2012-01-01",
+                new Location("bherya", "Sub Center", "PHC X"), "entity id 1");
+        ReportingData report = anmReportData("ANM X", "EC Number 1", FP_IUD, "2012-01-01").withQuantity("1");
+        ReportingData anotherReport = anmReportData("ANM X", "EC Number 2", FP_CONDOM, "2012-01-01").withQuantity("1");
+        doThrow(new RuntimeException("database down")).when(anmReportsRepository).save(asList(report, anotherReport));
+        doThrow(new RuntimeException("database down")).when(anmReportsRepository).save("ANM X", "EC Number 1", "IUD", "2012-01-01", "1");
+        doThrow(new RuntimeException("database down")).when(anmReportsRepository).save("ANM X", "EC Number 2", "CONDOM", "2012-01-01", "1");
+
+        String unsavedPositions = controller.submitBatch(new ReportingData[]{report, serviceProvided, anotherReport});
+
+        assertEquals("[0,2]", unsavedPositions);
+        verify(servicesProvidedRepository).save(asList(serviceProvided));
+    }
+
     @Test(expected = ReportDataMissingException.class)
     public void shouldThrowExceptionWhenANMReportDataDoesNotHaveAllTheNecessaryInformation() throws Exception {
         ReportingData data = anmReportData(null, null, FP_CONDOM, null);
@@ -88,13 +146,25 @@ public class ReportDataControllerTest {
 
     @Test
     public void shouldReturnListOfANMIndicatorSummaryForAllANMs() throws Exception {
-        ANMReport anmXReport = new ANMReport("ANM X", asList(createSummaryForIUD()));
-        ANMReport anmYReport = new ANMReport("ANM Y", asList(createSummaryForANC()));
-        when(anmReportsRepository.fetchAllANMsReport()).thenReturn(asList(anmXReport, anmYReport));
-
-        List<ANMReport> summaries = controller.getAllANMsIndicatorSummaries();
-
+        final ANMReport anmXReport = new ANMReport("ANM X", asList(createSummaryForIUD()));
+        final ANMReport anmYReport = new ANMReport("ANM Y", asList(createSummaryForANC()));
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                ANMReportGenerator.ReportHandler handler = (ANMReportGenerator.ReportHandler) invocation.getArguments()[0];
+                handler.handle(anmXReport);
+                handler.handle(anmYReport);
+                return null;
+            }
+        }).when(anmReportGenerator).generate(any(ANMReportGenerator.ReportHandler.class));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        controller.getAllANMsIndicatorSummaries(response);
+
+        List<ANMReport> summaries = new Gson().fromJson(response.getContentAsString(), new TypeToken<List<ANMReport>>() {
+        }.getType());
         assertEquals(asList(anmXReport, anmYReport), summaries);
+        assertEquals("application/json;charset=UTF-8", response.getContentType());
     }
 
     @Test
@@ -7,6 +7,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
 
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -20,7 +21,7 @@ import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.*;
 import static org.mockito.MockitoAnnotations.initMocks;
 import org.opensrp.reporting.domain.ANM;
-import org.opensrp.reporting.domain.ANMReportData;
+import org.opensrp.reporting.domain.ANMReportDataSummary;
 import org.opensrp.reporting.domain.AnnualTarget;
 import org.opensrp.reporting.domain.Indicator;
 import org.opensrp.reporting.repository.ANMReportsRepository;
@@ -30,6 +31,7 @@ import org.opensrp.reporting.repository.cache.ANMCacheableRepository;
 import org.opensrp.reporting.repository.cache.CacheableRepository;
 import org.opensrp.reporting.repository.cache.IndicatorCacheableRepository;
 import org.opensrp.reporting.repository.cache.ReadOnlyCacheableRepository;
+import org.opensrp.reporting.repository.cache.ReferenceDataCacheSettings;
 
 public class ANMReportsRepositoryTest {
     @Mock
@@ -53,7 +55,8 @@ public class ANMReportsRepositoryTest {
     public void setUp() throws Exception {
         initMocks(this);
         repository = new ANMReportsRepository(anmRepository, indicatorRepository,
-                anmReportDataRepository, annualTargetsRepository, monitor, new ReportMonth());
+                anmReportDataRepository, annualTargetsRepository, monitor, new ReportMonth(),
+                new ReferenceDataCacheSettings(10, 10, 10, 10, 0, 0));
     }
 
     @Test
@@ -75,7 +78,7 @@ public class ANMReportsRepositoryTest {
         verifyCallsToReadOnlyCachedRepository(anmRepository, new ANM(anmIdentifier));
         verifyCallsToReadOnlyCachedRepository(indicatorRepository, fetchedIndicator);
 
-        verify(anmReportDataRepository, times(2)).save(anm, externalId, fetchedIndicator, date);
+        verify(anmReportDataRepository, times(2)).save(anm, externalId, fetchedIndicator, date, 1);
     }
 
 
@@ -94,25 +97,21 @@ public class ANMReportsRepositoryTest {
 
         repository.save(anmIdentifier, externalId, indicator, "2012-04-04", "50");
 
-        verify(anmReportDataRepository, times(50)).save(anm, externalId, fetchedIndicator, date);
+        verify(anmReportDataRepository).save(anm, externalId, fetchedIndicator, date, 50);
     }
 
     @Test
     public void shouldFetchANMIndicatorSummaries() throws Exception {
         DateUtil.fakeIt(parse("2012-06-30"));
-        ANM anm = new ANM("ANM X");
-        Date date1 = parse("2012-03-29").toDate();
-        Date date2 = parse("2012-05-15").toDate();
-        Date date3 = parse("2012-05-30").toDate();
         Indicator indicator1 = new Indicator("IUD");
         Indicator indicator2 = new Indicator("ANC");
-        when(anmReportDataRepository.fetchByANMIdAndDate("ANM X", parse("2012-03-26").toDate())).thenReturn(asList(
-                new ANMReportData(anm, "CASE 1", indicator1, date1),
-                new ANMReportData(anm, "CASE 2", indicator1, date1),
-                new ANMReportData(anm, "CASE 3", indicator1, date2),
-                new ANMReportData(anm, "CASE 4", indicator1, date2),
-                new ANMReportData(anm, "CASE 5", indicator2, date3),
-                new ANMReportData(anm, "CASE 6", indicator2, date3)));
+        when(anmReportDataRepository.summarize("ANM X", parse("2012-03-26").toDate())).thenReturn(asList(
+                summary(2, "ANC", 2012, 6, "CASE 5", 1),
+                summary(2, "ANC", 2012, 6, "CASE 6", 1),
+                summary(1, "IUD", 2012, 4, "CASE 1", 1),
+                summary(1, "IUD", 2012, 4, "CASE 2", 1),
+                summary(1, "IUD", 2012, 5, "CASE 3", 1),
+                summary(1, "IUD", 2012, 5, "CASE 4", 1)));
         when(annualTargetsRepository.fetchFor("ANM X", indicator1, parse("2012-06-30").toDate())).thenReturn(new AnnualTarget(1, 1, "40", parse("2012-03-26").toDate(), parse("2013-03-25").toDate()));
         when(annualTargetsRepository.fetchFor("ANM X", indicator2, parse("2012-06-30").toDate())).thenReturn(new AnnualTarget(1, 1, "30", parse("2012-03-26").toDate(), parse("2013-03-25").toDate()));
 
@@ -125,10 +124,8 @@ public class ANMReportsRepositoryTest {
     @Test
     public void shouldSetMonthOfSummaryToBeNextYearsInCaseOfLastMonthOfTheYear() throws Exception {
         DateUtil.fakeIt(parse("2013-01-30"));
-        ANM anm = new ANM("ANM X");
-        Date date = parse("2012-12-29").toDate();
         Indicator indicator = new Indicator("IUD");
-        when(anmReportDataRepository.fetchByANMIdAndDate("ANM X", parse("2012-03-26").toDate())).thenReturn(asList(new ANMReportData(anm, "CASE 1", indicator, date)));
+        when(anmReportDataRepository.summarize("ANM X", parse("2012-03-26").toDate())).thenReturn(asList(summary(1, "IUD", 2013, 1, "CASE 1", 1)));
         when(annualTargetsRepository.fetchFor("ANM X", indicator, parse("2013-01-30").toDate())).thenReturn(new AnnualTarget(1, 1, "40", parse("2012-03-26").toDate(), parse("2013-03-25").toDate()));
 
         List<ANMIndicatorSummary> anmIndicatorSummaries = repository.fetchANMSummary("ANM X");
@@ -139,11 +136,9 @@ public class ANMReportsRepositoryTest {
     @Test
     public void shouldFetchANMIndicatorSummariesIncludingAllServicesProvidedTillTheCurrentMonth() throws Exception {
         DateUtil.fakeIt(parse("2013-01-15"));
-        ANM anm = new ANM("ANM X");
-        Date january = parse("2013-01-11").toDate();
         Indicator indicator1 = new Indicator("IUD");
-        when(anmReportDataRepository.fetchByANMIdAndDate("ANM X", parse("2012-03-26").toDate())).thenReturn(asList(
-                new ANMReportData(anm, "CASE 1", indicator1, january)));
+        when(anmReportDataRepository.summarize("ANM X", parse("2012-03-26").toDate())).thenReturn(asList(
+                summary(1, "IUD", 2013, 1, "CASE 1", 1)));
         when(annualTargetsRepository.fetchFor("ANM X", indicator1, parse("2013-01-15").toDate())).thenReturn(new AnnualTarget(1, 1, "40", parse("2012-03-26").toDate(), parse("2013-03-25").toDate()));
 
         List<ANMIndicatorSummary> anmIndicatorSummaries = repository.fetchANMSummary("ANM X");
@@ -155,28 +150,41 @@ public class ANMReportsRepositoryTest {
     @Test
     public void shouldFetchANMIndicatorSummariesWithDistinctExternalIds() throws Exception {
         DateUtil.fakeIt(parse("2013-03-22"));
-        ANM anm = new ANM("ANM X");
-        Date dates = parse("2013-03-21").toDate();
         Indicator indicator = new Indicator("CONDOM");
-        when(anmReportDataRepository.fetchByANMIdAndDate("ANM X", parse("2012-03-26").toDate())).thenReturn(asList(
-                new ANMReportData(anm, "CASE 7", indicator, dates),
-                new ANMReportData(anm, "CASE 7", indicator, dates)));
+        when(anmReportDataRepository.summarize("ANM X", parse("2012-03-26").toDate())).thenReturn(asList(
+                summary(3, "CONDOM", 2013, 3, "CASE 7", 2)));
         when(annualTargetsRepository.fetchFor("ANM X", indicator, parse("2013-03-22").toDate())).thenReturn(new AnnualTarget(1, 1, "20", parse("2012-03-26").toDate(), parse("2013-03-25").toDate()));
 
         List<ANMIndicatorSummary> anmIndicatorSummaries = repository.fetchANMSummary("ANM X");
 
-        System.out.println(anmIndicatorSummaries);
         assertTrue(anmIndicatorSummaries.containsAll(asList(createSummaryForCondom())));
         assertEquals(1, anmIndicatorSummaries.size());
     }
 
+    @Test
+    public void shouldNotIncludeReportMonthsAfterTheCurrentReportMonthInANMIndicatorSummaries() throws Exception {
+        DateUtil.fakeIt(parse("2012-04-30"));
+        Indicator indicator = new Indicator("IUD");
+        when(anmReportDataRepository.summarize("ANM X", parse("2012-03-26").toDate())).thenReturn(asList(
+                summary(1, "IUD", 2012, 4, "CASE 1", 1),
+                summary(1, "IUD", 2012, 5, "CASE 2", 1),
+                summary(1, "IUD", 2012, 7, "CASE 3", 1)));
+        when(annualTargetsRepository.fetchFor("ANM X", indicator, parse("2012-04-30").toDate())).thenReturn(new AnnualTarget(1, 1, "40", parse("2012-03-26").toDate(), parse("2013-03-25").toDate()));
+
+        List<ANMIndicatorSummary> anmIndicatorSummaries = repository.fetchANMSummary("ANM X");
+
+        assertEquals(asList(new ANMIndicatorSummary("IUD", "40", asList(
+                new MonthSummary("4", "2012", "1", "1", asList("CASE 1")),
+                new MonthSummary("5", "2012", "1", "2", asList("CASE 2"))))), anmIndicatorSummaries);
+    }
+
     @Test
     public void shouldFetchANMIndicatorSummariesForCurrentReportingYear() throws Exception {
         DateUtil.fakeIt(parse("2013-01-02"));
 
         repository.fetchANMSummary("ANM X");
 
-        verify(anmReportDataRepository).fetchByANMIdAndDate("ANM X", parse("2012-03-26").toDate());
+        verify(anmReportDataRepository).summarize("ANM X", parse("2012-03-26").toDate());
     }
 
     @Test
@@ -185,7 +193,7 @@ public class ANMReportsRepositoryTest {
 
         repository.fetchANMSummary("ANM X");
 
-        verify(anmReportDataRepository).fetchByANMIdAndDate("ANM X", parse("2012-03-26").toDate());
+        verify(anmReportDataRepository).summarize("ANM X", parse("2012-03-26").toDate());
     }
 
     @Test
@@ -194,13 +202,13 @@ public class ANMReportsRepositoryTest {
 
         repository.fetchANMSummary("ANM X");
 
-        verify(anmReportDataRepository).fetchByANMIdAndDate("ANM X", parse("2012-03-26").toDate());
+        verify(anmReportDataRepository).summarize("ANM X", parse("2012-03-26").toDate());
     }
 
     @Test
     public void shouldReturnEmptyANMIndicatorSummariesWhenThereIsNoDataForANM() throws Exception {
         DateUtil.fakeIt(parse("2012-03-31"));
-        when(anmReportDataRepository.fetchByANMIdAndDate("ANM X", parse("2012-01-01").toDate())).thenReturn(null);
+        when(anmReportDataRepository.summarize("ANM X", parse("2012-03-26").toDate())).thenReturn(Collections.<ANMReportDataSummary>emptyList());
 
         List<ANMIndicatorSummary> anmIndicatorSummaries = repository.fetchANMSummary("ANM X");
 
@@ -210,15 +218,11 @@ public class ANMReportsRepositoryTest {
     @Test
     public void shouldReturnANMIndicatorSummariesWithNullAnnualTargetWhenThereIsNoAnnualTargetForANM() throws Exception {
         DateUtil.fakeIt(parse("2012-06-30"));
-        ANM anm = new ANM("ANM X");
-        Date date1 = parse("2012-03-29").toDate();
-        Date date2 = parse("2012-05-15").toDate();
-        Indicator indicator = new Indicator("IUD");
-        when(anmReportDataRepository.fetchByANMIdAndDate("ANM X", parse("2012-03-26").toDate())).thenReturn(asList(
-                new ANMReportData(anm, "CASE 1", indicator, date1),
-                new ANMReportData(anm, "CASE 2", indicator, date1),
-                new ANMReportData(anm, "CASE 3", indicator, date2),
-                new ANMReportData(anm, "CASE 4", indicator, date2)));
+        when(anmReportDataRepository.summarize("ANM X", parse("2012-03-26").toDate())).thenReturn(asList(
+                summary(1, "IUD", 2012, 4, "CASE 1", 1),
+                summary(1, "IUD", 2012, 4, "CASE 2", 1),
+                summary(1, "IUD", 2012, 5, "CASE 3", 1),
+                summary(1, "IUD", 2012, 5, "CASE 4", 1)));
         when(annualTargetsRepository.fetchFor("ANM X", new Indicator("IUD"), parse("2012-06-30").toDate())).thenReturn(null);
 
         List<ANMIndicatorSummary> anmIndicatorSummaries = repository.fetchANMSummary("ANM X");
@@ -228,34 +232,10 @@ public class ANMReportsRepositoryTest {
     }
 
     @Test
-    public void shouldReturnAllANMReports() throws Exception {
-        DateUtil.fakeIt(parse("2012-06-30"));
-        ANM anmX = new ANM("ANM X");
-        ANM anmY = new ANM("ANM Y");
-        Date date1 = parse("2012-03-29").toDate();
-        Date date2 = parse("2012-04-30").toDate();
-        Date date3 = parse("2012-05-27").toDate();
-        Indicator indicator1 = new Indicator("IUD");
-        Indicator indicator2 = new Indicator("ANC");
-        when(anmReportDataRepository.fetchByANMIdAndDate("ANM X", parse("2012-03-26").toDate())).thenReturn(asList(
-                new ANMReportData(anmX, "CASE 1", indicator1, date1),
-                new ANMReportData(anmX, "CASE 2", indicator1, date1),
-                new ANMReportData(anmX, "CASE 3", indicator1, date2),
-                new ANMReportData(anmX, "CASE 4", indicator1, date2)));
-        when(anmReportDataRepository.fetchByANMIdAndDate("ANM Y", parse("2012-03-26").toDate())).thenReturn(asList(
-                new ANMReportData(anmY, "CASE 5", indicator2, date3),
-                new ANMReportData(anmY, "CASE 6", indicator2, date3)));
-        when(annualTargetsRepository.fetchFor("ANM X", indicator1, parse("2012-06-30").toDate())).thenReturn(new AnnualTarget(1, 1, "40", parse("2012-03-26").toDate(), parse("2013-03-25").toDate()));
-        when(annualTargetsRepository.fetchFor("ANM Y", indicator2, parse("2012-06-30").toDate())).thenReturn(new AnnualTarget(1, 1, "30", parse("2012-03-26").toDate(), parse("2013-03-25").toDate()));
-        when(anmRepository.fetchAll()).thenReturn(asList(anmX, anmY));
+    public void shouldFetchIdentifiersOfAllANMs() throws Exception {
+        when(anmRepository.fetchAll()).thenReturn(asList(new ANM("ANM X"), new ANM("ANM Y")));
 
-        List<ANMReport> anmReports = repository.fetchAllANMsReport();
-
-        ANMReport anmXReport = new ANMReport("ANM X", asList(createSummaryForIUD()));
-        ANMReport anmYReport = new ANMReport("ANM Y", asList(createSummaryForANC()));
-
-        assertTrue(anmReports.containsAll(asList(anmXReport, anmYReport)));
-        assertEquals(2, anmReports.size());
+        assertEquals(asList("ANM X", "ANM Y"), repository.fetchAllANMIdentifiers());
     }
 
     @Test
@@ -292,7 +272,7 @@ public class ANMReportsRepositoryTest {
         repository.update(request);
 
         verify(anmReportDataRepository).delete("INDICATOR 1", "2013-01-26", "2013-02-25");
-        verify(anmReportDataRepository).save(anm, externalId, fetchedIndicator, date);
+        verify(anmReportDataRepository).save(anm, externalId, fetchedIndicator, date, 1);
     }
 
     @Test
@@ -322,4 +302,8 @@ public class ANMReportsRepositoryTest {
         verify(blah, times(0)).save(obj);
         verifyNoMoreInteractions(blah);
     }
+
+    private ANMReportDataSummary summary(int indicatorId, String indicator, int year, int month, String externalId, int count) {
+        return new ANMReportDataSummary(indicatorId, indicator, year, month, externalId, count);
+    }
 }
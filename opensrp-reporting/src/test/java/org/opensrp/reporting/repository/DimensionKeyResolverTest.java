@@ -0,0 +1,71 @@
+package org.opensrp.reporting.repository;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.opensrp.reporting.domain.Location;
+import org.opensrp.reporting.domain.PHC;
+import org.opensrp.reporting.domain.ServiceProvider;
+import org.opensrp.reporting.repository.cache.ReferenceDataCacheSettings;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static org.opensrp.reporting.domain.ServiceProviderType.ANM;
+import static org.opensrp.reporting.domain.ServiceProviderType.PHC;
+
+public class DimensionKeyResolverTest {
+    @Mock
+    private AllLocationsRepository locationRepository;
+    @Mock
+    private AllServiceProvidersRepository serviceProvidersRepository;
+
+    private DimensionKeyResolver resolver;
+
+    @Before
+    public void setUp() throws Exception {
+        initMocks(this);
+        resolver = new DimensionKeyResolver(locationRepository, serviceProvidersRepository, new ReferenceDataCacheSettings(10, 10, 10, 10, 0, 0));
+    }
+
+    @Test
+    public void shouldQueryLocationOnlyOnceForTheSameVillageSubCenterAndPHC() throws Exception {
+        Location location = new Location(2, "Bherya", "Sub Center", new PHC(34, "phc", "PHC"), "taluka", "mysore", "karnataka");
+        when(locationRepository.fetchBy("Bherya", "Sub Center", "phc")).thenReturn(location);
+
+        assertEquals(location, resolver.location("Bherya", "Sub Center", "phc"));
+        assertEquals(location, resolver.location("Bherya", "Sub Center", "phc"));
+
+        verify(locationRepository, times(1)).fetchBy("Bherya", "Sub Center", "phc");
+    }
+
+    @Test
+    public void shouldKeepServiceProvidersOfDifferentTypesApart() throws Exception {
+        ServiceProvider anm = new ServiceProvider(1, 1, ANM);
+        ServiceProvider phc = new ServiceProvider(2, 1, PHC);
+        when(serviceProvidersRepository.fetchBy("X", ANM)).thenReturn(anm);
+        when(serviceProvidersRepository.fetchBy("X", PHC)).thenReturn(phc);
+
+        assertEquals(anm, resolver.serviceProvider("X", ANM));
+        assertEquals(phc, resolver.serviceProvider("X", PHC));
+        assertEquals(anm, resolver.serviceProvider("X", ANM));
+
+        verify(serviceProvidersRepository, times(1)).fetchBy("X", ANM);
+        verify(serviceProvidersRepository, times(1)).fetchBy("X", PHC);
+    }
+
+    @Test
+    public void shouldLookUpMissingDimensionAgainUntilItIsFound() throws Exception {
+        ServiceProvider anm = new ServiceProvider(1, 1, ANM);
+        when(serviceProvidersRepository.fetchBy("ANM X", ANM)).thenReturn(null, anm);
+
+        assertNull(resolver.serviceProvider("ANM X", ANM));
+        assertEquals(anm, resolver.serviceProvider("ANM X", ANM));
+        assertEquals(anm, resolver.serviceProvider("ANM X", ANM));
+
+        verify(serviceProvidersRepository, times(2)).fetchBy("ANM X", ANM);
+    }
+}
@@ -29,6 +29,7 @@ import org.opensrp.reporting.repository.ServicesProvidedRepository;
 import org.opensrp.reporting.repository.cache.CacheableRepository;
 import org.opensrp.reporting.repository.cache.IndicatorCacheableRepository;
 import org.opensrp.reporting.repository.cache.ReadOnlyCacheableRepository;
+import org.opensrp.reporting.repository.cache.ReferenceDataCacheSettings;
 
 import static org.opensrp.reporting.domain.ServiceProviderType.ANM;
 
@@ -53,7 +54,10 @@ public class ServicesProvidedRepositoryTest {
     @Before
     public void setUp() throws Exception {
         initMocks(this);
-        repository = new ServicesProvidedRepository(indicatorRepository, locationRepository, serviceProvidersRepository, servicesProvidedRepository, monitor);
+        ReferenceDataCacheSettings cacheSettings = new ReferenceDataCacheSettings(10, 10, 10, 10, 0, 0);
+        repository = new ServicesProvidedRepository(indicatorRepository,
+                new DimensionKeyResolver(locationRepository, serviceProvidersRepository, cacheSettings),
+                servicesProvidedRepository, monitor, cacheSettings);
     }
 
     @Test
@@ -77,9 +81,9 @@ public class ServicesProvidedRepositoryTest {
         repository.save(anmIdentifier, "ANM", externalId, indicator, "2012-04-04", village, subCenter, phc.phcIdentifier(), null, dristhiEntityId);
 
         verifyCallsToReadOnlyCachedRepository(indicatorRepository, new Indicator(indicator));
-        verify(locationRepository, times(2)).fetchBy(village, subCenter, phc.phcIdentifier());
-        verify(serviceProvidersRepository, times(2)).fetchBy(anmIdentifier, ANM);
-        verify(servicesProvidedRepository, times(2)).save(serviceProvider, "12345", fetchedIndicator, date, location, dristhiEntityId);
+        verify(locationRepository, times(1)).fetchBy(village, subCenter, phc.phcIdentifier());
+        verify(serviceProvidersRepository, times(1)).fetchBy(anmIdentifier, ANM);
+        verify(servicesProvidedRepository, times(2)).save(serviceProvider, "12345", fetchedIndicator, date, location, dristhiEntityId, 1);
     }
 
     @Test
@@ -102,7 +106,7 @@ public class ServicesProvidedRepositoryTest {
 
         repository.save(anmIdentifier, "ANM", externalId, indicator, "2012-04-04", village, subCenter, phc.phcIdentifier(), "40", dristhiEntityId);
 
-        verify(servicesProvidedRepository, times(40)).save(serviceProvider, "12345", fetchedIndicator, date, location, dristhiEntityId);
+        verify(servicesProvidedRepository).save(serviceProvider, "12345", fetchedIndicator, date, location, dristhiEntityId, 40);
     }
 
     @Test
@@ -148,7 +152,7 @@ public class ServicesProvidedRepositoryTest {
         repository.update(request);
 
         verify(servicesProvidedRepository).delete(indicator, startDate, endDate);
-        verify(servicesProvidedRepository).save(serviceProvider, "12345", fetchedIndicator, date, location, "entity id 1");
+        verify(servicesProvidedRepository).save(serviceProvider, "12345", fetchedIndicator, date, location, "entity id 1", 1);
     }
 
     @Test
@@ -56,7 +56,7 @@ public class ReadOnlyCachingRepositoryTest {
     }
 
     private <T> void assertCacheableReadOnly(ReadOnlyCacheableRepository<T> cacheableRepository, final FactoryForReadOnlyCache<T> factory) {
-        ReadOnlyCachingRepository<T> repository = new ReadOnlyCachingRepository<>(cacheableRepository);
+        ReadOnlyCachingRepository<T> repository = new ReadOnlyCachingRepository<>(cacheableRepository, new CacheSettings(10, 0, 0));
 
         T objectInDB = factory.objectInDB();
         T objectNotInDB = factory.objectNotInDB();
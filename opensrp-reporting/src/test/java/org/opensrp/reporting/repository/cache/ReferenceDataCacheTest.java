@@ -0,0 +1,120 @@
+package org.opensrp.reporting.repository.cache;
+
+import org.joda.time.LocalDate;
+import org.junit.After;
+import org.junit.Test;
+import org.opensrp.common.util.DateUtil;
+import org.opensrp.reporting.domain.Indicator;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ReferenceDataCacheTest {
+    private static final long ONE_DAY = 24 * 60 * 60 * 1000L;
+
+    private CountingLoader loader = new CountingLoader();
+
+    @After
+    public void tearDown() throws Exception {
+        DateUtil.fakeIt(LocalDate.now());
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyReadEntryWhenCacheIsFull() throws Exception {
+        ReferenceDataCache<Indicator, Indicator> cache = new ReferenceDataCache<>("indicators", new CacheSettings(2, 0, 0));
+
+        DateUtil.fakeIt(LocalDate.parse("2013-01-01"));
+        cache.get(new Indicator("A"), loader);
+        DateUtil.fakeIt(LocalDate.parse("2013-01-02"));
+        cache.get(new Indicator("B"), loader);
+        DateUtil.fakeIt(LocalDate.parse("2013-01-03"));
+        cache.get(new Indicator("A"), loader);
+        DateUtil.fakeIt(LocalDate.parse("2013-01-04"));
+        cache.get(new Indicator("C"), loader);
+        cache.get(new Indicator("A"), loader);
+        cache.get(new Indicator("B"), loader);
+
+        assertEquals(2, cache.size());
+        assertEquals(1, loader.loadsOf("A"));
+        assertEquals(2, loader.loadsOf("B"));
+        assertEquals(2, cache.statistics().evictions());
+        assertEquals(2, cache.statistics().hits());
+        assertEquals(4, cache.statistics().misses());
+    }
+
+    @Test
+    public void shouldStayWithinMaximumSizeWhenEntriesAreSpreadOverStripes() throws Exception {
+        ReferenceDataCache<Indicator, Indicator> cache = new ReferenceDataCache<>("indicators", new CacheSettings(256, 0, 0));
+
+        for (int i = 0; i < 1000; i++) {
+            cache.get(new Indicator("INDICATOR " + i), loader);
+        }
+
+        assertTrue(cache.size() <= 256);
+        assertEquals(1000 - cache.size(), cache.statistics().evictions());
+    }
+
+    @Test
+    public void shouldReloadEntryAfterItExpires() throws Exception {
+        ReferenceDataCache<Indicator, Indicator> cache = new ReferenceDataCache<>("indicators", new CacheSettings(10, ONE_DAY, 0));
+
+        DateUtil.fakeIt(LocalDate.parse("2013-01-01"));
+        cache.get(new Indicator("A"), loader);
+        DateUtil.fakeIt(LocalDate.parse("2013-01-02"));
+        cache.get(new Indicator("A"), loader);
+
+        assertEquals(2, loader.loadsOf("A"));
+        assertEquals(2, cache.statistics().misses());
+    }
+
+    @Test
+    public void shouldRefreshEntryReadWithinRefreshAheadWindowWithoutMissing() throws Exception {
+        ReferenceDataCache<Indicator, Indicator> cache = new ReferenceDataCache<>("indicators", new CacheSettings(10, 3 * ONE_DAY, ONE_DAY));
+
+        DateUtil.fakeIt(LocalDate.parse("2013-01-01"));
+        cache.get(new Indicator("A"), loader);
+        DateUtil.fakeIt(LocalDate.parse("2013-01-02"));
+        cache.get(new Indicator("A"), loader);
+        assertEquals(1, loader.loadsOf("A"));
+        DateUtil.fakeIt(LocalDate.parse("2013-01-03"));
+        cache.get(new Indicator("A"), loader);
+        DateUtil.fakeIt(LocalDate.parse("2013-01-04"));
+        cache.get(new Indicator("A"), loader);
+
+        assertEquals(2, loader.loadsOf("A"));
+        assertEquals(1, cache.statistics().misses());
+        assertEquals(3, cache.statistics().hits());
+        assertEquals(1, cache.statistics().refreshes());
+    }
+
+    @Test
+    public void shouldNotCacheRowsThatAreNotFound() throws Exception {
+        ReferenceDataCache<Indicator, Indicator> cache = new ReferenceDataCache<>("indicators", new CacheSettings(10, 0, 0));
+        ReferenceDataCache.Loader<Indicator, Indicator> missingRowLoader = new ReferenceDataCache.Loader<Indicator, Indicator>() {
+            @Override
+            public Indicator load(Indicator key) {
+                return null;
+            }
+        };
+
+        assertEquals(null, cache.get(new Indicator("A"), missingRowLoader));
+        assertEquals(0, cache.size());
+    }
+
+    private static class CountingLoader implements ReferenceDataCache.Loader<Indicator, Indicator> {
+        private Map<String, Integer> loads = new HashMap<>();
+
+        @Override
+        public Indicator load(Indicator key) {
+            loads.put(key.indicator(), loadsOf(key.indicator()) + 1);
+            return new Indicator(loads.size(), key.indicator());
+        }
+
+        private int loadsOf(String indicator) {
+            return loads.containsKey(indicator) ? loads.get(indicator) : 0;
+        }
+    }
+}
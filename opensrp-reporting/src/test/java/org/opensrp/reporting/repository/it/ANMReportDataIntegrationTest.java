@@ -4,6 +4,8 @@ import org.joda.time.LocalDate;
 import org.junit.Test;
 import org.opensrp.reporting.domain.ANM;
 import org.opensrp.reporting.domain.ANMReportData;
+import org.opensrp.reporting.domain.ANMReportDataSummary;
+import org.opensrp.reporting.domain.ANMReportMonthlyRollup;
 import org.opensrp.reporting.domain.Indicator;
 import org.opensrp.reporting.repository.AllANMReportDataRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,6 +15,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.util.Date;
 import java.util.List;
 
+import static java.util.Arrays.asList;
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertTrue;
 
@@ -35,6 +38,23 @@ public class ANMReportDataIntegrationTest extends ANMReportsIntegrationTestBase
         assertEquals(1, template.loadAll(ANMReportData.class).size());
     }
 
+    @Test
+    @Transactional("anm_report")
+    @Rollback
+    public void shouldSaveQuantityOfANMReportDataWithOneBatchedInsert() throws Exception {
+        ANM anm = new ANM("ANM X");
+        Date date = LocalDate.parse("2013-01-26").toDate();
+        Indicator indicator = new Indicator("ANC Indicator");
+        template.save(anm);
+        template.save(indicator);
+
+        repository.save(anm, "EC CASE X", indicator, date, 5);
+
+        List<ANMReportData> anmReportData = template.loadAll(ANMReportData.class);
+        assertEquals(5, anmReportData.size());
+        assertTrue(anmReportData.contains(new ANMReportData(anm, "EC CASE X", indicator, date)));
+    }
+
     @Test
     @Transactional("anm_report")
     @Rollback
@@ -98,6 +118,95 @@ public class ANMReportDataIntegrationTest extends ANMReportsIntegrationTestBase
         assertEquals(2, anmReportDataList.size());
     }
 
+    @Test
+    @Transactional("anm_report")
+    @Rollback
+    public void shouldSummarizeReportDataOfANMByIndicatorReportMonthAndExternalId() throws Exception {
+        ANM anm1 = new ANM("ANM X");
+        ANM anm2 = new ANM("ANM Y");
+        Indicator anc = new Indicator("ANC");
+        Indicator iud = new Indicator("IUD");
+        template.save(anm1);
+        template.save(anm2);
+        template.save(anc);
+        template.save(iud);
+        repository.save(anm1, "EC CASE 1", iud, LocalDate.parse("2012-03-25").toDate());
+        repository.save(anm1, "EC CASE 2", iud, LocalDate.parse("2012-03-26").toDate());
+        repository.save(anm1, "EC CASE 2", iud, LocalDate.parse("2012-04-25").toDate());
+        repository.save(anm1, "EC CASE 3", iud, LocalDate.parse("2012-04-26").toDate());
+        repository.save(anm1, "EC CASE 4", anc, LocalDate.parse("2012-12-26").toDate(), 2);
+        repository.save(anm2, "EC CASE 5", anc, LocalDate.parse("2012-04-01").toDate());
+
+        List<ANMReportDataSummary> summaries = repository.summarize("ANM X", LocalDate.parse("2012-03-26").toDate());
+
+        assertEquals(asList(
+                new ANMReportDataSummary(anc.id(), "ANC", 2013, 1, "EC CASE 4", 2),
+                new ANMReportDataSummary(iud.id(), "IUD", 2012, 4, "EC CASE 2", 2),
+                new ANMReportDataSummary(iud.id(), "IUD", 2012, 5, "EC CASE 3", 1)), summaries);
+    }
+
+    @Test
+    @Transactional("anm_report")
+    @Rollback
+    public void shouldRollUpReportsByReportMonthAsTheyAreSaved() throws Exception {
+        ANM anm = new ANM("ANM X");
+        Indicator indicator = new Indicator("IUD");
+        template.save(anm);
+        template.save(indicator);
+
+        repository.save(anm, "EC CASE 1", indicator, LocalDate.parse("2012-12-26").toDate());
+        repository.save(anm, "EC CASE 1", indicator, LocalDate.parse("2013-01-25").toDate(), 2);
+        repository.save(anm, "EC CASE 1", indicator, LocalDate.parse("2013-01-26").toDate());
+        template.clear();
+
+        List<ANMReportMonthlyRollup> rollups = template.loadAll(ANMReportMonthlyRollup.class);
+        assertEquals(2, rollups.size());
+        assertTrue(rollups.contains(new ANMReportMonthlyRollup(anm, indicator, "EC CASE 1", 2013, 1, 3)));
+        assertTrue(rollups.contains(new ANMReportMonthlyRollup(anm, indicator, "EC CASE 1", 2013, 2, 1)));
+    }
+
+    @Test
+    @Transactional("anm_report")
+    @Rollback
+    public void shouldRebuildRollupsOfReportMonthsWhenReportsOfAnIndicatorAreDeleted() throws Exception {
+        ANM anm = new ANM("ANM X");
+        Indicator iud = new Indicator("IUD");
+        Indicator anc = new Indicator("ANC");
+        template.save(anm);
+        template.save(iud);
+        template.save(anc);
+        repository.save(anm, "EC CASE 1", iud, LocalDate.parse("2013-01-26").toDate());
+        repository.save(anm, "EC CASE 2", iud, LocalDate.parse("2013-02-25").toDate());
+        repository.save(anm, "EC CASE 3", iud, LocalDate.parse("2013-02-26").toDate());
+        repository.save(anm, "EC CASE 4", anc, LocalDate.parse("2013-01-26").toDate());
+
+        repository.delete("IUD", "2013-01-26", "2013-02-25");
+        template.clear();
+
+        List<ANMReportMonthlyRollup> rollups = template.loadAll(ANMReportMonthlyRollup.class);
+        assertEquals(3, rollups.size());
+        assertTrue(rollups.contains(new ANMReportMonthlyRollup(anm, iud, "EC CASE 2", 2013, 2, 1)));
+        assertTrue(rollups.contains(new ANMReportMonthlyRollup(anm, iud, "EC CASE 3", 2013, 3, 1)));
+        assertTrue(rollups.contains(new ANMReportMonthlyRollup(anm, anc, "EC CASE 4", 2013, 2, 1)));
+    }
+
+    @Test
+    @Transactional("anm_report")
+    @Rollback
+    public void shouldDeleteRollupsOfExternalIdWhenItsReportsAreDeleted() throws Exception {
+        ANM anm = new ANM("ANM X");
+        Indicator indicator = new Indicator("IUD");
+        template.save(anm);
+        template.save(indicator);
+        repository.save(anm, "entity id 1", indicator, LocalDate.parse("2013-01-26").toDate());
+        repository.save(anm, "entity id 2", indicator, LocalDate.parse("2013-01-26").toDate());
+
+        repository.deleteReportsForExternalId("entity id 1");
+
+        assertEquals(asList(new ANMReportMonthlyRollup(anm, indicator, "entity id 2", 2013, 2, 1)),
+                template.loadAll(ANMReportMonthlyRollup.class));
+    }
+
     @Test
     @Transactional("anm_report")
     @Rollback
@@ -0,0 +1,160 @@
+package org.opensrp.reporting.repository.it;
+
+import org.joda.time.LocalDate;
+import org.junit.After;
+import org.junit.Test;
+import org.opensrp.common.domain.ANMIndicatorSummary;
+import org.opensrp.common.domain.MonthSummary;
+import org.opensrp.common.domain.ReportMonth;
+import org.opensrp.common.util.DateUtil;
+import org.opensrp.reporting.domain.ANM;
+import org.opensrp.reporting.domain.ANMReportData;
+import org.opensrp.reporting.domain.AnnualTarget;
+import org.opensrp.reporting.domain.Indicator;
+import org.opensrp.reporting.repository.ANMReportsRepository;
+import org.opensrp.reporting.repository.AllANMReportDataRepository;
+import org.opensrp.reporting.repository.AllAnnualTargetsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.Rollback;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static ch.lambdaj.Lambda.*;
+import static java.lang.String.valueOf;
+import static java.text.MessageFormat.format;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assume.assumeTrue;
+import static org.opensrp.common.util.DateUtil.today;
+
+/**
+ * Compares the ANM summary computed from all report rows in memory with the one computed by grouped queries. Runs
+ * only when asked for with the number of report rows, e.g.
+ * mvn test -Dtest=ANMSummaryBenchmark -Dbenchmark.anm.report.rows=100000
+ */
+public class ANMSummaryBenchmark extends ANMReportsIntegrationTestBase {
+    private static Logger logger = LoggerFactory.getLogger(ANMSummaryBenchmark.class.toString());
+    private static final int INDICATORS = 40;
+    private static final int ROWS_PER_EXTERNAL_ID = 3;
+    private static final int RUNS = 5;
+
+    @Autowired
+    private ANMReportsRepository anmReportsRepository;
+    @Autowired
+    private AllANMReportDataRepository anmReportDataRepository;
+    @Autowired
+    private AllAnnualTargetsRepository annualTargetsRepository;
+
+    private ReportMonth reportMonth = new ReportMonth();
+
+    @After
+    public void tearDown() throws Exception {
+        DateUtil.fakeIt(LocalDate.now());
+    }
+
+    @Test
+    @Transactional("anm_report")
+    @Rollback
+    public void shouldSummarizeANMReportsFasterWithGroupedQueries() throws Exception {
+        String rowsProperty = System.getProperty("benchmark.anm.report.rows");
+        assumeTrue(rowsProperty != null);
+        int rows = Integer.parseInt(rowsProperty);
+        DateUtil.fakeIt(LocalDate.parse("2013-03-20"));
+        setUpReportData("ANM X", rows);
+
+        List<ANMIndicatorSummary> expected = null;
+        List<ANMIndicatorSummary> actual = null;
+        long inMemoryTime = 0;
+        long groupedQueryTime = 0;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            expected = fetchANMSummaryInMemory("ANM X");
+            inMemoryTime += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            actual = anmReportsRepository.fetchANMSummary("ANM X");
+            groupedQueryTime += System.nanoTime() - start;
+        }
+
+        logger.info(format("ANM summary of {0} report rows: in memory {1} ms, grouped queries {2} ms on average",
+                rows, inMemoryTime / RUNS / 1000000, groupedQueryTime / RUNS / 1000000));
+        assertEquals(expected.size(), actual.size());
+        assertTrue(withSortedExternalIds(actual).containsAll(withSortedExternalIds(expected)));
+    }
+
+    /**
+     * External ids of a month are listed in no particular order, so they are sorted before summaries are compared.
+     */
+    private List<ANMIndicatorSummary> withSortedExternalIds(List<ANMIndicatorSummary> summaries) {
+        List<ANMIndicatorSummary> sortedSummaries = new ArrayList<>();
+        for (ANMIndicatorSummary summary : summaries) {
+            List<MonthSummary> monthSummaries = new ArrayList<>();
+            for (MonthSummary monthSummary : summary.monthlySummaries()) {
+                List<String> externalIds = new ArrayList<>(monthSummary.externalIDs());
+                Collections.sort(externalIds);
+                monthSummaries.add(new MonthSummary(monthSummary.month(), monthSummary.year(), monthSummary.currentProgress(),
+                        monthSummary.aggregatedProgress(), externalIds));
+            }
+            sortedSummaries.add(new ANMIndicatorSummary(summary.indicator(), summary.annualTarget(), monthSummaries));
+        }
+        return sortedSummaries;
+    }
+
+    private void setUpReportData(String anmIdentifier, int rows) {
+        ANM anm = new ANM(anmIdentifier);
+        template.save(anm);
+        List<Indicator> indicators = new ArrayList<>();
+        for (int i = 0; i < INDICATORS; i++) {
+            Indicator indicator = new Indicator("INDICATOR " + i);
+            template.save(indicator);
+            indicators.add(indicator);
+        }
+
+        LocalDate startOfYear = new LocalDate(reportMonth.startDateOfReportingYear());
+        for (int row = 0; row < rows; row += ROWS_PER_EXTERNAL_ID) {
+            Indicator indicator = indicators.get(row % INDICATORS);
+            LocalDate date = startOfYear.plusDays((row / INDICATORS) % 360);
+            anmReportDataRepository.save(anm, "EC CASE " + row / ROWS_PER_EXTERNAL_ID, indicator, date.toDate(),
+                    Math.min(ROWS_PER_EXTERNAL_ID, rows - row));
+        }
+    }
+
+    private List<ANMIndicatorSummary> fetchANMSummaryInMemory(String anmIdentifier) {
+        List<ANMIndicatorSummary> anmIndicatorSummaries = new ArrayList<>();
+        List<ANMReportData> allReportData = anmReportDataRepository.fetchByANMIdAndDate(anmIdentifier, reportMonth.startDateOfReportingYear());
+
+        Collection<Indicator> indicators = selectDistinct(collect(allReportData, on(ANMReportData.class).indicator()));
+        for (Indicator indicator : indicators) {
+            List<ANMReportData> allReportDataForIndicator = filter(having(on(ANMReportData.class).indicator(), equalTo(indicator)), allReportData);
+            int aggregatedProgress = 0;
+            List<MonthSummary> monthSummaries = new ArrayList<>();
+
+            for (LocalDate indexDate = new LocalDate(reportMonth.startDateOfReportingYear()); indexDate.isBefore(reportMonth.startDateOfNextReportingMonth(today())); indexDate = indexDate.plusMonths(1)) {
+                LocalDate reportingMonthEndDate = new LocalDate(indexDate).plusMonths(1);
+                LocalDate endDate = reportMonth.endDateOfReportingMonthGivenStartDate(indexDate);
+                List<ANMReportData> allReportDataForAMonth = filter(having(on(ANMReportData.class).date(),
+                        allOf(greaterThanOrEqualTo(indexDate.toDate()), lessThanOrEqualTo(endDate.toDate()))), allReportDataForIndicator);
+                if (allReportDataForAMonth.size() == 0) {
+                    continue;
+                }
+
+                int currentProgress = allReportDataForAMonth.size();
+                aggregatedProgress += currentProgress;
+                List<String> externalIds = new ArrayList<>(selectDistinct(collect(allReportDataForAMonth, on(ANMReportData.class).externalId())));
+                monthSummaries.add(new MonthSummary(valueOf(reportingMonthEndDate.getMonthOfYear()), valueOf(reportingMonthEndDate.getYear()),
+                        valueOf(currentProgress), valueOf(aggregatedProgress), externalIds));
+            }
+            AnnualTarget annualTarget = annualTargetsRepository.fetchFor(anmIdentifier, indicator, today().toDate());
+            String target = annualTarget == null ? null : annualTarget.target();
+            anmIndicatorSummaries.add(new ANMIndicatorSummary(indicator.indicator(), target, monthSummaries));
+        }
+        return anmIndicatorSummaries;
+    }
+}
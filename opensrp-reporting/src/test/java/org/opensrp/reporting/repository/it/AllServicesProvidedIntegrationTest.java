@@ -17,8 +17,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.annotation.Rollback;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import static ch.lambdaj.Lambda.*;
 import static org.hamcrest.Matchers.equalTo;
@@ -54,6 +56,54 @@ public class AllServicesProvidedIntegrationTest extends ServicesProvidedIntegrat
         assertTrue(servicesProvided.contains(new ServiceProvided(serviceProvider, "123", indicator, dates, location, dristhiEntityId)));
     }
 
+    @Test
+    @Transactional("service_provided")
+    @Rollback
+    public void shouldSaveQuantityOfServicesWithOneBatchedInsert() throws Exception {
+        PHC phc = new PHC("bhe", "Bherya");
+        template.save(phc);
+        SP_ANM anm = new SP_ANM("ANM X", "anmx name", "Sub Center 1", phc.id());
+        template.save(anm);
+        Date date = LocalDate.parse("2013-01-26").toDate();
+        Indicator indicator = new Indicator("ANC indicator");
+        Location location = new Location("Bherya", "Sub Center", phc, "taluka", "mysore", "karnataka");
+        List<ServiceProviderType> serviceProviderTypes = template.loadAll(ServiceProviderType.class);
+        ServiceProviderType anmServiceProvider = selectUnique(serviceProviderTypes, having(on(ServiceProviderType.class).type(), equalTo(ANM.type())));
+        ServiceProvider serviceProvider = new ServiceProvider(anm.id(), anmServiceProvider);
+        template.save(location);
+        template.save(indicator);
+        template.save(serviceProvider);
+
+        repository.save(serviceProvider, "123", indicator, date, location, "entity id 1", 3);
+
+        List<ServiceProvided> servicesProvided = template.loadAll(ServiceProvided.class);
+        assertEquals(3, servicesProvided.size());
+        assertTrue(servicesProvided.contains(new ServiceProvided(serviceProvider, "123", indicator, date, location, "entity id 1")));
+    }
+
+    @Test
+    @Transactional("service_provided")
+    @Rollback
+    public void shouldSaveQuantityOfServicesWithoutALocation() throws Exception {
+        PHC phc = new PHC("bhe", "Bherya");
+        template.save(phc);
+        SP_ANM anm = new SP_ANM("ANM X", "anmx name", "Sub Center 1", phc.id());
+        template.save(anm);
+        Date date = LocalDate.parse("2013-01-26").toDate();
+        Indicator indicator = new Indicator("ANC indicator");
+        List<ServiceProviderType> serviceProviderTypes = template.loadAll(ServiceProviderType.class);
+        ServiceProviderType anmServiceProvider = selectUnique(serviceProviderTypes, having(on(ServiceProviderType.class).type(), equalTo(ANM.type())));
+        ServiceProvider serviceProvider = new ServiceProvider(anm.id(), anmServiceProvider);
+        template.save(indicator);
+        template.save(serviceProvider);
+
+        repository.save(serviceProvider, "123", indicator, date, null, "entity id 1", 1);
+
+        List<ServiceProvided> servicesProvided = template.loadAll(ServiceProvided.class);
+        assertEquals(1, servicesProvided.size());
+        assertTrue(servicesProvided.contains(new ServiceProvided(serviceProvider, "123", indicator, date, null, "entity id 1")));
+    }
+
     @Test
     @Transactional("service_provided")
     @Rollback
@@ -163,6 +213,24 @@ public class AllServicesProvidedIntegrationTest extends ServicesProvidedIntegrat
         );
     }
 
+    @Test
+    @Transactional("service_provided")
+    @Rollback
+    public void shouldCountServicesProvidedOfEachIndicatorWithinDatesForADimension() throws Exception {
+        createMultipleServiceProvidedData();
+
+        Map<String, Integer> countOfANM = repository.countByIndicator(ReportDimension.ANM, "ANM X",
+                LocalDate.parse("2013-01-26").toDate(), LocalDate.parse("2013-02-25").toDate());
+        Map<String, Integer> countOfPHC = repository.countByIndicator(ReportDimension.PHC, "bhe",
+                LocalDate.parse("2013-01-26").toDate(), LocalDate.parse("2013-02-25").toDate());
+        Map<String, Integer> countOfPreviousMonth = repository.countByIndicator(ReportDimension.PHC, "bhe",
+                LocalDate.parse("2012-12-26").toDate(), LocalDate.parse("2013-01-25").toDate());
+
+        assertEquals(Collections.singletonMap("INDICATOR", 1), countOfANM);
+        assertEquals(Collections.singletonMap("INDICATOR", 2), countOfPHC);
+        assertTrue(countOfPreviousMonth.isEmpty());
+    }
+
     private void createServiceProvidedData() {
         PHC phc = new PHC("bhe", "Bherya");
         template.save(phc);
@@ -0,0 +1,89 @@
+package org.opensrp.reporting.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.opensrp.common.domain.ANMIndicatorSummary;
+import org.opensrp.common.domain.ANMReport;
+import org.opensrp.reporting.repository.ANMReportsRepository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static org.opensrp.common.util.ANMIndicatorSummaryFactory.createSummaryForIUD;
+
+public class ANMReportGeneratorTest {
+    @Mock
+    private ANMReportsRepository anmReportsRepository;
+
+    private ANMReportGenerator generator;
+
+    @Before
+    public void setUp() throws Exception {
+        initMocks(this);
+        generator = new ANMReportGenerator(anmReportsRepository, 2);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        generator.stop();
+    }
+
+    @Test
+    public void shouldHandReportOfEveryANMToHandler() throws Exception {
+        List<String> anmIdentifiers = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            anmIdentifiers.add("ANM " + i);
+            when(anmReportsRepository.fetchANMSummary("ANM " + i)).thenReturn(asList(createSummaryForIUD()));
+        }
+        when(anmReportsRepository.fetchAllANMIdentifiers()).thenReturn(anmIdentifiers);
+        final List<ANMReport> reports = Collections.synchronizedList(new ArrayList<ANMReport>());
+
+        generator.generate(new ANMReportGenerator.ReportHandler() {
+            @Override
+            public void handle(ANMReport report) {
+                reports.add(report);
+            }
+        });
+
+        assertEquals(10, reports.size());
+        for (String anmIdentifier : anmIdentifiers) {
+            assertTrue(reports.contains(new ANMReport(anmIdentifier, asList(createSummaryForIUD()))));
+        }
+    }
+
+    @Test
+    public void shouldNotHandAnyReportWhenThereAreNoANMs() throws Exception {
+        when(anmReportsRepository.fetchAllANMIdentifiers()).thenReturn(Collections.<String>emptyList());
+        final List<ANMReport> reports = new ArrayList<>();
+
+        generator.generate(new ANMReportGenerator.ReportHandler() {
+            @Override
+            public void handle(ANMReport report) {
+                reports.add(report);
+            }
+        });
+
+        assertEquals(0, reports.size());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void shouldFailWhenReportOfAnANMCannotBeGenerated() throws Exception {
+        when(anmReportsRepository.fetchAllANMIdentifiers()).thenReturn(asList("ANM X", "ANM Y"));
+        when(anmReportsRepository.fetchANMSummary("ANM X")).thenReturn(Collections.<ANMIndicatorSummary>emptyList());
+        when(anmReportsRepository.fetchANMSummary("ANM Y")).thenThrow(new RuntimeException("Database is down"));
+
+        generator.generate(new ANMReportGenerator.ReportHandler() {
+            @Override
+            public void handle(ANMReport report) {
+            }
+        });
+    }
+}
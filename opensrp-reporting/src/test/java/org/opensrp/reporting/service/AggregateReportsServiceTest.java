@@ -2,11 +2,14 @@ package org.opensrp.reporting.service;
 
 import com.google.gson.Gson;
 import org.opensrp.common.domain.ReportMonth;
+import org.opensrp.common.monitor.Monitor;
 import org.opensrp.common.util.HttpAgent;
 import org.opensrp.common.util.HttpResponse;
 import org.joda.time.LocalDate;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.opensrp.dto.aggregatorResponse.AggregatorResponseDTO;
 import org.opensrp.dto.report.ServiceProvidedReportDTO;
@@ -15,12 +18,17 @@ import org.opensrp.reporting.repository.AllTokensRepository;
 import org.opensrp.reporting.repository.ServicesProvidedRepository;
 import org.opensrp.reporting.service.AggregateReportsService;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 import static java.util.Arrays.asList;
+import static org.opensrp.common.monitor.Metric.REPORTING_AGGREGATOR_EXPORT_LAG;
+import static org.opensrp.common.monitor.Metric.REPORTING_AGGREGATOR_EXPORT_THROUGHPUT;
 import static org.opensrp.common.util.EasyMap.mapOf;
+import static org.opensrp.reporting.domain.ReportDimension.ANM;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.*;
 import static org.mockito.MockitoAnnotations.initMocks;
 
@@ -36,11 +44,21 @@ public class AggregateReportsServiceTest {
     private ServicesProvidedRepository servicesProvidedRepository;
     @Mock
     private ReportMonth reportMonth;
+    @Mock
+    private Monitor monitor;
+    @Mock
+    private LocalAggregator localAggregator;
 
     @Before
     public void setUp() throws Exception {
         initMocks(this);
-        aggregateReportsService = new AggregateReportsService("bamboo.url", "bamboo.aggregated.url", batchSizeToUpdate, httpAgent, tokenRepository, servicesProvidedRepository, reportMonth);
+        aggregateReportsService = new AggregateReportsService("bamboo.url", "bamboo.aggregated.url", batchSizeToUpdate, 2, false, false,
+                httpAgent, tokenRepository, servicesProvidedRepository, reportMonth, monitor, localAggregator);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        aggregateReportsService.stop();
     }
 
     @Test
@@ -93,6 +111,65 @@ public class AggregateReportsServiceTest {
         verify(tokenRepository, never()).saveAggregateReportsToken(anyInt());
     }
 
+    @Test
+    public void shouldKeepSendingBatchesOfReportsUntilThereAreNoMoreNewReports() throws Exception {
+        aggregateReportsService = new AggregateReportsService("bamboo.url", "bamboo.aggregated.url", 2, 2, false, false,
+                httpAgent, tokenRepository, servicesProvidedRepository, reportMonth, monitor, localAggregator);
+        when(tokenRepository.getAggregateReportsToken()).thenReturn(0);
+        when(servicesProvidedRepository.getNewReports(0, 2)).thenReturn(reportsWithIds(1, 2));
+        when(servicesProvidedRepository.getNewReports(2, 2)).thenReturn(reportsWithIds(3, 4));
+        when(servicesProvidedRepository.getNewReports(4, 2)).thenReturn(reportsWithIds(5));
+        when(servicesProvidedRepository.getLatestReportId()).thenReturn(5);
+        when(httpAgent.put(eq("bamboo.url"), anyMap())).thenReturn(new HttpResponse(true, ""));
+
+        aggregateReportsService.sendReportsToAggregator();
+
+        verify(httpAgent, times(3)).put(eq("bamboo.url"), anyMap());
+        InOrder inOrder = inOrder(tokenRepository);
+        inOrder.verify(tokenRepository).saveAggregateReportsToken(2);
+        inOrder.verify(tokenRepository).saveAggregateReportsToken(4);
+        inOrder.verify(tokenRepository).saveAggregateReportsToken(5);
+        verify(servicesProvidedRepository, never()).getNewReports(5, 2);
+        verify(monitor).addObservationFor(REPORTING_AGGREGATOR_EXPORT_LAG, 0);
+        verify(monitor).addObservationFor(eq(REPORTING_AGGREGATOR_EXPORT_THROUGHPUT), anyLong());
+    }
+
+    @Test
+    public void shouldNotMoveTokenPastABatchThatTheAggregatorDidNotAccept() throws Exception {
+        aggregateReportsService = new AggregateReportsService("bamboo.url", "bamboo.aggregated.url", 2, 2, false, false,
+                httpAgent, tokenRepository, servicesProvidedRepository, reportMonth, monitor, localAggregator);
+        when(tokenRepository.getAggregateReportsToken()).thenReturn(0);
+        when(servicesProvidedRepository.getNewReports(0, 2)).thenReturn(reportsWithIds(1, 2));
+        when(servicesProvidedRepository.getNewReports(2, 2)).thenReturn(reportsWithIds(3, 4));
+        when(servicesProvidedRepository.getNewReports(4, 2)).thenReturn(reportsWithIds(5));
+        when(httpAgent.put(eq("bamboo.url"), anyMap())).thenReturn(new HttpResponse(true, ""), new HttpResponse(false, "Server error"));
+
+        try {
+            aggregateReportsService.sendReportsToAggregator();
+            fail("Expected failure of second batch to be reported.");
+        } catch (RuntimeException expected) {
+        }
+
+        verify(tokenRepository).saveAggregateReportsToken(2);
+        verify(tokenRepository, never()).saveAggregateReportsToken(4);
+        verify(tokenRepository, never()).saveAggregateReportsToken(5);
+    }
+
+    @Test
+    public void shouldSendCompressedReportsToAggregatorWhenPayloadCompressionIsEnabled() throws Exception {
+        aggregateReportsService = new AggregateReportsService("bamboo.url", "bamboo.aggregated.url", batchSizeToUpdate, 2, true, false,
+                httpAgent, tokenRepository, servicesProvidedRepository, reportMonth, monitor, localAggregator);
+        when(tokenRepository.getAggregateReportsToken()).thenReturn(0);
+        when(servicesProvidedRepository.getNewReports(0, batchSizeToUpdate)).thenReturn(reportsWithIds(1));
+        when(httpAgent.putCompressed(eq("bamboo.url"), anyMap())).thenReturn(new HttpResponse(true, ""));
+
+        aggregateReportsService.sendReportsToAggregator();
+
+        verify(httpAgent).putCompressed(eq("bamboo.url"), anyMap());
+        verify(httpAgent, never()).put(anyString(), anyMap());
+        verify(tokenRepository).saveAggregateReportsToken(1);
+    }
+
     @Test
     public void shouldCallAggregatorToGetAggregatedReports() throws Exception {
         when(httpAgent.get("bamboo.aggregated.url?query=%7B%22anm_identifier%22%3A+%22demo1%22%2C%22nrhm_report_year%22%3A2013%2C+%22nrhm_report_month%22%3A10%7D"))
@@ -101,5 +178,26 @@ public class AggregateReportsServiceTest {
         List<AggregatorResponseDTO> aggregatorResponse = aggregateReportsService.getAggregatedReports("demo1", 10, 2013);
 
         assertEquals(asList(new AggregatorResponseDTO("OCP", 2), new AggregatorResponseDTO("OPV_1", 1)), aggregatorResponse);
+        verifyZeroInteractions(localAggregator);
+    }
+
+    @Test
+    public void shouldAggregateReportsLocallyWhenConfiguredTo() throws Exception {
+        aggregateReportsService = new AggregateReportsService("bamboo.url", "bamboo.aggregated.url", batchSizeToUpdate, 2, false, true,
+                httpAgent, tokenRepository, servicesProvidedRepository, reportMonth, monitor, localAggregator);
+        when(localAggregator.aggregate(ANM, "demo1", 10, 2013)).thenReturn(asList(new AggregatorResponseDTO("OCP", 2)));
+
+        List<AggregatorResponseDTO> aggregatedReports = aggregateReportsService.getAggregatedReports("demo1", 10, 2013);
+
+        assertEquals(asList(new AggregatorResponseDTO("OCP", 2)), aggregatedReports);
+        verify(httpAgent, never()).get(anyString());
+    }
+
+    private List<ServiceProvidedReport> reportsWithIds(Integer... ids) {
+        List<ServiceProvidedReport> reports = new ArrayList<>();
+        for (Integer id : ids) {
+            reports.add(new ServiceProvidedReport().withId(id).withDate(LocalDate.parse("2012-11-26").toDate()));
+        }
+        return reports;
     }
 }
@@ -0,0 +1,74 @@
+package org.opensrp.reporting.service;
+
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.opensrp.common.domain.ReportMonth;
+import org.opensrp.dto.aggregatorResponse.AggregatorResponseDTO;
+import org.opensrp.reporting.repository.ServicesProvidedRepository;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static org.opensrp.reporting.domain.ReportDimension.ANM;
+import static org.opensrp.reporting.domain.ReportDimension.PHC;
+
+public class LocalAggregatorTest {
+    @Mock
+    private ServicesProvidedRepository servicesProvidedRepository;
+
+    private LocalAggregator aggregator;
+
+    @Before
+    public void setUp() throws Exception {
+        initMocks(this);
+        aggregator = new LocalAggregator(servicesProvidedRepository, new ReportMonth(), 100, 300);
+    }
+
+    @Test
+    public void shouldCountServicesProvidedOfEveryIndicatorInReportMonth() throws Exception {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        counts.put("OCP", 2);
+        counts.put("OPV_1", 1);
+        when(servicesProvidedRepository.countByIndicator(ANM, "demo1", LocalDate.parse("2013-09-26"), LocalDate.parse("2013-10-25")))
+                .thenReturn(counts);
+
+        List<AggregatorResponseDTO> aggregatedReports = aggregator.aggregate(ANM, "demo1", 10, 2013);
+
+        assertEquals(asList(new AggregatorResponseDTO("OCP", 2), new AggregatorResponseDTO("OPV_1", 1)), aggregatedReports);
+    }
+
+    @Test
+    public void shouldCountReportMonthOfJanuaryFromTheEndOfDecember() throws Exception {
+        when(servicesProvidedRepository.countByIndicator(PHC, "bhe", LocalDate.parse("2012-12-26"), LocalDate.parse("2013-01-25")))
+                .thenReturn(singleCount("OCP", 3));
+
+        List<AggregatorResponseDTO> aggregatedReports = aggregator.aggregate(PHC, "bhe", 1, 2013);
+
+        assertEquals(asList(new AggregatorResponseDTO("OCP", 3)), aggregatedReports);
+    }
+
+    @Test
+    public void shouldServeRepeatedQueriesFromCache() throws Exception {
+        when(servicesProvidedRepository.countByIndicator(ANM, "demo1", LocalDate.parse("2013-09-26"), LocalDate.parse("2013-10-25")))
+                .thenReturn(singleCount("OCP", 2));
+
+        aggregator.aggregate(ANM, "demo1", 10, 2013);
+        List<AggregatorResponseDTO> aggregatedReports = aggregator.aggregate(ANM, "demo1", 10, 2013);
+
+        assertEquals(asList(new AggregatorResponseDTO("OCP", 2)), aggregatedReports);
+        verify(servicesProvidedRepository, times(1)).countByIndicator(ANM, "demo1", LocalDate.parse("2013-09-26"), LocalDate.parse("2013-10-25"));
+    }
+
+    private Map<String, Integer> singleCount(String indicator, int count) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        counts.put(indicator, count);
+        return counts;
+    }
+}
@@ -1,38 +1,51 @@
 package org.opensrp.web.controller;
 
-import ch.lambdaj.function.convert.Converter;
-
 import org.opensrp.scheduler.service.ActionService;
 import org.opensrp.dto.Action;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 
+import java.util.ArrayList;
 import java.util.List;
 
-import static ch.lambdaj.collection.LambdaCollections.with;
-
 @Controller
 public class ActionController {
     private ActionService actionService;
+    private int maximumBatchSize;
 
     @Autowired
-    public ActionController(ActionService actionService) {
+    public ActionController(ActionService actionService,
+                            @Value("#{opensrp['actions.sync.maximum.batch.size']}") int maximumBatchSize) {
         this.actionService = actionService;
+        this.maximumBatchSize = maximumBatchSize;
     }
 
+    /**
+     * Returns the next page of actions newer than the timestamp. The timestamp of the last action returned is the
+     * timestamp to ask for the page after it; an empty page means the ANM is up to date.
+     */
     @RequestMapping(method = RequestMethod.GET, value = "/actions")
     @ResponseBody
-    public List<Action> getNewActionForANM(@RequestParam("anmIdentifier") String anmIdentifier, @RequestParam("timeStamp") Long timeStamp){
-        List<org.opensrp.scheduler.Action> actions = actionService.getNewAlertsForANM(anmIdentifier, timeStamp);
-        return with(actions).convert(new Converter<org.opensrp.scheduler.Action, Action>() {
-            @Override
-            public Action convert(org.opensrp.scheduler.Action action) {
-                return ActionConvertor.from(action);
-            }
-        });
+    public List<Action> getNewActionForANM(@RequestParam("anmIdentifier") String anmIdentifier,
+                                           @RequestParam("timeStamp") Long timeStamp,
+                                           @RequestParam(value = "batch-size", required = false) Integer batchSize) {
+        List<org.opensrp.scheduler.Action> actions = actionService.getNewAlertsForANM(anmIdentifier, timeStamp, batchSizeFor(batchSize));
+        List<Action> actionDTOs = new ArrayList<>(actions.size());
+        for (org.opensrp.scheduler.Action action : actions) {
+            actionDTOs.add(ActionConvertor.from(action));
+        }
+        return actionDTOs;
+    }
+
+    private int batchSizeFor(Integer requestedBatchSize) {
+        if (requestedBatchSize == null || requestedBatchSize <= 0) {
+            return maximumBatchSize;
+        }
+        return Math.min(requestedBatchSize, maximumBatchSize);
     }
 }
@@ -5,27 +5,17 @@ import static java.text.MessageFormat.format;
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.CREATED;
 import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
 import static org.springframework.web.bind.annotation.RequestMethod.GET;
 import static org.springframework.web.bind.annotation.RequestMethod.POST;
 
 import java.util.List;
-import java.util.Map;
 
-import org.json.JSONObject;
-import org.opensrp.api.domain.Client;
-import org.opensrp.api.domain.Event;
-import org.opensrp.connector.OpenmrsConnector;
-import org.opensrp.connector.openmrs.constants.OpenmrsHouseHold;
-import org.opensrp.connector.openmrs.service.EncounterService;
-import org.opensrp.connector.openmrs.service.HouseholdService;
-import org.opensrp.connector.openmrs.service.PatientService;
 import org.opensrp.dto.form.FormSubmissionDTO;
 import org.opensrp.form.domain.FormSubmission;
 import org.opensrp.form.service.FormSubmissionConverter;
 import org.opensrp.form.service.FormSubmissionService;
-import org.opensrp.register.DrishtiScheduleConstants.OpenSRPEvent;
-import org.opensrp.scheduler.SystemEvent;
-import org.opensrp.scheduler.TaskSchedulerService;
+import org.opensrp.web.ingest.FormSubmissionJournal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -39,30 +29,16 @@ import org.springframework.web.bind.annotation.ResponseBody;
 
 import ch.lambdaj.function.convert.Converter;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
-
 @Controller
 public class FormSubmissionController {
     private static Logger logger = LoggerFactory.getLogger(FormSubmissionController.class.toString());
     private FormSubmissionService formSubmissionService;
-    private TaskSchedulerService scheduler;
-    private EncounterService encounterService;
-    private OpenmrsConnector openmrsConnector;
-    private PatientService patientService;
-    private HouseholdService householdService;
+    private FormSubmissionJournal formSubmissionJournal;
 
     @Autowired
-    public FormSubmissionController(FormSubmissionService formSubmissionService, TaskSchedulerService scheduler,
-    		EncounterService encounterService, OpenmrsConnector openmrsConnector, PatientService patientService, 
-    		HouseholdService householdService) {
+    public FormSubmissionController(FormSubmissionService formSubmissionService, FormSubmissionJournal formSubmissionJournal) {
         this.formSubmissionService = formSubmissionService;
-        this.scheduler = scheduler;
-        
-        this.encounterService = encounterService;
-        this.openmrsConnector = openmrsConnector;
-        this.patientService = patientService;
-        this.householdService = householdService;
+        this.formSubmissionJournal = formSubmissionJournal;
     }
 
     @RequestMapping(method = GET, value = "/form-submissions")
@@ -102,56 +78,11 @@ public class FormSubmissionController {
             if (formSubmissionsDTO.isEmpty()) {
                 return new ResponseEntity<>(BAD_REQUEST);
             }
-
-            scheduler.notifyEvent(new SystemEvent<>(OpenSRPEvent.FORM_SUBMISSION, formSubmissionsDTO));
-            
-            try{
-            ////////TODO MAIMOONA : SHOULD BE IN EVENT but event needs to be moved to web so for now kept here
-            String json = new Gson().toJson(formSubmissionsDTO);
-            System.out.println("MMMMMMMMMMMYYYYYYYYYYYYYY::"+json);
-            List<FormSubmissionDTO> formSubmissions = new Gson().fromJson(json, new TypeToken<List<FormSubmissionDTO>>() {
-            }.getType());
-            List<FormSubmission> fsl = with(formSubmissions).convert(new Converter<FormSubmissionDTO, FormSubmission>() {
-                @Override
-                public FormSubmission convert(FormSubmissionDTO submission) {
-                    return FormSubmissionConverter.toFormSubmission(submission);
-                }
-            });
-            for (FormSubmission formSubmission : fsl) {
-            	if(openmrsConnector.isOpenmrsForm(formSubmission)){
-	            	JSONObject p = patientService.getPatientByIdentifier(formSubmission.entityId());
-	            	
-	            	if(p != null){	            		
-	            		Event e = openmrsConnector.getEventFromFormSubmission(formSubmission);
-		        		System.out.println(encounterService.createEncounter(e));
-	            	}
-	            	else {
-	            		Map<String, Map<String, Object>> dep = openmrsConnector.getDependentClientsFromFormSubmission(formSubmission);
-	            		
-	            		if(dep.size()>0){
-	            			Client hhhClient = openmrsConnector.getClientFromFormSubmission(formSubmission);
-	            			Event hhhEvent = openmrsConnector.getEventFromFormSubmission(formSubmission);
-	            			OpenmrsHouseHold hh = new OpenmrsHouseHold(hhhClient, hhhEvent);
-	    	    			for (Map<String, Object> cm : dep.values()) {
-	    	    				hh.addHHMember((Client)cm.get("client"), (Event)cm.get("event"));
-	    	    			}
-	    	    			
-	    	    			householdService.saveHH(hh);
-	            		}
-	            		else {
-	            			Client c = openmrsConnector.getClientFromFormSubmission(formSubmission);
-	            			System.out.println(patientService.createPatient(c));
-	            			Event e = openmrsConnector.getEventFromFormSubmission(formSubmission);
-			        		System.out.println(encounterService.createEncounter(e));
-	            		}
-	            	}
-            	}
-    		}
-            }
-            catch(Exception e){
-            	e.printStackTrace();
+            if (!formSubmissionJournal.append(formSubmissionsDTO)) {
+                logger.warn(format("Form submission journal is full. Rejecting {0} submissions.", formSubmissionsDTO.size()));
+                return new ResponseEntity<>(SERVICE_UNAVAILABLE);
             }
-            logger.debug(format("Added Form submissions to queue.\nSubmissions: {0}", formSubmissionsDTO));
+            logger.debug(format("Added Form submissions to journal.\nSubmissions: {0}", formSubmissionsDTO));
         } catch (Exception e) {
             logger.error(format("Form submissions processing failed with exception {0}.\nSubmissions: {1}", e, formSubmissionsDTO));
             return new ResponseEntity<>(INTERNAL_SERVER_ERROR);
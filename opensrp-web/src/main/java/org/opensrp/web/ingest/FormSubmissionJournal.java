@@ -0,0 +1,194 @@
+package org.opensrp.web.ingest;
+
+import static java.text.MessageFormat.format;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.IOUtils;
+import org.opensrp.dto.form.FormSubmissionDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * Append-only, disk backed journal of form submission batches received from devices. A batch is acknowledged once
+ * its entry is synced to disk and the entry is removed only after it has been drained. Appends are refused once
+ * capacity batches are pending, which lets the caller push back on devices instead of buffering without bound.
+ */
+@Component
+public class FormSubmissionJournal {
+    private static Logger logger = LoggerFactory.getLogger(FormSubmissionJournal.class.toString());
+    private static final String ENTRY_EXTENSION = ".batch";
+    private static final String TEMPORARY_EXTENSION = ".tmp";
+    private static final String FAILED_EXTENSION = ".failed";
+    private static final String ENCODING = "UTF-8";
+
+    private File directory;
+    private int capacity;
+    private BlockingDeque<Entry> pendingEntries = new LinkedBlockingDeque<>();
+    private AtomicInteger size = new AtomicInteger();
+    private AtomicLong lastEntryId = new AtomicLong();
+
+    @Autowired
+    public FormSubmissionJournal(@Value("#{opensrp['form.submission.journal.directory']}") String directoryName,
+                                 @Value("#{opensrp['form.submission.journal.capacity']}") int capacity) throws IOException {
+        this.directory = new File(directoryName);
+        this.capacity = capacity;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException(format("Could not create form submission journal directory: {0}", directory.getAbsolutePath()));
+        }
+        recover();
+    }
+
+    /**
+     * Durably appends the batch. Returns false without writing anything when the journal is full.
+     */
+    public boolean append(List<FormSubmissionDTO> formSubmissions) throws IOException {
+        if (!reserveSlot()) {
+            logger.warn(format("Form submission journal is full. Pending batches: {0}", size.get()));
+            return false;
+        }
+        try {
+            long id = lastEntryId.incrementAndGet();
+            File temporaryFile = new File(directory, id + TEMPORARY_EXTENSION);
+            try (FileOutputStream outputStream = new FileOutputStream(temporaryFile)) {
+                outputStream.write(new Gson().toJson(formSubmissions).getBytes(ENCODING));
+                outputStream.getChannel().force(true);
+            }
+            File entryFile = new File(directory, id + ENTRY_EXTENSION);
+            if (!temporaryFile.renameTo(entryFile)) {
+                throw new IOException(format("Could not commit journal entry: {0}", entryFile.getAbsolutePath()));
+            }
+            pendingEntries.add(new Entry(id, entryFile));
+            return true;
+        } catch (IOException e) {
+            size.decrementAndGet();
+            throw e;
+        }
+    }
+
+    public Entry take() throws InterruptedException {
+        return pendingEntries.take();
+    }
+
+    public List<FormSubmissionDTO> read(Entry entry) throws IOException {
+        try (FileInputStream inputStream = new FileInputStream(entry.file())) {
+            return new Gson().fromJson(IOUtils.toString(inputStream, ENCODING), new TypeToken<List<FormSubmissionDTO>>() {
+            }.getType());
+        }
+    }
+
+    public void complete(Entry entry) {
+        if (!entry.file().delete()) {
+            logger.error(format("Could not delete drained journal entry: {0}", entry.file().getAbsolutePath()));
+        }
+        size.decrementAndGet();
+    }
+
+    /**
+     * Puts the entry back at the head of the journal so that it is drained again before any later batch.
+     */
+    public void requeue(Entry entry) {
+        pendingEntries.addFirst(entry);
+    }
+
+    /**
+     * Sets aside an entry that can never be drained, so that it stops occupying journal capacity.
+     */
+    public void discard(Entry entry) {
+        File failedFile = new File(directory, entry.id() + FAILED_EXTENSION);
+        if (!entry.file().renameTo(failedFile)) {
+            logger.error(format("Could not set aside journal entry: {0}", entry.file().getAbsolutePath()));
+        }
+        size.decrementAndGet();
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    private boolean reserveSlot() {
+        while (true) {
+            int current = size.get();
+            if (current >= capacity) {
+                return false;
+            }
+            if (size.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void recover() {
+        File[] files = directory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.getName().endsWith(ENTRY_EXTENSION) || file.getName().endsWith(TEMPORARY_EXTENSION)
+                        || file.getName().endsWith(FAILED_EXTENSION);
+            }
+        });
+        List<Entry> entries = new ArrayList<>();
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(TEMPORARY_EXTENSION)) {
+                // Never acknowledged to the device, so it will be sent again.
+                file.delete();
+                continue;
+            }
+            if (name.endsWith(FAILED_EXTENSION)) {
+                // Ids of entries set aside are never handed out again, so that they are not overwritten.
+                lastEntryId.set(Math.max(lastEntryId.get(), Long.parseLong(name.substring(0, name.length() - FAILED_EXTENSION.length()))));
+                continue;
+            }
+            entries.add(new Entry(Long.parseLong(name.substring(0, name.length() - ENTRY_EXTENSION.length())), file));
+        }
+        Collections.sort(entries);
+        for (Entry entry : entries) {
+            pendingEntries.add(entry);
+            lastEntryId.set(Math.max(lastEntryId.get(), entry.id()));
+        }
+        size.set(entries.size());
+        if (!entries.isEmpty()) {
+            logger.info(format("Recovered {0} pending batches from form submission journal: {1}", entries.size(), directory.getAbsolutePath()));
+        }
+    }
+
+    public static class Entry implements Comparable<Entry> {
+        private final long id;
+        private final File file;
+
+        Entry(long id, File file) {
+            this.id = id;
+            this.file = file;
+        }
+
+        public long id() {
+            return id;
+        }
+
+        File file() {
+            return file;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            return id == other.id ? 0 : id < other.id ? -1 : 1;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package org.opensrp.web.ingest;
+
+import static java.text.MessageFormat.format;
+import static org.apache.commons.lang.exception.ExceptionUtils.getFullStackTrace;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.PreDestroy;
+
+import org.opensrp.dto.form.FormSubmissionDTO;
+import org.opensrp.form.domain.FormSubmissionStatus;
+import org.opensrp.form.service.FormSubmissionConverter;
+import org.opensrp.form.service.FormSubmissionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drains journaled form submission batches into CouchDB and OpenMRS on one thread, in the order they were journaled.
+ * A batch that cannot be saved stays at the head of the journal and is retried after a delay, ahead of later batches.
+ */
+@Component
+public class FormSubmissionJournalDrainer {
+    private static Logger logger = LoggerFactory.getLogger(FormSubmissionJournalDrainer.class.toString());
+    private static final long RETRY_DELAY_IN_MILLIS = 30000;
+
+    private FormSubmissionJournal journal;
+    private FormSubmissionService formSubmissionService;
+    private OpenmrsFormSubmissionForwarder openmrsForwarder;
+    private ExecutorService drainer;
+
+    @Autowired
+    public FormSubmissionJournalDrainer(FormSubmissionJournal journal, FormSubmissionService formSubmissionService,
+                                        OpenmrsFormSubmissionForwarder openmrsForwarder) {
+        this.journal = journal;
+        this.formSubmissionService = formSubmissionService;
+        this.openmrsForwarder = openmrsForwarder;
+    }
+
+    public synchronized void start() {
+        if (drainer != null) {
+            return;
+        }
+        logger.info(format("Starting form submission journal drainer. Pending batches: {0}", journal.size()));
+        drainer = Executors.newSingleThreadExecutor();
+        drainer.execute(new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        });
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (drainer != null) {
+            drainer.shutdownNow();
+            drainer = null;
+        }
+    }
+
+    void drain() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                FormSubmissionJournal.Entry entry = journal.take();
+                if (!process(entry)) {
+                    journal.requeue(entry);
+                    Thread.sleep(RETRY_DELAY_IN_MILLIS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    boolean process(FormSubmissionJournal.Entry entry) {
+        List<FormSubmissionDTO> formSubmissions;
+        try {
+            formSubmissions = journal.read(entry);
+        } catch (IOException e) {
+            logger.error(format("Could not read journal entry {0}. Setting it aside. Exception: {1}", entry.id(), getFullStackTrace(e)));
+            journal.discard(entry);
+            return true;
+        }
+
+        List<FormSubmissionStatus> statuses;
+        try {
+            statuses = formSubmissionService.submitInBulk(formSubmissions);
+        } catch (Exception e) {
+            logger.error(format("Saving journal entry {0} failed. Will retry. Exception: {1}", entry.id(), getFullStackTrace(e)));
+            return false;
+        }
+
+        Set<String> savedInstanceIds = new HashSet<>();
+        for (FormSubmissionStatus status : statuses) {
+            if (status.isFailed()) {
+                logger.error(format("Form submission with instance Id: {0} could not be saved. Reason: {1}", status.instanceId(), status.reason()));
+            } else if (FormSubmissionStatus.Outcome.SAVED.equals(status.outcome())) {
+                savedInstanceIds.add(status.instanceId());
+            }
+        }
+        for (FormSubmissionDTO formSubmission : formSubmissions) {
+            if (savedInstanceIds.remove(formSubmission.instanceId())) {
+                openmrsForwarder.forward(FormSubmissionConverter.toFormSubmission(formSubmission));
+            }
+        }
+        journal.complete(entry);
+        return true;
+    }
+}
@@ -0,0 +1,71 @@
+package org.opensrp.web.ingest;
+
+import static java.text.MessageFormat.format;
+import static org.apache.commons.lang.exception.ExceptionUtils.getFullStackTrace;
+
+import java.util.Map;
+
+import org.json.JSONObject;
+import org.opensrp.api.domain.Client;
+import org.opensrp.api.domain.Event;
+import org.opensrp.connector.OpenmrsConnector;
+import org.opensrp.connector.openmrs.constants.OpenmrsHouseHold;
+import org.opensrp.connector.openmrs.service.EncounterService;
+import org.opensrp.connector.openmrs.service.HouseholdService;
+import org.opensrp.connector.openmrs.service.PatientService;
+import org.opensrp.form.domain.FormSubmission;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+@Component
+public class OpenmrsFormSubmissionForwarder {
+    private static Logger logger = LoggerFactory.getLogger(OpenmrsFormSubmissionForwarder.class.toString());
+    private EncounterService encounterService;
+    private OpenmrsConnector openmrsConnector;
+    private PatientService patientService;
+    private HouseholdService householdService;
+
+    @Autowired
+    public OpenmrsFormSubmissionForwarder(EncounterService encounterService, OpenmrsConnector openmrsConnector,
+                                          PatientService patientService, HouseholdService householdService) {
+        this.encounterService = encounterService;
+        this.openmrsConnector = openmrsConnector;
+        this.patientService = patientService;
+        this.householdService = householdService;
+    }
+
+    public void forward(FormSubmission formSubmission) {
+        try {
+            if (!openmrsConnector.isOpenmrsForm(formSubmission)) {
+                return;
+            }
+            JSONObject patient = patientService.getPatientByIdentifier(formSubmission.entityId());
+            if (patient != null) {
+                Event event = openmrsConnector.getEventFromFormSubmission(formSubmission);
+                logger.debug(format("Created encounter: {0}", encounterService.createEncounter(event)));
+                return;
+            }
+
+            Map<String, Map<String, Object>> dependents = openmrsConnector.getDependentClientsFromFormSubmission(formSubmission);
+            if (dependents.size() > 0) {
+                Client householdHead = openmrsConnector.getClientFromFormSubmission(formSubmission);
+                Event householdHeadEvent = openmrsConnector.getEventFromFormSubmission(formSubmission);
+                OpenmrsHouseHold household = new OpenmrsHouseHold(householdHead, householdHeadEvent);
+                for (Map<String, Object> dependent : dependents.values()) {
+                    household.addHHMember((Client) dependent.get("client"), (Event) dependent.get("event"));
+                }
+                householdService.saveHH(household);
+            } else {
+                Client client = openmrsConnector.getClientFromFormSubmission(formSubmission);
+                logger.debug(format("Created patient: {0}", patientService.createPatient(client)));
+                Event event = openmrsConnector.getEventFromFormSubmission(formSubmission);
+                logger.debug(format("Created encounter: {0}", encounterService.createEncounter(event)));
+            }
+        } catch (Exception e) {
+            logger.error(format("Forwarding form submission with instance Id: {0} to OpenMRS failed with exception: {1}",
+                    formSubmission.instanceId(), getFullStackTrace(e)));
+        }
+    }
+}
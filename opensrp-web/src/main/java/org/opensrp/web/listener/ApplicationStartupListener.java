@@ -5,6 +5,8 @@ import java.util.concurrent.TimeUnit;
 import org.opensrp.register.DrishtiScheduleConstants;
 import org.opensrp.scheduler.RepeatingSchedule;
 import org.opensrp.scheduler.TaskSchedulerService;
+import org.opensrp.scheduler.service.AlertIdMigration;
+import org.opensrp.web.ingest.FormSubmissionJournalDrainer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationListener;
@@ -16,16 +18,21 @@ public class ApplicationStartupListener implements ApplicationListener<ContextRe
     public static final String APPLICATION_ID = "org.springframework.web.context.WebApplicationContext:/opensrp";
 
     private TaskSchedulerService scheduler;
+    private FormSubmissionJournalDrainer formSubmissionJournalDrainer;
+    private AlertIdMigration alertIdMigration;
     
     private RepeatingSchedule formSchedule;
     private RepeatingSchedule anmReportScheduler;
     private RepeatingSchedule mctsReportScheduler;
     
     @Autowired
-    public ApplicationStartupListener(TaskSchedulerService scheduler, 
+    public ApplicationStartupListener(TaskSchedulerService scheduler, FormSubmissionJournalDrainer formSubmissionJournalDrainer,
+    		AlertIdMigration alertIdMigration,
     		@Value("#{opensrp['form.poll.time.interval']}") int formPollInterval,
     		@Value("#{opensrp['mcts.poll.time.interval.in.minutes']}") int mctsPollIntervalInHours) {
         this.scheduler = scheduler;
+        this.formSubmissionJournalDrainer = formSubmissionJournalDrainer;
+        this.alertIdMigration = alertIdMigration;
         formSchedule = new RepeatingSchedule(DrishtiScheduleConstants.FORM_SCHEDULE_SUBJECT, 2, TimeUnit.MINUTES, formPollInterval, TimeUnit.MINUTES);
         anmReportScheduler = new RepeatingSchedule(DrishtiScheduleConstants.ANM_REPORT_SCHEDULE_SUBJECT, 10, TimeUnit.MINUTES, 6, TimeUnit.HOURS);
         mctsReportScheduler = new RepeatingSchedule(DrishtiScheduleConstants.MCTS_REPORT_SCHEDULE_SUBJECT, 10, TimeUnit.MINUTES, mctsPollIntervalInHours, TimeUnit.HOURS);
@@ -37,6 +44,8 @@ public class ApplicationStartupListener implements ApplicationListener<ContextRe
             scheduler.startJob(formSchedule);
             scheduler.startJob(anmReportScheduler);
             scheduler.startJob(mctsReportScheduler);
+            formSubmissionJournalDrainer.start();
+            alertIdMigration.start();
         }
     }
 }
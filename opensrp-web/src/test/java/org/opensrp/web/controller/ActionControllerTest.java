@@ -10,6 +10,8 @@ import org.opensrp.dto.ActionData;
 
 import static java.util.Arrays.asList;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 import static org.motechproject.delivery.schedule.util.SameItems.hasSameItemsAs;
@@ -32,11 +34,22 @@ public class ActionControllerTest {
     @Test
     public void shouldGiveAlertActionForANMSinceTimeStamp() throws Exception {
         org.opensrp.scheduler.Action alertAction = new org.opensrp.scheduler.Action("Case X", "ANM 1", ActionData.createAlert(mother, "Ante Natal Care - Normal", "ANC 1", normal, DateTime.now(), DateTime.now().plusDays(3)));
-        when(actionService.getNewAlertsForANM("ANM 1", 0L)).thenReturn(asList(alertAction));
+        when(actionService.getNewAlertsForANM("ANM 1", 0L, 10)).thenReturn(asList(alertAction));
 
         Action expectedAlertActionItem = ActionConvertor.from(alertAction);
-        ActionController actionController = new ActionController(actionService);
+        ActionController actionController = new ActionController(actionService, 100);
 
-        assertThat(asList(expectedAlertActionItem), hasSameItemsAs(actionController.getNewActionForANM("ANM 1", 0L)));
+        assertThat(asList(expectedAlertActionItem), hasSameItemsAs(actionController.getNewActionForANM("ANM 1", 0L, 10)));
+        verify(actionService).getNewAlertsForANM("ANM 1", 0L, 10);
+    }
+
+    @Test
+    public void shouldNotGiveMoreActionsThanTheMaximumBatchSize() throws Exception {
+        ActionController actionController = new ActionController(actionService, 100);
+
+        actionController.getNewActionForANM("ANM 1", 0L, 1000);
+        actionController.getNewActionForANM("ANM 1", 0L, null);
+
+        verify(actionService, times(2)).getNewAlertsForANM("ANM 1", 0L, 100);
     }
 }
@@ -0,0 +1,99 @@
+package org.opensrp.web.ingest;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.opensrp.dto.form.FormSubmissionDTO;
+
+public class FormSubmissionJournalTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String directory;
+    private List<FormSubmissionDTO> firstBatch;
+    private List<FormSubmissionDTO> secondBatch;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = new File(folder.getRoot(), "journal").getAbsolutePath();
+        firstBatch = asList(new FormSubmissionDTO("anm id 1", "instance id 1", "entity id 1", "form name", "{}", "0", "1"));
+        secondBatch = asList(new FormSubmissionDTO("anm id 1", "instance id 2", "entity id 2", "form name", "{}", "1", "1"));
+    }
+
+    @Test
+    public void shouldHandOutAppendedBatchesInOrder() throws Exception {
+        FormSubmissionJournal journal = new FormSubmissionJournal(directory, 10);
+
+        journal.append(firstBatch);
+        journal.append(secondBatch);
+
+        assertEquals(firstBatch, journal.read(journal.take()));
+        assertEquals(secondBatch, journal.read(journal.take()));
+    }
+
+    @Test
+    public void shouldRefuseBatchesWhenFullAndAcceptThemAgainOnceDrained() throws Exception {
+        FormSubmissionJournal journal = new FormSubmissionJournal(directory, 1);
+
+        assertTrue(journal.append(firstBatch));
+        assertFalse(journal.append(secondBatch));
+
+        journal.complete(journal.take());
+
+        assertTrue(journal.append(secondBatch));
+        assertEquals(1, journal.size());
+    }
+
+    @Test
+    public void shouldRecoverPendingBatchesAfterRestart() throws Exception {
+        FormSubmissionJournal journal = new FormSubmissionJournal(directory, 10);
+        journal.append(firstBatch);
+        journal.append(secondBatch);
+        journal.complete(journal.take());
+
+        FormSubmissionJournal recoveredJournal = new FormSubmissionJournal(directory, 10);
+
+        assertEquals(1, recoveredJournal.size());
+        assertEquals(secondBatch, recoveredJournal.read(recoveredJournal.take()));
+    }
+
+    @Test
+    public void shouldDrainRequeuedEntryBeforeLaterBatches() throws Exception {
+        FormSubmissionJournal journal = new FormSubmissionJournal(directory, 10);
+        journal.append(firstBatch);
+        journal.append(secondBatch);
+
+        journal.requeue(journal.take());
+
+        assertEquals(firstBatch, journal.read(journal.take()));
+    }
+
+    @Test
+    public void shouldNotHandOutIdsOfEntriesSetAsideBeforeRestart() throws Exception {
+        FormSubmissionJournal journal = new FormSubmissionJournal(directory, 10);
+        journal.append(firstBatch);
+        journal.append(secondBatch);
+        FormSubmissionJournal.Entry firstEntry = journal.take();
+        journal.complete(firstEntry);
+        FormSubmissionJournal.Entry secondEntry = journal.take();
+        journal.discard(secondEntry);
+
+        FormSubmissionJournal recoveredJournal = new FormSubmissionJournal(directory, 10);
+        recoveredJournal.append(firstBatch);
+        FormSubmissionJournal.Entry newEntry = recoveredJournal.take();
+        recoveredJournal.discard(newEntry);
+
+        assertTrue(newEntry.id() > secondEntry.id());
+        assertTrue(new File(directory, secondEntry.id() + ".failed").exists());
+        assertTrue(new File(directory, newEntry.id() + ".failed").exists());
+    }
+}